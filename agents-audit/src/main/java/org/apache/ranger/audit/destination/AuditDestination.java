@@ -19,9 +19,15 @@
 
 package org.apache.ranger.audit.destination;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.function.Consumer;
 
+import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.utils.AsyncBulkIndexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +38,12 @@
 public abstract class AuditDestination extends BaseAuditHandler {
 	private static final Logger logger = LoggerFactory.getLogger(AuditDestination.class);
 
+	public static final String PROP_BULK = "bulk";
+
+	protected AsyncBulkIndexer<AuditEventBase> bulkIndexer = null;
+
+	private volatile Consumer<Collection<AuditEventBase>> fallback = null;
+
 	public AuditDestination() {
 		logger.info("AuditDestination() enter");
 	}
@@ -77,5 +89,81 @@ public void waitToComplete() {
 	public void waitToComplete(long timeout) {
 		
 	}
+
+	/**
+	 * Sets where events go that this destination accepted from log() but could not send later on - like the events
+	 * of the async bulk mode that fail only because the destination is down. The queue in front of the destination
+	 * sets its file spool here, so these events are spooled and sent again, as events log() returns false for are.
+	 */
+	public void setFallback(Consumer<Collection<AuditEventBase>> fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * For destinations with a bulk API: if <propPrefix>.bulk.async=true, starts an AsyncBulkIndexer sending the events
+	 * with the given sender; logToBulkIndexer() then only buffers them. See AsyncBulkIndexer for the other
+	 * <propPrefix>.bulk properties.
+	 */
+	protected void initBulkIndexer(AsyncBulkIndexer.BulkSender<AuditEventBase> sender) {
+		String bulkPropPrefix = propPrefix + "." + PROP_BULK;
+
+		if (AsyncBulkIndexer.isAsync(props, bulkPropPrefix)) {
+			logger.info("Sending audits to " + getName() + " with asynchronous bulk requests");
+
+			bulkIndexer = new AsyncBulkIndexer<>(getName(), props, bulkPropPrefix, sender, new AsyncBulkIndexer.Listener<AuditEventBase>() {
+				@Override
+				public void onSuccess(int count) {
+					synchronized (AuditDestination.this) { // called from several sender threads
+						addSuccessCount(count);
+					}
+				}
+
+				@Override
+				public void onFailure(List<AuditEventBase> events, String reason, boolean isRetryable) {
+					Consumer<Collection<AuditEventBase>> fallback = AuditDestination.this.fallback;
+
+					if (isRetryable && fallback != null) {
+						logger.warn("Failed to send " + events.size() + " audit events to " + getName() + ": " + reason + ". Passing them to the spool");
+
+						fallback.accept(events);
+
+						synchronized (AuditDestination.this) {
+							addStashedCount(events.size());
+						}
+					} else {
+						synchronized (AuditDestination.this) {
+							addFailedCount(events.size());
+						}
+
+						logFailedEvent(events, reason);
+					}
+				}
+			});
+
+			bulkIndexer.start();
+		}
+	}
+
+	protected boolean logToBulkIndexer(Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+		addTotalCount(events.size());
+
+		// the caller reuses its batch
+		boolean ret = bulkIndexer.add(new ArrayList<>(events));
+
+		if (!ret) {
+			// no room: the caller keeps the events, to retry or spool them
+			addDeferredCount(events.size());
+		}
+
+		return ret;
+	}
+
+	// once stopped, the indexer takes no more events: logToBulkIndexer() returns false
+	protected void stopBulkIndexer() {
+		if (bulkIndexer != null) {
+			bulkIndexer.stop();
+		}
+	}
 	
 }
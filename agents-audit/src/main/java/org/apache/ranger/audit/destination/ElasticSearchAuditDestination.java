@@ -20,12 +20,14 @@
 package org.apache.ranger.audit.destination;
 
 import java.io.File;
+import java.io.IOException;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
@@ -46,6 +48,7 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AsyncBulkIndexer;
 import org.apache.ranger.authorization.credutils.CredentialsProviderUtil;
 import org.apache.ranger.authorization.credutils.kerberos.KerberosCredentialsProvider;
 import org.elasticsearch.action.admin.indices.open.OpenIndexRequest;
@@ -100,6 +103,7 @@ public void init(Properties props, String propPrefix) {
         this.hosts = getHosts();
         LOG.info("Connecting to ElasticSearch: " + connectionString());
         getClient(); // Initialize client
+        initBulkIndexer(this::sendBulk);
     }
 
     private String connectionString() {
@@ -108,12 +112,17 @@ private String connectionString() {
 
     @Override
     public void stop() {
+        stopBulkIndexer();
         super.stop();
         logStatus();
     }
 
     @Override
     public boolean log(Collection<AuditEventBase> events) {
+        if (bulkIndexer != null) {
+            return logToBulkIndexer(events);
+        }
+
         boolean ret = false;
         try {
             logStatusIfRequired();
@@ -167,6 +176,35 @@ public boolean log(Collection<AuditEventBase> events) {
         return ret;
     }
 
+    // the bulk request of the async mode: rejected items (429, 5xx) are retried by the AsyncBulkIndexer
+    private AsyncBulkIndexer.BulkResult sendBulk(List<AuditEventBase> events) throws Exception {
+        RestHighLevelClient client = getClient();
+        if (null == client) {
+            throw new IOException("ElasticSearch is not initialized: " + connectionString());
+        }
+
+        BulkRequest bulkRequest = new BulkRequest();
+        for (AuditEventBase event : events) {
+            AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+            bulkRequest.add(new IndexRequest(index).id(authzEvent.getEventId()).source(toDoc(authzEvent)));
+        }
+
+        BulkResponse response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
+        int status = response.status().getStatus();
+        if (status >= 400) {
+            return AsyncBulkIndexer.BulkResult.failed(events.size(), AsyncBulkIndexer.isRetryable(status), "HTTP " + status);
+        }
+
+        AsyncBulkIndexer.BulkResult ret = new AsyncBulkIndexer.BulkResult(events.size());
+        BulkItemResponse[] items = response.getItems();
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].isFailed()) {
+                ret.setFailed(i, AsyncBulkIndexer.isRetryable(items[i].status().getStatus()), items[i].getFailureMessage());
+            }
+        }
+        return ret;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -346,6 +384,9 @@ Map<String, Object> toDoc(AuthzAuditEvent auditEvent) {
         doc.put("zoneName", auditEvent.getZoneName());
         doc.put("agentHost", auditEvent.getAgentHostname());
         doc.put("policyVersion", auditEvent.getPolicyVersion());
+        if (auditEvent.getSampleRate() != null) {
+            doc.put("sample_rate", auditEvent.getSampleRate());
+        }
         return doc;
     }
 
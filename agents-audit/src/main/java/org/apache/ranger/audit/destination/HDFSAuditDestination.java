@@ -28,8 +28,10 @@
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditWriterFactory;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.RangerAuditEventWriter;
 import org.apache.ranger.audit.utils.RangerAuditWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -97,6 +99,44 @@ synchronized public boolean logJSON(final Collection<String> events) {
 		return true;
 	}
 
+	/**
+	 * Writes the events with a RangerAuditEventWriter, without converting them to JSON first
+	 */
+	synchronized public boolean logEvents(final Collection<AuthzAuditEvent> events) {
+		logStatusIfRequired();
+		addTotalCount(events.size());
+
+		if (!initDone) {
+			addDeferredCount(events.size());
+			return false;
+		}
+		if (isStopped) {
+			addDeferredCount(events.size());
+			logError("log() called after stop was requested. name={}", getName());
+			return false;
+		}
+		try {
+			boolean ret = ((RangerAuditEventWriter) auditWriter).logEvents(events);
+			if (!ret) {
+				addDeferredCount(events.size());
+				return false;
+			}
+		} catch (Throwable t) {
+			addDeferredCount(events.size());
+			logError("Error writing to log file.", t);
+			return false;
+		} finally {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Flushing HDFS audit. Event Size:{}", events.size());
+			}
+			if (auditWriter != null) {
+				flush();
+			}
+		}
+		addSuccessCount(events.size());
+		return true;
+	}
+
 	@Override
 	synchronized public boolean logFile(final File file)  {
 		logStatusIfRequired();
@@ -159,6 +199,12 @@ public boolean log(Collection<AuditEventBase> events) {
 			logError("log() called after stop was requested. name={}", getName());
 			return false;
 		}
+		if (auditWriter instanceof RangerAuditEventWriter) {
+			List<AuthzAuditEvent> authzAuditEvents = getAuthzAuditEvents(events);
+			if (authzAuditEvents != null) {
+				return logEvents(authzAuditEvents);
+			}
+		}
 		List<String> jsonList = new ArrayList<String>();
 		for (AuditEventBase event : events) {
 			try {
@@ -174,6 +220,18 @@ public boolean log(Collection<AuditEventBase> events) {
 
 	}
 
+	// null if any of the events is not an AuthzAuditEvent; those go through JSON
+	private List<AuthzAuditEvent> getAuthzAuditEvents(Collection<AuditEventBase> events) {
+		List<AuthzAuditEvent> ret = new ArrayList<AuthzAuditEvent>(events.size());
+		for (AuditEventBase event : events) {
+			if (!(event instanceof AuthzAuditEvent)) {
+				return null;
+			}
+			ret.add((AuthzAuditEvent) event);
+		}
+		return ret;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
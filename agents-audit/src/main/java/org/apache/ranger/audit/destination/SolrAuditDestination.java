@@ -23,6 +23,7 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AsyncBulkIndexer;
 import org.apache.ranger.audit.utils.InMemoryJAASConfiguration;
 import org.apache.ranger.audit.utils.KerberosAction;
 import org.apache.ranger.audit.utils.KerberosUser;
@@ -94,11 +95,13 @@ public void init(Properties props, String propPrefix) {
 		super.init(props, propPrefix);
 		init();
 		connect();
+		initBulkIndexer(this::sendBulk);
 	}
 
 	@Override
 	public void stop() {
 		LOG.info("SolrAuditDestination.stop() called..");
+		stopBulkIndexer();
 		logStatus();
 
 		if (solrClient != null) {
@@ -221,6 +224,10 @@ public LBHttpSolrClient run() throws Exception {
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
+		if (bulkIndexer != null) {
+			return logToBulkIndexer(events);
+		}
+
 		boolean ret = false;
 		try {
 			logStatusIfRequired();
@@ -263,6 +270,36 @@ public boolean log(Collection<AuditEventBase> events) {
 		return ret;
 	}
 
+	// the update request of the async mode: Solr accepts or rejects the whole request, which the AsyncBulkIndexer
+	// retries if Solr was overloaded or unavailable (429, 5xx) or could not be reached
+	private AsyncBulkIndexer.BulkResult sendBulk(List<AuditEventBase> events) throws Exception {
+		SolrClient solrClient = this.solrClient;
+		if (solrClient == null) {
+			connect();
+			solrClient = this.solrClient;
+			if (solrClient == null) {
+				throw new IOException("Solr is not initialized");
+			}
+		}
+
+		final Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>(events.size());
+		for (AuditEventBase event : events) {
+			docs.add(toSolrDoc((AuthzAuditEvent) event));
+		}
+
+		try {
+			final UpdateResponse response = addDocsToSolr(solrClient, docs);
+
+			if (response.getStatus() != 0) {
+				return AsyncBulkIndexer.BulkResult.failed(events.size(), false, response.toString());
+			}
+		} catch (SolrException ex) {
+			return AsyncBulkIndexer.BulkResult.failed(events.size(), AsyncBulkIndexer.isRetryable(ex.code()), ex.toString());
+		}
+
+		return new AsyncBulkIndexer.BulkResult(events.size());
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -304,6 +341,10 @@ SolrInputDocument toSolrDoc(AuthzAuditEvent auditEvent) {
 		doc.setField("agentHost", auditEvent.getAgentHostname());
 		doc.setField("policyVersion", auditEvent.getPolicyVersion());
 
+		if (auditEvent.getSampleRate() != null) {
+			doc.setField("sample_rate", auditEvent.getSampleRate());
+		}
+
 		return doc;
 	}
 
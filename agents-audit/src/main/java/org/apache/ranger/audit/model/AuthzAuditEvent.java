@@ -25,6 +25,7 @@
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.apache.commons.lang.StringUtils;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -131,6 +132,18 @@ public class AuthzAuditEvent extends AuditEventBase {
 	@JsonProperty("policy_version")
 	protected Long policyVersion;
 
+	/**
+	 * Set by AuditSamplingQueue on the events it keeps: the event stands for 1/sampleRate events, itself included.
+	 * Not set (null) for events that were not sampled.
+	 */
+	@JsonProperty("sample_rate")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	protected Double sampleRate;
+
+	// set while the event is taken from a pool: see AuthzAuditEventPool
+	private transient AuthzAuditEventPool pool;
+	private transient Date                pooledEventTime;
+
 	public AuthzAuditEvent() {
 		super();
 
@@ -533,10 +546,95 @@ public void setClusterName(String clusterName) {
 		this.clusterName = clusterName;
 	}
 
+	public Double getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(Double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
 	public String getAdditionalInfo() { return this.additionalInfo; }
 
 	public void setAdditionalInfo(String additionalInfo) { this.additionalInfo = additionalInfo; }
 
+	/**
+	 * Sets the event time in milliseconds. On an event taken from AuthzAuditEventPool, the Date it owns is updated in
+	 * place instead of a new Date being allocated.
+	 */
+	public void setEventTimeMillis(long eventTime) {
+		if (this.eventTime != null && this.eventTime == pooledEventTime) {
+			this.eventTime.setTime(eventTime);
+		} else {
+			this.eventTime = new Date(eventTime);
+		}
+	}
+
+	/**
+	 * Returns the event to the pool it was taken from; does nothing for other events. Only the last holder of the
+	 * event may call this - e.g. an audit queue that drops it - as the event is cleared and handed out again.
+	 */
+	public void recycle() {
+		AuthzAuditEventPool pool = this.pool;
+
+		if (pool != null) {
+			this.pool = null;
+
+			pool.release(this);
+		}
+	}
+
+	void setPool(AuthzAuditEventPool pool) {
+		this.pool = pool;
+
+		if (pooledEventTime == null) {
+			pooledEventTime = eventTime != null ? eventTime : new Date();
+			eventTime       = pooledEventTime;
+		}
+	}
+
+	/**
+	 * Clears the fields for the event to be reused, as they are after the default constructor - except for the event
+	 * time, which keeps its Date and value, and the tag set, which is kept only if empty
+	 */
+	void reset() {
+		repositoryType  = 0;
+		repositoryName  = null;
+		user            = null;
+		eventTime       = pooledEventTime;
+		accessType      = null;
+		resourcePath    = null;
+		resourceType    = null;
+		action          = null;
+		accessResult    = 0;
+		agentId         = null;
+		policyId        = 0;
+		resultReason    = null;
+		aclEnforcer     = null;
+		sessionId       = null;
+		clientType      = null;
+		clientIP        = null;
+		requestData     = null;
+		agentHostname   = null;
+		logType         = null;
+		eventId         = null;
+		seqNum          = 0;
+		eventCount      = 1;
+		eventDurationMS = 0;
+		datasets        = null;
+		projects        = null;
+		additionalInfo  = null;
+		clusterName     = null;
+		zoneName        = null;
+		policyVersion   = null;
+		sampleRate      = null;
+
+		// the set may have been given by the caller: don't clear it
+		if (tags == null || !tags.isEmpty()) {
+			tags = new HashSet<>();
+		}
+	}
+
 	@JsonIgnore
 	@Override
 	public String getEventKey() {
@@ -593,6 +691,7 @@ protected StringBuilder toString(StringBuilder sb) {
 				.append(FIELD_SEPARATOR).append("clusterName=").append(clusterName)
 				.append(FIELD_SEPARATOR).append("zoneName=").append(zoneName)
 				.append(FIELD_SEPARATOR).append("policyVersion=").append(policyVersion)
+				.append(FIELD_SEPARATOR).append("sampleRate=").append(sampleRate)
 				.append(FIELD_SEPARATOR).append("additionalInfo=").append(additionalInfo);
 
 		return sb;
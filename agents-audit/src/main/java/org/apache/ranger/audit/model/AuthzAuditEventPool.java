@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ranger.audit.queue.AuditRingBuffer;
+
+/**
+ * Bounded pool of AuthzAuditEvent instances, safe for use by many threads.
+ *
+ * An event taken with acquire() comes back to the pool only when its last holder calls AuthzAuditEvent.recycle():
+ * the audit handler that created the event, if it was not logged, or an audit queue that drops the event, like
+ * AuditSamplingQueue, or merges it into another, like AuditSummaryQueue. Events that are never recycled are left to
+ * the garbage collector, as events that are not pooled are; hence the pool never hands out an event still in use, as
+ * long as no holder of an event recycles it while others may still read it.
+ */
+public class AuthzAuditEventPool {
+	private final AuditRingBuffer<AuthzAuditEvent> events;
+	private final LongAdder                        createdCount = new LongAdder();
+	private final LongAdder                        reusedCount  = new LongAdder();
+
+	public AuthzAuditEventPool(int capacity) {
+		this.events = new AuditRingBuffer<>(capacity);
+	}
+
+	public AuthzAuditEvent acquire() {
+		AuthzAuditEvent ret = events.poll();
+
+		if (ret == null) {
+			ret = new AuthzAuditEvent();
+
+			createdCount.increment();
+		} else {
+			reusedCount.increment();
+		}
+
+		ret.setPool(this);
+
+		return ret;
+	}
+
+	public int size() {
+		return events.size();
+	}
+
+	public int getCapacity() {
+		return events.getCapacity();
+	}
+
+	public long getCreatedCount() {
+		return createdCount.sum();
+	}
+
+	public long getReusedCount() {
+		return reusedCount.sum();
+	}
+
+	void release(AuthzAuditEvent event) {
+		event.reset();
+
+		events.offer(event); // left to the garbage collector if the pool is full
+	}
+}
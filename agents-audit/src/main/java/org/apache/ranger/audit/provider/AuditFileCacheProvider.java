@@ -19,6 +19,7 @@
 package org.apache.ranger.audit.provider;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.queue.AuditFileCacheProviderSpool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,9 +59,13 @@ public void init(Properties prop, String basePropertyName) {
     public boolean log(AuditEventBase event) {
         boolean ret = false;
         if ( event != null) {
-            fileSpooler.stashLogs(event);
-            if ( fileSpooler.isSpoolingSuccessful()) {
+            // the result of this call: the spooler is shared by all threads logging events
+            if (fileSpooler.stashLogs(event)) {
                 ret = true;
+                // the event has been written to the spool file: if it came from an AuthzAuditEventPool, it can be reused
+                if (event instanceof AuthzAuditEvent) {
+                    ((AuthzAuditEvent) event).recycle();
+                }
             }
         }
         return ret;
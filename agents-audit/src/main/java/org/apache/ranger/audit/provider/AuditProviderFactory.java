@@ -35,6 +35,8 @@
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditFileQueue;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditRingBufferQueue;
+import org.apache.ranger.audit.queue.AuditSamplingQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,12 +61,15 @@ public class AuditProviderFactory {
 	public static final String AUDIT_DEST_BASE = "xasecure.audit.destination";
 	public static final String AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC = "xasecure.audit.shutdown.hook.max.wait.seconds";
 	public static final String AUDIT_IS_FILE_CACHE_PROVIDER_ENABLE_PROP = "xasecure.audit.provider.filecache.is.enabled";
+	public static final String AUDIT_SAMPLING_PROP_PREFIX = "xasecure.audit.sampling";
 	public static final String FILE_QUEUE_TYPE	  = "filequeue";
 	public static final String DEFAULT_QUEUE_TYPE = "memoryqueue";
+	public static final String RING_BUFFER_QUEUE_TYPE = "ringbuffer";
 	public static final int AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC_DEFAULT = 30;
 
 	public static final int AUDIT_ASYNC_MAX_QUEUE_SIZE_DEFAULT = 10 * 1024;
 	public static final int AUDIT_ASYNC_MAX_FLUSH_INTERVAL_DEFAULT = 5 * 1000;
+	public static final int AUDIT_ASYNC_RING_BUFFER_BATCH_INTERVAL_DEFAULT = 100;
 
 	private static final int RANGER_AUDIT_SHUTDOWN_HOOK_PRIORITY = 30;
 
@@ -237,7 +242,10 @@ public synchronized void init(Properties props, String appType) {
 				// destination to process it in parallel
 				LOG.info("MultiDestAuditProvider is used. Destination count="
 						+ providers.size());
-				MultiDestAuditProvider multiDestProvider = new MultiDestAuditProvider();
+				boolean isParallelDispatch = MiscUtil.getBooleanProperty(props,
+						ParallelMultiDestAuditProvider.PROP_DISPATCH_PREFIX + "." + ParallelMultiDestAuditProvider.PROP_PARALLEL, false);
+				MultiDestAuditProvider multiDestProvider = isParallelDispatch ? new ParallelMultiDestAuditProvider() : new MultiDestAuditProvider();
+				LOG.info("Dispatch to destinations is " + (isParallelDispatch ? "parallel" : "sequential"));
 				multiDestProvider.init(props);
 				multiDestProvider.addAuditProviders(providers);
 				consumer = multiDestProvider;
@@ -260,13 +268,19 @@ public synchronized void init(Properties props, String appType) {
 
 			if (!isAuditFileCacheProviderEnabled) {
 				// Create the AsysnQueue
-				AuditAsyncQueue asyncQueue = new AuditAsyncQueue(consumer);
 				propPrefix = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + "async";
+				String asyncQueueType = MiscUtil.getStringProperty(props, propPrefix + "." + "queuetype", DEFAULT_QUEUE_TYPE);
+				AuditQueue asyncQueue;
+				if (RING_BUFFER_QUEUE_TYPE.equalsIgnoreCase(asyncQueueType)) {
+					asyncQueue = new AuditRingBufferQueue(consumer, true); // the first queue: events are not shared yet
+					// hand events over to the next queue soon, like AuditAsyncQueue does
+					asyncQueue.setMaxBatchInterval(AUDIT_ASYNC_RING_BUFFER_BATCH_INTERVAL_DEFAULT);
+				} else {
+					asyncQueue = new AuditAsyncQueue(consumer);
+				}
 				asyncQueue.init(props, propPrefix);
 				asyncQueue.setParentPath(componentAppType);
 				mProvider = asyncQueue;
-				LOG.info("Starting audit queue " + mProvider.getName());
-				mProvider.start();
 			} else {
 				// Assign AsyncQueue to AuditFileCacheProvider
 				AuditFileCacheProvider auditFileCacheProvider = new AuditFileCacheProvider(consumer);
@@ -274,9 +288,31 @@ public synchronized void init(Properties props, String appType) {
 				auditFileCacheProvider.init(props, propPrefix);
 				auditFileCacheProvider.setParentPath(componentAppType);
 				mProvider = auditFileCacheProvider;
-				LOG.info("Starting Audit File Cache Provider " + mProvider.getName());
-				mProvider.start();
 			}
+
+			// Sample and rate limit events before they are queued
+			propPrefix = AUDIT_SAMPLING_PROP_PREFIX;
+			boolean samplingEnabled = MiscUtil.getBooleanProperty(props,
+					propPrefix + "." + "enabled", false);
+			if (samplingEnabled) {
+				String className = MiscUtil.getStringProperty(props, propPrefix + "." + BaseAuditHandler.PROP_CLASS_NAME,
+						AuditSamplingQueue.class.getName());
+				try {
+					AuditHandler samplingQueue = (AuditHandler) Class.forName(className)
+							.getDeclaredConstructor(AuditHandler.class).newInstance(mProvider);
+					samplingQueue.init(props, propPrefix);
+					if (samplingQueue instanceof BaseAuditHandler) {
+						((BaseAuditHandler) samplingQueue).setParentPath(componentAppType);
+					}
+					mProvider = samplingQueue;
+					LOG.info("Audit sampling is enabled. className=" + className);
+				} catch (Exception e) {
+					LOG.error("Can't instantiate audit sampling class " + className + ". Audit sampling is disabled", e);
+				}
+			}
+
+			LOG.info("Starting audit provider " + mProvider.getName());
+			mProvider.start();
 		} else {
 			LOG.info("No v3 audit configuration found. Trying v2 audit configurations");
 			if (!isEnabled
@@ -431,6 +467,8 @@ private AuditHandler getProviderFromConfig(Properties props,
 				provider = getAuditProvider(props, propPrefix, consumer);
 			} else if (providerName.equalsIgnoreCase("async")) {
 				provider = new AuditAsyncQueue(consumer);
+			} else if (providerName.equalsIgnoreCase(RING_BUFFER_QUEUE_TYPE)) {
+				provider = new AuditRingBufferQueue(consumer);
 			} else {
 				LOG.error("Provider name doesn't have any class associated with it. providerName="
 						+ providerName + ", propertyPrefix=" + propPrefix);
@@ -459,6 +497,10 @@ private AuditHandler getAuditProvider(Properties props, String propPrefix, Audit
 			String         propPrefixFileQueue = propPrefix + "." + FILE_QUEUE_TYPE;
 			auditFileQueue.init(props, propPrefixFileQueue);
 			ret = new AuditBatchQueue(auditFileQueue);
+		} else if (RING_BUFFER_QUEUE_TYPE.equalsIgnoreCase(queueType)) {
+			AuditRingBufferQueue ringBufferQueue = new AuditRingBufferQueue(consumer);
+			ringBufferQueue.setName("batch");
+			ret = ringBufferQueue;
 		} else {
 			ret = new AuditBatchQueue(consumer);
 		}
@@ -32,6 +32,7 @@ public class AuditWriterFactory {
     public static  final String AUDIT_FILETYPE_DEFAULT     = "json";
     public static  final String AUDIT_JSON_FILEWRITER_IMPL = "org.apache.ranger.audit.utils.RangerJSONAuditWriter";
     public static  final String AUDIT_ORC_FILEWRITER_IMPL  = "org.apache.ranger.audit.utils.RangerORCAuditWriter";
+    public static  final String AUDIT_PARQUET_FILEWRITER_IMPL = "org.apache.ranger.audit.utils.RangerParquetAuditWriter";
 
     public Map<String,String>  auditConfigs       = null;
     public Properties          props              = null;
@@ -100,6 +101,9 @@ public String getDefaultWriter(String auditFileType) {
             case "orc":
                 ret = AUDIT_ORC_FILEWRITER_IMPL;
                 break;
+            case "parquet":
+                ret = AUDIT_PARQUET_FILEWRITER_IMPL;
+                break;
             case "json":
                 ret = AUDIT_JSON_FILEWRITER_IMPL;
                 break;
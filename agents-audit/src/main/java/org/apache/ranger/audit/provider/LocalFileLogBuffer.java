@@ -38,6 +38,8 @@
 import java.util.TreeSet;
 
 import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.utils.AuditEventCodec;
 
 
 public class LocalFileLogBuffer<T> implements LogBuffer<T> {
@@ -182,10 +184,15 @@ public boolean isAvailable() {
 	public boolean add(T log) {
 		boolean ret = false;
 
-		String msg = MiscUtil.stringify(log);
+		// audit events are written as json directly to the file, without creating a string; json has no line separators
+		String msg = null;
 
-		if(msg.contains(MiscUtil.LINE_SEPARATOR)) {
-			msg = msg.replace(MiscUtil.LINE_SEPARATOR, MiscUtil.ESCAPE_STR + MiscUtil.LINE_SEPARATOR);
+		if(!(log instanceof AuditEventBase)) {
+			msg = MiscUtil.stringify(log);
+
+			if(msg.contains(MiscUtil.LINE_SEPARATOR)) {
+				msg = msg.replace(MiscUtil.LINE_SEPARATOR, MiscUtil.ESCAPE_STR + MiscUtil.LINE_SEPARATOR);
+			}
 		}
 
 		synchronized(this) {
@@ -195,7 +202,13 @@ public boolean add(T log) {
 	
 			if(writer != null) {
 				try {
-					writer.write(msg + MiscUtil.LINE_SEPARATOR);
+					if(msg == null) {
+						AuditEventCodec.writeJson((AuditEventBase) log, writer);
+					} else {
+						writer.write(msg);
+					}
+
+					writer.write(MiscUtil.LINE_SEPARATOR);
 					
 					if(mFileBufferSizeBytes == 0) {
 						writer.flush();
@@ -421,6 +421,24 @@ public static long getLongProperty(Properties props, String propName,
 		return ret;
 	}
 
+	public static double getDoubleProperty(Properties props, String propName,
+			double defValue) {
+		double ret = defValue;
+
+		if (props != null && propName != null) {
+			String val = props.getProperty(propName);
+			if (val != null) {
+				try {
+					ret = Double.parseDouble(val);
+				} catch (NumberFormatException excp) {
+					ret = defValue;
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	public static Map<String, String> getPropertiesWithPrefix(Properties props,
 			String prefix) {
 		Map<String, String> prefixedProperties = new HashMap<String, String>();
@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.utils.AuditLatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * MultiDestAuditProvider that hands each batch to every destination through a bounded queue of in-flight batches,
+ * served by a thread per destination - instead of calling the destinations one after the other on the caller's
+ * thread. A destination that is slow or down only fills its own queue: once full, log() waits up to max.wait.ms
+ * for room, then gives up on the batch for that destination alone; the other destinations keep receiving events.
+ * A batch the destination fails to log is retried retry.count times, retry.interval.ms apart.
+ *
+ * For each destination it keeps a histogram of log() latencies, and reports the number of events and the age of the
+ * oldest batch not yet logged (the lag) - see logStatus() and getDispatcher().
+ *
+ * Used when xasecure.audit.provider.dispatch.parallel=true and more than one destination is configured; the other
+ * properties are read with the same xasecure.audit.provider.dispatch prefix. Events given to logJSON() and logFile()
+ * are passed to all destinations on the caller's thread, as before.
+ */
+public class ParallelMultiDestAuditProvider extends MultiDestAuditProvider {
+	private static final Logger LOG = LoggerFactory.getLogger(ParallelMultiDestAuditProvider.class);
+
+	public static final String PROP_DISPATCH_PREFIX   = BaseAuditHandler.PROP_DEFAULT_PREFIX + ".dispatch";
+	public static final String PROP_PARALLEL          = "parallel";
+	public static final String PROP_MAX_INFLIGHT      = "max.inflight.batches";
+	public static final String PROP_MAX_WAIT_MS       = "max.wait.ms";
+	public static final String PROP_RETRY_COUNT       = "retry.count";
+	public static final String PROP_RETRY_INTERVAL_MS = "retry.interval.ms";
+	public static final String PROP_DRAIN_MAX_WAIT_MS = "drain.max.wait.ms";
+
+	static final int  DEFAULT_MAX_INFLIGHT      = 16;
+	static final long DEFAULT_MAX_WAIT_MS       = 1000;
+	static final int  DEFAULT_RETRY_COUNT       = 3;
+	static final long DEFAULT_RETRY_INTERVAL_MS = 1000;
+	static final long DEFAULT_DRAIN_MAX_WAIT_MS = 30 * 1000;
+
+	private int  maxInflightBatches = DEFAULT_MAX_INFLIGHT;
+	private long maxWaitMs          = DEFAULT_MAX_WAIT_MS;
+	private int  retryCount         = DEFAULT_RETRY_COUNT;
+	private long retryIntervalMs    = DEFAULT_RETRY_INTERVAL_MS;
+	private long drainMaxWaitMs     = DEFAULT_DRAIN_MAX_WAIT_MS;
+
+	private final List<Dispatcher> dispatchers = new CopyOnWriteArrayList<>();
+
+	private volatile boolean isDrain   = false;
+	private volatile boolean isStopped = false;
+
+	public ParallelMultiDestAuditProvider() {
+		LOG.info("ParallelMultiDestAuditProvider: creating..");
+	}
+
+	@Override
+	public void init(Properties props) {
+		LOG.info("ParallelMultiDestAuditProvider.init()");
+
+		super.init(props);
+
+		String prefix = PROP_DISPATCH_PREFIX + ".";
+
+		maxInflightBatches = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_MAX_INFLIGHT, DEFAULT_MAX_INFLIGHT), 1);
+		maxWaitMs          = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_MAX_WAIT_MS, DEFAULT_MAX_WAIT_MS), 0);
+		retryCount         = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_RETRY_COUNT, DEFAULT_RETRY_COUNT), 0);
+		retryIntervalMs    = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_RETRY_INTERVAL_MS, DEFAULT_RETRY_INTERVAL_MS), 0);
+		drainMaxWaitMs     = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_DRAIN_MAX_WAIT_MS, DEFAULT_DRAIN_MAX_WAIT_MS), 0);
+
+		LOG.info("ParallelMultiDestAuditProvider: maxInflightBatches=" + maxInflightBatches + ", maxWaitMs=" + maxWaitMs
+				+ ", retryCount=" + retryCount + ", retryIntervalMs=" + retryIntervalMs + ", drainMaxWaitMs=" + drainMaxWaitMs);
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		return log(Collections.singletonList(event));
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+
+		if (events == null || events.isEmpty()) {
+			return true;
+		}
+
+		if (isStopped) { // the destinations are stopped, or being stopped
+			return false;
+		}
+
+		if (dispatchers.isEmpty()) { // not started
+			return super.log(events);
+		}
+
+		// callers reuse their batch buffer, so copy it once; the copy is shared by all destinations
+		Batch batch = new Batch(new ArrayList<>(events));
+
+		for (Dispatcher dispatcher : dispatchers) {
+			dispatcher.enqueue(batch);
+		}
+
+		return true;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (!dispatchers.isEmpty()) {
+			LOG.error("ParallelMultiDestAuditProvider is already started. name=" + getName());
+			return;
+		}
+
+		super.start();
+
+		isDrain   = false;
+		isStopped = false;
+
+		for (AuditHandler provider : mProviders) {
+			Dispatcher dispatcher = new Dispatcher(provider);
+
+			dispatchers.add(dispatcher);
+
+			dispatcher.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		LOG.info("ParallelMultiDestAuditProvider.stop(): name=" + getName());
+
+		isStopped = true;
+
+		// let the dispatchers hand over the batches in flight before the destinations are stopped
+		drain(drainMaxWaitMs);
+
+		dispatchers.clear();
+
+		super.stop();
+	}
+
+	@Override
+	public void waitToComplete() {
+		waitToComplete(-1);
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		long startTime = System.currentTimeMillis();
+
+		for (Dispatcher dispatcher : dispatchers) {
+			while (dispatcher.getPendingBatches() > 0 && (timeout <= 0 || System.currentTimeMillis() - startTime < timeout)) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException excp) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		super.waitToComplete(timeout);
+	}
+
+	@Override
+	public void logStatus() {
+		super.logStatus();
+
+		if (isStatusLogEnabled()) {
+			for (Dispatcher dispatcher : dispatchers) {
+				LOG.info("ParallelMultiDestAuditProvider.log(name={}, destination={}): pendingBatches={}, pendingEvents={}, lagMs={}, totalDispatchedEvents={}, totalFailedEvents={}, totalDroppedEvents={}, totalRetries={}, latency=[{}]",
+						getName(), dispatcher.getDestinationName(), dispatcher.getPendingBatches(), dispatcher.getPendingEvents(), dispatcher.getLagMs(),
+						dispatcher.getDispatchedCount(), dispatcher.getFailedCount(), dispatcher.getDroppedCount(), dispatcher.getRetryCount(), dispatcher.getLatency());
+			}
+		}
+	}
+
+	public List<Dispatcher> getDispatchers() {
+		return Collections.unmodifiableList(dispatchers);
+	}
+
+	public Dispatcher getDispatcher(String destinationName) {
+		for (Dispatcher dispatcher : dispatchers) {
+			if (dispatcher.getDestinationName().equals(destinationName)) {
+				return dispatcher;
+			}
+		}
+
+		return null;
+	}
+
+	private void drain(long maxWaitMs) {
+		isDrain = true;
+
+		long endTime = System.currentTimeMillis() + maxWaitMs;
+
+		for (Dispatcher dispatcher : dispatchers) {
+			long remainingMs = endTime - System.currentTimeMillis();
+
+			try {
+				if (remainingMs > 0) {
+					dispatcher.thread.join(remainingMs);
+				}
+			} catch (InterruptedException excp) {
+				Thread.currentThread().interrupt();
+			}
+
+			if (dispatcher.thread.isAlive()) {
+				LOG.warn("ParallelMultiDestAuditProvider.stop(): destination " + dispatcher.getDestinationName() + " didn't complete in "
+						+ maxWaitMs + "ms. Discarding " + dispatcher.getPendingEvents() + " events");
+
+				dispatcher.thread.interrupt();
+			}
+		}
+	}
+
+	private static final class Batch {
+		final List<AuditEventBase> events;
+		final long                 createTime = System.currentTimeMillis();
+
+		Batch(List<AuditEventBase> events) {
+			this.events = Collections.unmodifiableList(events);
+		}
+	}
+
+	/**
+	 * Sends batches to one destination, in the order they were given to log(), from its own thread.
+	 */
+	public final class Dispatcher implements Runnable {
+		private final AuditHandler          destination;
+		private final BlockingQueue<Batch>  inflight;
+		private final AuditLatencyHistogram latency         = new AuditLatencyHistogram();
+		private final AtomicLong            pendingEvents   = new AtomicLong();
+		private final AtomicLong            dispatchedCount = new AtomicLong();
+		private final AtomicLong            failedCount     = new AtomicLong();
+		private final AtomicLong            droppedCount    = new AtomicLong();
+		private final AtomicLong            retries         = new AtomicLong();
+		private final Thread                thread;
+
+		private volatile Batch currentBatch = null;
+
+		Dispatcher(AuditHandler destination) {
+			this.destination = destination;
+			this.inflight    = new ArrayBlockingQueue<>(maxInflightBatches);
+			this.thread      = new Thread(this, ParallelMultiDestAuditProvider.class.getSimpleName() + "-" + destination.getName());
+
+			thread.setDaemon(true);
+		}
+
+		public String getDestinationName() {
+			return destination.getName();
+		}
+
+		public AuditLatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public int getPendingBatches() {
+			return inflight.size() + (currentBatch != null ? 1 : 0);
+		}
+
+		public long getPendingEvents() {
+			return pendingEvents.get();
+		}
+
+		/**
+		 * @return age, in milliseconds, of the oldest batch not yet logged to the destination; 0 if there is none
+		 */
+		public long getLagMs() {
+			Batch oldest = currentBatch;
+
+			if (oldest == null) {
+				oldest = inflight.peek();
+			}
+
+			return oldest != null ? Math.max(System.currentTimeMillis() - oldest.createTime, 0) : 0;
+		}
+
+		public long getDispatchedCount() {
+			return dispatchedCount.get();
+		}
+
+		public long getFailedCount() {
+			return failedCount.get();
+		}
+
+		public long getDroppedCount() {
+			return droppedCount.get();
+		}
+
+		public long getRetryCount() {
+			return retries.get();
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		void enqueue(Batch batch) {
+			boolean isAdded;
+
+			pendingEvents.addAndGet(batch.events.size());
+
+			try {
+				isAdded = inflight.offer(batch) || (maxWaitMs > 0 && inflight.offer(batch, maxWaitMs, TimeUnit.MILLISECONDS));
+			} catch (InterruptedException excp) {
+				Thread.currentThread().interrupt();
+
+				isAdded = false;
+			}
+
+			if (!isAdded) {
+				pendingEvents.addAndGet(-batch.events.size());
+				droppedCount.addAndGet(batch.events.size());
+
+				logError("ParallelMultiDestAuditProvider: destination {} is not keeping up; dropping batches for it", destination.getName());
+				logFailedEvent(batch.events);
+			}
+		}
+
+		@Override
+		public void run() {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+
+			LOG.info("ParallelMultiDestAuditProvider: started dispatcher for destination " + destination.getName());
+
+			while (true) {
+				Batch batch;
+
+				try {
+					batch = isDrain ? inflight.poll() : inflight.poll(100, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException excp) {
+					break; // interrupted by stop(), after the drain timed out
+				}
+
+				if (batch == null) {
+					if (isDrain) {
+						break;
+					}
+
+					continue;
+				}
+
+				currentBatch = batch;
+
+				try {
+					send(batch);
+				} finally {
+					currentBatch = null;
+
+					pendingEvents.addAndGet(-batch.events.size());
+				}
+			}
+
+			LOG.info("ParallelMultiDestAuditProvider: exiting dispatcher for destination " + destination.getName());
+		}
+
+		private void send(Batch batch) {
+			for (int attempt = 0; ; attempt++) {
+				boolean   isSent = false;
+				Throwable error  = null;
+				long      start  = System.nanoTime();
+
+				try {
+					isSent = destination.log(batch.events);
+				} catch (Throwable excp) {
+					error = excp;
+				}
+
+				latency.record(System.nanoTime() - start);
+
+				if (isSent) {
+					dispatchedCount.addAndGet(batch.events.size());
+					break;
+				}
+
+				if (attempt >= retryCount || Thread.currentThread().isInterrupted()) {
+					failedCount.addAndGet(batch.events.size());
+
+					if (error != null) {
+						logFailedEvent(batch.events, error);
+					} else {
+						logFailedEvent(batch.events);
+					}
+					break;
+				}
+
+				retries.incrementAndGet();
+
+				try {
+					Thread.sleep(retryIntervalMs);
+				} catch (InterruptedException excp) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
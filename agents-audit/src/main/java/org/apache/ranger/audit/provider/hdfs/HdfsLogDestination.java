@@ -35,6 +35,7 @@
 import org.apache.ranger.audit.provider.DebugTracer;
 import org.apache.ranger.audit.provider.LogDestination;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
 
 public class HdfsLogDestination<T> implements LogDestination<T> {
 	public final static String EXCP_MSG_FILESYSTEM_CLOSED = "Filesystem closed";
@@ -157,9 +158,25 @@ public boolean send(AuditEventBase log) {
 		boolean ret = true;
 		
 		if(log != null) {
-			String msg = MiscUtil.stringify(log);
+			checkFileStatus();
 
-			ret = sendStringified(msg);
+			OutputStreamWriter writer = mWriter;
+
+			ret = false;
+
+			if(writer != null) {
+				try {
+					// write json directly to the file, without creating a string for it
+					AuditEventCodec.writeJson(log, writer);
+					writer.write(MiscUtil.LINE_SEPARATOR);
+
+					ret = true;
+				} catch (IOException excp) {
+					mLogger.warn("HdfsLogDestination.send(): write failed", excp);
+
+					closeFile();
+				}
+			}
 		}
 
 		return ret;
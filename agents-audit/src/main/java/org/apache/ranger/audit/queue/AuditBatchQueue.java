@@ -224,131 +224,31 @@ public void run() {
 	}
 
 	public void runLogAudit() {
-		long lastDispatchTime = System.currentTimeMillis();
-		boolean isDestActive = true;
-		while (true) {
-			logStatusIfRequired();
-
-			// Time to next dispatch
-			long nextDispatchDuration = lastDispatchTime
-					- System.currentTimeMillis() + getMaxBatchInterval();
-
-			boolean isToSpool = false;
-			boolean fileSpoolDrain = false;
-			try {
-				if (fileSpoolerEnabled && fileSpooler.isPending()) {
-					int percentUsed = queue.size() * 100 / getMaxQueueSize();
-					long lastAttemptDelta = fileSpooler.getLastAttemptTimeDelta();
-
-					fileSpoolDrain = lastAttemptDelta > fileSpoolMaxWaitTime;
-					// If we should even read from queue?
-					if (!isDrain() && !fileSpoolDrain && percentUsed < fileSpoolDrainThresholdPercent) {
-						// Since some files are still under progress and it is
-						// not in drain mode, lets wait and retry
-						if (nextDispatchDuration > 0) {
-							Thread.sleep(nextDispatchDuration);
-						}
-						lastDispatchTime = System.currentTimeMillis();
-						continue;
-					}
-					isToSpool = true;
-				}
-
-				AuditEventBase event = null;
-
-				if (!isToSpool && !isDrain() && !fileSpoolDrain && nextDispatchDuration > 0) {
-					event = queue.poll(nextDispatchDuration, TimeUnit.MILLISECONDS);
-				} else {
-					// For poll() is non blocking
-					event = queue.poll();
-				}
-
-				if (event != null) {
-					localBatchBuffer.add(event);
-					if (getMaxBatchSize() >= localBatchBuffer.size()) {
-						queue.drainTo(localBatchBuffer, getMaxBatchSize() - localBatchBuffer.size());
-					}
-				} else {
-					// poll returned due to timeout, so reseting clock
-					nextDispatchDuration = lastDispatchTime - System.currentTimeMillis() + getMaxBatchInterval();
-					lastDispatchTime = System.currentTimeMillis();
-				}
-			} catch (InterruptedException e) {
-				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
-				setDrain(true);
-			} catch (Throwable t) {
-				logger.error("Caught error during processing request.", t);
+		runBatchLogAudit(new EventSource() {
+			@Override
+			public int size() {
+				return queue.size();
 			}
 
-			addTotalCount(localBatchBuffer.size());
-			if (localBatchBuffer.size() > 0 && isToSpool) {
-				// Let spool to the file directly
-				if (isDestActive) {
-					logger.info("Switching to file spool. Queue = {}, dest = {}", getName(), consumer.getName());
-				}
-				isDestActive = false;
-				// Just before stashing
-				lastDispatchTime = System.currentTimeMillis();
-				fileSpooler.stashLogs(localBatchBuffer);
-				addStashedCount(localBatchBuffer.size());
-				localBatchBuffer.clear();
-			} else if (localBatchBuffer.size() > 0 &&
-					(isDrain() || localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
-				if (fileSpoolerEnabled && !isDestActive) {
-					logger.info("Switching to writing to the destination. Queue = {}, dest = {}",
-							getName(), consumer.getName());
-				}
-				// Reset time just before sending the logs
-				lastDispatchTime = System.currentTimeMillis();
-				boolean ret = consumer.log(localBatchBuffer);
-				if (!ret) {
-					if (fileSpoolerEnabled) {
-						logger.info("Switching to file spool. Queue = {}, dest = {}", getName(), consumer.getName());
-						// Transient error. Stash and move on
-						fileSpooler.stashLogs(localBatchBuffer);
-						isDestActive = false;
-						addStashedCount(localBatchBuffer.size());
-					} else {
-						// We need to drop this event
-						addFailedCount(localBatchBuffer.size());
-						logFailedEvent(localBatchBuffer);
-					}
-				} else {
-					isDestActive = true;
-					addSuccessCount(localBatchBuffer.size());
-				}
-				localBatchBuffer.clear();
+			@Override
+			public boolean isEmpty() {
+				return queue.isEmpty();
 			}
 
-			if (isDrain()) {
-				if (!queue.isEmpty() || localBatchBuffer.size() > 0) {
-					logger.info("Queue is not empty. Will retry. queue.size = {}, localBatchBuffer.size = {}",
-							queue.size(), localBatchBuffer.size());
-				} else {
-					break;
-				}
-				if (isDrainMaxTimeElapsed()) {
-					logger.warn("Exiting polling loop because max time allowed reached. name="
-							+ getName()
-							+ ", waited for "
-							+ (stopTime - System.currentTimeMillis()) + " ms");
-				}
+			@Override
+			public AuditEventBase poll() {
+				return queue.poll();
 			}
-		}
 
-		logger.info("Exiting consumerThread. Queue = {}, dest = {}", getName(), consumer.getName());
-		try {
-			// Call stop on the consumer
-			logger.info("Calling to stop consumer. name = {}, consumer.name = {}", getName(), consumer.getName());
+			@Override
+			public AuditEventBase poll(long timeoutMs) throws InterruptedException {
+				return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+			}
 
-			consumer.stop();
-			if (fileSpoolerEnabled) {
-				fileSpooler.stop();
+			@Override
+			public int drainTo(Collection<AuditEventBase> events, int maxEvents) {
+				return queue.drainTo(events, maxEvents);
 			}
-		} catch (Throwable t) {
-			logger.error("Error while calling stop on consumer.", t);
-		}
-		logStatus();
-		logger.info("Exiting consumerThread.run() method. name=" + getName());
+		}, localBatchBuffer);
 	}
 }
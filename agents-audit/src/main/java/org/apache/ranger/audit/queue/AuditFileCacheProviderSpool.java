@@ -23,6 +23,7 @@
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -405,20 +406,23 @@ public long getLastAttemptTimeDelta() {
         return System.currentTimeMillis() - lastAttemptTime;
     }
 
-    synchronized public void stashLogs(AuditEventBase event) {
+    /**
+     * @return true if the event was written to the spool file
+     */
+    synchronized public boolean stashLogs(AuditEventBase event) {
 
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
             logger.error("stashLogs() is called after stop is called. event="
                     + event);
-            return;
+            return false;
         }
         try {
             isWriting = true;
             PrintWriter logOut = getLogFileStream();
-            // Convert event to json
-            String jsonStr = MiscUtil.stringify(event);
-            logOut.println(jsonStr);
+            // Write event as json, without creating a string for it
+            AuditEventCodec.writeJson(event, logOut);
+            logOut.println();
             logOut.flush();
             isPending = true;
             isSpoolingSuccessful = true;
@@ -429,6 +433,7 @@ synchronized public void stashLogs(AuditEventBase event) {
             isWriting = false;
         }
 
+        return isSpoolingSuccessful;
     }
 
     synchronized public void stashLogs(Collection<AuditEventBase> events) {
@@ -25,6 +25,7 @@
 import org.apache.ranger.audit.model.SPOOL_FILE_STATUS;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -417,9 +418,9 @@ synchronized public void stashLogs(AuditEventBase event) {
         try {
             isWriting = true;
             PrintWriter logOut = getLogFileStream();
-            // Convert event to json
-            String jsonStr = MiscUtil.stringify(event);
-            logOut.println(jsonStr);
+            // Write event as json, without creating a string for it
+            AuditEventCodec.writeJson(event, logOut);
+            logOut.println();
             logOut.flush();
             isPending = true;
             isSpoolingSuccessful = true;
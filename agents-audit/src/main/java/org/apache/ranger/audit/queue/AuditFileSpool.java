@@ -19,13 +19,21 @@
 
 package org.apache.ranger.audit.queue;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -39,9 +47,11 @@
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuditIndexRecord;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.model.SPOOL_FILE_STATUS;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +72,10 @@ public class AuditFileSpool implements Runnable {
 	public static final String PROP_FILE_SPOOL_FILE_ROLLOVER = "filespool.file.rollover.sec";
 	public static final String PROP_FILE_SPOOL_INDEX_FILE = "filespool.index.filename";
 	public static final String PROP_FILE_SPOOL_DEST_RETRY_MS = "filespool.destination.retry.ms";
+	public static final String PROP_FILE_SPOOL_FORMAT = "filespool.format";
+	public static final String FILE_SPOOL_FORMAT_BINARY = "binary";
+	public static final String PROP_FILE_SPOOL_TYPE = "filespool.type";
+	public static final String FILE_SPOOL_TYPE_SEGMENT = "segment";
 	public static final String CONSUMER = ", consumer=";
 
 	AuditQueue queueProvider = null;
@@ -81,6 +95,8 @@ public class AuditFileSpool implements Runnable {
 	int retryDestinationMS = 30 * 1000; // Default 30 seconds
 	int fileRolloverSec = 24 * 60 * 60; // In seconds
 	int maxArchiveFiles = 100;
+	// new spool files are written as binary records instead of JSON lines; existing files are read in either format
+	boolean isBinaryFormat = false;
 
 	int errorLogIntervalMS = 30 * 1000; // Every 30 seconds
 	long lastErrorLogMS = 0;
@@ -92,6 +108,7 @@ public class AuditFileSpool implements Runnable {
 	boolean initDone = false;
 
 	PrintWriter logWriter = null;
+	DataOutputStream binaryLogWriter = null;
 	AuditIndexRecord currentWriterIndexRecord = null;
 	AuditIndexRecord currentConsumerIndexRecord = null;
 
@@ -141,10 +158,13 @@ public boolean init(Properties props, String basePropertyName) {
 					+ PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
 			maxArchiveFiles = MiscUtil.getIntProperty(props, propPrefix + "."
 					+ PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
+			isBinaryFormat = FILE_SPOOL_FORMAT_BINARY.equalsIgnoreCase(MiscUtil.getStringProperty(props, propPrefix + "."
+					+ PROP_FILE_SPOOL_FORMAT));
 
 			logger.info("retryDestinationMS={}, queueName={}", retryDestinationMS, queueProvider.getName());
 			logger.info("fileRolloverSec={}, queueName={}", fileRolloverSec, queueProvider.getName());
 			logger.info("maxArchiveFiles={}, queueName={}", maxArchiveFiles, queueProvider.getName());
+			logger.info("isBinaryFormat={}, queueName={}", isBinaryFormat, queueProvider.getName());
 
 			if (logFolderProp == null || logFolderProp.isEmpty()) {
 				logger.error("Audit spool folder is not configured. Please set {}.{}. queueName={}", propPrefix, PROP_FILE_SPOOL_LOCAL_DIR, queueProvider.getName());
@@ -283,7 +303,8 @@ public void stop() {
 		flush();
 
 		PrintWriter out = getOpenLogFileStream();
-		if (out != null) {
+		DataOutputStream binaryOut = binaryLogWriter;
+		if (out != null || binaryOut != null) {
 			// If write is still going on, then let's give it enough time to
 			// complete
 			for (int i = 0; i < 3; i++) {
@@ -298,8 +319,13 @@ public void stop() {
 				try {
 					logger.info("Closing open file, queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
 
-					out.flush();
-					out.close();
+					if (out != null) {
+						out.flush();
+						out.close();
+					}
+					if (binaryOut != null) {
+						binaryOut.close();
+					}
 					break;
 				} catch (Throwable t) {
 					logger.debug("Error closing spool out file.", t);
@@ -325,6 +351,14 @@ public void flush() {
 		if (out != null) {
 			out.flush();
 		}
+		DataOutputStream binaryOut = binaryLogWriter;
+		if (binaryOut != null) {
+			try {
+				binaryOut.flush();
+			} catch (IOException e) {
+				logger.error("Error flushing spool file. queueName={}", queueProvider.getName(), e);
+			}
+		}
 	}
 
 	/**
@@ -363,9 +397,15 @@ public synchronized void stashLogs(AuditEventBase event) {
 		try {
 			isWriting = true;
 			PrintWriter logOut = getLogFileStream();
-			// Convert event to json
-			String jsonStr = MiscUtil.stringify(event);
-			logOut.println(jsonStr);
+			if (logOut != null) {
+				// Write event as json, without creating a string for it
+				AuditEventCodec.writeJson(event, logOut);
+				logOut.println();
+			} else if (event instanceof AuthzAuditEvent) {
+				AuditEventCodec.writeBinary((AuthzAuditEvent) event, binaryLogWriter);
+			} else {
+				logger.error("Event type {} can't be written to binary spool file. event={}", event.getClass().getName(), event);
+			}
 			isPending = true;
 		} catch (Exception ex) {
 			logger.error("Error writing to file. event={}", event, ex);
@@ -391,7 +431,11 @@ public synchronized void stashLogsString(String event) {
 		try {
 			isWriting = true;
 			PrintWriter logOut = getLogFileStream();
-			logOut.println(event);
+			if (logOut != null) {
+				logOut.println(event);
+			} else {
+				AuditEventCodec.writeBinary(MiscUtil.fromJson(event, AuthzAuditEvent.class), binaryLogWriter);
+			}
 		} catch (Exception ex) {
 			logger.error("Error writing to file. event={}", event, ex);
 		} finally {
@@ -419,7 +463,9 @@ private synchronized PrintWriter getOpenLogFileStream() {
 	}
 
 	/**
-	 * @return
+	 * Opens the current file for writing, if not already open
+	 *
+	 * @return writer for a json spool file, or null for a binary spool file - which is written to binaryLogWriter
 	 * @throws Exception
 	 */
 	private synchronized PrintWriter getLogFileStream() throws Exception {
@@ -450,8 +496,13 @@ private synchronized PrintWriter getLogFileStream() throws Exception {
 			fileName = newFileName;
 			logger.info("Creating new file. queueName={}, filename={}",queueProvider.getName(), fileName);
 			// Open the file
-			logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
-					outLogFile)));
+			if (isBinaryFormat) {
+				binaryLogWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outLogFile)));
+				AuditEventCodec.writeBinaryHeader(binaryLogWriter);
+			} else {
+				logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
+						outLogFile)));
+			}
 
 			AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
 
@@ -465,12 +516,17 @@ private synchronized PrintWriter getLogFileStream() throws Exception {
 			saveIndexFile();
 
 		} else {
-			if (logWriter == null) {
+			if (logWriter == null && binaryLogWriter == null) {
 				// This means the process just started. We need to open the file
-				// in append mode.
+				// in append mode, in the format it was created with
 				logger.info("Opening existing file for append. queueName={}, filename={}", queueProvider.getName(), currentWriterIndexRecord.getFilePath());
-				logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
-						currentWriterIndexRecord.getFilePath(), true)));
+				if (isBinaryFile(currentWriterIndexRecord.getFilePath())) {
+					binaryLogWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+							currentWriterIndexRecord.getFilePath(), true)));
+				} else {
+					logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
+							currentWriterIndexRecord.getFilePath(), true)));
+				}
 			}
 		}
 		return logWriter;
@@ -499,6 +555,10 @@ private synchronized void closeFileIfNeeded() throws IOException {
 					logWriter.close();
 					logWriter = null;
 				}
+				if (binaryLogWriter != null) {
+					binaryLogWriter.close();
+					binaryLogWriter = null;
+				}
 				currentWriterIndexRecord.setStatus(SPOOL_FILE_STATUS.pending);
 				currentWriterIndexRecord.setWriteCompleteTime( new Date());
 				saveIndexFile();
@@ -700,18 +760,31 @@ public void runLogAudit() {
 					isRemoveIndex = true;
 				} else {
 					// Let's open the file to write
-					try (BufferedReader br = new BufferedReader(new FileReader(currentConsumerIndexRecord.getFilePath()))) {
-						int startLine = currentConsumerIndexRecord.getLinePosition();
-						String line;
-						int currLine = 0;
-						List<String> lines = new ArrayList<>();
-						while ((line = br.readLine()) != null) {
-							currLine++;
-							if (currLine < startLine) {
-								continue;
+					try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(currentConsumerIndexRecord.getFilePath()))) {
+						if (AuditEventCodec.isBinary(in)) {
+							sendBinaryFile(new DataInputStream(in), currentConsumerIndexRecord);
+						} else {
+							BufferedReader br = new BufferedReader(new InputStreamReader(in));
+							int startLine = currentConsumerIndexRecord.getLinePosition();
+							String line;
+							int currLine = 0;
+							List<String> lines = new ArrayList<>();
+							while ((line = br.readLine()) != null) {
+								currLine++;
+								if (currLine < startLine) {
+									continue;
+								}
+								lines.add(line);
+								if (lines.size() == queueProvider.getMaxBatchSize()) {
+									boolean ret = sendEvent(lines,
+											currentConsumerIndexRecord, currLine);
+									if (!ret) {
+										throw new Exception("Destination down");
+									}
+									lines.clear();
+								}
 							}
-							lines.add(line);
-							if (lines.size() == queueProvider.getMaxBatchSize()) {
+							if (!lines.isEmpty()) {
 								boolean ret = sendEvent(lines,
 										currentConsumerIndexRecord, currLine);
 								if (!ret) {
@@ -720,14 +793,6 @@ public void runLogAudit() {
 								lines.clear();
 							}
 						}
-						if (!lines.isEmpty()) {
-							boolean ret = sendEvent(lines,
-									currentConsumerIndexRecord, currLine);
-							if (!ret) {
-								throw new Exception("Destination down");
-							}
-							lines.clear();
-						}
 						logger.info("Done reading file. file={}, queueName={}, consumer={}", currentConsumerIndexRecord.getFilePath(), queueProvider.getName(), consumerProvider.getName());
 						// The entire file is read
 						currentConsumerIndexRecord.setStatus(SPOOL_FILE_STATUS.done);
@@ -762,27 +827,48 @@ public void runLogAudit() {
 		logger.info("Exiting file spooler. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
 	}
 
+	private void sendBinaryFile(DataInputStream in, AuditIndexRecord indexRecord) throws Exception {
+		int startRecord = indexRecord.getLinePosition();
+		int currRecord = 0;
+		List<AuditEventBase> events = new ArrayList<>();
+		while (true) {
+			AuditEventBase event;
+			try {
+				event = AuditEventCodec.readBinary(in);
+			} catch (EOFException e) {
+				// the last record was not written completely, like when the process was killed
+				logger.warn("Ignoring incomplete record at the end of file={}, queueName={}", indexRecord.getFilePath(), queueProvider.getName());
+				event = null;
+			}
+			if (event == null) {
+				break;
+			}
+			currRecord++;
+			if (currRecord <= startRecord) {
+				continue;
+			}
+			events.add(event);
+			if (events.size() == queueProvider.getMaxBatchSize()) {
+				if (!sendEvents(events, indexRecord, currRecord)) {
+					throw new Exception("Destination down");
+				}
+				events.clear();
+			}
+		}
+		if (!events.isEmpty()) {
+			if (!sendEvents(events, indexRecord, currRecord)) {
+				throw new Exception("Destination down");
+			}
+			events.clear();
+		}
+	}
+
 	private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord,
 			int currLine) {
 		boolean ret = true;
 		try {
 			ret = consumerProvider.logJSON(lines);
-			if (!ret) {
-				// Need to log error after fixed interval
-				logError("Error sending logs to consumer. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
-			} else {
-				// Update index and save
-				indexRecord.setLinePosition(currLine);
-				indexRecord.setStatus(SPOOL_FILE_STATUS.read_inprogress);
-				indexRecord.setLastSuccessTime(new Date());
-				indexRecord.setLastAttempt(true);
-				saveIndexFile();
-
-				if (isDestDown) {
-					isDestDown = false;
-					logger.info("Destination up now. {}, queueName={}, consumer={}", indexRecord.getFilePath(), queueProvider.getName(), consumerProvider.getName());
-				}
-			}
+			onSendResult(ret, indexRecord, currLine);
 		} catch (Exception t) {
 			logger.error("Error while sending logs to consumer. provider={}, consumer={}, logEventCount={}", queueProvider.getName(), consumerProvider.getName(), lines.size(), t);
 		}
@@ -790,4 +876,42 @@ private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord,
 		return ret;
 	}
 
+	private boolean sendEvents(List<AuditEventBase> events, AuditIndexRecord indexRecord,
+			int currRecord) {
+		boolean ret = true;
+		try {
+			ret = consumerProvider.log(events);
+			onSendResult(ret, indexRecord, currRecord);
+		} catch (Exception t) {
+			logger.error("Error while sending logs to consumer. provider={}, consumer={}, logEventCount={}", queueProvider.getName(), consumerProvider.getName(), events.size(), t);
+		}
+
+		return ret;
+	}
+
+	private void onSendResult(boolean isSent, AuditIndexRecord indexRecord, int currLine) throws IOException {
+		if (!isSent) {
+			// Need to log error after fixed interval
+			logError("Error sending logs to consumer. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+		} else {
+			// Update index and save
+			indexRecord.setLinePosition(currLine);
+			indexRecord.setStatus(SPOOL_FILE_STATUS.read_inprogress);
+			indexRecord.setLastSuccessTime(new Date());
+			indexRecord.setLastAttempt(true);
+			saveIndexFile();
+
+			if (isDestDown) {
+				isDestDown = false;
+				logger.info("Destination up now. {}, queueName={}, consumer={}", indexRecord.getFilePath(), queueProvider.getName(), consumerProvider.getName());
+			}
+		}
+	}
+
+	private static boolean isBinaryFile(String filePath) throws IOException {
+		try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(filePath))) {
+			return AuditEventCodec.isBinary(in);
+		}
+	}
+
 }
@@ -19,9 +19,11 @@
 
 package org.apache.ranger.audit.queue;
 
+import java.util.Collection;
 import java.util.Properties;
 
 import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
@@ -111,11 +113,20 @@ public void init(Properties props, String basePropertyName) {
 			fileSpoolDrainThresholdPercent = MiscUtil.getIntProperty(props,
 					propPrefix + "." + PROP_FILE_SPOOL_QUEUE_THRESHOLD,
 					fileSpoolDrainThresholdPercent);
-			fileSpooler = new AuditFileSpool(this, consumer);
+			String fileSpoolType = MiscUtil.getStringProperty(props, propPrefix
+					+ "." + AuditFileSpool.PROP_FILE_SPOOL_TYPE);
+			if (AuditFileSpool.FILE_SPOOL_TYPE_SEGMENT.equalsIgnoreCase(fileSpoolType)) {
+				fileSpooler = new AuditSegmentSpool(this, consumer);
+			} else {
+				fileSpooler = new AuditFileSpool(this, consumer);
+			}
 			if (!fileSpooler.init(props, basePropertyName)) {
 				fileSpoolerEnabled = false;
 				LOG.error("Couldn't initialize file spooler. Disabling it. queue="
 						+ getName() + ", consumer=" + consumer.getName());
+			} else if (isConsumerDestination) {
+				// events the destination fails to send after accepting them - in its async bulk mode - are spooled too
+				((AuditDestination) consumer).setFallback(fileSpooler::stashLogs);
 			}
 		} else {
 			LOG.info("File spool is disabled for " + getName());
@@ -227,4 +238,157 @@ public void flush() {
 		}
 	}
 
+	/**
+	 * Events of a batching queue, read by runBatchLogAudit()
+	 */
+	protected interface EventSource {
+		int size();
+
+		boolean isEmpty();
+
+		// returns null if the queue is empty
+		AuditEventBase poll();
+
+		// waits up to timeoutMs for an event; returns null if none is available by then
+		AuditEventBase poll(long timeoutMs) throws InterruptedException;
+
+		int drainTo(Collection<AuditEventBase> events, int maxEvents);
+	}
+
+	/**
+	 * Consumer thread loop of a batching queue: sends the events read from the source to the consumer in batches of
+	 * up to getMaxBatchSize() events, at least every getMaxBatchInterval() ms - or to the file spool while it has
+	 * pending events or the consumer fails - until the queue is drained after stop. Then stops the consumer.
+	 *
+	 * @param source           events of the queue
+	 * @param localBatchBuffer events read from the source and not yet sent
+	 */
+	protected void runBatchLogAudit(EventSource source, Collection<AuditEventBase> localBatchBuffer) {
+		long lastDispatchTime = System.currentTimeMillis();
+		boolean isDestActive = true;
+		while (true) {
+			logStatusIfRequired();
+
+			// Time to next dispatch
+			long nextDispatchDuration = lastDispatchTime
+					- System.currentTimeMillis() + getMaxBatchInterval();
+
+			boolean isToSpool = false;
+			boolean fileSpoolDrain = false;
+			try {
+				if (fileSpoolerEnabled && fileSpooler.isPending()) {
+					int percentUsed = source.size() * 100 / getMaxQueueSize();
+					long lastAttemptDelta = fileSpooler.getLastAttemptTimeDelta();
+
+					fileSpoolDrain = lastAttemptDelta > fileSpoolMaxWaitTime;
+					// If we should even read from queue?
+					if (!isDrain() && !fileSpoolDrain && percentUsed < fileSpoolDrainThresholdPercent) {
+						// Since some files are still under progress and it is
+						// not in drain mode, lets wait and retry
+						if (nextDispatchDuration > 0) {
+							Thread.sleep(nextDispatchDuration);
+						}
+						lastDispatchTime = System.currentTimeMillis();
+						continue;
+					}
+					isToSpool = true;
+				}
+
+				AuditEventBase event = null;
+
+				if (!isToSpool && !isDrain() && !fileSpoolDrain && nextDispatchDuration > 0) {
+					event = source.poll(nextDispatchDuration);
+				} else {
+					// For poll() is non blocking
+					event = source.poll();
+				}
+
+				if (event != null) {
+					localBatchBuffer.add(event);
+					if (getMaxBatchSize() >= localBatchBuffer.size()) {
+						source.drainTo(localBatchBuffer, getMaxBatchSize() - localBatchBuffer.size());
+					}
+				} else {
+					// poll returned due to timeout, so reseting clock
+					nextDispatchDuration = lastDispatchTime - System.currentTimeMillis() + getMaxBatchInterval();
+					lastDispatchTime = System.currentTimeMillis();
+				}
+			} catch (InterruptedException e) {
+				LOG.info("Caught exception in consumer thread. Shutdown might be in progress");
+				setDrain(true);
+			} catch (Throwable t) {
+				LOG.error("Caught error during processing request.", t);
+			}
+
+			addTotalCount(localBatchBuffer.size());
+			if (localBatchBuffer.size() > 0 && isToSpool) {
+				// Let spool to the file directly
+				if (isDestActive) {
+					LOG.info("Switching to file spool. Queue = {}, dest = {}", getName(), consumer.getName());
+				}
+				isDestActive = false;
+				// Just before stashing
+				lastDispatchTime = System.currentTimeMillis();
+				fileSpooler.stashLogs(localBatchBuffer);
+				addStashedCount(localBatchBuffer.size());
+				localBatchBuffer.clear();
+			} else if (localBatchBuffer.size() > 0 &&
+					(isDrain() || localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
+				if (fileSpoolerEnabled && !isDestActive) {
+					LOG.info("Switching to writing to the destination. Queue = {}, dest = {}",
+							getName(), consumer.getName());
+				}
+				// Reset time just before sending the logs
+				lastDispatchTime = System.currentTimeMillis();
+				boolean ret = consumer.log(localBatchBuffer);
+				if (!ret) {
+					if (fileSpoolerEnabled) {
+						LOG.info("Switching to file spool. Queue = {}, dest = {}", getName(), consumer.getName());
+						// Transient error. Stash and move on
+						fileSpooler.stashLogs(localBatchBuffer);
+						isDestActive = false;
+						addStashedCount(localBatchBuffer.size());
+					} else {
+						// We need to drop this event
+						addFailedCount(localBatchBuffer.size());
+						logFailedEvent(localBatchBuffer);
+					}
+				} else {
+					isDestActive = true;
+					addSuccessCount(localBatchBuffer.size());
+				}
+				localBatchBuffer.clear();
+			}
+
+			if (isDrain()) {
+				if (!source.isEmpty() || localBatchBuffer.size() > 0) {
+					LOG.info("Queue is not empty. Will retry. queue.size = {}, localBatchBuffer.size = {}",
+							source.size(), localBatchBuffer.size());
+				} else {
+					break;
+				}
+				if (isDrainMaxTimeElapsed()) {
+					LOG.warn("Exiting polling loop because max time allowed reached. name="
+							+ getName()
+							+ ", waited for "
+							+ (stopTime - System.currentTimeMillis()) + " ms");
+				}
+			}
+		}
+
+		LOG.info("Exiting consumerThread. Queue = {}, dest = {}", getName(), consumer.getName());
+		try {
+			// Call stop on the consumer
+			LOG.info("Calling to stop consumer. name = {}, consumer.name = {}", getName(), consumer.getName());
+
+			consumer.stop();
+			if (fileSpoolerEnabled) {
+				fileSpooler.stop();
+			}
+		} catch (Throwable t) {
+			LOG.error("Error while calling stop on consumer.", t);
+		}
+		logStatus();
+		LOG.info("Exiting consumerThread.run() method. name=" + getName());
+	}
 }
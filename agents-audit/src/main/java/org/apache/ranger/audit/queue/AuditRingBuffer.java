@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free queue backed by a pre-allocated array, for multiple producers.
+ *
+ * Each slot has a sequence number that tells whether the slot is free for the producer of a given position or holds
+ * the element for the consumer of that position. Producers claim a position with a CAS on the tail, and consumers with
+ * a CAS on the head; hence offer() and poll() never block, and no node is allocated per element. Though the audit
+ * queues have a single consumer thread, poll() is safe to call from producers as well - which is how the drop-oldest
+ * overflow policy makes room for a new event.
+ */
+public class AuditRingBuffer<E> {
+	private final int                     capacity;
+	private final int                     mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray         sequences;
+	private final AtomicLong              head = new AtomicLong(); // position of the next element to poll
+	private final AtomicLong              tail = new AtomicLong(); // position of the next element to offer
+
+	/**
+	 * @param capacity rounded up to the next power of 2, and at least 2 - with a single slot, the sequence of a
+	 *                 published element would be the same as that of a slot free for the next position
+	 */
+	public AuditRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+
+		int size = 2;
+
+		while (size < capacity && size < (1 << 30)) {
+			size <<= 1;
+		}
+
+		this.capacity  = size;
+		this.mask      = this.capacity - 1;
+		this.elements  = new AtomicReferenceArray<>(this.capacity);
+		this.sequences = new AtomicLongArray(this.capacity);
+
+		for (int i = 0; i < this.capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return false if the queue is full
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+
+		long pos = tail.get();
+
+		while (true) {
+			int  idx  = (int) (pos & mask);
+			long diff = sequences.get(idx) - pos;
+
+			if (diff == 0) { // slot is free for this position
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements.lazySet(idx, element);
+					sequences.lazySet(idx, pos + 1); // publish the element to consumers
+
+					return true;
+				}
+
+				pos = tail.get();
+			} else if (diff < 0) { // slot still holds the element from previous lap
+				return false;
+			} else { // another producer claimed this position
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * @return null if the queue is empty
+	 */
+	public E poll() {
+		long pos = head.get();
+
+		while (true) {
+			int  idx  = (int) (pos & mask);
+			long diff = sequences.get(idx) - (pos + 1);
+
+			if (diff == 0) { // slot holds the element for this position
+				if (head.compareAndSet(pos, pos + 1)) {
+					E ret = elements.get(idx);
+
+					elements.lazySet(idx, null);
+					sequences.lazySet(idx, pos + capacity); // release the slot to producers of the next lap
+
+					return ret;
+				}
+
+				pos = head.get();
+			} else if (diff < 0) { // element not yet published
+				return null;
+			} else { // another consumer took this position
+				pos = head.get();
+			}
+		}
+	}
+
+	/**
+	 * @return number of elements added to the given collection
+	 */
+	public int drainTo(Collection<? super E> collection, int maxElements) {
+		int ret = 0;
+
+		while (ret < maxElements) {
+			E element = poll();
+
+			if (element == null) {
+				break;
+			}
+
+			collection.add(element);
+
+			ret++;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return approximate number of elements in the queue, as it can change concurrently
+	 */
+	public int size() {
+		while (true) {
+			long currHead = head.get();
+			long currTail = tail.get();
+
+			if (currHead == head.get()) {
+				long ret = currTail - currHead;
+
+				return ret < 0 ? 0 : (ret > capacity ? capacity : (int) ret);
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+}
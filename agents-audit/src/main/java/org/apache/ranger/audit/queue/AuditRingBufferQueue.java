@@ -0,0 +1,483 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Batching queue, like AuditBatchQueue, backed by a lock-free AuditRingBuffer instead of an ArrayBlockingQueue.
+ * Producers don't contend on a lock, and no node is allocated per event. The consumer thread batches and spools the
+ * events like AuditBatchQueue does, with AuditQueue.runBatchLogAudit(); only how it waits for events differs.
+ *
+ * How the consumer thread waits for events, and how producers wait for space with overflow policy block, is set by
+ * &lt;prefix&gt;.waitstrategy: busyspin, yield, sleep or block (default). What log() does when the queue is full is set
+ * by &lt;prefix&gt;.overflow: block (default), drop_oldest or spill - which writes the event to the file spool, and
+ * needs the file spool to be enabled.
+ *
+ * Events dropped with drop_oldest are recycled - see AuthzAuditEventPool - only by a queue created as the owner of
+ * the events it is given, like the async queue. A queue in front of one of several destinations, like the batch
+ * queue, shares its events with the queues of the other destinations, so it only drops its reference.
+ */
+public class AuditRingBufferQueue extends AuditQueue implements Runnable {
+	private static final Logger logger = LoggerFactory.getLogger(AuditRingBufferQueue.class);
+
+	public static final String PROP_WAIT_STRATEGY   = "waitstrategy";
+	public static final String PROP_OVERFLOW_POLICY = "overflow";
+	public static final String PROP_SLEEP_TIME_US   = "waitstrategy.sleep.us";
+
+	public enum WaitStrategy { BUSYSPIN, YIELD, SLEEP, BLOCK }
+
+	public enum OverflowPolicy { BLOCK, DROP_OLDEST, SPILL }
+
+	static final String DEFAULT_NAME = "ringbuffer";
+
+	static final int DEFAULT_SLEEP_TIME_US = 100;
+	static final int MAX_BLOCK_TIME_MS     = 100; // bounds the wait of the consumer if a signal from producers is missed
+
+	private AuditRingBuffer<AuditEventBase> queue            = null;
+	private Collection<AuditEventBase>      localBatchBuffer = new ArrayList<AuditEventBase>();
+
+	private WaitStrategy   waitStrategy   = WaitStrategy.BLOCK;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private long           sleepTimeNanos = TimeUnit.MICROSECONDS.toNanos(DEFAULT_SLEEP_TIME_US);
+
+	private final    boolean       isEventOwner;
+	private final    ReentrantLock lock              = new ReentrantLock();
+	private final    Condition     notEmpty          = lock.newCondition();
+	private volatile boolean       isConsumerWaiting = false;
+
+	// metrics - updated by producer threads
+	private final LongAdder     droppedCount     = new LongAdder();
+	private final LongAdder     spilledCount     = new LongAdder();
+	private final LongAdder     blockedCount     = new LongAdder();
+	private final AtomicInteger maxQueueDepth    = new AtomicInteger();
+	private       long          lastDroppedCount = 0;
+
+	Thread consumerThread = null;
+	static int threadCount = 0;
+
+	public AuditRingBufferQueue(AuditHandler consumer) {
+		this(consumer, false);
+	}
+
+	/**
+	 * @param isEventOwner true if no one else holds the events given to this queue, so that the events it drops can
+	 *                     be recycled
+	 */
+	public AuditRingBufferQueue(AuditHandler consumer, boolean isEventOwner) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+
+		this.isEventOwner = isEventOwner;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.apache.ranger.audit.provider.AuditProvider#log(org.apache.ranger.
+	 * audit.model.AuditEventBase)
+	 */
+	@Override
+	public boolean log(AuditEventBase event) {
+		if (!queue.offer(event)) {
+			switch (overflowPolicy) {
+				case DROP_OLDEST:
+					do {
+						AuditEventBase dropped = queue.poll();
+
+						if (dropped != null) {
+							droppedCount.increment();
+
+							// no longer held by anyone: if it came from an AuthzAuditEventPool, it can be reused
+							if (isEventOwner && dropped instanceof AuthzAuditEvent) {
+								((AuthzAuditEvent) dropped).recycle();
+							}
+						}
+					} while (!queue.offer(event));
+				break;
+
+				case SPILL:
+					fileSpooler.stashLogs(event);
+					spilledCount.increment();
+				return true;
+
+				case BLOCK:
+				default:
+					blockedCount.increment();
+
+					while (!queue.offer(event)) {
+						if (Thread.currentThread().isInterrupted()) {
+							throw new RuntimeException(new InterruptedException());
+						}
+
+						idle();
+					}
+				break;
+			}
+		}
+
+		updateMaxQueueDepth();
+
+		if (isConsumerWaiting) {
+			signalConsumer();
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		boolean ret = true;
+		for (AuditEventBase event : events) {
+			ret = log(event);
+			if (!ret) {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void init(Properties prop, String basePropertyName) {
+		String propPrefix = "xasecure.audit.ringbuffer";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		super.init(prop, propPrefix);
+
+		waitStrategy   = toEnum(WaitStrategy.class, MiscUtil.getStringProperty(prop, propPrefix + "." + PROP_WAIT_STRATEGY), WaitStrategy.BLOCK);
+		overflowPolicy = toEnum(OverflowPolicy.class, MiscUtil.getStringProperty(prop, propPrefix + "." + PROP_OVERFLOW_POLICY), OverflowPolicy.BLOCK);
+		sleepTimeNanos = TimeUnit.MICROSECONDS.toNanos(MiscUtil.getIntProperty(prop, propPrefix + "." + PROP_SLEEP_TIME_US, DEFAULT_SLEEP_TIME_US));
+
+		if (overflowPolicy == OverflowPolicy.SPILL && !fileSpoolerEnabled) {
+			logger.error("Overflow policy " + overflowPolicy + " needs the file spool to be enabled. Using "
+					+ OverflowPolicy.BLOCK + " instead. name=" + getName());
+
+			overflowPolicy = OverflowPolicy.BLOCK;
+		}
+
+		logger.info("AuditRingBufferQueue(name=" + getName() + "): waitStrategy=" + waitStrategy
+				+ ", overflowPolicy=" + overflowPolicy);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#start()
+	 */
+	@Override
+	synchronized public void start() {
+		if (consumerThread != null) {
+			logger.error("Provider is already started. name=" + getName());
+			return;
+		}
+		queue = new AuditRingBuffer<AuditEventBase>(getMaxQueueSize());
+		logger.info("Created AuditRingBuffer with maxSize=" + getMaxQueueSize()
+				+ ", capacity=" + queue.getCapacity());
+
+		// Start the consumer first
+		consumer.start();
+
+		// Then the FileSpooler
+		if (fileSpoolerEnabled) {
+			fileSpooler.start();
+		}
+
+		// Finally the queue listener
+		consumerThread = new Thread(this, this.getClass().getName()
+				+ (threadCount++));
+		consumerThread.setDaemon(true);
+		consumerThread.start();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#stop()
+	 */
+	@Override
+	public void stop() {
+		logger.info("Stop called. name=" + getName());
+		setDrain(true);
+		flush();
+		try {
+			if (consumerThread != null) {
+				logger.info("Interrupting consumerThread. name=" + getName()
+						+ ", consumer="
+						+ (consumer == null ? null : consumer.getName()));
+
+				consumerThread.interrupt();
+			}
+		} catch (Throwable t) {
+			// ignore any exception
+		}
+		consumerThread = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#waitToComplete()
+	 */
+	@Override
+	public void waitToComplete() {
+		int defaultTimeOut = -1;
+		waitToComplete(defaultTimeOut);
+		consumer.waitToComplete(defaultTimeOut);
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		setDrain(true);
+		flush();
+		long sleepTime = 1000;
+		long startTime = System.currentTimeMillis();
+		int prevQueueSize = -1;
+		int staticLoopCount = 0;
+		while ((queue.size() > 0 || localBatchBuffer.size() > 0)) {
+			if (prevQueueSize == queue.size()) {
+				logger.error("Queue size is not changing. " + getName()
+						+ ".size=" + queue.size());
+				staticLoopCount++;
+				if (staticLoopCount > 5) {
+					logger.error("Aborting writing to consumer. Some logs will be discarded."
+							+ getName() + ".size=" + queue.size());
+					break;
+				}
+			} else {
+				staticLoopCount = 0;
+				prevQueueSize = queue.size();
+			}
+			if (consumerThread != null) {
+				consumerThread.interrupt();
+			}
+			try {
+				Thread.sleep(sleepTime);
+				if (timeout > 0
+						&& (System.currentTimeMillis() - startTime > timeout)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		consumer.waitToComplete(timeout);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#flush()
+	 */
+	@Override
+	public void flush() {
+		if (fileSpoolerEnabled) {
+			fileSpooler.flush();
+		}
+		consumer.flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.error("Exited thread abnormaly. queue=" + getName(), t);
+		}
+	}
+
+	@Override
+	public void logStatus() {
+		super.logStatus();
+
+		long totalDropped = droppedCount.sum();
+		long diffDropped  = totalDropped - lastDroppedCount;
+
+		lastDroppedCount = totalDropped;
+
+		if (isStatusLogEnabled()) {
+			logger.info("AuditRingBufferQueue.log(name={}): currentQueueLength={}, maxQueueLength={}, droppedCount={}, totalDroppedCount={}, totalSpilledCount={}, totalBlockedCount={}",
+					getName(), size(), getMaxQueueDepth(), diffDropped, totalDropped, getSpilledCount(), getBlockedCount());
+		}
+	}
+
+	public int size() { return queue != null ? queue.size() : 0; }
+
+	public int getMaxQueueDepth() { return maxQueueDepth.get(); }
+
+	public long getDroppedCount() { return droppedCount.sum(); }
+
+	public long getSpilledCount() { return spilledCount.sum(); }
+
+	public long getBlockedCount() { return blockedCount.sum(); }
+
+	public WaitStrategy getWaitStrategy() { return waitStrategy; }
+
+	public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+
+	public void runLogAudit() {
+		runBatchLogAudit(new EventSource() {
+			@Override
+			public int size() {
+				return queue.size();
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return queue.isEmpty();
+			}
+
+			@Override
+			public AuditEventBase poll() {
+				return queue.poll();
+			}
+
+			@Override
+			public AuditEventBase poll(long timeoutMs) throws InterruptedException {
+				return waitForEvent(timeoutMs);
+			}
+
+			@Override
+			public int drainTo(Collection<AuditEventBase> events, int maxEvents) {
+				return queue.drainTo(events, maxEvents);
+			}
+		}, localBatchBuffer);
+	}
+
+	// waits, as per the wait strategy, for an event to be available or for the timeout to elapse
+	private AuditEventBase waitForEvent(long timeoutMs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+		while (true) {
+			AuditEventBase ret = queue.poll();
+
+			if (ret != null) {
+				return ret;
+			}
+
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+			long remainingNanos = deadline - System.nanoTime();
+
+			if (remainingNanos <= 0) {
+				return null;
+			}
+
+			if (waitStrategy == WaitStrategy.BLOCK) {
+				awaitNotEmpty(remainingNanos);
+			} else {
+				idle();
+			}
+		}
+	}
+
+	private void awaitNotEmpty(long remainingNanos) throws InterruptedException {
+		lock.lock();
+		try {
+			isConsumerWaiting = true;
+
+			// an event offered before isConsumerWaiting was set would not be signalled
+			if (queue.isEmpty()) {
+				notEmpty.awaitNanos(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(MAX_BLOCK_TIME_MS)));
+			}
+		} finally {
+			isConsumerWaiting = false;
+			lock.unlock();
+		}
+	}
+
+	private void signalConsumer() {
+		lock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// producers wait for space without a signal from the consumer, hence BLOCK sleeps like SLEEP
+	private void idle() {
+		switch (waitStrategy) {
+			case BUSYSPIN:
+			break;
+
+			case YIELD:
+				Thread.yield();
+			break;
+
+			case SLEEP:
+			case BLOCK:
+			default:
+				LockSupport.parkNanos(sleepTimeNanos);
+			break;
+		}
+	}
+
+	private void updateMaxQueueDepth() {
+		int depth = queue.size();
+
+		for (int max = maxQueueDepth.get(); depth > max; max = maxQueueDepth.get()) {
+			if (maxQueueDepth.compareAndSet(max, depth)) {
+				break;
+			}
+		}
+	}
+
+	private static <T extends Enum<T>> T toEnum(Class<T> enumClass, String value, T defaultValue) {
+		T ret = defaultValue;
+
+		if (value != null && !value.trim().isEmpty()) {
+			try {
+				ret = Enum.valueOf(enumClass, value.trim().toUpperCase());
+			} catch (IllegalArgumentException excp) {
+				logger.error("Invalid value " + value + " for " + enumClass.getSimpleName() + ". Using " + defaultValue);
+			}
+		}
+
+		return ret;
+	}
+}
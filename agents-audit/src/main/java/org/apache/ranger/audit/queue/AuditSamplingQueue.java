@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples and rate limits allowed access events in the caller's thread, before they reach the queue it is put in
+ * front of. Denied accesses (result 0) and events other than AuthzAuditEvent are always passed on.
+ *
+ * Properties, under xasecure.audit.sampling:
+ *  - rate: fraction of allowed events to keep (default 1). Whether an event is kept depends only on a hash of its
+ *    event id, so the same event gets the same decision wherever it is logged.
+ *  - ratelimit.per.sec, ratelimit.burst: token bucket for each key of user, resource prefix, access type and result;
+ *    the resource prefix is the resource path up to its resource.prefix.depth-th '/' (default 2; 0 for the whole
+ *    path). Disabled by default. At most ratelimit.max.keys buckets are kept; once there are more, all buckets start
+ *    over full. Keys are hashed, so two keys may rarely share a bucket.
+ *
+ * Each kept event that stands for others has its sample rate set: the sampling rate divided by 1 + the number of
+ * events rate limited since the last one kept with the same key. The sum of 1 / sampleRate over the kept events is
+ * then an estimate of the number of allowed events, which is exact without sampling - except for the events rate
+ * limited after the last kept one of their key.
+ */
+public class AuditSamplingQueue extends AuditQueue {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSamplingQueue.class);
+
+	public static final String PROP_SAMPLING_RATE         = "rate";
+	public static final String PROP_RESOURCE_PREFIX_DEPTH = "resource.prefix.depth";
+	public static final String PROP_RATE_LIMIT_PER_SEC    = "ratelimit.per.sec";
+	public static final String PROP_RATE_LIMIT_BURST      = "ratelimit.burst";
+	public static final String PROP_RATE_LIMIT_MAX_KEYS   = "ratelimit.max.keys";
+
+	static final String DEFAULT_NAME = "sampling";
+
+	private double samplingRate        = 1;
+	private int    resourcePrefixDepth = 2;
+	private double rateLimitPerSec     = 0;
+	private double rateLimitBurst      = 0;
+	private int    rateLimitMaxKeys    = 10000;
+
+	private final ConcurrentHashMap<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+	private final AtomicLong keptCount        = new AtomicLong();
+	private final AtomicLong deniedCount      = new AtomicLong();
+	private final AtomicLong sampledOutCount  = new AtomicLong();
+	private final AtomicLong rateLimitedCount = new AtomicLong();
+
+	private long lastSampledOutCount  = 0;
+	private long lastRateLimitedCount = 0;
+
+	public AuditSamplingQueue(AuditHandler consumer) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+	}
+
+	@Override
+	public void init(Properties props, String propPrefix) {
+		super.init(props, propPrefix);
+
+		samplingRate        = Math.min(1, Math.max(0, MiscUtil.getDoubleProperty(props, propPrefix + "." + PROP_SAMPLING_RATE, samplingRate)));
+		resourcePrefixDepth = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_RESOURCE_PREFIX_DEPTH, resourcePrefixDepth);
+		rateLimitPerSec     = MiscUtil.getDoubleProperty(props, propPrefix + "." + PROP_RATE_LIMIT_PER_SEC, rateLimitPerSec);
+		rateLimitBurst      = Math.max(1, MiscUtil.getDoubleProperty(props, propPrefix + "." + PROP_RATE_LIMIT_BURST, rateLimitPerSec));
+		rateLimitMaxKeys    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_RATE_LIMIT_MAX_KEYS, rateLimitMaxKeys);
+
+		logger.info("AuditSamplingQueue: samplingRate=" + samplingRate + ", resourcePrefixDepth=" + resourcePrefixDepth
+				+ ", rateLimitPerSec=" + rateLimitPerSec + ", rateLimitBurst=" + rateLimitBurst + ", rateLimitMaxKeys=" + rateLimitMaxKeys);
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		logStatusIfRequired();
+
+		addTotalCount(1);
+
+		if (!isKept(event, System.nanoTime())) {
+			recycle(event);
+
+			return true;
+		}
+
+		return consumer.log(event);
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+
+		addTotalCount(events.size());
+
+		long                 now  = System.nanoTime();
+		List<AuditEventBase> kept = new ArrayList<>(events.size());
+
+		for (AuditEventBase event : events) {
+			if (isKept(event, now)) {
+				kept.add(event);
+			} else {
+				recycle(event);
+			}
+		}
+
+		return kept.isEmpty() || consumer.log(kept);
+	}
+
+	@Override
+	public void start() {
+		if (consumer != null) {
+			consumer.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		logger.info("Stop called. name=" + getName());
+
+		logStatus();
+
+		if (consumer != null) {
+			consumer.stop();
+		}
+	}
+
+	@Override
+	public void logStatus() {
+		super.logStatus();
+
+		long sampledOut  = sampledOutCount.get();
+		long rateLimited = rateLimitedCount.get();
+
+		if (isStatusLogEnabled() && (sampledOut != lastSampledOutCount || rateLimited != lastRateLimitedCount)) {
+			logger.info("Audit Sampling Status: name=" + getName() + ", sampledOutCount=" + (sampledOut - lastSampledOutCount)
+					+ ", rateLimitedCount=" + (rateLimited - lastRateLimitedCount) + ", totalKeptCount=" + keptCount.get()
+					+ ", totalDeniedCount=" + deniedCount.get() + ", totalSampledOutCount=" + sampledOut
+					+ ", totalRateLimitedCount=" + rateLimited + ", rateLimitKeys=" + buckets.size());
+		}
+
+		lastSampledOutCount  = sampledOut;
+		lastRateLimitedCount = rateLimited;
+	}
+
+	public long getKeptCount() {
+		return keptCount.get();
+	}
+
+	public long getDeniedCount() {
+		return deniedCount.get();
+	}
+
+	public long getSampledOutCount() {
+		return sampledOutCount.get();
+	}
+
+	public long getRateLimitedCount() {
+		return rateLimitedCount.get();
+	}
+
+	/**
+	 * Decides whether the event is passed on and, if it is, sets its sample rate
+	 *
+	 * @param now current System.nanoTime()
+	 */
+	protected boolean isKept(AuditEventBase event, long now) {
+		if (!(event instanceof AuthzAuditEvent)) {
+			return true;
+		}
+
+		AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+		if (authzEvent.getAccessResult() == 0) {
+			deniedCount.incrementAndGet();
+
+			return true;
+		}
+
+		if (samplingRate < 1 && !isSampled(authzEvent)) {
+			sampledOutCount.incrementAndGet();
+
+			return false;
+		}
+
+		long represented = 1;
+
+		if (rateLimitPerSec > 0) {
+			TokenBucket bucket = getBucket(getKey(authzEvent), now);
+
+			represented = bucket.acquire(now, rateLimitPerSec, rateLimitBurst);
+
+			if (represented == 0) {
+				rateLimitedCount.incrementAndGet();
+
+				return false;
+			}
+		}
+
+		if (samplingRate < 1 || represented > 1) {
+			double sampleRate = samplingRate / represented;
+
+			if (authzEvent.getSampleRate() != null) { // sampled before
+				sampleRate *= authzEvent.getSampleRate();
+			}
+
+			authzEvent.setSampleRate(sampleRate);
+		}
+
+		keptCount.incrementAndGet();
+
+		return true;
+	}
+
+	boolean isSampled(AuthzAuditEvent event) {
+		long hash = event.getEventId() != null ? event.getEventId().hashCode() : (getKey(event) ^ event.getSeqNum());
+
+		// top 53 bits of the mixed hash, as a double in [0, 1)
+		return (mix(hash) >>> 11) * 0x1.0p-53 < samplingRate;
+	}
+
+	long getKey(AuthzAuditEvent event) {
+		long ret = 0xCBF29CE484222325L;
+
+		ret = (ret ^ hashCode(event.getUser())) * 0x100000001B3L;
+		ret = (ret ^ getResourcePrefixHash(event.getResourcePath())) * 0x100000001B3L;
+		ret = (ret ^ hashCode(event.getAccessType())) * 0x100000001B3L;
+		ret = (ret ^ event.getAccessResult()) * 0x100000001B3L;
+
+		return ret;
+	}
+
+	// same as resourcePath.substring(0, end of prefix).hashCode(), without the substring
+	int getResourcePrefixHash(String resourcePath) {
+		if (resourcePath == null) {
+			return 0;
+		}
+
+		int ret        = 0;
+		int separators = 0;
+
+		for (int i = 0; i < resourcePath.length(); i++) {
+			char c = resourcePath.charAt(i);
+
+			if (c == '/' && i > 0 && resourcePrefixDepth > 0 && ++separators == resourcePrefixDepth) {
+				break;
+			}
+
+			ret = 31 * ret + c;
+		}
+
+		return ret;
+	}
+
+	private TokenBucket getBucket(long key, long now) {
+		TokenBucket ret = buckets.get(key);
+
+		if (ret == null) {
+			if (buckets.size() >= rateLimitMaxKeys) {
+				buckets.clear();
+			}
+
+			ret = buckets.computeIfAbsent(key, k -> new TokenBucket(now, rateLimitBurst));
+		}
+
+		return ret;
+	}
+
+	// the dropped event is not held by anyone else: if it came from an AuthzAuditEventPool, it can be reused
+	private static void recycle(AuditEventBase event) {
+		if (event instanceof AuthzAuditEvent) {
+			((AuthzAuditEvent) event).recycle();
+		}
+	}
+
+	private static int hashCode(String value) {
+		return value != null ? value.hashCode() : 0;
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+
+		return value ^ (value >>> 33);
+	}
+
+	static class TokenBucket {
+		private double tokens;
+		private long   lastRefill;
+		private long   droppedSinceKept = 0;
+
+		TokenBucket(long now, double burst) {
+			this.tokens     = burst;
+			this.lastRefill = now;
+		}
+
+		/**
+		 * @return 0 if no token is left; otherwise the number of events the kept event stands for - itself and
+		 * those dropped since the last one kept
+		 */
+		synchronized long acquire(long now, double perSec, double burst) {
+			if (now > lastRefill) {
+				tokens     = Math.min(burst, tokens + (now - lastRefill) * perSec / TimeUnit.SECONDS.toNanos(1));
+				lastRefill = now;
+			}
+
+			if (tokens < 1) {
+				droppedSinceKept++;
+
+				return 0;
+			}
+
+			tokens -= 1;
+
+			long ret = 1 + droppedSinceKept;
+
+			droppedSinceKept = 0;
+
+			return ret;
+		}
+	}
+}
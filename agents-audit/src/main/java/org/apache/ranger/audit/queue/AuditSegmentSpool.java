@@ -0,0 +1,580 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File spool that writes events to pre-allocated, memory-mapped segment files, as a write-ahead log, instead of the
+ * JSON files and index files of AuditFileSpool. Enabled with &lt;queue&gt;.filespool.type=segment.
+ *
+ * Each segment starts with a header, followed by records of: length, CRC32 of the payload, and the event encoded by
+ * AuditEventCodec. A record of length 0 has not been written yet; END_OF_SEGMENT marks that the writer moved to the
+ * next segment. The position up to which events were sent to the destination is saved in a small checkpoint file,
+ * so that a restart resumes from there without reading the events sent already. Segments are deleted once sent.
+ *
+ * Only AuthzAuditEvent can be spooled. Spool files of AuditFileSpool are not read; drain them before switching.
+ */
+public class AuditSegmentSpool extends AuditFileSpool {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSegmentSpool.class);
+
+	public static final String PROP_FILE_SPOOL_SEGMENT_SIZE_MB = "filespool.segment.size.mb";
+
+	static final String SEGMENT_FILE_SUFFIX    = ".seg";
+	static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+	static final int    SEGMENT_MAGIC          = 0x52414553; // RAES
+	static final int    CHECKPOINT_MAGIC       = 0x52414543; // RAEC
+	static final int    SEGMENT_VERSION        = 1;
+	static final int    SEGMENT_HEADER_LENGTH  = 16;         // magic, version, segment id
+	static final int    RECORD_HEADER_LENGTH   = 8;          // length, crc
+	static final int    END_OF_SEGMENT         = -1;
+	static final int    CHECKPOINT_SLOT_LENGTH = 32;         // magic, generation, segment id, position, crc
+
+	int    segmentSize = 64 * 1024 * 1024;
+	String segmentFilePrefix = null;
+
+	// ids of segments not yet sent completely, in the order written; includes the segment being written
+	final ConcurrentLinkedQueue<Long> segmentQueue = new ConcurrentLinkedQueue<>();
+
+	// writer state, guarded by this
+	final CRC32     writeCrc = new CRC32();
+	MappedByteBuffer writeBuffer = null;
+	long            nextSegmentId = 1;
+	int             writeOffset = 0;
+
+	// position up to which records are written, published to the destination thread
+	volatile long writeSegmentId = 0;
+	volatile int  writePosition = 0;
+
+	// destination thread state
+	final CRC32      readCrc = new CRC32();
+	final Object     readLock = new Object();
+	MappedByteBuffer readBuffer = null;
+	volatile long    readSegmentId = 0;
+	volatile int     readPosition = 0;
+	boolean          isReadSegmentDone = false;
+	int              pendingPosition = 0;
+	final List<AuditEventBase> pendingEvents = new ArrayList<>(); // read, but not yet sent
+
+	MappedByteBuffer checkpointBuffer = null;
+	long             checkpointGeneration = 0;
+
+	public AuditSegmentSpool(AuditQueue queueProvider, AuditHandler consumerProvider) {
+		super(queueProvider, consumerProvider);
+	}
+
+	@Override
+	public boolean init(Properties props, String basePropertyName) {
+		if (initDone) {
+			logger.error("init() called more than once. queueProvider={}, consumerProvider={}", queueProvider.getName(), consumerProvider.getName());
+			return true;
+		}
+		String propPrefix = "xasecure.audit.filespool";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		try {
+			String logFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR);
+			fileNamePrefix = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILENAME_PREFIX);
+			retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+
+			int segmentSizeMB = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SEGMENT_SIZE_MB, segmentSize / (1024 * 1024));
+			if (segmentSizeMB < 1 || segmentSizeMB > 1024) {
+				logger.warn("Invalid {}.{}={}; using {}", propPrefix, PROP_FILE_SPOOL_SEGMENT_SIZE_MB, segmentSizeMB, segmentSize / (1024 * 1024));
+			} else {
+				segmentSize = segmentSizeMB * 1024 * 1024;
+			}
+
+			logger.info("retryDestinationMS={}, queueName={}", retryDestinationMS, queueProvider.getName());
+			logger.info("segmentSize={}, queueName={}", segmentSize, queueProvider.getName());
+
+			if (logFolderProp == null || logFolderProp.isEmpty()) {
+				logger.error("Audit spool folder is not configured. Please set {}.{}. queueName={}", propPrefix, PROP_FILE_SPOOL_LOCAL_DIR, queueProvider.getName());
+				return false;
+			}
+			logFolder = new File(logFolderProp);
+			if (!logFolder.isDirectory()) {
+				logFolder.mkdirs();
+				if (!logFolder.isDirectory()) {
+					logger.error("File Spool folder not found and can't be created. folder={}, queueName={}", logFolder.getAbsolutePath(), queueProvider.getName());
+					return false;
+				}
+			}
+			logger.info("logFolder={}, queueName={}", logFolder, queueProvider.getName());
+
+			if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+				fileNamePrefix = queueProvider.getName() + "_" + consumerProvider.getName();
+			}
+			segmentFilePrefix = MiscUtil.replaceTokens("spool_" + fileNamePrefix + "_%app-type%", System.currentTimeMillis());
+
+			loadCheckpoint();
+
+			// segments before the checkpoint were sent completely
+			List<Long> segmentIds = listSegmentIds();
+			for (Long segmentId : segmentIds) {
+				if (segmentId < readSegmentId) {
+					deleteSegment(segmentId);
+				} else {
+					segmentQueue.add(segmentId);
+				}
+				nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+			}
+			nextSegmentId = Math.max(nextSegmentId, readSegmentId);
+
+			Long firstSegmentId = segmentQueue.peek();
+			if (firstSegmentId != null && firstSegmentId != readSegmentId) {
+				readSegmentId = firstSegmentId;
+				readPosition = SEGMENT_HEADER_LENGTH;
+			}
+
+			logger.info("Spool has {} segments to send. readSegmentId={}, readPosition={}, queueName={}", segmentQueue.size(), readSegmentId, readPosition, queueProvider.getName());
+		} catch (Throwable t) {
+			logger.error("Error initializing File Spooler. queue=" + queueProvider.getName(), t);
+			return false;
+		}
+		initDone = true;
+		return true;
+	}
+
+	@Override
+	public void stop() {
+		if (!initDone) {
+			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName={}", queueProvider.getName());
+			return;
+		}
+		logger.info("Stop called, queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+
+		isDrain = true;
+
+		synchronized (this) {
+			if (writeBuffer != null) {
+				writeBuffer.force();
+			}
+		}
+		if (checkpointBuffer != null) {
+			checkpointBuffer.force();
+		}
+
+		flush();
+	}
+
+	/**
+	 * Records are in the mapped segment once written; this only wakes up the destination thread to send them
+	 */
+	@Override
+	public void flush() {
+		synchronized (readLock) {
+			readLock.notifyAll();
+		}
+	}
+
+	@Override
+	public boolean isPending() {
+		if (!initDone) {
+			logError("isPending(): File Spooler not initialized. queueName={}", queueProvider.getName());
+			return false;
+		}
+
+		int segmentCount = segmentQueue.size();
+
+		return segmentCount > 1 || (segmentCount == 1 && (readSegmentId != writeSegmentId || readPosition < writePosition));
+	}
+
+	@Override
+	public synchronized void stashLogs(AuditEventBase event) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. event={}", event);
+			return;
+		}
+		if (!(event instanceof AuthzAuditEvent)) {
+			logger.error("Event type {} can't be written to segment spool. event={}", event != null ? event.getClass().getName() : null, event);
+			return;
+		}
+		try {
+			isWriting = true;
+			append((AuthzAuditEvent) event);
+		} catch (Exception ex) {
+			logger.error("Error writing to file. event={}", event, ex);
+		} finally {
+			isWriting = false;
+		}
+	}
+
+	@Override
+	public synchronized void stashLogsString(String event) {
+		stashLogs(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+	}
+
+	@Override
+	public void runLogAudit() {
+		while (true) {
+			try {
+				if (isDestDown) {
+					logger.info("Destination is down. sleeping for {} milli seconds. segments={}, queueName={}, consumer={}",
+							retryDestinationMS, segmentQueue.size(), queueProvider.getName(), consumerProvider.getName());
+					Thread.sleep(retryDestinationMS);
+				}
+
+				if (isDrain) {
+					// Need to exit
+					break;
+				}
+
+				if (sendNextBatch() == 0) {
+					synchronized (readLock) {
+						readLock.wait(retryDestinationMS);
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+				break;
+			} catch (Exception t) {
+				logger.error("Exception in destination writing thread.", t);
+			}
+		}
+		logger.info("Exiting file spooler. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+	}
+
+	/**
+	 * Sends the next batch of events to the consumer; or the last batch again, if that failed
+	 *
+	 * @return number of events sent; 0 if there are no events to send, -1 if the consumer failed
+	 */
+	int sendNextBatch() throws IOException {
+		if (pendingEvents.isEmpty()) {
+			pendingPosition = readBatch(pendingEvents, queueProvider.getMaxBatchSize());
+		}
+
+		if (pendingEvents.isEmpty()) {
+			return 0;
+		}
+
+		if (!consumerProvider.log(pendingEvents)) {
+			isDestDown = true;
+			logError("Destination down. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+			lastAttemptTime = System.currentTimeMillis();
+
+			return -1;
+		}
+
+		int ret = pendingEvents.size();
+
+		readPosition = pendingPosition;
+		saveCheckpoint(readSegmentId, readPosition);
+		pendingEvents.clear();
+
+		if (isDestDown) {
+			isDestDown = false;
+			logger.info("Destination up now. segment={}, queueName={}, consumer={}", readSegmentId, queueProvider.getName(), consumerProvider.getName());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Reads events from the segment at readSegmentId, from readPosition; moves to the next segment once the
+	 * segment is sent completely.
+	 *
+	 * @return position after the last event read
+	 */
+	int readBatch(List<AuditEventBase> events, int maxEvents) throws IOException {
+		while (true) {
+			Long segmentId = segmentQueue.peek();
+			if (segmentId == null) {
+				return readPosition;
+			}
+
+			if (readBuffer == null || segmentId != readSegmentId) {
+				if (segmentId != readSegmentId) {
+					readSegmentId = segmentId;
+					readPosition = SEGMENT_HEADER_LENGTH;
+				}
+				try {
+					readBuffer = mapSegment(segmentId, false);
+				} catch (IOException excp) {
+					if (segmentId == writeSegmentId) {
+						throw excp;
+					}
+					logger.error("Skipping segment that can't be read. segment={}, queueName={}", segmentId, queueProvider.getName(), excp);
+					segmentQueue.poll();
+					continue;
+				}
+				isReadSegmentDone = false;
+			}
+
+			long currWriteSegmentId;
+			int  limit;
+			do {
+				currWriteSegmentId = writeSegmentId;
+				limit = writePosition;
+			} while (currWriteSegmentId != writeSegmentId);
+
+			// the writer has moved past this segment, so it ends at END_OF_SEGMENT or at the end of the file
+			boolean isComplete = segmentId != currWriteSegmentId;
+			if (isComplete) {
+				limit = readBuffer.capacity();
+			}
+
+			int position = readPosition;
+			while (!isReadSegmentDone && events.size() < maxEvents && position + RECORD_HEADER_LENGTH <= limit) {
+				int length = readBuffer.getInt(position);
+
+				if (length <= 0 || position + RECORD_HEADER_LENGTH + length > limit) {
+					if (isComplete) {
+						if (length != END_OF_SEGMENT && length != 0) {
+							// the last record was not written completely, like when the process was killed
+							logger.warn("Ignoring incomplete record at position {} of segment {}, queueName={}", position, segmentId, queueProvider.getName());
+						}
+						isReadSegmentDone = true;
+					}
+					break;
+				}
+
+				ByteBuffer record = readBuffer.duplicate();
+				record.position(position + RECORD_HEADER_LENGTH);
+				record.limit(position + RECORD_HEADER_LENGTH + length);
+
+				readCrc.reset();
+				readCrc.update(record.duplicate());
+
+				if ((int) readCrc.getValue() != readBuffer.getInt(position + 4)) {
+					logger.warn("Ignoring rest of segment {} from position {}: checksum mismatch, queueName={}", segmentId, position, queueProvider.getName());
+					isReadSegmentDone = true;
+					break;
+				}
+
+				events.add(AuditEventCodec.readBinary(record, length));
+
+				position += RECORD_HEADER_LENGTH + length;
+			}
+
+			if (isComplete && position + RECORD_HEADER_LENGTH > limit) {
+				isReadSegmentDone = true;
+			}
+
+			if (!events.isEmpty() || !isReadSegmentDone) {
+				return position;
+			}
+
+			// all events in the segment are sent
+			segmentQueue.poll();
+			readBuffer = null;
+			deleteSegment(segmentId);
+			saveCheckpoint(segmentId + 1, SEGMENT_HEADER_LENGTH);
+			readSegmentId = segmentId + 1;
+			readPosition = SEGMENT_HEADER_LENGTH;
+		}
+	}
+
+	private void append(AuthzAuditEvent event) throws IOException {
+		for (int attempt = 0; attempt < 2; attempt++) {
+			if (writeBuffer == null || attempt > 0) {
+				rollSegment();
+			}
+
+			int length = -1;
+			if (writeOffset + RECORD_HEADER_LENGTH < writeBuffer.capacity()) {
+				writeBuffer.position(writeOffset + RECORD_HEADER_LENGTH);
+				length = AuditEventCodec.writeBinary(event, writeBuffer);
+			}
+
+			if (length > 0) {
+				ByteBuffer record = writeBuffer.duplicate();
+				record.position(writeOffset + RECORD_HEADER_LENGTH);
+				record.limit(writeOffset + RECORD_HEADER_LENGTH + length);
+
+				writeCrc.reset();
+				writeCrc.update(record);
+
+				// length is written last, as a non-zero length marks the record as written
+				writeBuffer.putInt(writeOffset + 4, (int) writeCrc.getValue());
+				writeBuffer.putInt(writeOffset, length);
+
+				writeOffset += RECORD_HEADER_LENGTH + length;
+				writePosition = writeOffset;
+
+				return;
+			}
+		}
+
+		throw new IOException("event is larger than segment size " + segmentSize);
+	}
+
+	private void rollSegment() throws IOException {
+		if (writeBuffer != null) {
+			if (writeOffset + 4 <= writeBuffer.capacity()) {
+				writeBuffer.putInt(writeOffset, END_OF_SEGMENT);
+			}
+			writeBuffer.force();
+		}
+
+		long segmentId = nextSegmentId++;
+
+		logger.info("Creating new segment. queueName={}, segment={}", queueProvider.getName(), segmentId);
+
+		writeBuffer = mapSegment(segmentId, true);
+		writeOffset = SEGMENT_HEADER_LENGTH;
+
+		// position is published first, so that a reader that sees the new segment id doesn't use the old position;
+		// and the id before the segment is queued, so that the reader doesn't take the new segment as complete
+		writePosition = writeOffset;
+		writeSegmentId = segmentId;
+
+		segmentQueue.add(segmentId);
+	}
+
+	private MappedByteBuffer mapSegment(long segmentId, boolean isCreate) throws IOException {
+		File file = getSegmentFile(segmentId);
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, isCreate ? "rw" : "r")) {
+			if (isCreate) {
+				raf.setLength(segmentSize);
+			}
+
+			MappedByteBuffer ret = raf.getChannel().map(isCreate ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, raf.length());
+
+			if (isCreate) {
+				ret.putInt(0, SEGMENT_MAGIC);
+				ret.putInt(4, SEGMENT_VERSION);
+				ret.putLong(8, segmentId);
+			} else if (ret.capacity() < SEGMENT_HEADER_LENGTH || ret.getInt(0) != SEGMENT_MAGIC || ret.getLong(8) != segmentId) {
+				throw new IOException("invalid segment file " + file);
+			} else if (ret.getInt(4) != SEGMENT_VERSION) {
+				throw new IOException("unsupported segment version " + ret.getInt(4) + " in " + file);
+			}
+
+			return ret;
+		}
+	}
+
+	private void deleteSegment(long segmentId) {
+		File file = getSegmentFile(segmentId);
+
+		logger.info("Deleting sent segment. file={}, queueName={}, consumer={}", file, queueProvider.getName(), consumerProvider.getName());
+
+		if (file.exists() && !file.delete()) {
+			logger.error("Error deleting segment file. file={}", file);
+		}
+	}
+
+	private File getSegmentFile(long segmentId) {
+		return new File(logFolder, segmentFilePrefix + "." + String.format("%020d", segmentId) + SEGMENT_FILE_SUFFIX);
+	}
+
+	private List<Long> listSegmentIds() {
+		List<Long> ret    = new ArrayList<>();
+		String     prefix = segmentFilePrefix + ".";
+		String[]   names  = logFolder.list((dir, name) -> name.startsWith(prefix) && name.endsWith(SEGMENT_FILE_SUFFIX));
+
+		if (names != null) {
+			for (String name : names) {
+				try {
+					ret.add(Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_FILE_SUFFIX.length())));
+				} catch (NumberFormatException excp) {
+					logger.warn("Ignoring file {} in spool folder {}", name, logFolder);
+				}
+			}
+		}
+
+		Collections.sort(ret);
+
+		return ret;
+	}
+
+	/**
+	 * The checkpoint file has 2 slots, written alternately, so that a torn write leaves the other slot intact. The
+	 * slot with the highest generation and a valid checksum is the checkpoint.
+	 */
+	private void loadCheckpoint() throws IOException {
+		File file = new File(logFolder, segmentFilePrefix + CHECKPOINT_FILE_SUFFIX);
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			checkpointBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2 * CHECKPOINT_SLOT_LENGTH);
+		}
+
+		readSegmentId = 0;
+		readPosition = SEGMENT_HEADER_LENGTH;
+
+		CRC32 crc = new CRC32();
+		for (int slot = 0; slot < 2; slot++) {
+			int offset = slot * CHECKPOINT_SLOT_LENGTH;
+
+			if (checkpointBuffer.getInt(offset) != CHECKPOINT_MAGIC) {
+				continue;
+			}
+
+			ByteBuffer fields = checkpointBuffer.duplicate();
+			fields.position(offset);
+			fields.limit(offset + 24);
+
+			crc.reset();
+			crc.update(fields);
+
+			long generation = checkpointBuffer.getLong(offset + 4);
+			if ((int) crc.getValue() == checkpointBuffer.getInt(offset + 24) && generation > checkpointGeneration) {
+				checkpointGeneration = generation;
+				readSegmentId = checkpointBuffer.getLong(offset + 12);
+				readPosition = checkpointBuffer.getInt(offset + 20);
+			}
+		}
+
+		logger.info("Loaded checkpoint. file={}, segment={}, position={}, queueName={}", file, readSegmentId, readPosition, queueProvider.getName());
+	}
+
+	private void saveCheckpoint(long segmentId, int position) {
+		long generation = ++checkpointGeneration;
+		int  offset = (int) (generation % 2) * CHECKPOINT_SLOT_LENGTH;
+
+		checkpointBuffer.putInt(offset, CHECKPOINT_MAGIC);
+		checkpointBuffer.putLong(offset + 4, generation);
+		checkpointBuffer.putLong(offset + 12, segmentId);
+		checkpointBuffer.putInt(offset + 20, position);
+
+		ByteBuffer fields = checkpointBuffer.duplicate();
+		fields.position(offset);
+		fields.limit(offset + 24);
+
+		readCrc.reset();
+		readCrc.update(fields);
+
+		checkpointBuffer.putInt(offset + 24, (int) readCrc.getValue());
+	}
+}
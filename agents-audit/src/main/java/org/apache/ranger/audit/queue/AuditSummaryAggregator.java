@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+/**
+ * Groups audit events that have the same values in a set of key fields - and, optionally, fall in the same time
+ * window - into one summary event, with the number of events and the time between the first and the last.
+ *
+ * Instead of building a String key for each event, as AuditEventBase.getEventKey() does, the key fields are hashed
+ * into a long fingerprint (String.hashCode() is cached in the String) and looked up in an open-addressing table of
+ * primitive arrays. Events with the same fingerprint are compared field by field, so a hash collision never merges
+ * different keys. Events other than AuthzAuditEvent are keyed by getEventKey().
+ *
+ * Not thread-safe: used by the AuditSummaryQueue consumer thread only.
+ */
+public class AuditSummaryAggregator {
+	public enum KeyField {
+		USER, ACCESS_TYPE, RESOURCE_PATH, RESOURCE_TYPE, ACTION, ACCESS_RESULT, SESSION_ID, CLIENT_IP, CLIENT_TYPE, REPOSITORY_NAME,
+		POLICY_ID, AGENT_ID, AGENT_HOSTNAME, CLUSTER_NAME, ZONE_NAME;
+
+		// a switch rather than a getter per constant: one monomorphic call site, and no boxing of the numeric fields
+		int hash(AuthzAuditEvent event) {
+			switch (this) {
+				case USER:            return Objects.hashCode(event.getUser());
+				case ACCESS_TYPE:     return Objects.hashCode(event.getAccessType());
+				case RESOURCE_PATH:   return Objects.hashCode(event.getResourcePath());
+				case RESOURCE_TYPE:   return Objects.hashCode(event.getResourceType());
+				case ACTION:          return Objects.hashCode(event.getAction());
+				case ACCESS_RESULT:   return event.getAccessResult();
+				case SESSION_ID:      return Objects.hashCode(event.getSessionId());
+				case CLIENT_IP:       return Objects.hashCode(event.getClientIP());
+				case CLIENT_TYPE:     return Objects.hashCode(event.getClientType());
+				case REPOSITORY_NAME: return Objects.hashCode(event.getRepositoryName());
+				case POLICY_ID:       return Long.hashCode(event.getPolicyId());
+				case AGENT_ID:        return Objects.hashCode(event.getAgentId());
+				case AGENT_HOSTNAME:  return Objects.hashCode(event.getAgentHostname());
+				case CLUSTER_NAME:    return Objects.hashCode(event.getClusterName());
+				case ZONE_NAME:       return Objects.hashCode(event.getZoneName());
+				default:              return 0;
+			}
+		}
+
+		boolean isEqual(AuthzAuditEvent event1, AuthzAuditEvent event2) {
+			switch (this) {
+				case USER:            return Objects.equals(event1.getUser(), event2.getUser());
+				case ACCESS_TYPE:     return Objects.equals(event1.getAccessType(), event2.getAccessType());
+				case RESOURCE_PATH:   return Objects.equals(event1.getResourcePath(), event2.getResourcePath());
+				case RESOURCE_TYPE:   return Objects.equals(event1.getResourceType(), event2.getResourceType());
+				case ACTION:          return Objects.equals(event1.getAction(), event2.getAction());
+				case ACCESS_RESULT:   return event1.getAccessResult() == event2.getAccessResult();
+				case SESSION_ID:      return Objects.equals(event1.getSessionId(), event2.getSessionId());
+				case CLIENT_IP:       return Objects.equals(event1.getClientIP(), event2.getClientIP());
+				case CLIENT_TYPE:     return Objects.equals(event1.getClientType(), event2.getClientType());
+				case REPOSITORY_NAME: return Objects.equals(event1.getRepositoryName(), event2.getRepositoryName());
+				case POLICY_ID:       return event1.getPolicyId() == event2.getPolicyId();
+				case AGENT_ID:        return Objects.equals(event1.getAgentId(), event2.getAgentId());
+				case AGENT_HOSTNAME:  return Objects.equals(event1.getAgentHostname(), event2.getAgentHostname());
+				case CLUSTER_NAME:    return Objects.equals(event1.getClusterName(), event2.getClusterName());
+				case ZONE_NAME:       return Objects.equals(event1.getZoneName(), event2.getZoneName());
+				default:              return true;
+			}
+		}
+	}
+
+	// same fields as AuthzAuditEvent.getEventKey()
+	public static final List<KeyField> DEFAULT_KEY_FIELDS = Arrays.asList(KeyField.USER, KeyField.ACCESS_TYPE, KeyField.RESOURCE_PATH,
+			KeyField.RESOURCE_TYPE, KeyField.ACTION, KeyField.ACCESS_RESULT, KeyField.SESSION_ID, KeyField.CLIENT_IP);
+
+	static final int   INITIAL_CAPACITY = 1024;
+	static final float MAX_LOAD_FACTOR  = 0.5f;
+
+	private final KeyField[] keyFields;
+	private final long       windowMs;
+
+	// open-addressing table: slot i is in use when events[i] != null
+	private long[]           fingerprints;
+	private long[]           windowStarts;
+	private long[]           startTimes;
+	private long[]           endTimes;
+	private long[]           counts;
+	private AuditEventBase[] events;
+	private int              mask;
+	private int[]            insertOrder; // slots, in the order the keys were added
+	private int              size;
+
+	/**
+	 * @param keyFields fields whose values identify a summary; for AuthzAuditEvent only
+	 * @param windowMs  if greater than 0, events are also grouped by the window of this length their event time falls in
+	 */
+	public AuditSummaryAggregator(List<KeyField> keyFields, long windowMs) {
+		this.keyFields = keyFields.toArray(new KeyField[0]);
+		this.windowMs  = Math.max(windowMs, 0);
+
+		allocate(INITIAL_CAPACITY);
+	}
+
+	public static List<KeyField> parseKeyFields(String value) {
+		List<KeyField> ret = new ArrayList<>();
+
+		if (value != null) {
+			for (String name : value.split(",")) {
+				name = name.trim();
+
+				if (!name.isEmpty()) {
+					ret.add(KeyField.valueOf(name.toUpperCase().replace('.', '_').replace('-', '_')));
+				}
+			}
+		}
+
+		return ret.isEmpty() ? DEFAULT_KEY_FIELDS : ret;
+	}
+
+	public List<KeyField> getKeyFields() {
+		return Arrays.asList(keyFields);
+	}
+
+	public long getWindowMs() {
+		return windowMs;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void add(AuditEventBase event) {
+		Date eventTime   = event.getEventTime();
+		long time        = eventTime != null ? eventTime.getTime() : System.currentTimeMillis();
+		long windowStart = windowMs > 0 ? time - Math.floorMod(time, windowMs) : 0;
+		long fingerprint = fingerprint(event, windowStart);
+		int  slot        = (int) fingerprint & mask;
+
+		while (events[slot] != null) {
+			if (fingerprints[slot] == fingerprint && windowStarts[slot] == windowStart && isSameKey(events[slot], event)) {
+				endTimes[slot] = time;
+				counts[slot]++;
+
+				// only the first event of a summary is kept: if this one came from an AuthzAuditEventPool, it can be reused
+				if (event instanceof AuthzAuditEvent) {
+					((AuthzAuditEvent) event).recycle();
+				}
+
+				return;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		fingerprints[slot]  = fingerprint;
+		windowStarts[slot]  = windowStart;
+		startTimes[slot]    = time;
+		endTimes[slot]      = time;
+		counts[slot]        = 1;
+		events[slot]        = event;
+		insertOrder[size++] = slot;
+
+		if (size > events.length * MAX_LOAD_FACTOR) {
+			resize(events.length * 2);
+		}
+	}
+
+	/**
+	 * Removes the summaries, in the order their keys were first seen, with event count and duration set on the first
+	 * event of each. With a time window, only summaries whose window ended by the given time are removed, unless
+	 * includeOpenWindows is set.
+	 */
+	public List<AuditEventBase> drain(long now, boolean includeOpenWindows) {
+		List<AuditEventBase> ret = new ArrayList<>(size);
+
+		if (size == 0) {
+			return ret;
+		}
+
+		boolean isAll = windowMs <= 0 || includeOpenWindows;
+
+		for (int i = 0; i < size; i++) {
+			int slot = insertOrder[i];
+
+			if (isAll || windowStarts[slot] + windowMs <= now) {
+				AuditEventBase event    = events[slot];
+				long           duration = endTimes[slot] - startTimes[slot];
+
+				event.setEventCount(counts[slot]);
+				event.setEventDurationMS(duration > 0 ? duration : 1);
+
+				ret.add(event);
+
+				events[slot] = null; // marks the slot as drained; open windows are rehashed below
+			}
+		}
+
+		if (isAll || ret.size() == size) {
+			clear();
+		} else {
+			rehashRemaining();
+		}
+
+		return ret;
+	}
+
+	public void clear() {
+		if (size > 0) {
+			// leave the table at its grown capacity; clearing the used slots is cheaper than reallocating
+			for (int i = 0; i < size; i++) {
+				events[insertOrder[i]] = null;
+			}
+
+			size = 0;
+		}
+	}
+
+	private long fingerprint(AuditEventBase event, long windowStart) {
+		long ret = windowStart * 0x9E3779B97F4A7C15L;
+
+		if (event instanceof AuthzAuditEvent) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+			for (KeyField keyField : keyFields) {
+				ret = (ret ^ keyField.hash(authzEvent)) * 0x100000001B3L;
+			}
+		} else {
+			ret = (ret ^ Objects.hashCode(event.getEventKey())) * 0x100000001B3L;
+		}
+
+		// finalizer from MurmurHash3, to spread the bits used to pick the slot
+		ret ^= ret >>> 33;
+		ret *= 0xFF51AFD7ED558CCDL;
+		ret ^= ret >>> 33;
+
+		return ret;
+	}
+
+	private boolean isSameKey(AuditEventBase event1, AuditEventBase event2) {
+		if (event1 instanceof AuthzAuditEvent && event2 instanceof AuthzAuditEvent) {
+			for (KeyField keyField : keyFields) {
+				if (!keyField.isEqual((AuthzAuditEvent) event1, (AuthzAuditEvent) event2)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return event1.getClass() == event2.getClass() && Objects.equals(event1.getEventKey(), event2.getEventKey());
+	}
+
+	private void allocate(int capacity) {
+		fingerprints = new long[capacity];
+		windowStarts = new long[capacity];
+		startTimes   = new long[capacity];
+		endTimes     = new long[capacity];
+		counts       = new long[capacity];
+		events       = new AuditEventBase[capacity];
+		insertOrder  = new int[capacity];
+		mask         = capacity - 1;
+		size         = 0;
+	}
+
+	private void resize(int capacity) {
+		rehash(capacity, false);
+	}
+
+	private void rehashRemaining() {
+		rehash(events.length, true);
+	}
+
+	// re-inserts the summaries in insertion order; with skipDrained, those drained - events[slot] == null - are left out
+	private void rehash(int capacity, boolean skipDrained) {
+		long[]           oldFingerprints = fingerprints;
+		long[]           oldWindowStarts = windowStarts;
+		long[]           oldStartTimes   = startTimes;
+		long[]           oldEndTimes     = endTimes;
+		long[]           oldCounts       = counts;
+		AuditEventBase[] oldEvents       = events;
+		int[]            oldInsertOrder  = insertOrder;
+		int              oldSize         = size;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldSize; i++) {
+			int oldSlot = oldInsertOrder[i];
+
+			if (skipDrained && oldEvents[oldSlot] == null) {
+				continue;
+			}
+
+			int slot = (int) oldFingerprints[oldSlot] & mask;
+
+			while (events[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			fingerprints[slot]  = oldFingerprints[oldSlot];
+			windowStarts[slot]  = oldWindowStarts[oldSlot];
+			startTimes[slot]    = oldStartTimes[oldSlot];
+			endTimes[slot]      = oldEndTimes[oldSlot];
+			counts[slot]        = oldCounts[oldSlot];
+			events[slot]        = oldEvents[oldSlot];
+			insertOrder[size++] = slot;
+		}
+	}
+}
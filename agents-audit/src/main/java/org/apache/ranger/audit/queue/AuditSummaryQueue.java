@@ -21,9 +21,6 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -37,12 +34,19 @@
 
 /**
  * This is a non-blocking queue with no limit on capacity.
+ *
+ * Events with the same key are sent as one event, with the event count and duration set, every summary.interval.ms.
+ * The key fields are set by summary.key.fields - a comma separated list of AuditSummaryAggregator.KeyField names,
+ * by default those of AuthzAuditEvent.getEventKey(). With summary.window.ms, events are also grouped by the time
+ * window their event time falls in (e.g. 60000 for per-minute rollups), and a summary is sent once its window ended.
  */
 public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(AuditSummaryQueue.class);
 
-	public static final String PROP_SUMMARY_INTERVAL = "summary.interval.ms";
+	public static final String PROP_SUMMARY_INTERVAL   = "summary.interval.ms";
+	public static final String PROP_SUMMARY_KEY_FIELDS = "summary.key.fields";
+	public static final String PROP_SUMMARY_WINDOW_MS  = "summary.window.ms";
 
 	LinkedBlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<AuditEventBase>();
 	Thread consumerThread = null;
@@ -54,7 +58,7 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 
 	private int maxSummaryIntervalMs = 5000;
 
-	HashMap<String, AuditSummary> summaryMap = new HashMap<String, AuditSummary>();
+	AuditSummaryAggregator summaries = new AuditSummaryAggregator(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, 0);
 
 	public AuditSummaryQueue(AuditHandler consumer) {
 		super(consumer);
@@ -66,8 +70,19 @@ public void init(Properties props, String propPrefix) {
 		super.init(props, propPrefix);
 		maxSummaryIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
 				+ PROP_SUMMARY_INTERVAL, maxSummaryIntervalMs);
-		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs + ", name="
-				+ getName());
+		String keyFields = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_SUMMARY_KEY_FIELDS);
+		long   windowMs  = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_SUMMARY_WINDOW_MS, 0L);
+
+		try {
+			summaries = new AuditSummaryAggregator(AuditSummaryAggregator.parseKeyFields(keyFields), windowMs);
+		} catch (IllegalArgumentException excp) {
+			logger.error("Invalid " + propPrefix + "." + PROP_SUMMARY_KEY_FIELDS + "=" + keyFields + ". Using the default key fields", excp);
+
+			summaries = new AuditSummaryAggregator(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, windowMs);
+		}
+		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs + ", keyFields="
+				+ summaries.getKeyFields() + ", windowMs=" + summaries.getWindowMs()
+				+ ", name=" + getName());
 	}
 
 	/*
@@ -193,45 +208,24 @@ public void runLogAudit() {
 			}
 
 			for (AuditEventBase event : eventList) {
-				// Add to hash map
-				String key = event.getEventKey();
-				AuditSummary auditSummary = summaryMap.get(key);
-				if (auditSummary == null) {
-					auditSummary = new AuditSummary();
-					auditSummary.event = event;
-					auditSummary.startTime = event.getEventTime();
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count = 1;
-					summaryMap.put(key, auditSummary);
-				} else {
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count++;
-				}
+				summaries.add(event);
 			}
 
 			if (isDrain() || nextDispatchDuration <= 0) {
 				// Reset time just before sending the logs
 				lastDispatchTime = System.currentTimeMillis();
 
-				for (Map.Entry<String, AuditSummary> entry : summaryMap
-						.entrySet()) {
-					AuditSummary auditSummary = entry.getValue();
-					auditSummary.event.setEventCount(auditSummary.count);
-					long timeDiff = auditSummary.endTime.getTime()
-							- auditSummary.startTime.getTime();
-					timeDiff = timeDiff > 0 ? timeDiff : 1;
-					auditSummary.event.setEventDurationMS(timeDiff);
-					boolean ret = consumer.log(auditSummary.event);
+				for (AuditEventBase summary : summaries.drain(lastDispatchTime, isDrain())) {
+					boolean ret = consumer.log(summary);
 					if (!ret) {
 						// We need to drop this event
-						logFailedEvent(auditSummary.event);
+						logFailedEvent(summary);
 					}
 				}
-				summaryMap.clear();
 			}
 
 			if (isDrain()) {
-				if (summaryMap.isEmpty() && queue.isEmpty()) {
+				if (summaries.isEmpty() && queue.isEmpty()) {
 					break;
 				}
 				if (isDrainMaxTimeElapsed()) {
@@ -255,11 +249,4 @@ public void runLogAudit() {
 		}
 		logger.info("Exiting consumerThread.run() method. name=" + getName());
 	}
-
-	class AuditSummary {
-		Date startTime = null;
-		Date endTime = null;
-		int count = 0;
-		AuditEventBase event;
-	}
 }
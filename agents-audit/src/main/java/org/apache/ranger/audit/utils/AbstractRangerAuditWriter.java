@@ -228,20 +228,7 @@ public void closeFileIfNeeded() {
             currentFileName = null;
             reUseLastLogFile = false;
 
-            if (!rollOverByDuration) {
-                try {
-                    if(StringUtils.isEmpty(rolloverPeriod) ) {
-                        rolloverPeriod = rollingTimeUtil.convertRolloverSecondsToRolloverPeriod(fileRolloverSec);
-                    }
-                    nextRollOverTime = rollingTimeUtil.computeNextRollingTime(rolloverPeriod);
-                } catch ( Exception e) {
-                    logger.warn("Rollover by file.rollover.period failed", e);
-                    logger.warn("Using the file.rollover.sec for {} audit file rollover...", fileSystemScheme);
-                    nextRollOverTime = rollOverByDuration();
-                }
-            } else {
-                nextRollOverTime = rollOverByDuration();
-            }
+            updateNextRollOverTime();
         }
 
         if (logger.isDebugEnabled()) {
@@ -249,6 +236,23 @@ public void closeFileIfNeeded() {
         }
     }
 
+    public void updateNextRollOverTime() {
+        if (!rollOverByDuration) {
+            try {
+                if(StringUtils.isEmpty(rolloverPeriod) ) {
+                    rolloverPeriod = rollingTimeUtil.convertRolloverSecondsToRolloverPeriod(fileRolloverSec);
+                }
+                nextRollOverTime = rollingTimeUtil.computeNextRollingTime(rolloverPeriod);
+            } catch ( Exception e) {
+                logger.warn("Rollover by file.rollover.period failed", e);
+                logger.warn("Using the file.rollover.sec for {} audit file rollover...", fileSystemScheme);
+                nextRollOverTime = rollOverByDuration();
+            }
+        } else {
+            nextRollOverTime = rollOverByDuration();
+        }
+    }
+
     public   Date rollOverByDuration() {
         long rollOverTime = rollingTimeUtil.computeNextRollingTime(fileRolloverSec,nextRollOverTime);
         return new Date(rollOverTime);
@@ -0,0 +1,580 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends items to a bulk API - Solr update, Elasticsearch _bulk - with several requests in flight, instead of one
+ * request per batch on the caller's thread. add() only buffers the items; a dispatcher thread cuts them into bulk
+ * requests, which a pool of max.inflight sender threads sends.
+ *
+ * The request size, the number of requests in flight and the linger adapt to the destination after each response:
+ * - 10% or more of the items rejected with a retryable status (HTTP 429, 5xx), or the request failing altogether,
+ *   halves the in-flight limit and the batch size;
+ * - fewer rejections, or a response slower than target.latency.ms, lowers the in-flight limit by one and the batch
+ *   size by a quarter;
+ * - a clean response under target.latency.ms raises the in-flight limit by one and, for a full batch, the batch size
+ *   by a quarter, up to max.inflight and batch.size.max;
+ * - linger - how long a partial batch waits for more items - is the average latency divided by the in-flight limit,
+ *   between linger.ms.min and linger.ms.max: a small batch sent sooner would only wait for a sender to free up.
+ *
+ * Rejected items are sent again, without the others, up to retry.count times with exponential backoff from
+ * retry.backoff.ms; the sender thread keeps its slot meanwhile, which slows the dispatcher down. Items failing
+ * otherwise, or too many times, are reported to the Listener - as retryable if the destination only rejected them
+ * for being overloaded or unavailable, or they were not sent at all, so that the caller can keep them for later.
+ *
+ * Items are sent in the order they are added; with max.inflight=1 they reach the destination in that order.
+ */
+public class AsyncBulkIndexer<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncBulkIndexer.class);
+
+    public static final String PROP_ASYNC             = "async";
+    public static final String PROP_MAX_INFLIGHT      = "max.inflight";
+    public static final String PROP_BATCH_SIZE_MIN    = "batch.size.min";
+    public static final String PROP_BATCH_SIZE_MAX    = "batch.size.max";
+    public static final String PROP_LINGER_MS_MIN     = "linger.ms.min";
+    public static final String PROP_LINGER_MS_MAX     = "linger.ms.max";
+    public static final String PROP_TARGET_LATENCY_MS = "target.latency.ms";
+    public static final String PROP_MAX_BUFFERED      = "max.buffered.items";
+    public static final String PROP_RETRY_COUNT       = "retry.count";
+    public static final String PROP_RETRY_BACKOFF_MS  = "retry.backoff.ms";
+    public static final String PROP_DRAIN_MAX_WAIT_MS = "drain.max.wait.ms";
+
+    static final int    DEFAULT_MAX_INFLIGHT      = 4;
+    static final int    DEFAULT_BATCH_SIZE_MIN    = 100;
+    static final int    DEFAULT_BATCH_SIZE_MAX    = 5000;
+    static final long   DEFAULT_LINGER_MS_MIN     = 10;
+    static final long   DEFAULT_LINGER_MS_MAX     = 2000;
+    static final long   DEFAULT_TARGET_LATENCY_MS = 2000;
+    static final int    DEFAULT_MAX_BUFFERED      = 100000;
+    static final int    DEFAULT_RETRY_COUNT       = 5;
+    static final long   DEFAULT_RETRY_BACKOFF_MS  = 200;
+    static final long   DEFAULT_DRAIN_MAX_WAIT_MS = 30 * 1000;
+    static final long   MAX_RETRY_BACKOFF_MS      = 30 * 1000;
+    static final double HIGH_REJECTION_RATE       = 0.1;
+
+    public enum Status { SUCCESS, RETRY, FAILED }
+
+    /**
+     * Sends one bulk request. An exception fails the whole request, and all its items are retried.
+     */
+    public interface BulkSender<T> {
+        BulkResult send(List<T> items) throws Exception;
+    }
+
+    /**
+     * Called on the sender threads, for each response.
+     */
+    public interface Listener<T> {
+        void onSuccess(int count);
+
+        /**
+         * @param isRetryable true if the items were not rejected for what they contain - the destination was
+         *                    overloaded or unreachable until the retries ran out, or the items were not sent before
+         *                    stop() - so they can be sent again later
+         */
+        void onFailure(List<T> items, String reason, boolean isRetryable);
+    }
+
+    private final String        name;
+    private final BulkSender<T> sender;
+    private final Listener<T>   listener;
+    private final int           maxInflight;
+    private final int           batchSizeMin;
+    private final int           batchSizeMax;
+    private final long          lingerMsMin;
+    private final long          lingerMsMax;
+    private final long          targetLatencyMs;
+    private final int           maxBuffered;
+    private final int           retryCount;
+    private final long          retryBackoffMs;
+    private final long          drainMaxWaitMs;
+
+    private final ReentrantLock lock         = new ReentrantLock();
+    private final Condition     stateChanged = lock.newCondition();
+    private final ArrayDeque<T> buffer       = new ArrayDeque<>();
+    private long                firstBufferedAt;
+    private int                 inflight;
+    private int                 inflightLimit;
+    private int                 batchSize;
+    private long                lingerMs;
+    private double              avgLatencyMs;
+    private boolean             isStopping;
+
+    private final AuditLatencyHistogram latency      = new AuditLatencyHistogram();
+    private final AtomicLong            requests     = new AtomicLong();
+    private final AtomicLong            sentItems    = new AtomicLong();
+    private final AtomicLong            failedItems  = new AtomicLong();
+    private final AtomicLong            retriedItems = new AtomicLong();
+
+    private Thread          dispatcher;
+    private ExecutorService senders;
+
+    public AsyncBulkIndexer(String name, Properties props, String propPrefix, BulkSender<T> sender, Listener<T> listener) {
+        String prefix = propPrefix + ".";
+
+        this.name            = name;
+        this.sender          = sender;
+        this.listener        = listener;
+        this.maxInflight     = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_MAX_INFLIGHT, DEFAULT_MAX_INFLIGHT), 1);
+        this.batchSizeMin    = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_BATCH_SIZE_MIN, DEFAULT_BATCH_SIZE_MIN), 1);
+        this.batchSizeMax    = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_BATCH_SIZE_MAX, DEFAULT_BATCH_SIZE_MAX), batchSizeMin);
+        this.lingerMsMin     = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_LINGER_MS_MIN, DEFAULT_LINGER_MS_MIN), 0);
+        this.lingerMsMax     = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_LINGER_MS_MAX, DEFAULT_LINGER_MS_MAX), lingerMsMin);
+        this.targetLatencyMs = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_TARGET_LATENCY_MS, DEFAULT_TARGET_LATENCY_MS), 1);
+        this.maxBuffered     = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_MAX_BUFFERED, DEFAULT_MAX_BUFFERED), batchSizeMax);
+        this.retryCount      = Math.max(MiscUtil.getIntProperty(props, prefix + PROP_RETRY_COUNT, DEFAULT_RETRY_COUNT), 0);
+        this.retryBackoffMs  = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_RETRY_BACKOFF_MS, DEFAULT_RETRY_BACKOFF_MS), 0);
+        this.drainMaxWaitMs  = Math.max(MiscUtil.getLongProperty(props, prefix + PROP_DRAIN_MAX_WAIT_MS, DEFAULT_DRAIN_MAX_WAIT_MS), 0);
+
+        // start wide open, and back off once the destination pushes back
+        this.inflightLimit = maxInflight;
+        this.batchSize     = batchSizeMax;
+        this.lingerMs      = lingerMsMin;
+
+        LOG.info("AsyncBulkIndexer(" + name + "): maxInflight=" + maxInflight + ", batchSize=[" + batchSizeMin + ", " + batchSizeMax
+                 + "], lingerMs=[" + lingerMsMin + ", " + lingerMsMax + "], targetLatencyMs=" + targetLatencyMs + ", maxBuffered=" + maxBuffered
+                 + ", retryCount=" + retryCount + ", retryBackoffMs=" + retryBackoffMs + ", drainMaxWaitMs=" + drainMaxWaitMs);
+    }
+
+    public static boolean isAsync(Properties props, String propPrefix) {
+        return MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_ASYNC, false);
+    }
+
+    /**
+     * @return true for 429 Too Many Requests and 5xx: the destination is overloaded or unavailable, and the same
+     * request may succeed later
+     */
+    public static boolean isRetryable(int httpStatus) {
+        return httpStatus == 429 || httpStatus >= 500;
+    }
+
+    public synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+
+        AtomicInteger senderId = new AtomicInteger();
+
+        senders = Executors.newFixedThreadPool(maxInflight, r -> {
+            Thread t = new Thread(r, name + "-bulk-sender-" + senderId.incrementAndGet());
+
+            t.setDaemon(true);
+
+            return t;
+        });
+
+        dispatcher = new Thread(this::dispatch, name + "-bulk-dispatcher");
+
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * @return false, without taking any of the items, if the buffer has no room for all of them
+     */
+    public boolean add(List<T> items) {
+        lock.lock();
+
+        try {
+            if (isStopping || buffer.size() + items.size() > maxBuffered) {
+                return false;
+            }
+
+            if (buffer.isEmpty()) {
+                firstBufferedAt = System.currentTimeMillis();
+            }
+
+            buffer.addAll(items);
+
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        return true;
+    }
+
+    public void stop() {
+        stop(drainMaxWaitMs);
+    }
+
+    /**
+     * Sends the buffered items and waits for the requests in flight, up to maxWaitMs; the items not sent by then are
+     * reported as failed.
+     */
+    public void stop(long maxWaitMs) {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+
+        lock.lock();
+
+        try {
+            isStopping = true;
+
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        Thread dispatcher = this.dispatcher;
+
+        if (dispatcher == null) {
+            return;
+        }
+
+        try {
+            dispatcher.join(Math.max(deadline - System.currentTimeMillis(), 1));
+
+            if (dispatcher.isAlive()) {
+                dispatcher.interrupt();
+                dispatcher.join();
+            }
+
+            senders.shutdown();
+
+            if (!senders.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS)) {
+                LOG.warn("AsyncBulkIndexer(" + name + "): requests still in flight after " + maxWaitMs + "ms. Interrupting");
+
+                senders.shutdownNow();
+                senders.awaitTermination(maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<T> unsent;
+
+        lock.lock();
+
+        try {
+            unsent = new ArrayList<>(buffer);
+
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        if (!unsent.isEmpty()) {
+            fail(unsent, "not sent before shutdown", true);
+        }
+
+        LOG.info("AsyncBulkIndexer(" + name + ") stopped: " + this);
+    }
+
+    public int getBufferedCount() {
+        lock.lock();
+
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflightLimit() {
+        lock.lock();
+
+        try {
+            return inflightLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBatchSize() {
+        lock.lock();
+
+        try {
+            return batchSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLingerMs() {
+        lock.lock();
+
+        try {
+            return lingerMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public AuditLatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getSentCount() {
+        return sentItems.get();
+    }
+
+    public long getFailedCount() {
+        return failedItems.get();
+    }
+
+    public long getRetriedCount() {
+        return retriedItems.get();
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + getRequestCount() + ", sent=" + getSentCount() + ", failed=" + getFailedCount() + ", retried=" + getRetriedCount()
+               + ", buffered=" + getBufferedCount() + ", inflightLimit=" + getInflightLimit() + ", batchSize=" + getBatchSize()
+               + ", lingerMs=" + getLingerMs() + ", latency={" + latency + "}";
+    }
+
+    private void dispatch() {
+        lock.lock();
+
+        try {
+            while (true) {
+                if (buffer.isEmpty()) {
+                    if (isStopping) {
+                        break;
+                    }
+
+                    stateChanged.await(100, TimeUnit.MILLISECONDS);
+                } else if (inflight >= inflightLimit) {
+                    stateChanged.await(100, TimeUnit.MILLISECONDS);
+                } else {
+                    long now    = System.currentTimeMillis();
+                    long waitMs = isStopping ? 0 : firstBufferedAt + lingerMs - now;
+
+                    if (buffer.size() < batchSize && waitMs > 0) {
+                        stateChanged.await(waitMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        List<T> items = new ArrayList<>(Math.min(buffer.size(), batchSize));
+
+                        while (items.size() < batchSize && !buffer.isEmpty()) {
+                            items.add(buffer.poll());
+                        }
+
+                        firstBufferedAt = now;
+                        inflight++;
+
+                        senders.execute(() -> send(items));
+                    }
+                }
+            }
+        } catch (InterruptedException excp) {
+            LOG.warn("AsyncBulkIndexer(" + name + "): dispatcher interrupted. " + buffer.size() + " items not sent");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(List<T> items) {
+        List<T> pending = items;
+
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                BulkResult result;
+                long       startTime = System.nanoTime();
+
+                try {
+                    result = sender.send(pending);
+                } catch (Exception excp) {
+                    LOG.warn("AsyncBulkIndexer(" + name + "): bulk request of " + pending.size() + " items failed", excp);
+
+                    result = BulkResult.failed(pending.size(), true, excp.toString());
+                }
+
+                long    elapsedNanos = System.nanoTime() - startTime;
+                List<T> retries      = new ArrayList<>();
+                List<T> failures     = new ArrayList<>();
+                String  failure      = null;
+                boolean isRetryable  = false;
+                int     successCount = 0;
+                int     rejectCount  = 0;
+
+                latency.record(elapsedNanos);
+                requests.incrementAndGet();
+
+                for (int i = 0; i < pending.size(); i++) {
+                    Status status = result.getStatus(i);
+
+                    if (status == Status.SUCCESS) {
+                        successCount++;
+
+                        continue;
+                    }
+
+                    if (status == Status.RETRY) {
+                        rejectCount++;
+
+                        if (attempt < retryCount) {
+                            retries.add(pending.get(i));
+
+                            continue;
+                        }
+                    }
+
+                    // report consecutive items failing for the same reason together
+                    String message = result.getMessage(i);
+
+                    if (!failures.isEmpty() && (!Objects.equals(failure, message) || isRetryable != (status == Status.RETRY))) {
+                        fail(failures, failure, isRetryable);
+
+                        failures = new ArrayList<>();
+                    }
+
+                    failures.add(pending.get(i));
+                    failure     = message;
+                    isRetryable = status == Status.RETRY;
+                }
+
+                if (successCount > 0) {
+                    sentItems.addAndGet(successCount);
+                    listener.onSuccess(successCount);
+                }
+
+                if (!failures.isEmpty()) {
+                    fail(failures, failure, isRetryable);
+                }
+
+                adapt(pending.size(), elapsedNanos, (double) rejectCount / pending.size());
+
+                pending = retries;
+
+                if (!pending.isEmpty()) {
+                    retriedItems.addAndGet(pending.size());
+
+                    Thread.sleep(Math.min(retryBackoffMs << Math.min(attempt, 20), MAX_RETRY_BACKOFF_MS));
+                }
+            }
+        } catch (InterruptedException excp) {
+            fail(pending, "interrupted before retry", true);
+        } catch (Throwable t) {
+            LOG.error("AsyncBulkIndexer(" + name + "): error processing bulk response", t);
+
+            fail(pending, t.toString(), false);
+        } finally {
+            lock.lock();
+
+            try {
+                inflight--;
+
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    void adapt(int itemCount, long elapsedNanos, double rejectionRate) {
+        double elapsedMs = elapsedNanos / 1000000.0;
+
+        lock.lock();
+
+        try {
+            avgLatencyMs = avgLatencyMs == 0 ? elapsedMs : (avgLatencyMs * 0.8 + elapsedMs * 0.2);
+
+            if (rejectionRate >= HIGH_REJECTION_RATE) {
+                inflightLimit = Math.max(inflightLimit / 2, 1);
+                batchSize     = Math.max(batchSize / 2, batchSizeMin);
+            } else if (rejectionRate > 0 || elapsedMs > targetLatencyMs) {
+                inflightLimit = Math.max(inflightLimit - 1, 1);
+                batchSize     = Math.max(batchSize - batchSize / 4, batchSizeMin);
+            } else {
+                inflightLimit = Math.min(inflightLimit + 1, maxInflight);
+
+                if (itemCount >= batchSize) {
+                    batchSize = Math.min(batchSize + Math.max(batchSize / 4, 1), batchSizeMax);
+                }
+            }
+
+            lingerMs = Math.min(Math.max((long) (avgLatencyMs / inflightLimit), lingerMsMin), lingerMsMax);
+
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(List<T> items, String reason, boolean isRetryable) {
+        failedItems.addAndGet(items.size());
+
+        try {
+            listener.onFailure(items, reason, isRetryable);
+        } catch (Throwable t) {
+            LOG.error("AsyncBulkIndexer(" + name + "): error reporting " + items.size() + " failed items", t);
+        }
+    }
+
+    /**
+     * The outcome of a bulk request, for each item in the order they were sent.
+     */
+    public static class BulkResult {
+        private final Status[] statuses;
+        private final String[] messages;
+
+        public BulkResult(int itemCount) {
+            statuses = new Status[itemCount];
+            messages = new String[itemCount];
+
+            Arrays.fill(statuses, Status.SUCCESS);
+        }
+
+        public static BulkResult failed(int itemCount, boolean isRetryable, String message) {
+            BulkResult ret = new BulkResult(itemCount);
+
+            for (int i = 0; i < itemCount; i++) {
+                ret.setFailed(i, isRetryable, message);
+            }
+
+            return ret;
+        }
+
+        public void setFailed(int index, boolean isRetryable, String message) {
+            statuses[index] = isRetryable ? Status.RETRY : Status.FAILED;
+            messages[index] = message;
+        }
+
+        public Status getStatus(int index) {
+            return statuses[index];
+        }
+
+        public String getMessage(int index) {
+            return messages[index];
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes audit events without building a String per event, as MiscUtil.stringify() does:
+ *  - JSON, written by a streaming generator straight into an OutputStream or a Writer. AuthzAuditEvent fields are
+ *    written explicitly, with the same names and date format as MiscUtil.getMapper() uses, so that the output can be
+ *    read with MiscUtil.fromJson(); other events are written by the mapper.
+ *  - binary, for spool files: each AuthzAuditEvent is a record of its length followed by its fields. A file of such
+ *    records starts with a header - see writeBinaryHeader() and isBinary().
+ *
+ * Buffers are reused per thread.
+ */
+public class AuditEventCodec {
+    public static final byte[] BINARY_MAGIC   = { 'R', 'A', 'E', 'B' };
+    public static final byte   BINARY_VERSION = 1;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    // the target is neither closed nor flushed after each event
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                                                                     .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+    private static final ThreadLocal<EncodeBuffer> BUFFER = ThreadLocal.withInitial(EncodeBuffer::new);
+
+    private AuditEventCodec() {
+    }
+
+    public static void writeJson(AuditEventBase event, OutputStream out) throws IOException {
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            writeJson(event, gen);
+        }
+    }
+
+    public static void writeJson(AuditEventBase event, Writer out) throws IOException {
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            writeJson(event, gen);
+        }
+    }
+
+    /**
+     * Writes the header that identifies a file of binary records
+     */
+    public static void writeBinaryHeader(OutputStream out) throws IOException {
+        out.write(BINARY_MAGIC);
+        out.write(BINARY_VERSION);
+    }
+
+    /**
+     * Checks whether the stream starts with the header written by writeBinaryHeader(); if it does, the header is
+     * consumed, otherwise the stream is reset to where it was.
+     *
+     * @param in stream that supports mark()
+     */
+    public static boolean isBinary(InputStream in) throws IOException {
+        byte[] header = new byte[BINARY_MAGIC.length + 1];
+
+        in.mark(header.length);
+
+        int len = 0;
+
+        while (len < header.length) {
+            int count = in.read(header, len, header.length - len);
+
+            if (count < 0) {
+                break;
+            }
+
+            len += count;
+        }
+
+        boolean ret = len == header.length && Arrays.equals(Arrays.copyOf(header, BINARY_MAGIC.length), BINARY_MAGIC);
+
+        if (ret) {
+            if (header[BINARY_MAGIC.length] != BINARY_VERSION) {
+                throw new IOException("unsupported audit record version " + header[BINARY_MAGIC.length]);
+            }
+        } else {
+            in.reset();
+        }
+
+        return ret;
+    }
+
+    public static void writeBinary(AuthzAuditEvent event, DataOutput out) throws IOException {
+        EncodeBuffer buf = encode(event);
+
+        out.writeInt(buf.length);
+        out.write(buf.bytes, 0, buf.length);
+    }
+
+    /**
+     * Writes the fields of the event, without the length that writeBinary(event, DataOutput) writes before them
+     *
+     * @return number of bytes written; -1 if the event doesn't fit in the remaining space, with the buffer unchanged
+     */
+    public static int writeBinary(AuthzAuditEvent event, ByteBuffer out) {
+        EncodeBuffer buf = encode(event);
+
+        if (buf.length > out.remaining()) {
+            return -1;
+        }
+
+        out.put(buf.bytes, 0, buf.length);
+
+        return buf.length;
+    }
+
+    /**
+     * @return the next event, or null at the end of the input
+     */
+    public static AuthzAuditEvent readBinary(DataInput in) throws IOException {
+        final int length;
+
+        try {
+            length = in.readInt();
+        } catch (EOFException excp) {
+            return null;
+        }
+
+        if (length < 0 || length > MAX_RECORD_LENGTH) {
+            throw new IOException("invalid audit record length " + length);
+        }
+
+        byte[] bytes = BUFFER.get().ensureCapacity(length);
+
+        in.readFully(bytes, 0, length);
+
+        return decode(new DecodeBuffer(bytes, length));
+    }
+
+    /**
+     * Reads the fields written by writeBinary(event, ByteBuffer), from the current position of the buffer
+     */
+    public static AuthzAuditEvent readBinary(ByteBuffer in, int length) throws IOException {
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("invalid audit record length " + length);
+        }
+
+        byte[] bytes = BUFFER.get().ensureCapacity(length);
+
+        in.get(bytes, 0, length);
+
+        return decode(new DecodeBuffer(bytes, length));
+    }
+
+    private static EncodeBuffer encode(AuthzAuditEvent event) {
+        EncodeBuffer buf = BUFFER.get();
+
+        buf.reset();
+
+        buf.writeVarLong(event.getRepositoryType());
+        buf.writeString(event.getRepositoryName());
+        buf.writeString(event.getUser());
+        buf.writeNullableLong(event.getEventTime() != null ? event.getEventTime().getTime() : null);
+        buf.writeString(event.getAccessType());
+        buf.writeString(event.getResourcePath());
+        buf.writeString(event.getResourceType());
+        buf.writeString(event.getAction());
+        buf.writeVarLong(event.getAccessResult());
+        buf.writeString(event.getAgentId());
+        buf.writeVarLong(event.getPolicyId());
+        buf.writeString(event.getResultReason());
+        buf.writeString(event.getAclEnforcer());
+        buf.writeString(event.getSessionId());
+        buf.writeString(event.getClientType());
+        buf.writeString(event.getClientIP());
+        buf.writeString(event.getRequestData());
+        buf.writeString(event.getAgentHostname());
+        buf.writeString(event.getLogType());
+        buf.writeString(event.getEventId());
+        buf.writeVarLong(event.getSeqNum());
+        buf.writeVarLong(event.getEventCount());
+        buf.writeVarLong(event.getEventDurationMS());
+        buf.writeStrings(event.getTags());
+        buf.writeStrings(event.getDatasets());
+        buf.writeStrings(event.getProjects());
+        buf.writeString(event.getAdditionalInfo());
+        buf.writeString(event.getClusterName());
+        buf.writeString(event.getZoneName());
+        buf.writeNullableLong(event.getPolicyVersion());
+
+        // added after the first version of the record: written only when set, and read only when present
+        if (event.getSampleRate() != null) {
+            buf.writeNullableLong(Double.doubleToLongBits(event.getSampleRate()));
+        }
+
+        return buf;
+    }
+
+    private static AuthzAuditEvent decode(DecodeBuffer buf) throws IOException {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setRepositoryType((int) buf.readVarLong());
+        ret.setRepositoryName(buf.readString());
+        ret.setUser(buf.readString());
+
+        Long eventTime = buf.readNullableLong();
+
+        ret.setEventTime(eventTime != null ? new Date(eventTime) : null);
+        ret.setAccessType(buf.readString());
+        ret.setResourcePath(buf.readString());
+        ret.setResourceType(buf.readString());
+        ret.setAction(buf.readString());
+        ret.setAccessResult((short) buf.readVarLong());
+        ret.setAgentId(buf.readString());
+        ret.setPolicyId(buf.readVarLong());
+        ret.setResultReason(buf.readString());
+        ret.setAclEnforcer(buf.readString());
+        ret.setSessionId(buf.readString());
+        ret.setClientType(buf.readString());
+        ret.setClientIP(buf.readString());
+        ret.setRequestData(buf.readString());
+        ret.setAgentHostname(buf.readString());
+        ret.setLogType(buf.readString());
+        ret.setEventId(buf.readString());
+        ret.setSeqNum(buf.readVarLong());
+        ret.setEventCount(buf.readVarLong());
+        ret.setEventDurationMS(buf.readVarLong());
+        ret.setTags(buf.readStrings());
+        ret.setDatasets(buf.readStrings());
+        ret.setProjects(buf.readStrings());
+        ret.setAdditionalInfo(buf.readString());
+        ret.setClusterName(buf.readString());
+        ret.setZoneName(buf.readString());
+        ret.setPolicyVersion(buf.readNullableLong());
+
+        if (buf.hasRemaining()) {
+            Long sampleRate = buf.readNullableLong();
+
+            ret.setSampleRate(sampleRate != null ? Double.longBitsToDouble(sampleRate) : null);
+        }
+
+        return ret;
+    }
+
+    private static void writeJson(AuditEventBase event, JsonGenerator gen) throws IOException {
+        if (!(event instanceof AuthzAuditEvent)) {
+            MiscUtil.getMapper().writeValue(gen, event);
+
+            return;
+        }
+
+        AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+        gen.writeStartObject();
+        gen.writeNumberField("repoType", authzEvent.getRepositoryType());
+        gen.writeStringField("repo", authzEvent.getRepositoryName());
+        gen.writeStringField("reqUser", authzEvent.getUser());
+        writeDateField(gen, "evtTime", authzEvent.getEventTime());
+        gen.writeStringField("access", authzEvent.getAccessType());
+        gen.writeStringField("resource", authzEvent.getResourcePath());
+        gen.writeStringField("resType", authzEvent.getResourceType());
+        gen.writeStringField("action", authzEvent.getAction());
+        gen.writeNumberField("result", authzEvent.getAccessResult());
+        gen.writeStringField("agent", authzEvent.getAgentId());
+        gen.writeNumberField("policy", authzEvent.getPolicyId());
+        gen.writeStringField("reason", authzEvent.getResultReason());
+        gen.writeStringField("enforcer", authzEvent.getAclEnforcer());
+        gen.writeStringField("sess", authzEvent.getSessionId());
+        gen.writeStringField("cliType", authzEvent.getClientType());
+        gen.writeStringField("cliIP", authzEvent.getClientIP());
+        gen.writeStringField("reqData", authzEvent.getRequestData());
+        gen.writeStringField("agentHost", authzEvent.getAgentHostname());
+        gen.writeStringField("logType", authzEvent.getLogType());
+        gen.writeStringField("id", authzEvent.getEventId());
+        gen.writeNumberField("seq_num", authzEvent.getSeqNum());
+        gen.writeNumberField("event_count", authzEvent.getEventCount());
+        gen.writeNumberField("event_dur_ms", authzEvent.getEventDurationMS());
+        writeStringsField(gen, "tags", authzEvent.getTags());
+        writeStringsField(gen, "datasets", authzEvent.getDatasets());
+        writeStringsField(gen, "projects", authzEvent.getProjects());
+        gen.writeStringField("additional_info", authzEvent.getAdditionalInfo());
+        gen.writeStringField("cluster_name", authzEvent.getClusterName());
+        gen.writeStringField("zone_name", authzEvent.getZoneName());
+
+        if (authzEvent.getPolicyVersion() != null) {
+            gen.writeNumberField("policy_version", authzEvent.getPolicyVersion());
+        } else {
+            gen.writeNullField("policy_version");
+        }
+
+        if (authzEvent.getSampleRate() != null) {
+            gen.writeNumberField("sample_rate", authzEvent.getSampleRate());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private static void writeDateField(JsonGenerator gen, String name, Date value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            EncodeBuffer buf = BUFFER.get();
+
+            buf.dateStr.setLength(0);
+            buf.dateFormat.format(value, buf.dateStr, buf.fieldPosition);
+
+            int len = buf.dateStr.length();
+
+            if (buf.dateChars.length < len) {
+                buf.dateChars = new char[len];
+            }
+
+            buf.dateStr.getChars(0, len, buf.dateChars, 0);
+
+            gen.writeFieldName(name);
+            gen.writeString(buf.dateChars, 0, len);
+        }
+    }
+
+    private static void writeStringsField(JsonGenerator gen, String name, Set<String> values) throws IOException {
+        if (values == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeArrayFieldStart(name);
+
+            for (String value : values) {
+                gen.writeString(value);
+            }
+
+            gen.writeEndArray();
+        }
+    }
+
+    private static class EncodeBuffer {
+        // same format as MiscUtil.getMapper() uses for dates
+        final SimpleDateFormat dateFormat    = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        final StringBuffer     dateStr       = new StringBuffer();
+        final FieldPosition    fieldPosition = new FieldPosition(0);
+        char[]                 dateChars     = new char[32];
+        byte[]                 bytes         = new byte[1024];
+        int                    length        = 0;
+
+        void reset() {
+            length = 0;
+        }
+
+        byte[] ensureCapacity(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+
+            return bytes;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(length + 1);
+
+            bytes[length++] = (byte) value;
+        }
+
+        // zig-zag encoded, so that small negative values take few bytes as well
+        void writeVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+
+            ensureCapacity(length + 10);
+
+            while ((v & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+
+            bytes[length++] = (byte) v;
+        }
+
+        void writeNullableLong(Long value) {
+            if (value == null) {
+                writeByte(0);
+            } else {
+                writeByte(1);
+                writeVarLong(value);
+            }
+        }
+
+        // length in bytes (-1 for null) followed by UTF-8 bytes, encoded in place to avoid String.getBytes()
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(-1);
+
+                return;
+            }
+
+            int strLen = value.length();
+            int maxLen = strLen * 3;
+
+            ensureCapacity(length + 5 + maxLen);
+
+            int lenPos   = length;
+            int startPos = lenPos + 5; // reserve space for the length; moved back below if it takes fewer bytes
+            int pos      = startPos;
+
+            for (int i = 0; i < strLen; i++) {
+                char c = value.charAt(i);
+
+                if (c < 0x80) {
+                    bytes[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                    bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < strLen && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+
+                    bytes[pos++] = (byte) (0xF0 | (cp >> 18));
+                    bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    bytes[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) { // unpaired surrogate, as String.getBytes() does
+                    bytes[pos++] = (byte) '?';
+                } else {
+                    bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                    bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+
+            int byteLen = pos - startPos;
+
+            writeVarLong(byteLen);
+
+            System.arraycopy(bytes, startPos, bytes, length, byteLen);
+
+            length += byteLen;
+        }
+
+        void writeStrings(Set<String> values) {
+            if (values == null) {
+                writeVarLong(-1);
+            } else {
+                writeVarLong(values.size());
+
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+    }
+
+    private static class DecodeBuffer {
+        final byte[] bytes;
+        final int    length;
+        int          pos = 0;
+
+        DecodeBuffer(byte[] bytes, int length) {
+            this.bytes  = bytes;
+            this.length = length;
+        }
+
+        boolean hasRemaining() {
+            return pos < length;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= length) {
+                throw new EOFException("truncated audit record");
+            }
+
+            return bytes[pos++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long v     = 0;
+            int  shift = 0;
+
+            while (true) {
+                int b = readByte();
+
+                v |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+
+                shift += 7;
+
+                if (shift > 63) {
+                    throw new IOException("invalid varint in audit record");
+                }
+            }
+
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        Long readNullableLong() throws IOException {
+            return readByte() == 0 ? null : readVarLong();
+        }
+
+        String readString() throws IOException {
+            long len = readVarLong();
+
+            if (len < 0) {
+                return null;
+            }
+
+            if (len > length - pos) {
+                throw new EOFException("truncated audit record");
+            }
+
+            String ret = new String(bytes, pos, (int) len, StandardCharsets.UTF_8);
+
+            pos += (int) len;
+
+            return ret;
+        }
+
+        Set<String> readStrings() throws IOException {
+            long count = readVarLong();
+
+            if (count < 0) {
+                return null;
+            }
+
+            Set<String> ret = new HashSet<>();
+
+            for (long i = 0; i < count; i++) {
+                ret.add(readString());
+            }
+
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column of the ORC and Parquet audit files: a field of AuthzAuditEvent annotated with @JsonProperty, read through a
+ * Field looked up once, rather than by name for each value.
+ *
+ * String values are encoded to UTF-8 through a small cache per column, so the values that repeat across events -
+ * user, repository, access type, host - are encoded once and the same byte[] is handed to the column vector each time.
+ * Dates are formatted as "yyyy-MM-dd HH:mm:ss", and the last formatted second is reused.
+ *
+ * Not thread-safe: each writer keeps its own columns.
+ */
+public final class AuditEventColumn {
+    public enum Type { STRING, INT, SHORT, LONG, DATE }
+
+    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    static final int MAX_CACHED_VALUES = 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String name;
+    private final Type   type;
+    private final Field  field;
+
+    private final Map<String, byte[]> utf8Cache = new HashMap<>();
+    private SimpleDateFormat          dateFormat;
+    private long                      lastDateSecond = Long.MIN_VALUE;
+    private byte[]                    lastDateBytes;
+
+    private AuditEventColumn(Field field, Type type) {
+        this.name  = field.getName();
+        this.type  = type;
+        this.field = field;
+
+        field.setAccessible(true);
+    }
+
+    /**
+     * @return the columns for the AuthzAuditEvent fields annotated with @JsonProperty whose type is supported, in the
+     * order the fields are declared - the same order ORCFileUtil.getAuditSchema() uses
+     */
+    public static List<AuditEventColumn> getColumns() {
+        List<AuditEventColumn> ret = new ArrayList<>();
+
+        for (Field field : AuthzAuditEvent.class.getDeclaredFields()) {
+            if (field.isAnnotationPresent(JsonProperty.class)) {
+                Type type = getType(field.getType());
+
+                if (type != null) {
+                    ret.add(new AuditEventColumn(field, type));
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public static AuditEventColumn getColumn(List<AuditEventColumn> columns, String name) {
+        for (AuditEventColumn column : columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isNull(AuthzAuditEvent event) {
+        return (type == Type.STRING || type == Type.DATE) && get(event) == null;
+    }
+
+    /**
+     * @return the value of an INT, SHORT or LONG column; milliseconds since epoch for a DATE column, 0 if not set
+     */
+    public long getLong(AuthzAuditEvent event) {
+        try {
+            switch (type) {
+                case INT:
+                    return field.getInt(event);
+                case SHORT:
+                    return field.getShort(event);
+                case LONG:
+                    return field.getLong(event);
+                case DATE:
+                    Date date = (Date) field.get(event);
+
+                    return date != null ? date.getTime() : 0;
+                default:
+                    throw new IllegalStateException(name + ": not a numeric column");
+            }
+        } catch (IllegalAccessException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /**
+     * @return the value as UTF-8 bytes - a number as its decimal string, a date formatted with DATE_FORMAT; null if the
+     * value is null. The returned array may be shared with other rows, and must not be modified.
+     */
+    public byte[] getUtf8(AuthzAuditEvent event) {
+        switch (type) {
+            case STRING:
+                return encode((String) get(event));
+            case DATE:
+                return formatDate((Date) get(event));
+            default:
+                return encode(Long.toString(getLong(event)));
+        }
+    }
+
+    public byte[] getUtf8OrEmpty(AuthzAuditEvent event) {
+        byte[] ret = getUtf8(event);
+
+        return ret != null ? ret : EMPTY;
+    }
+
+    private Object get(AuthzAuditEvent event) {
+        try {
+            return field.get(event);
+        } catch (IllegalAccessException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    private byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] ret = utf8Cache.get(value);
+
+        if (ret == null) {
+            ret = value.getBytes(StandardCharsets.UTF_8);
+
+            if (utf8Cache.size() >= MAX_CACHED_VALUES) {
+                // mostly distinct values, like resource paths; start over rather than keep old ones forever
+                utf8Cache.clear();
+            }
+
+            utf8Cache.put(value, ret);
+        }
+
+        return ret;
+    }
+
+    private byte[] formatDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+
+        long second = Math.floorDiv(date.getTime(), 1000L);
+
+        if (second != lastDateSecond) {
+            if (dateFormat == null) {
+                dateFormat = new SimpleDateFormat(DATE_FORMAT);
+            }
+
+            lastDateBytes  = dateFormat.format(date).getBytes(StandardCharsets.UTF_8);
+            lastDateSecond = second;
+        }
+
+        return lastDateBytes;
+    }
+
+    private static Type getType(Class<?> cls) {
+        if (cls == String.class) {
+            return Type.STRING;
+        } else if (cls == int.class) {
+            return Type.INT;
+        } else if (cls == short.class) {
+            return Type.SHORT;
+        } else if (cls == long.class) {
+            return Type.LONG;
+        } else if (cls == Date.class) {
+            return Type.DATE;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-2 buckets in microseconds: bucket i counts latencies in
+ * [2^(i-1), 2^i) us, bucket 0 counts latencies under 1 us. Percentiles are reported as the upper bound of the
+ * bucket they fall in, so they are accurate to a factor of 2 - enough to tell a 5 ms destination from a 5 s one.
+ */
+public class AuditLatencyHistogram {
+    static final int BUCKET_COUNT = 40; // the last bucket holds everything above ~6 days
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong      count   = new AtomicLong();
+    private final AtomicLong      totalUs = new AtomicLong();
+    private final AtomicLong      maxUs   = new AtomicLong();
+
+    public void record(long durationNanos) {
+        long us = TimeUnit.NANOSECONDS.toMicros(Math.max(durationNanos, 0));
+
+        buckets.incrementAndGet(getBucket(us));
+        count.incrementAndGet();
+        totalUs.addAndGet(us);
+
+        for (long prevMax = maxUs.get(); us > prevMax && !maxUs.compareAndSet(prevMax, us); prevMax = maxUs.get()) {
+            // retry until this value is stored, or a larger one is
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMs() {
+        return TimeUnit.MICROSECONDS.toMillis(maxUs.get());
+    }
+
+    public double getMeanMs() {
+        long cnt = count.get();
+
+        return cnt > 0 ? totalUs.get() / 1000.0 / cnt : 0;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound, in milliseconds, of the bucket the given percentile falls in; 0 if nothing was recorded
+     */
+    public double getPercentileMs(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long   total    = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total      += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100.0);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(1L << i, Math.max(maxUs.get(), 1)) / 1000.0;
+            }
+        }
+
+        return getMaxMs();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+
+        count.set(0);
+        totalUs.set(0);
+        maxUs.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, max=%dms",
+                getCount(), getMeanMs(), getPercentileMs(50), getPercentileMs(90), getPercentileMs(99), getMaxMs());
+    }
+
+    static int getBucket(long us) {
+        return Math.min(64 - Long.numberOfLeadingZeros(us), BUCKET_COUNT - 1);
+    }
+}
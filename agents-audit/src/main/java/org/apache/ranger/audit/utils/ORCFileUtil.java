@@ -38,25 +38,28 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.text.Format;
-import java.text.SimpleDateFormat;
 
 public class ORCFileUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(ORCFileUtil.class);
 
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
     private static volatile      ORCFileUtil  me    = null;
     protected CompressionKind    defaultCompression = CompressionKind.SNAPPY;
     protected CompressionKind    compressionKind    = CompressionKind.NONE;
     protected TypeDescription    schema             = null;
     protected VectorizedRowBatch batch              = null;
     protected String             auditSchema        = null;
-    protected String             dateFormat         = "yyyy-MM-dd HH:mm:ss";
+    protected String             dateFormat         = AuditEventColumn.DATE_FORMAT;
 
     protected ArrayList<String>         schemaFields          = new ArrayList<>();
     protected Map<String,ColumnVector>  vectorizedRowBatchMap = new HashMap<>();
+    protected AuditEventColumn[]        columns               = new AuditEventColumn[0]; // in the order of schemaFields
+    protected ColumnVector[]            columnVectors         = new ColumnVector[0];
     protected int                       orcBufferSize;
     protected long                      orcStripeSize;
 
@@ -128,14 +131,15 @@ public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Except
         try {
             for(AuthzAuditEvent event : events) {
                 int row = batch.size++;
-                for (int j=0;j<schemaFields.size();j++) {
-                    String fieldName          = schemaFields.get(j);
-                    SchemaInfo schemaInfo     = getFieldValue(event, fieldName);
-                    ColumnVector columnVector = vectorizedRowBatchMap.get(fieldName);
+                for (int j = 0; j < columns.length; j++) {
+                    AuditEventColumn column       = columns[j];
+                    ColumnVector     columnVector = columnVectors[j];
                     if (columnVector instanceof LongColumnVector) {
-                        ((LongColumnVector) columnVector).vector[row] = castLongObject(schemaInfo.getValue());
+                        ((LongColumnVector) columnVector).vector[row] = column != null ? column.getLong(event) : 0;
                     } else if (columnVector instanceof BytesColumnVector) {
-                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(schemaInfo.getValue())));
+                        byte[] value = column != null ? column.getUtf8OrEmpty(event) : EMPTY_BYTES;
+                        // the column hands out the same bytes for repeated values and never modifies them, so refer to them instead of copying
+                        ((BytesColumnVector) columnVector).setRef(row, value, 0, value.length);
                     }
                 }
                 if (batch.size == orcBufferSize) {
@@ -158,21 +162,6 @@ public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Except
         }
     }
 
-    protected byte[] getBytesValues(String val) {
-        byte[] ret = "".getBytes();
-        if(val != null) {
-            ret = val.getBytes();
-        }
-        return ret;
-    }
-
-    protected String getDateString(Date date) {
-        String ret = null;
-        Format formatter = new SimpleDateFormat(dateFormat);
-        ret = formatter.format(date);
-        return ret;
-    }
-
     protected void initORCAuditSchema() throws Exception {
         if (logger.isDebugEnabled()) {
             logger.debug("==> ORCWriter.initORCAuditSchema()");
@@ -205,6 +194,11 @@ protected Map<String,String> getSchemaFieldTypeMap() {
     }
 
     protected void buildVectorRowBatch(Map<String,String> schemaFieldTypeMap) throws Exception {
+        List<AuditEventColumn> eventColumns = AuditEventColumn.getColumns();
+
+        columns       = new AuditEventColumn[schemaFields.size()];
+        columnVectors = new ColumnVector[schemaFields.size()];
+
         int i = 0;
         for (i=0;i<schemaFields.size();i++) {
             String fld       = schemaFields.get(i);
@@ -217,28 +211,14 @@ protected void buildVectorRowBatch(Map<String,String> schemaFieldTypeMap) throws
             } else if (columnVector instanceof DecimalColumnVector) {
                 vectorizedRowBatchMap.put(fld, (DecimalColumnVector) batch.cols[i]);
             }
+            columns[i]       = AuditEventColumn.getColumn(eventColumns, fld);
+            columnVectors[i] = batch.cols[i];
+            if (columns[i] == null) {
+                logger.warn("ORCFileUtil: field " + fld + " not found in AuthzAuditEvent. Will be written as empty");
+            }
         }
     }
 
-    protected SchemaInfo getFieldValue(AuthzAuditEvent event, String fieldName ) {
-        SchemaInfo ret = new SchemaInfo();
-        try {
-            Class aClass  = AuthzAuditEvent.class;
-            Field fld     = aClass.getDeclaredField(fieldName);
-            fld.setAccessible(true);
-
-            Class<?> cls  = fld.getType();
-            Object  value = fld.get(event);
-
-            ret.setField(fieldName);
-            ret.setType(cls.getName());
-            ret.setValue(value);
-        } catch (Exception e){
-            logger.error("Error while writing into ORC File:", e);
-        }
-        return ret;
-    }
-
     protected ColumnVector getColumnVectorType(String fieldType) throws Exception {
         ColumnVector ret = null;
         fieldType = fieldType.toLowerCase();
@@ -271,36 +251,6 @@ protected ColumnVector getColumnVectorType(String fieldType) throws Exception {
         return ret;
     }
 
-    protected Long castLongObject(Object object) {
-        Long ret = 0l;
-        try {
-            if (object instanceof Long)
-                ret = ((Long) object);
-            else if (object instanceof Integer) {
-                ret = ((Integer) object).longValue();
-            } else if (object instanceof String) {
-                ret = Long.valueOf((String) object);
-            }
-        } catch (Exception e) {
-            logger.error("Error while writing into ORC File:", e);
-        }
-        return ret;
-    }
-
-    protected String castStringObject(Object object) {
-        String ret = null;
-        try {
-            if (object instanceof String)
-                ret = (String) object;
-            else if (object instanceof Date) {
-                ret = (getDateString((Date) object));
-            }
-        } catch (Exception e) {
-            logger.error("Error while writing into ORC File:", e);
-        }
-        return ret;
-    }
-
     protected String  getAuditSchema() {
         if (logger.isDebugEnabled()) {
             logger.debug("==> ORCWriter.getAuditSchema()");
@@ -357,36 +307,6 @@ protected String getShortFieldType(String type){
         return ret;
     }
 
-    class SchemaInfo {
-        String field = null;
-        String type = null;
-        Object value = null;
-
-        public String getField() {
-            return field;
-        }
-
-        public void setField(String field) {
-            this.field = field;
-        }
-
-        public String getType() {
-            return type;
-        }
-
-        public void setType(String type) {
-            this.type = type;
-        }
-
-        public Object getValue() {
-            return value;
-        }
-
-        public void setValue(Object value) {
-            this.value = value;
-        }
-    }
-
     protected CompressionKind getORCCompression(String compression) {
         CompressionKind ret;
         if (compression == null) {
@@ -36,7 +36,7 @@
  *  This class writes the Ranger audits to HDFS as ORC files
  *  Refer README.TXT for enabling ORCWriter.
  */
-public class RangerORCAuditWriter extends AbstractRangerAuditWriter {
+public class RangerORCAuditWriter extends AbstractRangerAuditWriter implements RangerAuditEventWriter {
     private static final Logger logger = LoggerFactory.getLogger(RangerORCAuditWriter.class);
 
     protected static final String ORC_FILE_EXTENSION = ".orc";
@@ -112,6 +112,11 @@ public boolean log(Collection<String> events) throws  Exception {
         return logAsORC(events);
     }
 
+    @Override
+    public boolean logEvents(Collection<AuthzAuditEvent> events) throws Exception {
+        return logAuditAsORC(events);
+    }
+
     @Override
     public void start() {
         // Nothing to do here. We will open the file when the first log request comes
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ *  This class writes the Ranger audits to HDFS as Parquet files, with the same columns as RangerORCAuditWriter. Strings
+ *  are written as UTF8 binaries, which Parquet dictionary-encodes within a row group; the event time is written as
+ *  TIMESTAMP_MILLIS.
+ *
+ *  Like the JSON writer, a file is kept open across batches and closed on rollover (file.rollover.sec or
+ *  file.rollover.period) and on stop(). Rows in a Parquet file can be read only after the file is closed, and are lost
+ *  if the process dies with the file still open: a shorter rollover period trades more files for less exposure.
+ *
+ *  Parquet is not bundled with the plugins: to use this writer, parquet-hadoop must be in the host's classpath and
+ *  xasecure.audit.destination.hdfs.batch.filequeue.filetype set to parquet.
+ */
+public class RangerParquetAuditWriter extends AbstractRangerAuditWriter implements RangerAuditEventWriter {
+    private static final Logger logger = LoggerFactory.getLogger(RangerParquetAuditWriter.class);
+
+    protected static final String PARQUET_FILE_EXTENSION = ".parquet";
+    protected static final String SCHEMA_NAME            = "ranger_audit";
+
+    protected String                 fileType         = "parquet";
+    protected CompressionCodecName   compressionCodec = CompressionCodecName.SNAPPY;
+    protected long                   rowGroupSize     = ParquetWriter.DEFAULT_BLOCK_SIZE;
+    protected int                    pageSize         = ParquetWriter.DEFAULT_PAGE_SIZE;
+    protected List<AuditEventColumn> columns          = null;
+
+    protected ParquetWriter<AuthzAuditEvent> parquetLogWriter = null;
+
+    @Override
+    public void init(Properties props, String propPrefix, String auditProviderName, Map<String,String> auditConfigs) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("==> RangerParquetAuditWriter.init()");
+        }
+        init(props, propPrefix, auditProviderName);
+        super.init(props, propPrefix, auditProviderName, auditConfigs);
+        if (logger.isDebugEnabled()) {
+            logger.debug("<== RangerParquetAuditWriter.init()");
+        }
+    }
+
+    public void init(Properties props, String propPrefix, String auditProviderName) {
+        compressionCodec = getParquetCompression(MiscUtil.getStringProperty(props, propPrefix + "." + fileType + ".compression"));
+        rowGroupSize     = MiscUtil.getLongProperty(props, propPrefix + "." + fileType + ".rowgroupsize", ParquetWriter.DEFAULT_BLOCK_SIZE);
+        pageSize         = MiscUtil.getIntProperty(props, propPrefix + "." + fileType + ".pagesize", ParquetWriter.DEFAULT_PAGE_SIZE);
+        columns          = AuditEventColumn.getColumns();
+        setFileExtension(PARQUET_FILE_EXTENSION);
+
+        logger.info("RangerParquetAuditWriter: compression=" + compressionCodec + ", rowGroupSize=" + rowGroupSize + ", pageSize=" + pageSize + ", schema=" + getSchema(columns));
+    }
+
+    @Override
+    synchronized public boolean logEvents(final Collection<AuthzAuditEvent> events) throws Exception {
+        if (events.isEmpty()) {
+            return true;
+        }
+
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("UGI=" + MiscUtil.getUGILoginUser() + ". Will write " + events.size() + " events to Parquet file " + currentFileName);
+            }
+
+            MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+                @Override
+                public Void run() throws Exception {
+                    ParquetWriter<AuthzAuditEvent> writer = getParquetFileWriter();
+
+                    for (AuthzAuditEvent event : events) {
+                        writer.write(event);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error while writing into Parquet file " + currentFileName, e);
+
+            // close the file to keep the rows of earlier batches - along with any rows of this batch written before the
+            // failure; the batch is retried by the caller, in a new file
+            closeParquetFileWriter();
+            throw e;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean log(Collection<String> events) throws Exception {
+        Collection<AuthzAuditEvent> authzAuditEvents = new ArrayList<>(events.size());
+        for (String event : events) {
+            try {
+                authzAuditEvents.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+            } catch (Exception e) {
+                logger.error("Error converting to From JSON to AuthzAuditEvent=" + event);
+                throw e;
+            }
+        }
+        return logEvents(authzAuditEvents);
+    }
+
+    @Override
+    public boolean logFile(File file) throws Exception {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        // Nothing to do here. We will open the file when the first log request comes
+    }
+
+    @Override
+    public void flush() {
+        // Rows are buffered into row groups by the Parquet writer, and the file can be read only after it is closed -
+        // on rollover or stop(). So nothing to flush.
+    }
+
+    @Override
+    synchronized public void stop() {
+        closeParquetFileWriter();
+    }
+
+    protected synchronized ParquetWriter<AuthzAuditEvent> getParquetFileWriter() throws Exception {
+        if (System.currentTimeMillis() >= nextRollOverTime.getTime()) {
+            if (parquetLogWriter != null) {
+                logger.info("Closing file. Rolling over. name = {}, fileName = {}", auditProviderName, currentFileName);
+
+                closeParquetFileWriter();
+            }
+
+            updateNextRollOverTime();
+        }
+
+        if (parquetLogWriter == null) {
+            createFileSystemFolders();
+            logger.info("Creating new log file. hdfPath=" + fullPath);
+
+            parquetLogWriter = new Builder(auditPath, columns).withConf(conf)
+                                                              .withCompressionCodec(compressionCodec)
+                                                              .withRowGroupSize(rowGroupSize)
+                                                              .withPageSize(pageSize)
+                                                              .withDictionaryEncoding(true)
+                                                              .build();
+        }
+
+        return parquetLogWriter;
+    }
+
+    protected synchronized void closeParquetFileWriter() {
+        if (parquetLogWriter != null) {
+            try {
+                parquetLogWriter.close();
+            } catch (Throwable t) {
+                logger.error("Error on closing Parquet writer. Exception will be ignored. name=" + auditProviderName + ", fileName=" + currentFileName, t);
+            }
+            parquetLogWriter = null;
+            currentFileName  = null;
+        }
+    }
+
+    protected CompressionCodecName getParquetCompression(String compression) {
+        CompressionCodecName ret = CompressionCodecName.SNAPPY;
+        if (StringUtils.isNotBlank(compression)) {
+            try {
+                ret = CompressionCodecName.valueOf(compression.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown Parquet compression " + compression + ". Will use " + ret);
+            }
+        }
+        return ret;
+    }
+
+    static MessageType getSchema(List<AuditEventColumn> columns) {
+        StringBuilder sb = new StringBuilder("message ").append(SCHEMA_NAME).append(" {\n");
+        for (AuditEventColumn column : columns) {
+            switch (column.getType()) {
+                case STRING:
+                    sb.append("  optional binary ").append(column.getName()).append(" (UTF8);\n");
+                    break;
+                case INT:
+                    sb.append("  required int32 ").append(column.getName()).append(";\n");
+                    break;
+                case SHORT:
+                    sb.append("  required int32 ").append(column.getName()).append(" (INT_16);\n");
+                    break;
+                case LONG:
+                    sb.append("  required int64 ").append(column.getName()).append(";\n");
+                    break;
+                case DATE:
+                    sb.append("  optional int64 ").append(column.getName()).append(" (TIMESTAMP_MILLIS);\n");
+                    break;
+            }
+        }
+        sb.append("}");
+        return MessageTypeParser.parseMessageType(sb.toString());
+    }
+
+    static class Builder extends ParquetWriter.Builder<AuthzAuditEvent, Builder> {
+        private final List<AuditEventColumn> columns;
+
+        Builder(Path path, List<AuditEventColumn> columns) {
+            super(path);
+            this.columns = columns;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<AuthzAuditEvent> getWriteSupport(Configuration conf) {
+            return new AuditEventWriteSupport(columns);
+        }
+    }
+
+    static class AuditEventWriteSupport extends WriteSupport<AuthzAuditEvent> {
+        private final List<AuditEventColumn> columns;
+        private RecordConsumer               recordConsumer;
+
+        AuditEventWriteSupport(List<AuditEventColumn> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public WriteContext init(Configuration configuration) {
+            return new WriteContext(getSchema(columns), Collections.<String, String>emptyMap());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(AuthzAuditEvent event) {
+            recordConsumer.startMessage();
+            for (int i = 0; i < columns.size(); i++) {
+                AuditEventColumn column = columns.get(i);
+                if (column.isNull(event)) { // optional column, nothing to write
+                    continue;
+                }
+                recordConsumer.startField(column.getName(), i);
+                switch (column.getType()) {
+                    case STRING:
+                        // the column hands out the same bytes for repeated values and never modifies them
+                        recordConsumer.addBinary(Binary.fromConstantByteArray(column.getUtf8(event)));
+                        break;
+                    case INT:
+                    case SHORT:
+                        recordConsumer.addInteger((int) column.getLong(event));
+                        break;
+                    case LONG:
+                    case DATE:
+                        recordConsumer.addLong(column.getLong(event));
+                        break;
+                }
+                recordConsumer.endField(column.getName(), i);
+            }
+            recordConsumer.endMessage();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.model;
+
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AuthzAuditEventPoolTest {
+
+    @Test
+    public void testRecycledEventIsReset() {
+        AuthzAuditEventPool pool  = new AuthzAuditEventPool(4);
+        AuthzAuditEvent     event = pool.acquire();
+        Date                time  = event.getEventTime();
+        Set<String>         tags  = new HashSet<>(Collections.singleton("PII"));
+
+        event.setEventTimeMillis(1700000000000L);
+        event.setUser("user1");
+        event.setResourcePath("db1/table1");
+        event.setAccessResult((short) 1);
+        event.setPolicyId(42);
+        event.setTags(tags);
+        event.setEventCount(7);
+        event.setSampleRate(0.5);
+
+        assertSame(time, event.getEventTime());
+        assertEquals(1700000000000L, time.getTime());
+
+        event.recycle();
+        event.recycle(); // no longer pooled: ignored
+
+        assertEquals(1, pool.size());
+        assertEquals(1, tags.size()); // the caller's set is not cleared
+
+        AuthzAuditEvent reused   = pool.acquire();
+        AuthzAuditEvent expected = new AuthzAuditEvent();
+
+        assertSame(event, reused);
+        assertSame(time, reused.getEventTime());
+        assertEquals(0, pool.size());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getReusedCount());
+
+        expected.setEventTime(reused.getEventTime());
+
+        assertEquals(MiscUtil.stringify(expected), MiscUtil.stringify(reused));
+    }
+
+    @Test
+    public void testOnlyPooledEventsAreRecycled() {
+        AuthzAuditEventPool pool  = new AuthzAuditEventPool(2);
+        AuthzAuditEvent     event = new AuthzAuditEvent();
+        Date                time  = new Date(1700000000000L);
+
+        event.setEventTime(time);
+        event.setUser("user1");
+        event.recycle();
+
+        assertEquals("user1", event.getUser());
+
+        // not owned by the event: replaced, not changed
+        event.setEventTimeMillis(1800000000000L);
+
+        assertEquals(1700000000000L, time.getTime());
+        assertNotSame(time, event.getEventTime());
+
+        // a full pool leaves the event to the garbage collector
+        AuthzAuditEvent[] events = { pool.acquire(), pool.acquire(), pool.acquire() };
+
+        for (AuthzAuditEvent pooled : events) {
+            pooled.recycle();
+        }
+
+        assertEquals(2, pool.size());
+        assertTrue(pool.getCreatedCount() == 3 && pool.getReusedCount() == 0);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.provider;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelMultiDestAuditProviderTest {
+    private static final String PREFIX = ParallelMultiDestAuditProvider.PROP_DISPATCH_PREFIX + ".";
+
+    @Test
+    public void testSlowDestinationDoesNotBlockOthers() throws Exception {
+        CountDownLatch        release = new CountDownLatch(1);
+        CollectingDestination fast    = new CollectingDestination("fast");
+        CollectingDestination slow    = new CollectingDestination("slow") {
+            @Override
+            public boolean log(Collection<AuditEventBase> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException excp) {
+                    return false;
+                }
+
+                return super.log(events);
+            }
+        };
+
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + ParallelMultiDestAuditProvider.PROP_MAX_INFLIGHT, "2");
+        props.setProperty(PREFIX + ParallelMultiDestAuditProvider.PROP_MAX_WAIT_MS, "100");
+
+        ParallelMultiDestAuditProvider provider = createProvider(props, fast, slow);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(provider.log(createBatch(i * 10, 10)));
+        }
+
+        waitFor(() -> fast.events.size() == 100);
+
+        // the slow destination took 1 batch, holds 2 in flight and dropped the rest
+        ParallelMultiDestAuditProvider.Dispatcher slowDispatcher = provider.getDispatcher(slow.getName());
+        ParallelMultiDestAuditProvider.Dispatcher fastDispatcher = provider.getDispatcher(fast.getName());
+
+        assertEquals(70, slowDispatcher.getDroppedCount());
+        assertEquals(30, slowDispatcher.getPendingEvents());
+        assertTrue(slowDispatcher.getLagMs() >= 0);
+
+        release.countDown();
+        provider.stop();
+
+        assertEquals(30, slow.events.size());
+        assertEquals(0, slowDispatcher.getPendingEvents());
+        assertEquals(100, fastDispatcher.getDispatchedCount());
+    }
+
+    @Test
+    public void testRetriesFailedBatch() throws Exception {
+        CollectingDestination flaky = new CollectingDestination("flaky") {
+            int failures = 2;
+
+            @Override
+            public boolean log(Collection<AuditEventBase> events) {
+                return failures-- <= 0 && super.log(events);
+            }
+        };
+        CollectingDestination other = new CollectingDestination("other");
+
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + ParallelMultiDestAuditProvider.PROP_RETRY_INTERVAL_MS, "0");
+
+        ParallelMultiDestAuditProvider            provider   = createProvider(props, flaky, other);
+        ParallelMultiDestAuditProvider.Dispatcher dispatcher = provider.getDispatcher(flaky.getName());
+
+        provider.log(createBatch(0, 5));
+        provider.stop();
+
+        assertEquals(5, flaky.events.size());
+        assertEquals(2, dispatcher.getRetryCount());
+        assertEquals(0, dispatcher.getFailedCount());
+        assertEquals(3, dispatcher.getLatency().getCount());
+    }
+
+    @Test
+    public void testStopDeliversBatchesInOrder() throws Exception {
+        CollectingDestination dest1 = new CollectingDestination("dest1");
+        CollectingDestination dest2 = new CollectingDestination("dest2");
+
+        ParallelMultiDestAuditProvider provider = createProvider(new Properties(), dest1, dest2);
+
+        for (int i = 0; i < 100; i++) {
+            provider.log(createBatch(i * 10, 10));
+        }
+
+        provider.stop();
+
+        for (CollectingDestination dest : Arrays.asList(dest1, dest2)) {
+            assertEquals(1000, dest.events.size());
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("event-" + i, ((AuthzAuditEvent) dest.events.get(i)).getEventId());
+            }
+        }
+    }
+
+    @Test
+    public void testLogAfterStop() throws Exception {
+        CollectingDestination dest1 = new CollectingDestination("dest1");
+        CollectingDestination dest2 = new CollectingDestination("dest2");
+
+        ParallelMultiDestAuditProvider provider = createProvider(new Properties(), dest1, dest2);
+
+        assertTrue(provider.log(createBatch(0, 10)));
+
+        provider.stop();
+
+        assertTrue(provider.getDispatchers().isEmpty());
+        assertFalse(provider.log(createBatch(10, 10)));
+        assertEquals(10, dest1.events.size());
+        assertEquals(10, dest2.events.size());
+
+        // restart after stop
+        provider.start();
+
+        assertEquals(2, provider.getDispatchers().size());
+        assertTrue(provider.log(createBatch(10, 10)));
+
+        provider.stop();
+
+        assertEquals(20, dest1.events.size());
+        assertEquals(20, dest2.events.size());
+    }
+
+    private ParallelMultiDestAuditProvider createProvider(Properties props, AuditHandler... destinations) {
+        ParallelMultiDestAuditProvider ret = new ParallelMultiDestAuditProvider();
+
+        ret.init(props);
+        ret.addAuditProviders(Arrays.asList(destinations));
+        ret.start();
+
+        return ret;
+    }
+
+    private static List<AuditEventBase> createBatch(int start, int count) {
+        List<AuditEventBase> ret = new ArrayList<>();
+
+        for (int i = start; i < start + count; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+
+            ret.add(event);
+        }
+
+        return ret;
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+        while (!condition.isMet() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(condition.isMet());
+    }
+
+    interface Condition {
+        boolean isMet();
+    }
+
+    static class CollectingDestination extends DummyAuditProvider {
+        final String               name;
+        final List<AuditEventBase> events = new ArrayList<>();
+
+        CollectingDestination(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            synchronized (this.events) {
+                this.events.addAll(events);
+            }
+
+            return true;
+        }
+    }
+}
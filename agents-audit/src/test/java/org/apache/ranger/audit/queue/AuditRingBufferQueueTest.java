@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventPool;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AuditRingBufferQueueTest {
+    private static final String PROP_PREFIX = "xasecure.audit.test.ringbuffer";
+
+    @Test
+    public void testDestinationQueuesDontRecycleSharedEvents() {
+        AuthzAuditEventPool   pool    = new AuthzAuditEventPool(64);
+        CountDownLatch        release = new CountDownLatch(1);
+        AuditRingBufferQueue  queue1  = createQueue(new BlockingConsumer(release), false);
+        AuditRingBufferQueue  queue2  = createQueue(new BlockingConsumer(release), false);
+        List<AuthzAuditEvent> events  = new ArrayList<>();
+
+        try {
+            // events given to all destinations, as MultiDestAuditProvider does
+            for (int i = 0; i < 20; i++) {
+                AuthzAuditEvent event = pool.acquire();
+
+                event.setEventId("event-" + i);
+                events.add(event);
+
+                queue1.log(event);
+                queue2.log(event);
+            }
+
+            assertTrue(queue1.getDroppedCount() > 0);
+            assertTrue(queue2.getDroppedCount() > 0);
+
+            // an event dropped by one queue may still be in the other one: none is recycled
+            assertEquals(0, pool.size());
+            assertEquals(0, pool.getReusedCount());
+
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals("event-" + i, events.get(i).getEventId());
+            }
+        } finally {
+            release.countDown();
+            queue1.stop();
+            queue2.stop();
+        }
+    }
+
+    @Test
+    public void testEventOwnerQueueRecyclesDroppedEvents() {
+        AuthzAuditEventPool  pool    = new AuthzAuditEventPool(64);
+        CountDownLatch       release = new CountDownLatch(1);
+        AuditRingBufferQueue queue   = createQueue(new BlockingConsumer(release), true);
+
+        try {
+            for (int i = 0; i < 20; i++) {
+                AuthzAuditEvent event = pool.acquire();
+
+                event.setEventId("event-" + i);
+
+                queue.log(event);
+            }
+
+            // the dropped events went back to the pool, and were handed out again by acquire() or are still there
+            assertTrue(queue.getDroppedCount() > 0);
+            assertEquals(queue.getDroppedCount(), pool.getReusedCount() + pool.size());
+        } finally {
+            release.countDown();
+            queue.stop();
+        }
+    }
+
+    private static AuditRingBufferQueue createQueue(BlockingConsumer consumer, boolean isEventOwner) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_QUEUE_SIZE, "2");
+        props.setProperty(PROP_PREFIX + "." + AuditRingBufferQueue.PROP_OVERFLOW_POLICY, "drop_oldest");
+
+        AuditRingBufferQueue ret = new AuditRingBufferQueue(consumer, isEventOwner);
+
+        ret.init(props, PROP_PREFIX);
+        ret.start();
+
+        return ret;
+    }
+
+    // a destination that is down: holds the consumer thread of the queue until released
+    static class BlockingConsumer extends DummyAuditProvider {
+        final CountDownLatch release;
+
+        BlockingConsumer(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            try {
+                release.await();
+            } catch (InterruptedException excp) {
+                return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuditRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals(2, new AuditRingBuffer<Integer>(1).getCapacity());
+        assertEquals(8, new AuditRingBuffer<Integer>(5).getCapacity());
+        assertEquals(1024, new AuditRingBuffer<Integer>(1024).getCapacity());
+    }
+
+    @Test
+    public void testOfferPollInOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+        assertNull(buffer.poll());
+
+        // wrap around the array a few times
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(lap * 4 + i));
+            }
+
+            assertFalse(buffer.offer(-1));
+            assertEquals(4, buffer.size());
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(lap * 4 + i), buffer.poll());
+            }
+
+            assertTrue(buffer.isEmpty());
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    public void testDrainTo() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(8);
+        List<Integer>            list   = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(i);
+        }
+
+        assertEquals(4, buffer.drainTo(list, 4));
+        assertEquals(2, buffer.drainTo(list, 4));
+        assertEquals(0, buffer.drainTo(list, 4));
+        assertEquals(6, list.size());
+        assertEquals(Integer.valueOf(5), list.get(5));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final int                      producerCount  = 8;
+        final int                      countPerThread = 50000;
+        final AuditRingBuffer<Integer> buffer         = new AuditRingBuffer<>(1024);
+        final CountDownLatch           start          = new CountDownLatch(1);
+        List<Thread>                   producers      = new ArrayList<>();
+
+        for (int p = 0; p < producerCount; p++) {
+            final int base = p * countPerThread;
+
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException excp) {
+                    return;
+                }
+
+                for (int i = 0; i < countPerThread; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+
+            producer.start();
+            producers.add(producer);
+        }
+
+        BitSet received = new BitSet(producerCount * countPerThread);
+        int[]  lastSeen = new int[producerCount];
+
+        Arrays.fill(lastSeen, -1);
+
+        start.countDown();
+
+        for (int count = 0; count < producerCount * countPerThread; ) {
+            Integer value = buffer.poll();
+
+            if (value == null) {
+                Thread.yield();
+
+                continue;
+            }
+
+            int producer = value / countPerThread;
+
+            assertFalse("duplicate " + value, received.get(value));
+            assertTrue("out of order for producer " + producer, value > lastSeen[producer]);
+
+            received.set(value);
+            lastSeen[producer] = value;
+            count++;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(producerCount * countPerThread, received.cardinality());
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventPool;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuditSamplingQueueTest {
+    private static final String PROP_PREFIX = "xasecure.audit.sampling";
+
+    @Test
+    public void testSamplingIsDeterministicAndKeepsDenies() {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_SAMPLING_RATE, "0.1");
+
+        CollectingConsumer consumer1 = new CollectingConsumer();
+        CollectingConsumer consumer2 = new CollectingConsumer();
+        AuditSamplingQueue queue1    = createQueue(consumer1, props);
+        AuditSamplingQueue queue2    = createQueue(consumer2, props);
+
+        for (int i = 0; i < 20000; i++) {
+            queue1.log(createEvent(i, "user1", "db1/table1", i % 10 == 0 ? 0 : 1));
+            queue2.log(createEvent(i, "user1", "db1/table1", i % 10 == 0 ? 0 : 1));
+        }
+
+        assertEquals(2000, queue1.getDeniedCount());
+        assertEquals(18000, queue1.getKeptCount() + queue1.getSampledOutCount());
+        assertTrue("kept: " + queue1.getKeptCount(), queue1.getKeptCount() > 1500 && queue1.getKeptCount() < 2100);
+        assertEquals(2000 + queue1.getKeptCount(), consumer1.events.size());
+
+        // the same events are kept by both
+        assertEquals(consumer1.events.size(), consumer2.events.size());
+
+        double estimated = 0;
+
+        for (int i = 0; i < consumer1.events.size(); i++) {
+            AuthzAuditEvent event = (AuthzAuditEvent) consumer1.events.get(i);
+
+            assertEquals(event.getEventId(), ((AuthzAuditEvent) consumer2.events.get(i)).getEventId());
+
+            if (event.getAccessResult() == 0) {
+                assertNull(event.getSampleRate());
+            } else {
+                assertEquals(Double.valueOf(0.1), event.getSampleRate());
+
+                estimated += 1 / event.getSampleRate();
+            }
+        }
+
+        assertTrue("estimated: " + estimated, Math.abs(estimated - 18000) < 1800);
+    }
+
+    @Test
+    public void testRateLimitPerKey() {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_RATE_LIMIT_PER_SEC, "10");
+        props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_RATE_LIMIT_BURST, "5");
+
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSamplingQueue queue    = createQueue(consumer, props);
+        long               now      = 0;
+
+        // resource prefix is db1/table1 for both paths: one budget
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i < 5, queue.isKept(createEvent(i, "user1", "db1/table1/col" + i, 1), now));
+        }
+
+        // other users, results and resource prefixes have their own budget; denies are not limited
+        assertTrue(queue.isKept(createEvent(100, "user2", "db1/table1/col1", 1), now));
+        assertTrue(queue.isKept(createEvent(101, "user1", "db1/table2/col1", 1), now));
+        assertTrue(queue.isKept(createEvent(102, "user1", "db1/table1/col1", 0), now));
+
+        assertEquals(95, queue.getRateLimitedCount());
+
+        // a token every 100ms: the next kept event stands for the 95 limited ones as well
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+
+        AuthzAuditEvent event = createEvent(200, "user1", "db1/table1", 1);
+
+        assertTrue(queue.isKept(event, now));
+        assertEquals(Double.valueOf(1.0 / 96), event.getSampleRate());
+        assertFalse(queue.isKept(createEvent(201, "user1", "db1/table1", 1), now));
+    }
+
+    @Test
+    public void testBatchPassesOnKeptEvents() {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_RATE_LIMIT_PER_SEC, "1");
+
+        CollectingConsumer   consumer = new CollectingConsumer();
+        AuditSamplingQueue   queue    = createQueue(consumer, props);
+        List<AuditEventBase> events   = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            events.add(createEvent(i, "user1", "/data/etl/file" + i, 1));
+        }
+
+        assertTrue(queue.log(events));
+        assertEquals(1, consumer.events.size());
+        assertEquals(10, queue.getTotalCount());
+        assertEquals(9, queue.getRateLimitedCount());
+    }
+
+    @Test
+    public void testDroppedPooledEventsAreRecycled() {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_RATE_LIMIT_PER_SEC, "1");
+
+        CollectingConsumer  consumer = new CollectingConsumer();
+        AuditSamplingQueue  queue    = createQueue(consumer, props);
+        AuthzAuditEventPool pool     = new AuthzAuditEventPool(16);
+
+        for (int i = 0; i < 10; i++) {
+            AuthzAuditEvent event = pool.acquire();
+
+            event.setEventId("8d7c2f0e-" + i);
+            event.setUser("user1");
+            event.setResourcePath("db1/table1");
+            event.setAccessResult((short) 1);
+
+            queue.log(event);
+        }
+
+        // the first event is passed on; the others are recycled, and reused for the next ones
+        assertEquals(1, consumer.events.size());
+        assertEquals("8d7c2f0e-0", ((AuthzAuditEvent) consumer.events.get(0)).getEventId());
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(1, pool.size());
+    }
+
+    private static AuditSamplingQueue createQueue(CollectingConsumer consumer, Properties props) {
+        AuditSamplingQueue ret = new AuditSamplingQueue(consumer);
+
+        ret.init(props, PROP_PREFIX);
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(int id, String user, String resourcePath, int accessResult) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setEventId("8d7c2f0e-" + id);
+        ret.setUser(user);
+        ret.setAccessType("select");
+        ret.setResourcePath(resourcePath);
+        ret.setAccessResult((short) accessResult);
+
+        return ret;
+    }
+
+    static class CollectingConsumer extends DummyAuditProvider {
+        final List<AuditEventBase> events = new ArrayList<>();
+
+        @Override
+        public boolean log(AuditEventBase event) {
+            return events.add(event);
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            return this.events.addAll(events);
+        }
+    }
+}
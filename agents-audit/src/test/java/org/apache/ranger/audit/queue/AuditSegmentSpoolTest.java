@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuditSegmentSpoolTest {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.test.batch";
+
+    private File spoolDir;
+
+    @Before
+    public void setup() throws Exception {
+        spoolDir = Files.createTempDirectory("segment-spool").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        File[] files = spoolDir.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        spoolDir.delete();
+    }
+
+    @Test
+    public void testSendsSpooledEventsInOrder() throws Exception {
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSegmentSpool  spool    = createSpool(consumer, 1000);
+
+        for (int i = 0; i < 2500; i++) {
+            spool.stashLogs(createEvent(i));
+        }
+
+        assertTrue(spool.isPending());
+
+        assertEquals(1000, spool.sendNextBatch());
+        assertEquals(1000, spool.sendNextBatch());
+        assertEquals(500, spool.sendNextBatch());
+        assertEquals(0, spool.sendNextBatch());
+
+        assertFalse(spool.isPending());
+        assertEvents(consumer.events, 2500);
+    }
+
+    @Test
+    public void testResendsBatchAfterConsumerFailure() throws Exception {
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSegmentSpool  spool    = createSpool(consumer, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            spool.stashLogs(createEvent(i));
+        }
+
+        consumer.isAvailable = false;
+
+        assertEquals(-1, spool.sendNextBatch());
+        assertTrue(spool.isPending());
+
+        consumer.isAvailable = true;
+
+        assertEquals(10, spool.sendNextBatch());
+        assertEvents(consumer.events, 10);
+    }
+
+    @Test
+    public void testResumesFromCheckpointAfterRestart() throws Exception {
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSegmentSpool  spool    = createSpool(consumer, 40);
+
+        for (int i = 0; i < 100; i++) {
+            spool.stashLogs(createEvent(i));
+        }
+
+        // send the first batch, then restart
+        assertEquals(40, spool.sendNextBatch());
+        spool.stop();
+
+        spool = createSpool(consumer, 1000);
+
+        assertTrue(spool.isPending());
+        assertEquals(60, spool.sendNextBatch());
+        assertEvents(consumer.events, 100);
+
+        spool.stop();
+
+        // nothing left to send after another restart
+        spool = createSpool(consumer, 1000);
+
+        assertEquals(0, spool.sendNextBatch());
+        assertFalse(spool.isPending());
+        assertEvents(consumer.events, 100);
+    }
+
+    @Test
+    public void testRollsOverToNewSegments() throws Exception {
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSegmentSpool  spool    = createSpool(consumer, 1000);
+        int                count    = 30000; // more than fits in a 1 MB segment
+
+        for (int i = 0; i < count; i++) {
+            spool.stashLogs(createEvent(i));
+        }
+
+        assertTrue(spool.segmentQueue.size() > 1);
+
+        while (spool.sendNextBatch() > 0) {
+            // send all
+        }
+
+        assertEvents(consumer.events, count);
+        assertEquals(1, spool.segmentQueue.size()); // only the segment being written is left
+        assertEquals(1, spoolDir.listFiles((dir, name) -> name.endsWith(AuditSegmentSpool.SEGMENT_FILE_SUFFIX)).length);
+    }
+
+    @Test
+    public void testSkipsCorruptRecordAtEndOfSegment() throws Exception {
+        CollectingConsumer consumer = new CollectingConsumer();
+        AuditSegmentSpool  spool    = createSpool(consumer, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            spool.stashLogs(createEvent(i));
+        }
+
+        int  lastRecordOffset = spool.writeOffset - 1;
+        File segmentFile      = spoolDir.listFiles((dir, name) -> name.endsWith(AuditSegmentSpool.SEGMENT_FILE_SUFFIX))[0];
+
+        spool.stop();
+
+        // flip a byte in the last record, as if the process died while writing it
+        try (RandomAccessFile raf = new RandomAccessFile(segmentFile, "rw")) {
+            raf.seek(lastRecordOffset);
+
+            int value = raf.read();
+
+            raf.seek(lastRecordOffset);
+            raf.write(value ^ 0xFF);
+        }
+
+        spool = createSpool(consumer, 1000);
+
+        assertEquals(9, spool.sendNextBatch());
+        assertEquals(0, spool.sendNextBatch());
+        assertEvents(consumer.events, 9);
+        assertFalse(spool.isPending());
+    }
+
+    private AuditSegmentSpool createSpool(CollectingConsumer consumer, int batchSize) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getAbsolutePath());
+        props.setProperty(PROP_PREFIX + "." + AuditSegmentSpool.PROP_FILE_SPOOL_SEGMENT_SIZE_MB, "1");
+
+        AuditBatchQueue queue = new AuditBatchQueue(consumer);
+
+        queue.setMaxBatchSize(batchSize);
+
+        AuditSegmentSpool ret = new AuditSegmentSpool(queue, consumer);
+
+        assertTrue(ret.init(props, PROP_PREFIX));
+
+        return ret;
+    }
+
+    private void assertEvents(List<AuditEventBase> events, int count) {
+        assertEquals(count, events.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("event-" + i, ((AuthzAuditEvent) events.get(i)).getEventId());
+        }
+    }
+
+    private AuthzAuditEvent createEvent(int i) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setEventId("event-" + i);
+        ret.setUser("user1");
+        ret.setRepositoryName("dev_hdfs");
+        ret.setResourcePath("/data/sales/" + i);
+        ret.setAccessType("read");
+        ret.setAccessResult((short) 1);
+
+        return ret;
+    }
+
+    static class CollectingConsumer extends DummyAuditProvider {
+        final List<AuditEventBase> events      = new ArrayList<>();
+        boolean                    isAvailable = true;
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            if (isAvailable) {
+                this.events.addAll(events);
+            }
+
+            return isAvailable;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditSummaryAggregator.KeyField;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AuditSummaryAggregatorTest {
+
+    @Test
+    public void testGroupsLikeEventKey() {
+        AuditSummaryAggregator aggregator = new AuditSummaryAggregator(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, 0);
+        Map<String, Long>      expected   = new HashMap<>();
+
+        for (int i = 0; i < 10000; i++) {
+            AuthzAuditEvent event = createEvent("user" + (i % 7), "/data/" + (i % 13), i % 2 == 0 ? "read" : "write", 1000L + i);
+
+            aggregator.add(event);
+            expected.merge(event.getEventKey(), 1L, Long::sum);
+        }
+
+        List<AuditEventBase> summaries = aggregator.drain(System.currentTimeMillis(), false);
+
+        assertEquals(expected.size(), summaries.size());
+        assertTrue(aggregator.isEmpty());
+
+        for (AuditEventBase summary : summaries) {
+            AuthzAuditEvent event = (AuthzAuditEvent) summary;
+
+            assertEquals((long) expected.get(event.getEventKey()), event.getEventCount());
+            assertTrue(event.getEventDurationMS() > 0);
+        }
+    }
+
+    @Test
+    public void testHashCollisionKeepsKeysApart() {
+        AuditSummaryAggregator aggregator = new AuditSummaryAggregator(Arrays.asList(KeyField.USER), 0);
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        aggregator.add(createEvent("Aa", "/a", "read", 1000));
+        aggregator.add(createEvent("BB", "/a", "read", 1000));
+        aggregator.add(createEvent("Aa", "/b", "write", 3000)); // resource is not a key field
+
+        List<AuditEventBase> summaries = aggregator.drain(0, true);
+
+        assertEquals(2, summaries.size());
+        assertEquals("Aa", ((AuthzAuditEvent) summaries.get(0)).getUser());
+        assertEquals(2, ((AuthzAuditEvent) summaries.get(0)).getEventCount());
+        assertEquals(2000, ((AuthzAuditEvent) summaries.get(0)).getEventDurationMS());
+        assertEquals("BB", ((AuthzAuditEvent) summaries.get(1)).getUser());
+        assertEquals(1, ((AuthzAuditEvent) summaries.get(1)).getEventCount());
+    }
+
+    @Test
+    public void testTimeWindows() {
+        AuditSummaryAggregator aggregator = new AuditSummaryAggregator(Arrays.asList(KeyField.USER), 60000);
+
+        for (long time = 0; time < 180000; time += 1000) {
+            aggregator.add(createEvent("user1", "/a", "read", time));
+        }
+
+        assertEquals(3, aggregator.size());
+
+        // only the first window has ended
+        List<AuditEventBase> summaries = aggregator.drain(60000, false);
+
+        assertEquals(1, summaries.size());
+        assertEquals(60, ((AuthzAuditEvent) summaries.get(0)).getEventCount());
+        assertEquals(2, aggregator.size());
+
+        // the open windows keep counting
+        aggregator.add(createEvent("user1", "/a", "read", 179500));
+
+        summaries = aggregator.drain(120000, true);
+
+        assertEquals(2, summaries.size());
+        assertEquals(60, ((AuthzAuditEvent) summaries.get(0)).getEventCount());
+        assertEquals(61, ((AuthzAuditEvent) summaries.get(1)).getEventCount());
+        assertTrue(aggregator.isEmpty());
+    }
+
+    @Test
+    public void testParseKeyFields() {
+        assertEquals(Arrays.asList(KeyField.USER, KeyField.REPOSITORY_NAME, KeyField.CLIENT_IP), AuditSummaryAggregator.parseKeyFields("user, repository_name,client-ip"));
+        assertEquals(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, AuditSummaryAggregator.parseKeyFields(null));
+        assertEquals(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, AuditSummaryAggregator.parseKeyFields(" "));
+    }
+
+    private AuthzAuditEvent createEvent(String user, String resource, String accessType, long time) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setUser(user);
+        ret.setResourcePath(resource);
+        ret.setAccessType(accessType);
+        ret.setAction(accessType);
+        ret.setAccessResult((short) 1);
+        ret.setClientIP("10.0.0.1");
+        ret.setEventTime(new Date(time));
+
+        return ret;
+    }
+}
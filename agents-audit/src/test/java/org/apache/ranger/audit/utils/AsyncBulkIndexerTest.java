@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs AsyncBulkIndexer against a local HTTP server standing in for a bulk API: it takes one id per line, and answers
+ * with one HTTP status per line - 429 the first time for the ids it is told to reject once, 400 for the ids it is
+ * told to reject always.
+ */
+public class AsyncBulkIndexerTest {
+    private static final String PREFIX = "test.bulk";
+
+    private StubBulkServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubBulkServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testSingleInflightKeepsOrder() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_MAX_INFLIGHT, "1");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MAX, "500");
+
+        CollectingListener        listener = new CollectingListener();
+        AsyncBulkIndexer<Integer> indexer  = new AsyncBulkIndexer<>("test", props, PREFIX, server::send, listener);
+
+        indexer.start();
+
+        for (int i = 0; i < 5000; i += 100) {
+            assertTrue(indexer.add(range(i, 100)));
+        }
+
+        indexer.stop(10000);
+
+        assertEquals(range(0, 5000), server.getReceived());
+        assertEquals(5000, listener.successCount.get());
+        assertEquals(1, server.maxConcurrent.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsWithRetries() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_MAX_INFLIGHT, "4");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MIN, "50");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MAX, "200");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_RETRY_BACKOFF_MS, "10");
+
+        for (int i = 0; i < 20000; i += 997) {
+            server.rejectOnce.add(i);
+        }
+
+        server.rejectAlways.add(1234);
+        server.rejectAlways.add(15000);
+
+        CollectingListener        listener = new CollectingListener();
+        AsyncBulkIndexer<Integer> indexer  = new AsyncBulkIndexer<>("test", props, PREFIX, server::send, listener);
+
+        indexer.start();
+
+        for (int i = 0; i < 20000; i += 1000) {
+            assertTrue(indexer.add(range(i, 1000)));
+        }
+
+        indexer.stop(30000);
+
+        Set<Integer> accepted = new HashSet<>(server.accepted);
+
+        assertEquals(server.accepted.size(), accepted.size()); // none indexed twice
+        assertEquals(20000 - 2, accepted.size());
+        assertEquals(20000 - 2, listener.successCount.get());
+        assertEquals(new HashSet<>(server.rejectAlways), new HashSet<>(listener.failed));
+        assertTrue(listener.retryable.isEmpty());
+        assertEquals(server.rejectOnce.size(), indexer.getRetriedCount());
+        assertTrue("requests in flight: " + server.maxConcurrent.get(), server.maxConcurrent.get() > 1);
+    }
+
+    @Test
+    public void testUnavailableItemsReportedRetryable() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_RETRY_COUNT, "2");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_RETRY_BACKOFF_MS, "10");
+
+        server.unavailable.add(5);
+        server.unavailable.add(50);
+        server.rejectAlways.add(70);
+
+        CollectingListener        listener = new CollectingListener();
+        AsyncBulkIndexer<Integer> indexer  = new AsyncBulkIndexer<>("test", props, PREFIX, server::send, listener);
+
+        indexer.start();
+
+        assertTrue(indexer.add(range(0, 100)));
+
+        indexer.stop(10000);
+
+        // the caller can keep items the destination was unavailable for, to send them later
+        assertEquals(97, listener.successCount.get());
+        assertEquals(new HashSet<>(Arrays.asList(5, 50)), new HashSet<>(listener.retryable));
+        assertEquals(Collections.singletonList(70), listener.failed);
+        assertEquals(3, Collections.frequency(server.getReceived(), 5));
+    }
+
+    @Test
+    public void testFullBufferRejectsBatch() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MAX, "100");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_MAX_BUFFERED, "150");
+
+        AsyncBulkIndexer<Integer> indexer = new AsyncBulkIndexer<>("test", props, PREFIX, server::send, new CollectingListener());
+
+        // not started: nothing is sent
+        assertTrue(indexer.add(range(0, 100)));
+        assertFalse(indexer.add(range(100, 100)));
+        assertEquals(100, indexer.getBufferedCount());
+    }
+
+    @Test
+    public void testAdaptsToLatencyAndRejections() {
+        Properties props = new Properties();
+
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_MAX_INFLIGHT, "8");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MIN, "100");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_BATCH_SIZE_MAX, "1000");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_TARGET_LATENCY_MS, "500");
+        props.setProperty(PREFIX + "." + AsyncBulkIndexer.PROP_LINGER_MS_MAX, "5000");
+
+        AsyncBulkIndexer<Integer> indexer = new AsyncBulkIndexer<>("test", props, PREFIX, server::send, new CollectingListener());
+
+        assertEquals(8, indexer.getInflightLimit());
+        assertEquals(1000, indexer.getBatchSize());
+
+        // most items rejected: halve
+        indexer.adapt(1000, TimeUnit.MILLISECONDS.toNanos(100), 0.5);
+
+        assertEquals(4, indexer.getInflightLimit());
+        assertEquals(500, indexer.getBatchSize());
+
+        // slow: back off gently
+        indexer.adapt(500, TimeUnit.MILLISECONDS.toNanos(1000), 0);
+
+        assertEquals(3, indexer.getInflightLimit());
+        assertEquals(375, indexer.getBatchSize());
+
+        for (int i = 0; i < 10; i++) {
+            indexer.adapt(100, TimeUnit.MILLISECONDS.toNanos(2000), 1);
+        }
+
+        assertEquals(1, indexer.getInflightLimit());
+        assertEquals(100, indexer.getBatchSize());
+        assertTrue(indexer.getLingerMs() > 1000); // a slow destination: wait for fuller batches
+
+        // fast again: grow back, full batches first
+        for (int i = 0; i < 20; i++) {
+            indexer.adapt(indexer.getBatchSize(), TimeUnit.MILLISECONDS.toNanos(10), 0);
+        }
+
+        assertEquals(8, indexer.getInflightLimit());
+        assertEquals(1000, indexer.getBatchSize());
+    }
+
+    private static List<Integer> range(int start, int count) {
+        List<Integer> ret = new ArrayList<>(count);
+
+        for (int i = start; i < start + count; i++) {
+            ret.add(i);
+        }
+
+        return ret;
+    }
+
+    static class CollectingListener implements AsyncBulkIndexer.Listener<Integer> {
+        final AtomicInteger successCount = new AtomicInteger();
+        final List<Integer> failed       = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> retryable    = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onSuccess(int count) {
+            successCount.addAndGet(count);
+        }
+
+        @Override
+        public void onFailure(List<Integer> items, String reason, boolean isRetryable) {
+            (isRetryable ? retryable : failed).addAll(items);
+        }
+    }
+
+    static class StubBulkServer {
+        final HttpServer    httpServer;
+        final List<Integer> received      = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> accepted      = Collections.synchronizedList(new ArrayList<>());
+        final Set<Integer>  rejectOnce    = Collections.synchronizedSet(new HashSet<>());
+        final Set<Integer>  rejectAlways  = Collections.synchronizedSet(new HashSet<>());
+        final Set<Integer>  unavailable   = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger concurrent    = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        StubBulkServer() throws Exception {
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+            httpServer.createContext("/_bulk", this::handle);
+            httpServer.setExecutor(Executors.newCachedThreadPool());
+            httpServer.start();
+        }
+
+        void stop() {
+            httpServer.stop(0);
+        }
+
+        List<Integer> getReceived() {
+            synchronized (received) {
+                return new ArrayList<>(received);
+            }
+        }
+
+        AsyncBulkIndexer.BulkResult send(List<Integer> items) throws Exception {
+            URL               url  = new URL("http://127.0.0.1:" + httpServer.getAddress().getPort() + "/_bulk");
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            StringBuilder     body = new StringBuilder();
+
+            for (Integer item : items) {
+                body.append(item).append('\n');
+            }
+
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            if (conn.getResponseCode() != 200) {
+                throw new Exception("HTTP " + conn.getResponseCode());
+            }
+
+            AsyncBulkIndexer.BulkResult ret = new AsyncBulkIndexer.BulkResult(items.size());
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                for (int i = 0; i < items.size(); i++) {
+                    int status = Integer.parseInt(reader.readLine());
+
+                    if (status != 200) {
+                        ret.setFailed(i, AsyncBulkIndexer.isRetryable(status), "HTTP " + status);
+                    }
+                }
+            }
+
+            return ret;
+        }
+
+        private void handle(HttpExchange exchange) {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+
+            try {
+                List<Integer> ids = new ArrayList<>();
+
+                try (InputStream in = exchange.getRequestBody()) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[]                buf   = new byte[8192];
+
+                    for (int len = in.read(buf); len != -1; len = in.read(buf)) {
+                        bytes.write(buf, 0, len);
+                    }
+
+                    for (String line : new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                        ids.add(Integer.parseInt(line));
+                    }
+                }
+
+                received.addAll(ids);
+
+                Thread.sleep(20); // a cluster that takes a while to index
+
+                StringBuilder response = new StringBuilder();
+
+                for (Integer id : ids) {
+                    int status = 200;
+
+                    if (rejectAlways.contains(id)) {
+                        status = 400;
+                    } else if (unavailable.contains(id)) {
+                        status = 503;
+                    } else if (rejectOnce.contains(id) && Collections.frequency(getReceived(), id) == 1) {
+                        status = 429;
+                    } else {
+                        accepted.add(id);
+                    }
+
+                    response.append(status).append('\n');
+                }
+
+                byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+
+                exchange.sendResponseHeaders(200, bytes.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (Exception excp) {
+                throw new RuntimeException(excp);
+            } finally {
+                concurrent.decrementAndGet();
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuditEventCodecTest {
+
+    @Test
+    public void testJsonMatchesMapper() throws Exception {
+        AuthzAuditEvent event = createEvent();
+        StringWriter    out   = new StringWriter();
+
+        AuditEventCodec.writeJson(event, out);
+
+        assertEquals(MiscUtil.stringify(event), out.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        AuditEventCodec.writeJson(event, bytes);
+
+        assertEquals(MiscUtil.stringify(event), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testJsonWithNullFields() throws Exception {
+        AuthzAuditEvent event = new AuthzAuditEvent();
+        StringWriter    out   = new StringWriter();
+
+        AuditEventCodec.writeJson(event, out);
+
+        assertEquals(MiscUtil.stringify(event), out.toString());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        AuthzAuditEvent       event1 = createEvent();
+        AuthzAuditEvent       event2 = new AuthzAuditEvent();
+        ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+        DataOutputStream      out    = new DataOutputStream(bytes);
+
+        event2.setPolicyId(-1);
+
+        AuditEventCodec.writeBinaryHeader(out);
+        AuditEventCodec.writeBinary(event1, out);
+        AuditEventCodec.writeBinary(event2, out);
+        out.flush();
+
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertTrue(AuditEventCodec.isBinary(in));
+
+        DataInputStream dataIn = new DataInputStream(in);
+
+        assertEquals(MiscUtil.stringify(event1), MiscUtil.stringify(AuditEventCodec.readBinary(dataIn)));
+        assertEquals(MiscUtil.stringify(event2), MiscUtil.stringify(AuditEventCodec.readBinary(dataIn)));
+        assertNull(AuditEventCodec.readBinary(dataIn));
+    }
+
+    @Test
+    public void testSampleRate() throws Exception {
+        AuthzAuditEvent       event = createEvent();
+        StringWriter          json  = new StringWriter();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        event.setSampleRate(0.125);
+
+        AuditEventCodec.writeJson(event, json);
+        AuditEventCodec.writeBinary(event, new DataOutputStream(bytes));
+
+        assertEquals(MiscUtil.stringify(event), json.toString());
+        assertTrue(json.toString().endsWith(",\"sample_rate\":0.125}"));
+
+        AuthzAuditEvent decoded = AuditEventCodec.readBinary(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(Double.valueOf(0.125), decoded.getSampleRate());
+        assertEquals(MiscUtil.stringify(event), MiscUtil.stringify(decoded));
+    }
+
+    @Test
+    public void testJsonFileIsNotBinary() throws Exception {
+        byte[]              json = MiscUtil.stringify(createEvent()).getBytes(StandardCharsets.UTF_8);
+        BufferedInputStream in   = new BufferedInputStream(new ByteArrayInputStream(json));
+
+        assertFalse(AuditEventCodec.isBinary(in));
+        assertEquals('{', in.read()); // stream is reset to the start
+    }
+
+    private AuthzAuditEvent createEvent() {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setRepositoryType(1);
+        ret.setRepositoryName("dev_hdfs");
+        ret.setUser("user1");
+        ret.setEventTime(new Date());
+        ret.setAccessType("read");
+        ret.setResourcePath("/data/sales/été/中文");
+        ret.setResourceType("path");
+        ret.setAction("read");
+        ret.setAccessResult((short) 1);
+        ret.setAgentId("hdfs");
+        ret.setPolicyId(42);
+        ret.setResultReason("\"quoted\"\tand\ttabbed");
+        ret.setAclEnforcer("ranger-acl");
+        ret.setClientIP("10.0.0.1");
+        ret.setAgentHostname("host1");
+        ret.setLogType("RangerAudit");
+        ret.setEventId("2c1e4b5d-0001");
+        ret.setSeqNum(7);
+        ret.setEventCount(1);
+        ret.setTags(new HashSet<>(Arrays.asList("PII")));
+        ret.setClusterName("cl1");
+        ret.setPolicyVersion(3L);
+
+        return ret;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AuditEventColumnTest {
+
+    @Test
+    public void testColumnsFollowSchemaFields() {
+        List<AuditEventColumn> columns = AuditEventColumn.getColumns();
+
+        assertEquals("repositoryType", columns.get(0).getName());
+        assertEquals(AuditEventColumn.Type.INT, columns.get(0).getType());
+        assertEquals(AuditEventColumn.Type.DATE, AuditEventColumn.getColumn(columns, "eventTime").getType());
+        assertEquals(AuditEventColumn.Type.SHORT, AuditEventColumn.getColumn(columns, "accessResult").getType());
+        assertEquals(AuditEventColumn.Type.LONG, AuditEventColumn.getColumn(columns, "policyId").getType());
+        assertNull(AuditEventColumn.getColumn(columns, "tags")); // Set<String> is not a supported type
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        List<AuditEventColumn> columns = AuditEventColumn.getColumns();
+        AuthzAuditEvent        event   = new AuthzAuditEvent();
+        Date                   time    = new SimpleDateFormat(AuditEventColumn.DATE_FORMAT).parse("2024-03-01 10:20:30");
+
+        event.setUser("j\u00fcrgen");
+        event.setAccessResult((short) 1);
+        event.setPolicyId(42);
+        event.setEventTime(time);
+
+        assertArrayEquals("j\u00fcrgen".getBytes(StandardCharsets.UTF_8), AuditEventColumn.getColumn(columns, "user").getUtf8(event));
+        assertArrayEquals("1".getBytes(StandardCharsets.UTF_8), AuditEventColumn.getColumn(columns, "accessResult").getUtf8(event));
+        assertEquals(42, AuditEventColumn.getColumn(columns, "policyId").getLong(event));
+        assertEquals(time.getTime(), AuditEventColumn.getColumn(columns, "eventTime").getLong(event));
+        assertArrayEquals("2024-03-01 10:20:30".getBytes(StandardCharsets.UTF_8), AuditEventColumn.getColumn(columns, "eventTime").getUtf8(event));
+
+        AuditEventColumn clientIP = AuditEventColumn.getColumn(columns, "clientIP");
+
+        assertTrue(clientIP.isNull(event));
+        assertNull(clientIP.getUtf8(event));
+        assertEquals(0, clientIP.getUtf8OrEmpty(event).length);
+        assertFalse(AuditEventColumn.getColumn(columns, "policyId").isNull(event));
+    }
+
+    @Test
+    public void testRepeatedValuesShareBytes() {
+        AuditEventColumn user   = AuditEventColumn.getColumn(AuditEventColumn.getColumns(), "user");
+        AuthzAuditEvent  event1 = new AuthzAuditEvent();
+        AuthzAuditEvent  event2 = new AuthzAuditEvent();
+
+        event1.setUser(new String("admin"));
+        event2.setUser(new String("admin"));
+
+        byte[] bytes = user.getUtf8(event1);
+
+        assertNotNull(bytes);
+        assertSame(bytes, user.getUtf8(event2));
+
+        // the cache starts over once full, without changing the values
+        for (int i = 0; i < AuditEventColumn.MAX_CACHED_VALUES; i++) {
+            event1.setUser("user" + i);
+            user.getUtf8(event1);
+        }
+
+        assertArrayEquals(bytes, user.getUtf8(event2));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RangerParquetAuditWriterTest {
+
+    @Test
+    public void checkFileKeptOpenUntilRollover() throws Exception {
+        Properties          props        = new Properties();
+        Map<String, String> auditConfigs = new HashMap<>();
+
+        props.setProperty("test.dir", Files.createTempDirectory("parquet-audit").toString());
+        auditConfigs.put(FileSystem.FS_DEFAULT_NAME_KEY, FileSystem.DEFAULT_FS);
+
+        RangerParquetAuditWriter parquetAuditWriter = new RangerParquetAuditWriter();
+
+        parquetAuditWriter.init(props, "test", "localfs", auditConfigs);
+
+        assertTrue(parquetAuditWriter.logEvents(createEvents(0, 10)));
+
+        Path firstPath = parquetAuditWriter.auditPath;
+
+        assertNotNull(parquetAuditWriter.parquetLogWriter);
+
+        // the next batch goes to the same file
+        assertTrue(parquetAuditWriter.logEvents(createEvents(10, 10)));
+        assertSame(firstPath, parquetAuditWriter.auditPath);
+
+        // after the rollover time, the file is closed and the next batch goes to a new file
+        parquetAuditWriter.nextRollOverTime = new Date(System.currentTimeMillis() - 1);
+
+        assertTrue(parquetAuditWriter.logEvents(createEvents(20, 10)));
+        assertNotEquals(firstPath, parquetAuditWriter.auditPath);
+        assertTrue(parquetAuditWriter.nextRollOverTime.getTime() > System.currentTimeMillis());
+        assertTrue(parquetAuditWriter.fileSystem.getFileStatus(firstPath).getLen() > 0);
+
+        Path secondPath = parquetAuditWriter.auditPath;
+
+        parquetAuditWriter.stop();
+
+        assertNull(parquetAuditWriter.parquetLogWriter);
+        assertTrue(parquetAuditWriter.fileSystem.getFileStatus(secondPath).getLen() > 0);
+        assertEquals(2, parquetAuditWriter.fileSystem.listStatus(firstPath.getParent(), path -> path.getName().endsWith(RangerParquetAuditWriter.PARQUET_FILE_EXTENSION)).length);
+
+        parquetAuditWriter.fileSystem.deleteOnExit(firstPath);
+        parquetAuditWriter.fileSystem.deleteOnExit(secondPath);
+    }
+
+    private static List<AuthzAuditEvent> createEvents(int start, int count) {
+        List<AuthzAuditEvent> ret = new ArrayList<>();
+
+        for (int i = start; i < start + count; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+            event.setUser("user" + (i % 3));
+            event.setEventTime(new Date());
+
+            ret.add(event);
+        }
+
+        return ret;
+    }
+}
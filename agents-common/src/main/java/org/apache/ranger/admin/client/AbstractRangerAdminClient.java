@@ -56,6 +56,11 @@ public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long l
         return null;
     }
 
+    @Override
+    public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis, long waitTimeMs) throws Exception {
+        return getServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis); // clients without long-poll support don't wait
+    }
+
     @Override
     public RangerRoles getRolesIfUpdated(long lastKnownRoleVersion, long lastActivationTimeInMillis) throws Exception {
         return null;
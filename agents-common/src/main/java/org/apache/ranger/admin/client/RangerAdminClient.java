@@ -39,6 +39,12 @@ public interface RangerAdminClient {
 
 	ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis) throws Exception;
 
+	/*
+	 * Long-poll: like getServicePoliciesIfUpdated(), but Ranger Admin holds the request for up to waitTimeMs for the
+	 * policies to change from lastKnownVersion
+	 */
+	ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis, long waitTimeMs) throws Exception;
+
 	RangerRoles getRolesIfUpdated(long lastKnownRoleVersion, long lastActivationTimeInMills) throws Exception;
 
 	RangerRole createRole(RangerRole request) throws Exception;
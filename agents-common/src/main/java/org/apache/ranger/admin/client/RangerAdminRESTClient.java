@@ -49,6 +49,8 @@ public class RangerAdminRESTClient extends AbstractRangerAdminClient {
 
 	private static final TypeReference<List<String>> TYPE_LIST_STRING = new TypeReference<List<String>>() {};
 
+	private static final int LONG_POLL_READ_TIMEOUT_MARGIN_MS = 5 * 1000; // long-poll requests return before the read times out
+
 	private String           serviceName;
     private String           serviceNameUrlParam;
 	private String           pluginId;
@@ -66,6 +68,8 @@ public class RangerAdminRESTClient extends AbstractRangerAdminClient {
 	private Cookie			 roleDownloadSessionId              = null;
 	private boolean			 isValidRoleDownloadSessionCookie   = false;
 	private final String	 pluginCapabilities      = Long.toHexString(new RangerPluginCapability().getPluginCapabilities());
+	private int              readTimeOutMs;
+	private volatile boolean isPolicyLongPollSupported          = true;
 
 	@Override
 	public void init(String serviceName, String appId, String propertyPrefix, Configuration config) {
@@ -105,6 +109,10 @@ public void init(String serviceName, String appId, String propertyPrefix, Config
 
 		init(url, sslConfigFileName, restClientConnTimeOutMs , restClientReadTimeOutMs, restClientMaxRetryAttempts, restClientRetryIntervalMs, config);
 
+		readTimeOutMs = restClientReadTimeOutMs;
+
+		restClient.setGzipEnabled(config.getBoolean(propertyPrefix + ".policy.rest.client.gzip.enabled", true));
+
         try {
             this.serviceNameUrlParam = URLEncoderUtil.encodeURIParam(serviceName);
         } catch (UnsupportedEncodingException e) {
@@ -122,9 +130,9 @@ public ServicePolicies getServicePoliciesIfUpdated(final long lastKnownVersion,
 		final ServicePolicies ret;
 
 		if (isRangerCookieEnabled && policyDownloadSessionId != null && isValidPolicyDownloadSessionCookie) {
-			ret = getServicePoliciesIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis);
+			ret = getServicePoliciesIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis, 0);
 		} else {
-			ret = getServicePoliciesIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis);
+			ret = getServicePoliciesIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis, 0);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -134,6 +142,28 @@ public ServicePolicies getServicePoliciesIfUpdated(final long lastKnownVersion,
 		return ret;
 	}
 
+	@Override
+	public ServicePolicies getServicePoliciesIfUpdated(final long lastKnownVersion, final long lastActivationTimeInMillis, final long waitTimeMs) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ", " + waitTimeMs + ")");
+		}
+
+		final ServicePolicies ret;
+		final long            maxWaitTimeMs = isPolicyLongPollSupported ? Math.min(waitTimeMs, readTimeOutMs - LONG_POLL_READ_TIMEOUT_MARGIN_MS) : 0;
+
+		if (isRangerCookieEnabled && policyDownloadSessionId != null && isValidPolicyDownloadSessionCookie) {
+			ret = getServicePoliciesIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis, Math.max(maxWaitTimeMs, 0));
+		} else {
+			ret = getServicePoliciesIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis, Math.max(maxWaitTimeMs, 0));
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ", " + waitTimeMs + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public RangerRoles getRolesIfUpdated(final long lastKnownRoleVersion, final long lastActivationTimeInMillis) throws Exception {
 		if (LOG.isDebugEnabled()) {
@@ -856,7 +886,7 @@ public ServiceGdsInfo getGdsInfoIfUpdated(long lastKnownVersion, long lastActiva
 	}
 
 	/* Policies Download ranger admin rest call methods */
-	private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
+	private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnownVersion, final long lastActivationTimeInMillis, final long waitTimeMs) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdatedWithCred(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ")");
 		}
@@ -865,7 +895,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnown
 
 		final UserGroupInformation user         = MiscUtil.getUGILoginUser();
 		final boolean              isSecureMode = isKerberosEnabled(user);
-		final ClientResponse       response     = getRangerAdminPolicyDownloadResponse(lastKnownVersion, lastActivationTimeInMillis, user, isSecureMode);
+		final ClientResponse       response     = getRangerAdminPolicyDownloadResponse(lastKnownVersion, lastActivationTimeInMillis, waitTimeMs, user, isSecureMode);
 
 		if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED || response.getStatus() == HttpServletResponse.SC_NO_CONTENT) {
 			if (response == null) {
@@ -892,6 +922,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnown
 			String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
 			RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
 			LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
+			disablePolicyLongPoll(waitTimeMs);
 		} else {
 			policyDownloadSessionId = null;
 			ret       = null;
@@ -906,7 +937,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnown
 		return ret;
 	}
 
-	private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
+	private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKnownVersion, final long lastActivationTimeInMillis, final long waitTimeMs) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdatedWithCookie(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ")");
 		}
@@ -915,7 +946,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKno
 
 		final UserGroupInformation user         = MiscUtil.getUGILoginUser();
 		final boolean              isSecureMode = isKerberosEnabled(user);
-		final ClientResponse       response     = getRangerAdminPolicyDownloadResponse(lastKnownVersion, lastActivationTimeInMillis, user, isSecureMode);
+		final ClientResponse       response     = getRangerAdminPolicyDownloadResponse(lastKnownVersion, lastActivationTimeInMillis, waitTimeMs, user, isSecureMode);
 
 		if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED || response.getStatus() == HttpServletResponse.SC_NO_CONTENT) {
 			if (response == null) {
@@ -944,6 +975,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKno
 			String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
 			RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
 			LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
+			disablePolicyLongPoll(waitTimeMs);
 		} else {
 			policyDownloadSessionId = null;
 			isValidPolicyDownloadSessionCookie = false;
@@ -959,7 +991,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKno
 		return ret;
 	}
 
-	private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnownVersion, final long lastActivationTimeInMillis, final UserGroupInformation user, final boolean isSecureMode) throws Exception {
+	private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnownVersion, final long lastActivationTimeInMillis, final long waitTimeMs, final UserGroupInformation user, final boolean isSecureMode) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerAdminRESTClient.getRangerAdminPolicyDownloadResponse(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ")");
 		}
@@ -974,13 +1006,17 @@ private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnown
 		queryParams.put(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
 		queryParams.put(RangerRESTUtils.REST_PARAM_CAPABILITIES, pluginCapabilities);
 
+		if (waitTimeMs > 0) {
+			queryParams.put(RangerRESTUtils.REST_PARAM_WAIT_TIME_MS, Long.toString(waitTimeMs));
+		}
+
 		if (isSecureMode) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Checking Service policy if updated as user : " + user);
 			}
 			ret = MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<ClientResponse>) () -> {
 				try {
-					String relativeURL = RangerRESTUtils.REST_URL_POLICY_GET_FOR_SECURE_SERVICE_IF_UPDATED + serviceNameUrlParam;
+					String relativeURL = (waitTimeMs > 0 ? RangerRESTUtils.REST_URL_POLICY_WAIT_FOR_SECURE_SERVICE_IF_UPDATED : RangerRESTUtils.REST_URL_POLICY_GET_FOR_SECURE_SERVICE_IF_UPDATED) + serviceNameUrlParam;
 
 					return restClient.get(relativeURL, queryParams, policyDownloadSessionId);
 				} catch (Exception e) {
@@ -993,7 +1029,7 @@ private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnown
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Checking Service policy if updated with old api call");
 			}
-			String relativeURL = RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED + serviceNameUrlParam;
+			String relativeURL = (waitTimeMs > 0 ? RangerRESTUtils.REST_URL_POLICY_WAIT_FOR_SERVICE_IF_UPDATED : RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED) + serviceNameUrlParam;
 			ret = restClient.get(relativeURL, queryParams, policyDownloadSessionId);
 		}
 
@@ -1004,6 +1040,15 @@ private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnown
 		return ret;
 	}
 
+	// Ranger Admin versions without the long-poll API return 404; use regular downloads with such servers
+	private void disablePolicyLongPoll(long waitTimeMs) {
+		if (waitTimeMs > 0 && isPolicyLongPollSupported) {
+			LOG.warn("Ranger Admin doesn't support long-poll of policies. Will poll every pollIntervalMs. serviceName=" + serviceName);
+
+			isPolicyLongPollSupported = false;
+		}
+	}
+
 	private void checkAndResetSessionCookie(ClientResponse response) {
 		List<NewCookie> respCookieList = response.getCookies();
 		for (NewCookie respCookie : respCookieList) {
@@ -22,11 +22,13 @@
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventPool;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
@@ -47,6 +49,8 @@ public class RangerDefaultAuditHandler implements RangerAccessResultProcessor {
 
 	private static final String       CONF_AUDIT_ID_STRICT_UUID     = "xasecure.audit.auditid.strict.uuid";
 	private static final boolean      DEFAULT_AUDIT_ID_STRICT_UUID  = false;
+	private static final String       CONF_AUDIT_EVENT_POOL_SIZE    = "xasecure.audit.event.pool.size";
+	private static final int          DEFAULT_AUDIT_EVENT_POOL_SIZE = 1024;
 
 
 	private   final boolean         auditIdStrictUUID;
@@ -56,16 +60,34 @@ public class RangerDefaultAuditHandler implements RangerAccessResultProcessor {
 	private         String          UUID           = MiscUtil.generateUniqueId();
 	private         AtomicInteger   counter        =  new AtomicInteger(0);
 
+	// strict UUIDs: random bits drawn once, with a counter in the node bits, instead of hashing random bytes per event
+	private   final long                strictUuidMsb;
+	private   final long                strictUuidLsb;
+	private   final AtomicLong          strictUuidCounter = new AtomicLong(0);
+
+	// events logged by processResult(), which doesn't hold on to them; null if disabled
+	private   final AuthzAuditEventPool eventPool;
+
 
 
 	public RangerDefaultAuditHandler() {
-		auditIdStrictUUID = DEFAULT_AUDIT_ID_STRICT_UUID;
-		moduleName        = RangerHadoopConstants.DEFAULT_RANGER_MODULE_ACL_NAME;
+		this(DEFAULT_AUDIT_ID_STRICT_UUID, RangerHadoopConstants.DEFAULT_RANGER_MODULE_ACL_NAME, DEFAULT_AUDIT_EVENT_POOL_SIZE);
 	}
 
 	public RangerDefaultAuditHandler(Configuration config) {
-		auditIdStrictUUID = config.getBoolean(CONF_AUDIT_ID_STRICT_UUID, DEFAULT_AUDIT_ID_STRICT_UUID);
-		moduleName        = config.get(RangerHadoopConstants.AUDITLOG_RANGER_MODULE_ACL_NAME_PROP , RangerHadoopConstants.DEFAULT_RANGER_MODULE_ACL_NAME);
+		this(config.getBoolean(CONF_AUDIT_ID_STRICT_UUID, DEFAULT_AUDIT_ID_STRICT_UUID),
+		     config.get(RangerHadoopConstants.AUDITLOG_RANGER_MODULE_ACL_NAME_PROP , RangerHadoopConstants.DEFAULT_RANGER_MODULE_ACL_NAME),
+		     config.getInt(CONF_AUDIT_EVENT_POOL_SIZE, DEFAULT_AUDIT_EVENT_POOL_SIZE));
+	}
+
+	private RangerDefaultAuditHandler(boolean auditIdStrictUUID, String moduleName, int eventPoolSize) {
+		java.util.UUID uuid = java.util.UUID.randomUUID();
+
+		this.auditIdStrictUUID = auditIdStrictUUID;
+		this.moduleName        = moduleName;
+		this.strictUuidMsb     = uuid.getMostSignificantBits();
+		this.strictUuidLsb     = uuid.getLeastSignificantBits() & ~0xFFFFFFFFFFFFL;
+		this.eventPool         = eventPoolSize > 0 && isEventPoolSafe(getClass()) ? new AuthzAuditEventPool(eventPoolSize) : null;
 	}
 
 	@Override
@@ -74,7 +96,7 @@ public void processResult(RangerAccessResult result) {
 			LOG.debug("==> RangerDefaultAuditHandler.processResult(" + result + ")");
 		}
 
-		AuthzAuditEvent event = getAuthzEvents(result);
+		AuthzAuditEvent event = getAuthzEvent(result, eventPool);
 
 		logAuthzAudit(event);
 
@@ -102,6 +124,13 @@ public void processResults(Collection<RangerAccessResult> results) {
 
 
 	public AuthzAuditEvent getAuthzEvents(RangerAccessResult result) {
+		return getAuthzEvent(result, null);
+	}
+
+	/**
+	 * @param pool if not null, the event is taken from the pool - for callers that don't hold on to the event once logged
+	 */
+	private AuthzAuditEvent getAuthzEvent(RangerAccessResult result, AuthzAuditEventPool pool) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultAuditHandler.getAuthzEvents(" + result + ")");
 		}
@@ -116,14 +145,18 @@ public AuthzAuditEvent getAuthzEvents(RangerAccessResult result) {
 			String               resourceType = resource == null ? null : resource.getLeafName();
 			String               resourcePath = resource == null ? null : resource.getAsString();
 
-			ret = createAuthzAuditEvent();
+			ret = pool != null ? pool.acquire() : createAuthzAuditEvent();
 
 			ret.setRepositoryName(result.getServiceName());
 			ret.setRepositoryType(result.getServiceType());
 			ret.setResourceType(resourceType);
 			ret.setResourcePath(resourcePath);
 			ret.setRequestData(request.getRequestData());
-			ret.setEventTime(request.getAccessTime() != null ? request.getAccessTime() : new Date());
+			if (pool != null) { // reuse the Date of the pooled event
+				ret.setEventTimeMillis(request.getAccessTime() != null ? request.getAccessTime().getTime() : System.currentTimeMillis());
+			} else {
+				ret.setEventTime(request.getAccessTime() != null ? request.getAccessTime() : new Date());
+			}
 			ret.setUser(request.getUser());
 			ret.setAction(request.getAccessType());
 			ret.setAccessResult((short) (result.getIsAllowed() ? 1 : 0));
@@ -201,11 +234,14 @@ public void logAuthzAudit(AuthzAuditEvent auditEvent) {
 			AuditHandler auditProvider = RangerBasePlugin.getAuditProvider(auditEvent.getRepositoryName());
 			if (auditProvider == null || !auditProvider.log(auditEvent)) {
 				MiscUtil.logErrorMessageByInterval(LOG, "fail to log audit event " + auditEvent);
+
+				auditEvent.recycle();
 			}
+			// else the event now belongs to the audit provider, which may have recycled it already
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerDefaultAuditHandler.logAuthzAudit(" + auditEvent + ")");
+			LOG.debug("<== RangerDefaultAuditHandler.logAuthzAudit()");
 		}
 	}
 
@@ -292,11 +328,33 @@ public 	String getAdditionalInfo(RangerAccessRequest request) {
 
 	}
 
+	public AuthzAuditEventPool getEventPool() {
+		return eventPool;
+	}
+
+	/**
+	 * Events are taken from the pool only when processResult() logs them with the methods below: a subclass that
+	 * overrides any of these may hold on to the events, or create events of its own type.
+	 */
+	private static boolean isEventPoolSafe(Class<?> handlerClass) {
+		try {
+			return handlerClass.getMethod("processResult", RangerAccessResult.class).getDeclaringClass() == RangerDefaultAuditHandler.class
+					&& handlerClass.getMethod("getAuthzEvents", RangerAccessResult.class).getDeclaringClass() == RangerDefaultAuditHandler.class
+					&& handlerClass.getMethod("logAuthzAudit", AuthzAuditEvent.class).getDeclaringClass() == RangerDefaultAuditHandler.class
+					&& handlerClass.getMethod("createAuthzAuditEvent").getDeclaringClass() == RangerDefaultAuditHandler.class;
+		} catch (NoSuchMethodException excp) {
+			return false;
+		}
+	}
+
 	private String generateNextAuditEventId() {
 		final String ret;
 
 		if (auditIdStrictUUID) {
-			ret = MiscUtil.generateGuid();
+			long nextId = strictUuidCounter.getAndIncrement();
+
+			// the counter takes the 48 node bits; beyond, its high bits are folded into random bits of the msb
+			ret = new java.util.UUID(strictUuidMsb ^ (nextId >>> 48), strictUuidLsb | (nextId & 0xFFFFFFFFFFFFL)).toString();
 		} else {
 			int nextId = counter.getAndIncrement();
 
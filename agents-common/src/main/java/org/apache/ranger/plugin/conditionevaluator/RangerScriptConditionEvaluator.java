@@ -24,13 +24,17 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptParser;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import javax.script.ScriptException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_JSON_CTX;
 
@@ -38,8 +42,9 @@
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
-	private Boolean      enableJsonCtx = null;
+	private          ScriptEngine   scriptEngine;
+	private          Boolean        enableJsonCtx  = null;
+	private volatile PreparedScript preparedScript = null;
 
 	@Override
 	public void init() {
@@ -94,22 +99,45 @@ public boolean isMatched(RangerAccessRequest request) {
 		boolean result = true;
 
 		if (scriptEngine != null) {
-			String script = getScript();
+			PreparedScript script = getPreparedScript();
 
-			if (StringUtils.isNotBlank(script)) {
+			if (script != null) {
 				if (LOG.isDebugEnabled()) {
-					LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={" + script + "}");
+					LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={" + script.script + "}");
 				}
 
-				if (enableJsonCtx == null) { // if not specified in evaluatorOptions, set it on first call to isMatched()
-					enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+				boolean isEvaluated = false;
+
+				if (script.predicate != null) {
+					try {
+						result      = script.predicate.test(new RangerRequestScriptEvaluator(request));
+						isEvaluated = true;
+					} catch (RangerRequestScriptParser.ScriptEngineRequiredException excp) {
+						LOG.debug("RangerScriptConditionEvaluator.isMatched(): parsed script can't be evaluated for this request; using script engine");
+					} catch (Throwable t) {
+						LOG.error("RangerScriptConditionEvaluator.isMatched(): failed to evaluate script", t);
+
+						result      = false;
+						isEvaluated = true;
+					}
 				}
 
-				RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+				if (!isEvaluated) {
+					if (script.compiledScript != null) {
+						// new bindings for each request: globals set by the script for one request must not be seen by the next one
+						RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, script.enableJsonCtx, scriptEngine.createBindings());
 
-				evaluator.evaluateConditionScript(script);
+						evaluator.evaluateConditionScript(script.compiledScript);
 
-				result = evaluator.getResult();
+						result = evaluator.getResult();
+					} else {
+						RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, script.enableJsonCtx);
+
+						evaluator.evaluateConditionScript(script.script);
+
+						result = evaluator.getResult();
+					}
+				}
 			} else {
 				String conditionType = condition != null ? condition.getType() : null;
 
@@ -129,6 +157,23 @@ public boolean isMatched(RangerAccessRequest request) {
 
 	}
 
+	// the script is prepared on first use, since subclasses set it up after init() of this class
+	private PreparedScript getPreparedScript() {
+		PreparedScript ret = preparedScript;
+
+		if (ret == null) {
+			String script = getScript();
+
+			if (StringUtils.isNotBlank(script)) {
+				ret = new PreparedScript(script);
+
+				preparedScript = ret;
+			}
+		}
+
+		return ret;
+	}
+
 	protected String getScript() {
 		String       ret    = null;
 		List<String> values = condition.getValues();
@@ -143,4 +188,34 @@ protected String getScript() {
 
 		return ret;
 	}
+
+	private class PreparedScript {
+		final String                                  script;
+		final boolean                                 enableJsonCtx;
+		final Predicate<RangerRequestScriptEvaluator> predicate;
+		final CompiledScript                          compiledScript;
+
+		PreparedScript(String script) {
+			Boolean                                 optEnableJsonCtx = RangerScriptConditionEvaluator.this.enableJsonCtx;
+			Predicate<RangerRequestScriptEvaluator> predicate        = RangerRequestScriptParser.parseCondition(script);
+			CompiledScript                          compiledScript   = null;
+
+			this.script        = script;
+			this.enableJsonCtx = optEnableJsonCtx != null ? optEnableJsonCtx : RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+
+			// compiled even when parsed, for requests the parsed script can't be evaluated for
+			try {
+				compiledScript = RangerRequestScriptEvaluator.compileConditionScript(scriptEngine, script, this.enableJsonCtx);
+			} catch (ScriptException excp) {
+				LOG.error("RangerScriptConditionEvaluator: failed to compile script {" + script + "}", excp);
+			}
+
+			this.predicate      = predicate;
+			this.compiledScript = compiledScript;
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerScriptConditionEvaluator: script={" + script + "}, enableJsonCtx=" + this.enableJsonCtx + ", isParsed=" + (predicate != null) + ", isCompiled=" + (compiledScript != null));
+			}
+		}
+	}
 }
@@ -23,7 +23,6 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceResource;
@@ -44,17 +43,15 @@
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
 import org.apache.ranger.plugin.util.ServiceTags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -136,7 +133,8 @@ public void init() {
 				cacheFilename = cacheFilename.replace(File.separatorChar,  '_');
 				cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
-				String cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+				String cacheFile   = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+				String cacheFormat = getConfig(propertyPrefix + RangerSnapshotUtil.CACHE_FORMAT_CONFIG_NAME, RangerSnapshotUtil.CACHE_FORMAT_JSON);
 
 				createLock();
 
@@ -147,7 +145,7 @@ public void init() {
 				tagRetriever.setPluginContext(getPluginContext());
 				tagRetriever.init(enricherDef.getEnricherOptions());
 
-				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, tagDownloadQueue, cacheFile);
+				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, tagDownloadQueue, cacheFile, cacheFormat);
 				LOG.info("Created RangerTagRefresher Thread(" + tagRefresher.getName() + ")");
 
 				try {
@@ -774,7 +772,9 @@ private Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessReque
 				perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_OP_LOG, "RangerTagEnricher.getEvaluators(resource=" + resource.getAsString() + ")");
 			}
 
-			ret = RangerResourceEvaluatorsRetriever.getEvaluators(serviceResourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
+			RangerResourceLookupCache lookupCache = RangerAccessRequestUtil.getResourceLookupCacheFromContext(request.getContext());
+
+			ret = RangerResourceEvaluatorsRetriever.getEvaluators(serviceResourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes(), lookupCache, lookupCache != null ? resource.getLeafName() : null);
 
 			RangerPerfTracer.logAlways(perf);
 		}
@@ -884,14 +884,16 @@ static class RangerTagRefresher extends Thread {
 		private long lastActivationTimeInMillis;
 
 		private final String cacheFile;
+		private final String cacheFormat;
 		private boolean      hasProvidedTagsToReceiver;
 
-		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, BlockingQueue<DownloadTrigger> tagDownloadQueue, String cacheFile) {
+		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, BlockingQueue<DownloadTrigger> tagDownloadQueue, String cacheFile, String cacheFormat) {
 			this.tagRetriever = tagRetriever;
 			this.tagEnricher = tagEnricher;
 			this.lastKnownVersion = lastKnownVersion;
 			this.tagDownloadQueue = tagDownloadQueue;
 			this.cacheFile = cacheFile;
+			this.cacheFormat = cacheFormat;
 			setName("RangerTagRefresher(serviceName=" + tagRetriever.getServiceName() + ")-" + getId());
 		}
 
@@ -1046,15 +1048,11 @@ final ServiceTags loadFromCache() {
 				LOG.debug("==> RangerTagRetriever(serviceName=" + tagEnricher.getServiceName() + ").loadFromCache()");
 			}
 
-			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : RangerSnapshotUtil.findCacheFile(new File(this.cacheFile));
 
 			if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-				Reader reader = null;
-
 				try {
-					reader = new FileReader(cacheFile);
-
-						serviceTags = JsonUtils.jsonToObject(reader, ServiceTags.class);
+					serviceTags = RangerSnapshotUtil.readCacheFile(cacheFile, ServiceTags.class);
 
 					if (serviceTags != null && !StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
 						LOG.warn("ignoring unexpected serviceName '" + serviceTags.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
@@ -1063,14 +1061,6 @@ final ServiceTags loadFromCache() {
 					}
 				} catch (Exception excp) {
 					LOG.error("failed to load service-tags from cache file " + cacheFile.getAbsolutePath(), excp);
-				} finally {
-					if (reader != null) {
-						try {
-							reader.close();
-						} catch (Exception excp) {
-							LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
-						}
-					}
 				}
 			} else {
 				LOG.warn("cache file does not exist or not readable '" + (cacheFile == null ? null : cacheFile.getAbsolutePath()) + "'");
@@ -1092,22 +1082,10 @@ final void saveToCache(ServiceTags serviceTags) {
 				File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
 				if (cacheFile != null) {
-					Writer writer = null;
-
 					try {
-						writer = new FileWriter(cacheFile);
-
-						JsonUtils.objectToWriter(writer, serviceTags);
+						RangerSnapshotUtil.saveCacheFile(cacheFile, serviceTags, cacheFormat);
 					} catch (Exception excp) {
 						LOG.error("failed to save service-tags to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-					} finally {
-						if (writer != null) {
-							try {
-								writer.close();
-							} catch (Exception excp) {
-								LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-							}
-						}
 					}
 				}
 			} else {
@@ -1124,7 +1102,7 @@ final void disableCache() {
 				LOG.debug("==> RangerTagRetriever.disableCache(serviceName=" + tagEnricher.getServiceName() + ")");
 			}
 
-			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : RangerSnapshotUtil.findCacheFile(new File(this.cacheFile));
 			if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 				LOG.warn("Cleaning up local tags cache");
 				String renamedCacheFile = cacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
@@ -27,6 +27,7 @@
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.File;
@@ -89,7 +90,8 @@ public void init() {
                 cacheFilename = cacheFilename.replace(File.separatorChar,  '_');
                 cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
-                String cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+                String cacheFile   = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+                String cacheFormat = getConfig(propertyPrefix + RangerSnapshotUtil.CACHE_FORMAT_CONFIG_NAME, RangerSnapshotUtil.CACHE_FORMAT_JSON);
 
                 userStoreRetriever.setServiceName(serviceName);
                 userStoreRetriever.setServiceDef(serviceDef);
@@ -98,7 +100,7 @@ public void init() {
                 userStoreRetriever.setPluginContext(getPluginContext());
                 userStoreRetriever.init(enricherDef.getEnricherOptions());
 
-                userStoreRefresher = new RangerUserStoreRefresher(userStoreRetriever, this, null, -1L, userStoreDownloadQueue, cacheFile);
+                userStoreRefresher = new RangerUserStoreRefresher(userStoreRetriever, this, null, -1L, userStoreDownloadQueue, cacheFile, cacheFormat);
                 LOG.info("Created Thread(RangerUserStoreRefresher(" + getName() + ")");
 
                 try {
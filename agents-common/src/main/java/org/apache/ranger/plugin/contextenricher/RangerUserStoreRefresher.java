@@ -23,7 +23,6 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.ranger.admin.client.datatype.RESTResponse;
 import org.apache.ranger.audit.provider.MiscUtil;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
@@ -31,15 +30,12 @@
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.Reader;
-import java.io.Writer;
-import java.io.FileWriter;
-import java.io.FileReader;
 import java.nio.channels.ClosedByInterruptException;
 import java.security.PrivilegedExceptionAction;
 import java.util.HashMap;
@@ -57,18 +53,26 @@ public class RangerUserStoreRefresher extends Thread {
     private long lastActivationTimeInMillis;
 
     private final String cacheFile;
+    private final String cacheFormat;
     private boolean          hasProvidedUserStoreToReceiver;
     private RangerRESTClient rangerRESTClient;
 
     public RangerUserStoreRefresher(RangerUserStoreRetriever userStoreRetriever, RangerUserStoreEnricher userStoreEnricher,
                              RangerRESTClient restClient, long lastKnownVersion,
                              BlockingQueue<DownloadTrigger> userStoreDownloadQueue, String cacheFile) {
+        this(userStoreRetriever, userStoreEnricher, restClient, lastKnownVersion, userStoreDownloadQueue, cacheFile, RangerSnapshotUtil.CACHE_FORMAT_JSON);
+    }
+
+    public RangerUserStoreRefresher(RangerUserStoreRetriever userStoreRetriever, RangerUserStoreEnricher userStoreEnricher,
+                             RangerRESTClient restClient, long lastKnownVersion,
+                             BlockingQueue<DownloadTrigger> userStoreDownloadQueue, String cacheFile, String cacheFormat) {
         this.userStoreRetriever = userStoreRetriever;
         this.userStoreEnricher = userStoreEnricher;
         this.rangerRESTClient = restClient;
         this.lastKnownVersion = lastKnownVersion;
         this.userStoreDownloadQueue = userStoreDownloadQueue;
         this.cacheFile = cacheFile;
+        this.cacheFormat = cacheFormat;
         setName("RangerUserStoreRefresher(serviceName=" + userStoreRetriever.getServiceName() + ")-" + getId());
     }
 
@@ -251,26 +255,13 @@ private RangerUserStore loadFromCache() {
             LOG.debug("==> RangerUserStoreRefreher.loadFromCache()");
         }
 
-        File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+        File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : RangerSnapshotUtil.findCacheFile(new File(this.cacheFile));
 
         if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-            Reader reader = null;
-
             try {
-                reader = new FileReader(cacheFile);
-
-                rangerUserStore = JsonUtils.jsonToObject(reader, RangerUserStore.class);
-
+                rangerUserStore = RangerSnapshotUtil.readCacheFile(cacheFile, RangerUserStore.class);
             } catch (Exception excp) {
                 LOG.error("failed to load userstore information from cache file " + cacheFile.getAbsolutePath(), excp);
-            } finally {
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (Exception excp) {
-                        LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
-                    }
-                }
             }
         } else {
             LOG.warn("cache file does not exist or not readable '" + (cacheFile == null ? null : cacheFile.getAbsolutePath()) + "'");
@@ -292,22 +283,10 @@ public void saveToCache(RangerUserStore rangerUserStore) {
             File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
             if (cacheFile != null) {
-                Writer writer = null;
-
                 try {
-                    writer = new FileWriter(cacheFile);
-
-                    JsonUtils.objectToWriter(writer, rangerUserStore);
+                    RangerSnapshotUtil.saveCacheFile(cacheFile, rangerUserStore, cacheFormat);
                 } catch (Exception excp) {
                     LOG.error("failed to save userstore information to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-                } finally {
-                    if (writer != null) {
-                        try {
-                            writer.close();
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-                        }
-                    }
                 }
             }
         } else {
@@ -324,7 +303,7 @@ private void disableCache() {
             LOG.debug("==> RangerUserStoreRefreher.disableCache()");
         }
 
-        File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+        File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : RangerSnapshotUtil.findCacheFile(new File(this.cacheFile));
         if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
             LOG.warn("Cleaning up local userstore cache");
             String renamedCacheFile = cacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
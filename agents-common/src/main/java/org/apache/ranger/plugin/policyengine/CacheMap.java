@@ -24,6 +24,11 @@
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * @deprecated every get() on an access-ordered LinkedHashMap mutates the map, so callers must serialize all
+ * reads on one lock. Use {@link RangerConcurrentLRUCache} instead.
+ */
+@Deprecated
 public class CacheMap<K, V> extends LinkedHashMap<K, V> {
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LoggerFactory.getLogger(CacheMap.class);
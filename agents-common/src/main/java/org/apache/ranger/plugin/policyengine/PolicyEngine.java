@@ -26,6 +26,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -41,6 +42,7 @@
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.RangerRoles;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
@@ -196,11 +198,20 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
             PERF_POLICYENGINE_INIT_LOG.debug("In-Use memory: " + (totalMemory - freeMemory) + ", Free memory:" + freeMemory);
         }
 
+        // normalized only here: policy repositories, built in parallel below, share the service-defs and don't normalize them
         normalizeServiceDefs(servicePolicies);
 
+        RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+        if(StringUtils.isBlank(options.evaluatorType) || StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO)) {
+            options.evaluatorType = RangerPolicyEvaluator.EVALUATOR_TYPE_OPTIMIZED;
+        }
+
+        PolicyEngineBuildExecutor buildExecutor = new PolicyEngineBuildExecutor(options.buildParallelism);
+
         this.pluginContext = pluginContext;
         this.lock          = new RangerReadWriteLock(isUseReadWriteLock);
-        this.zoneMatcher   = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext);
+        this.zoneMatcher   = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext, buildExecutor);
 
         Boolean                  hasPolicyDeltas      = RangerPolicyDeltaUtil.hasPolicyDeltas(servicePolicies);
 
@@ -218,16 +229,12 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
 
         this.pluginContext.setAuthContext(authContext);
 
-        RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+        // policy repositories - for the service, its tag-service and its security-zones - are built in parallel, when configured
+        ServicePolicies.TagPolicies            tagPolicies  = servicePolicies.getTagPolicies();
+        List<Supplier<RangerPolicyRepository>> repoBuilders = new ArrayList<>();
+        List<String>                           zoneNames    = MapUtils.isNotEmpty(servicePolicies.getSecurityZones()) ? new ArrayList<>(servicePolicies.getSecurityZones().keySet()) : Collections.emptyList();
 
-        if(StringUtils.isBlank(options.evaluatorType) || StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO)) {
-            options.evaluatorType = RangerPolicyEvaluator.EVALUATOR_TYPE_OPTIMIZED;
-        }
-
-        policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext);
-        serviceDefHelper = new RangerServiceDefHelper(policyRepository.getServiceDef(), false);
-
-        ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
+        repoBuilders.add(() -> new RangerPolicyRepository(servicePolicies, this.pluginContext, null, buildExecutor));
 
         if (!options.disableTagPolicyEvaluation
                 && tagPolicies != null
@@ -237,13 +244,33 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
                 LOG.debug("PolicyEngine : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
             }
 
-            tagPolicyRepository = new RangerPolicyRepository(tagPolicies, this.pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName());
+            repoBuilders.add(() -> new RangerPolicyRepository(tagPolicies, this.pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName(), buildExecutor));
         } else {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("PolicyEngine : No tag-policy-repository for service " + servicePolicies.getServiceName());
             }
 
-            tagPolicyRepository = null;
+            repoBuilders.add(() -> null);
+        }
+
+        for (String zoneName : zoneNames) {
+            repoBuilders.add(() -> new RangerPolicyRepository(servicePolicies, this.pluginContext, zoneName, buildExecutor));
+        }
+
+        List<RangerPolicyRepository> repositories;
+
+        try {
+            repositories = buildExecutor.invokeAll(repoBuilders);
+        } finally {
+            buildExecutor.close();
+        }
+
+        policyRepository    = repositories.get(0);
+        tagPolicyRepository = repositories.get(1);
+        serviceDefHelper    = new RangerServiceDefHelper(policyRepository.getServiceDef(), false);
+
+        for (int i = 0; i < zoneNames.size(); i++) {
+            zonePolicyRepositories.put(zoneNames.get(i), repositories.get(i + 2));
         }
 
         List<RangerContextEnricher> tmpList;
@@ -262,14 +289,6 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
 
         this.allContextEnrichers = tmpList;
 
-        if (MapUtils.isNotEmpty(servicePolicies.getSecurityZones())) {
-            for (Map.Entry<String, ServicePolicies.SecurityZoneInfo> zone : servicePolicies.getSecurityZones().entrySet()) {
-                RangerPolicyRepository policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext, zone.getKey());
-
-                zonePolicyRepositories.put(zone.getKey(), policyRepository);
-            }
-        }
-
         for (RangerServiceDef.RangerResourceDef resourceDef : getServiceDef().getResources()) {
             Map<String, String> matchOptions = resourceDef.getMatcherOptions();
 
@@ -395,6 +414,16 @@ public Set<String> getMatchedZonesForResourceAndChildren(RangerAccessResource re
         return ret;
     }
 
+    public Set<String> getMatchedZonesForResourceAndChildren(RangerAccessResource resource, RangerResourceLookupCache lookupCache) {
+        Set<String> ret = zoneMatcher.getZonesForResourceAndChildren(resource, lookupCache);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("getMatchedZonesForResourceAndChildren(resource={}): ret={}", resource, ret);
+        }
+
+        return ret;
+    }
+
     public String getUniquelyMatchedZoneName(Map<String, ?> resourceAsMap) {
         Set<String> matchedZones = zoneMatcher.getZonesForResourceAndChildren(resourceAsMap);
         String      ret          = (matchedZones != null && matchedZones.size() == 1) ? matchedZones.iterator().next() : null;
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/**
+ * Runs the tasks that build a policy engine - policy evaluators, resource tries, policy repositories - in a ForkJoinPool
+ * of policy engine option buildParallelism threads. With buildParallelism of 1 (default), tasks run in the calling thread.
+ *
+ * Tasks can submit tasks of their own, for example a policy repository built in the pool building its tries.
+ */
+final class PolicyEngineBuildExecutor implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PolicyEngineBuildExecutor.class);
+
+    static final PolicyEngineBuildExecutor SERIAL = new PolicyEngineBuildExecutor(1);
+
+    private final ForkJoinPool pool;
+
+    PolicyEngineBuildExecutor(int parallelism) {
+        if (parallelism > 1) {
+            // plugins load classes, like script engines for conditions, via the context class-loader: use the same in pool threads
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+            this.pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread ret = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+
+                ret.setName("PolicyEngineBuilder-" + ret.getPoolIndex());
+                ret.setContextClassLoader(contextClassLoader);
+
+                return ret;
+            }, null, false);
+
+            LOG.info("PolicyEngineBuildExecutor: created pool of {} threads", parallelism);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    int getParallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    /*
+     * Returns the results of the tasks, in the same order. An exception thrown by a task is rethrown after all tasks complete.
+     */
+    <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        List<T> ret = new ArrayList<>(tasks.size());
+
+        if (pool == null || tasks.size() < 2) {
+            for (Supplier<T> task : tasks) {
+                ret.add(task.get());
+            }
+        } else {
+            List<ForkJoinTask<T>> forkedTasks = new ArrayList<>(tasks.size());
+            boolean               isInPool    = ForkJoinTask.getPool() == pool;
+
+            for (Supplier<T> task : tasks) {
+                ForkJoinTask<T> forkedTask = ForkJoinTask.adapt((Callable<T>) task::get);
+
+                if (isInPool) {
+                    forkedTask.fork();
+                } else {
+                    pool.execute(forkedTask);
+                }
+
+                forkedTasks.add(forkedTask);
+            }
+
+            for (ForkJoinTask<T> forkedTask : forkedTasks) {
+                forkedTask.quietlyJoin();
+            }
+
+            for (ForkJoinTask<T> forkedTask : forkedTasks) {
+                ret.add(forkedTask.join()); // rethrows the exception thrown by the task, if any
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
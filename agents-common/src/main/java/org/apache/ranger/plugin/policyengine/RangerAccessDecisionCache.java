@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.contextenricher.RangerUserStoreEnricher;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.service.RangerAuthContext;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of access decisions made by RangerPolicyEngineImpl, keyed by the normalized request:
+ * user, groups, resource, owner, tags, access-types and policy-type. Cached results are discarded when the
+ * version of policies, tags, roles or user-store changes. Decisions that depend on request context -
+ * i.e. made by policies having conditions or validity schedules, on temporal tags, on GDS results or
+ * on context tokens - are not cached.
+ */
+public class RangerAccessDecisionCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAccessDecisionCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    private static final String TOKEN_USER  = RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + RangerAccessRequestUtil.KEY_USER;
+    private static final String TOKEN_OWNER = RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + RangerAccessRequestUtil.KEY_OWNER;
+
+    private static final AtomicLong HIT_COUNT          = new AtomicLong();
+    private static final AtomicLong MISS_COUNT         = new AtomicLong();
+    private static final AtomicLong SKIP_COUNT         = new AtomicLong();
+    private static final AtomicLong EVICTION_COUNT     = new AtomicLong();
+    private static final AtomicLong INVALIDATION_COUNT = new AtomicLong();
+
+    private final PolicyEngine                                              policyEngine;
+    private final int                                                       maxSize;
+    private final RangerConcurrentLRUCache<DecisionKey, RangerAccessResult> cache;
+    private final List<RangerTagEnricher>                                   tagEnrichers       = new ArrayList<>();
+    private final List<RangerUserStoreEnricher>                             userStoreEnrichers = new ArrayList<>();
+    private final boolean                                                   hasScheduledTagPolicies;
+    private volatile VersionStamp                                           versionStamp;
+
+    RangerAccessDecisionCache(PolicyEngine policyEngine, int maxSize) {
+        this.policyEngine = policyEngine;
+        this.maxSize      = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+        this.cache        = new RangerConcurrentLRUCache<DecisionKey, RangerAccessResult>(this.maxSize) {
+            @Override
+            protected void onEvict(DecisionKey key, RangerAccessResult value) {
+                EVICTION_COUNT.incrementAndGet();
+            }
+        };
+
+        if (policyEngine.getAllContextEnrichers() != null) {
+            for (RangerContextEnricher enricher : policyEngine.getAllContextEnrichers()) {
+                if (enricher instanceof RangerTagEnricher) {
+                    tagEnrichers.add((RangerTagEnricher) enricher);
+                } else if (enricher instanceof RangerUserStoreEnricher) {
+                    userStoreEnrichers.add((RangerUserStoreEnricher) enricher);
+                }
+            }
+        }
+
+        this.hasScheduledTagPolicies = hasScheduledPolicies(policyEngine.getTagPolicyRepository());
+        this.versionStamp            = getCurrentVersionStamp();
+
+        LOG.info("RangerAccessDecisionCache(serviceName={}): maxSize={}, hasScheduledTagPolicies={}", policyEngine.getServiceName(), this.maxSize, hasScheduledTagPolicies);
+    }
+
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+
+        ret.put("hitCount", HIT_COUNT.get());
+        ret.put("missCount", MISS_COUNT.get());
+        ret.put("skipCount", SKIP_COUNT.get());
+        ret.put("evictionCount", EVICTION_COUNT.get());
+        ret.put("invalidationCount", INVALIDATION_COUNT.get());
+
+        return ret;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /*
+     * to be called before the request is pre-processed, so that a change in tags/roles/user-store while the request
+     * is being evaluated will prevent the result from being cached
+     */
+    VersionStamp getCurrentVersionStamp() {
+        long tagVersion       = -1;
+        long userStoreVersion = -1;
+
+        for (RangerTagEnricher tagEnricher : tagEnrichers) {
+            Long version = tagEnricher.getServiceTagsVersion();
+
+            tagVersion = Math.max(tagVersion, version != null ? version : -1);
+        }
+
+        for (RangerUserStoreEnricher userStoreEnricher : userStoreEnrichers) {
+            Long version = userStoreEnricher.getUserStoreVersion();
+
+            userStoreVersion = Math.max(userStoreVersion, version != null ? version : -1);
+        }
+
+        RangerAuthContext authContext = policyEngine.getPluginContext().getAuthContext();
+
+        if (authContext != null && authContext.getUserStoreUtil() != null) {
+            userStoreVersion = Math.max(userStoreVersion, authContext.getUserStoreVersion());
+        }
+
+        return new VersionStamp(policyEngine.getPolicyVersion(), tagVersion, policyEngine.getRoleVersion(), userStoreVersion);
+    }
+
+    DecisionKey getKey(RangerAccessRequest request, int policyType, VersionStamp stamp) {
+        final DecisionKey ret;
+
+        if (!isCacheable(request)) {
+            SKIP_COUNT.incrementAndGet();
+
+            ret = null;
+        } else {
+            if (!stamp.equals(versionStamp)) {
+                invalidate(stamp);
+            }
+
+            RangerAccessResource resource = request.getResource();
+
+            ret = new DecisionKey(request.getUser(), request.getUserGroups(), request.getUserRoles(),
+                                  resource != null ? resource.getCacheKey() : null, resource != null ? resource.getOwnerUser() : null,
+                                  request.getAccessType(), RangerAccessRequestUtil.getAllRequestedAccessTypes(request), RangerAccessRequestUtil.getAllRequestedAccessTypeGroups(request),
+                                  request.isAccessTypeAny(), request.isAccessTypeDelegatedAdmin(), request.ignoreDescendantDeny(),
+                                  request.getResourceMatchingScope(), request.getResourceElementMatchingScopes(),
+                                  RangerAccessRequestUtil.getResourceZoneNamesFromContext(request.getContext()), RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext()),
+                                  policyType);
+        }
+
+        return ret;
+    }
+
+    RangerAccessResult get(DecisionKey key, RangerAccessRequest request) {
+        RangerAccessResult cached = cache.get(key);
+        RangerAccessResult ret    = null;
+
+        if (cached != null) {
+            HIT_COUNT.incrementAndGet();
+
+            ret = new RangerAccessResult(cached.getPolicyType(), cached.getServiceName(), cached.getServiceDef(), request);
+
+            ret.setAccessResultFrom(cached);
+            ret.setAuditResultFrom(cached);
+        } else {
+            MISS_COUNT.incrementAndGet();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerAccessDecisionCache.get(key={}): found={}", key, cached != null);
+        }
+
+        return ret;
+    }
+
+    void put(DecisionKey key, VersionStamp stamp, RangerAccessRequest request, RangerAccessResult result) {
+        if (result == null || RangerAccessRequestUtil.getIsDecisionContextSensitive(request.getContext())) {
+            SKIP_COUNT.incrementAndGet();
+        } else if (hasTemporalTags(request)) {
+            SKIP_COUNT.incrementAndGet();
+        } else if (stamp.equals(versionStamp) && stamp.equals(getCurrentVersionStamp())) {
+            RangerAccessResult cached = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), null);
+
+            cached.setAccessResultFrom(result);
+            cached.setAuditResultFrom(result);
+
+            cache.put(key, cached);
+        }
+    }
+
+    static boolean isContextSensitive(RangerPolicyEvaluator evaluator) {
+        return evaluator.getPolicyConditionsCount() > 0 || evaluator.getCustomConditionsCount() > 0 || evaluator.getValidityScheduleEvaluatorsCount() > 0;
+    }
+
+    private boolean isCacheable(RangerAccessRequest request) {
+        Map<String, Object> context = request.getContext();
+
+        if (context == null || RangerAccessRequestUtil.getGdsResultFromContext(context) != null) {
+            return false;
+        }
+
+        if (hasScheduledTagPolicies && CollectionUtils.isNotEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(context))) {
+            return false;
+        }
+
+        // user-store set in the context by the caller, not by an enricher whose version is tracked
+        if (userStoreEnrichers.isEmpty() && RangerAccessRequestUtil.getRequestUserStoreFromContext(context) != null) {
+            return false;
+        }
+
+        // tokens other than USER and OWNER, which are part of the key, can be referenced in resource values
+        for (String key : context.keySet()) {
+            if (key.startsWith(RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE) && !key.equals(TOKEN_USER) && !key.equals(TOKEN_OWNER)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean hasTemporalTags(RangerAccessRequest request) {
+        Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                if (CollectionUtils.isNotEmpty(tag.getValidityPeriods())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private synchronized void invalidate(VersionStamp stamp) {
+        if (!stamp.equals(versionStamp)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerAccessDecisionCache.invalidate(): versions changed from {} to {}; clearing {} entries", versionStamp, stamp, cache.size());
+            }
+
+            versionStamp = stamp;
+
+            cache.clear();
+
+            INVALIDATION_COUNT.incrementAndGet();
+        }
+    }
+
+    private static boolean hasScheduledPolicies(RangerPolicyRepository repository) {
+        if (repository != null) {
+            for (int policyType : RangerPolicy.POLICY_TYPES) {
+                List<RangerPolicyEvaluator> evaluators = repository.getPolicyEvaluators(policyType);
+
+                if (evaluators != null) {
+                    for (RangerPolicyEvaluator evaluator : evaluators) {
+                        if (evaluator.getValidityScheduleEvaluatorsCount() > 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    static final class VersionStamp {
+        private final long policyVersion;
+        private final long tagVersion;
+        private final long roleVersion;
+        private final long userStoreVersion;
+
+        VersionStamp(long policyVersion, long tagVersion, long roleVersion, long userStoreVersion) {
+            this.policyVersion    = policyVersion;
+            this.tagVersion       = tagVersion;
+            this.roleVersion      = roleVersion;
+            this.userStoreVersion = userStoreVersion;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof VersionStamp)) {
+                return false;
+            }
+
+            VersionStamp other = (VersionStamp) obj;
+
+            return policyVersion == other.policyVersion && tagVersion == other.tagVersion && roleVersion == other.roleVersion && userStoreVersion == other.userStoreVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(policyVersion, tagVersion, roleVersion, userStoreVersion);
+        }
+
+        @Override
+        public String toString() {
+            return "{policyVersion=" + policyVersion + ", tagVersion=" + tagVersion + ", roleVersion=" + roleVersion + ", userStoreVersion=" + userStoreVersion + "}";
+        }
+    }
+
+    static final class DecisionKey {
+        private final String                                                    user;
+        private final Set<String>                                               userGroups;
+        private final Set<String>                                               userRoles;
+        private final String                                                    resource;
+        private final String                                                    resourceOwner;
+        private final String                                                    accessType;
+        private final Set<String>                                               allAccessTypes;
+        private final Set<Set<String>>                                          allAccessTypeGroups;
+        private final boolean                                                   isAccessTypeAny;
+        private final boolean                                                   isDelegatedAdmin;
+        private final boolean                                                   ignoreDescendantDeny;
+        private final RangerAccessRequest.ResourceMatchingScope                 matchingScope;
+        private final Map<String, RangerAccessRequest.ResourceElementMatchingScope> elementMatchingScopes;
+        private final Set<String>                                               zoneNames;
+        private final Set<RangerTagForEval>                                     tags;
+        private final int                                                       policyType;
+        private final int                                                       hashCode;
+
+        DecisionKey(String user, Set<String> userGroups, Set<String> userRoles, String resource, String resourceOwner,
+                    String accessType, Set<String> allAccessTypes, Set<Set<String>> allAccessTypeGroups,
+                    boolean isAccessTypeAny, boolean isDelegatedAdmin, boolean ignoreDescendantDeny,
+                    RangerAccessRequest.ResourceMatchingScope matchingScope, Map<String, RangerAccessRequest.ResourceElementMatchingScope> elementMatchingScopes,
+                    Set<String> zoneNames, Set<RangerTagForEval> tags, int policyType) {
+            // copies, as the request - and the sets it holds - can be changed after the key is added to the cache
+            this.user                  = user;
+            this.userGroups            = userGroups != null ? copyOf(userGroups) : Collections.emptySet();
+            this.userRoles             = userRoles != null ? copyOf(userRoles) : Collections.emptySet();
+            this.resource              = resource;
+            this.resourceOwner         = resourceOwner;
+            this.accessType            = accessType;
+            this.allAccessTypes        = copyOf(allAccessTypes);
+            this.allAccessTypeGroups   = copyOfGroups(allAccessTypeGroups);
+            this.isAccessTypeAny       = isAccessTypeAny;
+            this.isDelegatedAdmin      = isDelegatedAdmin;
+            this.ignoreDescendantDeny  = ignoreDescendantDeny;
+            this.matchingScope         = matchingScope;
+            this.elementMatchingScopes = elementMatchingScopes != null ? Collections.unmodifiableMap(new HashMap<>(elementMatchingScopes)) : Collections.emptyMap();
+            this.zoneNames             = copyOf(zoneNames);
+            this.tags                  = copyOf(tags);
+            this.policyType            = policyType;
+            this.hashCode              = Objects.hash(user, this.userGroups, this.userRoles, resource, resourceOwner, accessType, this.allAccessTypes, this.allAccessTypeGroups,
+                                                      isAccessTypeAny, isDelegatedAdmin, ignoreDescendantDeny, matchingScope, this.elementMatchingScopes, this.zoneNames, this.tags, policyType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof DecisionKey)) {
+                return false;
+            }
+
+            DecisionKey other = (DecisionKey) obj;
+
+            return hashCode == other.hashCode &&
+                   policyType == other.policyType &&
+                   isAccessTypeAny == other.isAccessTypeAny &&
+                   isDelegatedAdmin == other.isDelegatedAdmin &&
+                   ignoreDescendantDeny == other.ignoreDescendantDeny &&
+                   matchingScope == other.matchingScope &&
+                   Objects.equals(user, other.user) &&
+                   Objects.equals(resource, other.resource) &&
+                   Objects.equals(accessType, other.accessType) &&
+                   Objects.equals(resourceOwner, other.resourceOwner) &&
+                   Objects.equals(userGroups, other.userGroups) &&
+                   Objects.equals(userRoles, other.userRoles) &&
+                   Objects.equals(allAccessTypes, other.allAccessTypes) &&
+                   Objects.equals(allAccessTypeGroups, other.allAccessTypeGroups) &&
+                   Objects.equals(elementMatchingScopes, other.elementMatchingScopes) &&
+                   Objects.equals(zoneNames, other.zoneNames) &&
+                   Objects.equals(tags, other.tags);
+        }
+
+        @Override
+        public String toString() {
+            return "{user=" + user + ", userGroups=" + userGroups + ", userRoles=" + userRoles + ", resource=" + resource + ", owner=" + resourceOwner +
+                   ", accessType=" + accessType + ", allAccessTypes=" + allAccessTypes + ", isAccessTypeAny=" + isAccessTypeAny +
+                   ", zoneNames=" + zoneNames + ", tags=" + tags + ", policyType=" + policyType + "}";
+        }
+
+        private static <T> Set<T> copyOf(Set<T> set) {
+            return set != null ? Collections.unmodifiableSet(new HashSet<>(set)) : null;
+        }
+
+        private static Set<Set<String>> copyOfGroups(Set<Set<String>> groups) {
+            final Set<Set<String>> ret;
+
+            if (groups != null) {
+                Set<Set<String>> copy = new HashSet<>(groups.size());
+
+                for (Set<String> group : groups) {
+                    copy.add(copyOf(group));
+                }
+
+                ret = Collections.unmodifiableSet(copy);
+            } else {
+                ret = null;
+            }
+
+            return ret;
+        }
+    }
+}
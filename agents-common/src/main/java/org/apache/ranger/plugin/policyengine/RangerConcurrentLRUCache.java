@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache with approximate LRU eviction, safe for concurrent use without external synchronization.
+ *
+ * Unlike an access-ordered LinkedHashMap, get() does not mutate shared structure: it only records the
+ * current value of a logical clock in the entry. The clock advances on put(), so entries read since the
+ * last insert share a tick. When the cache grows past maxSize, one writer evicts the entries with the
+ * oldest ticks, bringing the size down to about 7/8 of maxSize. Other writers don't wait for it, unless
+ * the cache has grown past maxSize by more than an eviction batch - i.e. the evicting thread is not
+ * keeping up, which happens when it gets descheduled.
+ */
+public class RangerConcurrentLRUCache<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerConcurrentLRUCache.class);
+
+    private static final int EVICTION_BATCH_DIVISOR = 8;
+
+    private final int                            maxSize;
+    private final int                            evictToSize;
+    private final int                            hardMaxSize;
+    private final ConcurrentHashMap<K, Entry<V>> map;
+    private final AtomicLong                     clock         = new AtomicLong();
+    private final AtomicLong                     evictionCount = new AtomicLong();
+    private final ReentrantLock                  evictionLock  = new ReentrantLock();
+
+    public RangerConcurrentLRUCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+
+        this.maxSize     = maxSize;
+        this.evictToSize = maxSize - (maxSize / EVICTION_BATCH_DIVISOR);
+        this.hardMaxSize = maxSize + (maxSize / EVICTION_BATCH_DIVISOR);
+        this.map         = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        long now = clock.get();
+
+        if (entry.accessTick != now) { // avoid dirtying the cache-line when not needed
+            entry.accessTick = now;
+        }
+
+        return entry.value;
+    }
+
+    public V put(K key, V value) {
+        Entry<V> prev = map.put(key, new Entry<>(value, clock.incrementAndGet()));
+
+        if (prev == null) {
+            int size = map.size();
+
+            if (size > maxSize) {
+                evict(size > hardMaxSize);
+            }
+        }
+
+        return prev != null ? prev.value : null;
+    }
+
+    public V remove(K key) {
+        Entry<V> prev = map.remove(key);
+
+        return prev != null ? prev.value : null;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Called for each entry removed to keep the cache within maxSize; subclasses can override to track evictions.
+     */
+    protected void onEvict(K key, V value) {
+    }
+
+    private void evict(boolean waitForLock) {
+        if (waitForLock) {
+            evictionLock.lock();
+        } else if (!evictionLock.tryLock()) { // another thread is already evicting
+            return;
+        }
+
+        try {
+            int size     = map.size();
+            int toRemove = size - evictToSize;
+
+            if (toRemove <= 0) {
+                return;
+            }
+
+            long[] ticks = new long[size];
+            int    count = 0;
+
+            for (Entry<V> entry : map.values()) {
+                if (count == ticks.length) {
+                    break;
+                }
+
+                ticks[count++] = entry.accessTick;
+            }
+
+            toRemove = Math.min(toRemove, count);
+
+            if (toRemove <= 0) {
+                return;
+            }
+
+            Arrays.sort(ticks, 0, count);
+
+            long threshold = ticks[toRemove - 1];
+            int  removed   = 0;
+
+            for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+                if (removed >= toRemove) {
+                    break;
+                }
+
+                Entry<V> entry = e.getValue();
+
+                if (entry.accessTick <= threshold && map.remove(e.getKey(), entry)) {
+                    removed++;
+
+                    onEvict(e.getKey(), entry.value);
+                }
+            }
+
+            evictionCount.addAndGet(removed);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerConcurrentLRUCache.evict(): maxSize={}, sizeBefore={}, removed={}", maxSize, size, removed);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V       value;
+        volatile long accessTick;
+
+        Entry(V value, long accessTick) {
+            this.value      = value;
+            this.accessTick = accessTick;
+        }
+    }
+}
@@ -38,6 +38,7 @@
 import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.RangerRoles;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
@@ -66,7 +67,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private final PolicyEngine                 policyEngine;
 	private final RangerAccessRequestProcessor requestProcessor;
 	private final ServiceConfig                serviceConfig;
-
+	private final RangerAccessDecisionCache    decisionCache;
 
 	static public RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl other, final ServicePolicies servicePolicies) {
 		RangerPolicyEngine ret = null;
@@ -101,6 +102,7 @@ public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPluginConte
 		policyEngine     = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
 		serviceConfig    = new ServiceConfig(servicePolicies.getServiceConfig());
 		requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
+		decisionCache    = createDecisionCache(policyEngine);
 	}
 
 	@Override
@@ -133,9 +135,11 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 				}
 			}
 
+			RangerAccessDecisionCache.VersionStamp versionStamp = decisionCache != null ? decisionCache.getCurrentVersionStamp() : null;
+
 			requestProcessor.preProcess(request);
 
-			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType, versionStamp);
 
 			if (resultProcessor != null) {
 				RangerPerfTracer perfAuditTracer = null;
@@ -175,18 +179,39 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 					LOG.debug("Acquired lock - " + readLock);
 				}
 			}
-			if (requests != null) {
-				for (RangerAccessRequest request : requests) {
-					requestProcessor.preProcess(request);
+			// requests in a batch often differ only in a column or in the access type; share resource lookups across them
+			RangerResourceLookupCache lookupCache = requests != null && requests.size() > 1 ? new RangerResourceLookupCache() : null;
+
+			try {
+				if (requests != null) {
+					for (RangerAccessRequest request : requests) {
+						RangerAccessDecisionCache.VersionStamp versionStamp = decisionCache != null ? decisionCache.getCurrentVersionStamp() : null;
+
+						if (lookupCache != null) {
+							RangerAccessRequestUtil.setResourceLookupCacheInContext(request.getContext(), lookupCache);
+						}
+
+						requestProcessor.preProcess(request);
 
-					RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+						RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType, versionStamp);
 
-					ret.add(result);
+						ret.add(result);
+					}
 				}
-			}
 
-			if (resultProcessor != null) {
-				resultProcessor.processResults(ret);
+				if (resultProcessor != null) {
+					resultProcessor.processResults(ret);
+				}
+			} finally {
+				if (lookupCache != null) {
+					for (RangerAccessRequest request : requests) {
+						RangerAccessRequestUtil.setResourceLookupCacheInContext(request.getContext(), null);
+					}
+
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("RangerPolicyEngineImpl.evaluatePolicies(): " + lookupCache);
+					}
+				}
 			}
 		}
 
@@ -581,10 +606,57 @@ public RangerAccessRequestProcessor getRequestProcessor() {
 		return requestProcessor;
 	}
 
+	public RangerAccessDecisionCache getDecisionCache() {
+		return decisionCache;
+	}
+
 	private RangerPolicyEngineImpl(final PolicyEngine policyEngine, RangerPolicyEngineImpl other) {
 		this.policyEngine     = policyEngine;
 		this.requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
 		this.serviceConfig    = new ServiceConfig(other.serviceConfig);
+		this.decisionCache    = createDecisionCache(policyEngine);
+	}
+
+	private static RangerAccessDecisionCache createDecisionCache(PolicyEngine policyEngine) {
+		final RangerAccessDecisionCache ret;
+		RangerPluginConfig              config = policyEngine.getPluginContext().getConfig();
+
+		if (config != null && config.getPolicyEngineOptions().enableDecisionCache) {
+			int cacheSize = config.getInt(config.getPropertyPrefix() + ".policyengine.decision.cache.size", RangerAccessDecisionCache.DEFAULT_MAX_SIZE);
+
+			ret = new RangerAccessDecisionCache(policyEngine, cacheSize);
+		} else {
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType, RangerAccessDecisionCache.VersionStamp versionStamp) {
+		final RangerAccessResult ret;
+
+		if (decisionCache == null || versionStamp == null) {
+			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+		} else {
+			RangerAccessDecisionCache.DecisionKey key    = decisionCache.getKey(request, policyType, versionStamp);
+			RangerAccessResult                    cached = key != null ? decisionCache.get(key, request) : null;
+
+			if (cached != null) {
+				ret = cached;
+			} else {
+				RangerAccessRequestUtil.setIsDecisionContextSensitive(request.getContext(), null);
+
+				ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+
+				if (key != null) {
+					decisionCache.put(key, versionStamp, request, ret);
+				}
+
+				RangerAccessRequestUtil.setIsDecisionContextSensitive(request.getContext(), null);
+			}
+		}
+
+		return ret;
 	}
 
 	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
@@ -738,6 +810,10 @@ private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessR
 			List<RangerPolicyEvaluator> evaluators = policyRepository.getLikelyMatchPolicyEvaluators(request, policyType);
 
 			for (RangerPolicyEvaluator evaluator : evaluators) {
+				if (decisionCache != null && RangerAccessDecisionCache.isContextSensitive(evaluator)) {
+					RangerAccessRequestUtil.setIsDecisionContextSensitive(request.getContext(), Boolean.TRUE);
+				}
+
 				if (!evaluator.isApplicable(accessTime)) {
 					continue;
 				}
@@ -841,6 +917,10 @@ private void evaluateTagPolicies(final RangerAccessRequest request, int policyTy
 					}
 				}
 
+				if (decisionCache != null && RangerAccessDecisionCache.isContextSensitive(evaluator)) {
+					RangerAccessRequestUtil.setIsDecisionContextSensitive(request.getContext(), Boolean.TRUE);
+				}
+
 				RangerTagForEval    tag            = policyEvaluator.getTag();
 				RangerAccessRequest tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
 				RangerAccessResult  tagEvalResult  = createAccessResult(tagEvalRequest, policyType);
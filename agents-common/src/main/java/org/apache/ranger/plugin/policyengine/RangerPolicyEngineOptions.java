@@ -44,6 +44,8 @@ public class RangerPolicyEngineOptions {
 	public boolean optimizeTrieForSpace = false;
 	public boolean optimizeTagTrieForRetrieval = false;
 	public boolean optimizeTagTrieForSpace = false;
+	public boolean enableDecisionCache = false;
+	public int buildParallelism = 1;
 
 
 	private RangerServiceDefHelper serviceDefHelper;
@@ -69,6 +71,8 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
 		this.optimizeTrieForSpace = other.optimizeTrieForSpace;
 		this.optimizeTagTrieForRetrieval = other.optimizeTagTrieForRetrieval;
 		this.optimizeTagTrieForSpace = other.optimizeTagTrieForSpace;
+		this.enableDecisionCache = other.enableDecisionCache;
+		this.buildParallelism = other.buildParallelism;
 	}
 
 	public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other, RangerServiceDefHelper serviceDefHelper) {
@@ -100,7 +104,8 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
 		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 		optimizeTagTrieForRetrieval = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
 		optimizeTagTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
-
+		enableDecisionCache = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.decision.cache", false);
+		buildParallelism = conf.getInt(propertyPrefix + ".policyengine.option.build.parallelism", 1);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -194,6 +199,8 @@ public boolean equals(Object other) {
 					&& this.optimizeTrieForSpace == that.optimizeTrieForSpace
 					&& this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
 					&& this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
+					&& this.enableDecisionCache == that.enableDecisionCache
+					&& this.buildParallelism == that.buildParallelism
 			;
 		}
 		return ret;
@@ -236,6 +243,10 @@ public int hashCode() {
 		ret *= 2;
 		ret += optimizeTagTrieForSpace ? 1 : 0;
 		ret *= 2;
+		ret += enableDecisionCache ? 1 : 0;
+		ret *= 2;
+		ret += buildParallelism;
+		ret *= 2;
 		return ret;
 	}
 
@@ -260,6 +271,8 @@ public String toString() {
 				", optimizeTrieForSpace: " + optimizeTrieForSpace +
 				", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
 				", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
+				", enableDecisionCache: " + enableDecisionCache +
+				", buildParallelism: " + buildParallelism +
 				" }";
 
 	}
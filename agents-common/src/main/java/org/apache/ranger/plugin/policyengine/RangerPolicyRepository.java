@@ -42,14 +42,17 @@
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
 import org.apache.ranger.plugin.store.AbstractServiceStore;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -59,6 +62,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.apache.ranger.plugin.contextenricher.RangerGdsEnricher.RETRIEVER_CLASSNAME_OPTION;
 import static org.apache.ranger.plugin.contextenricher.RangerTagEnricher.TAG_RETRIEVER_CLASSNAME_OPTION;
@@ -85,7 +89,7 @@ enum AuditModeEnum {
     private final long                                                           policyVersion;
     private /*final*/ List<RangerContextEnricher>                                contextEnrichers;
     private final AuditModeEnum                                                  auditModeEnum;
-    private final Map<String, AuditInfo>                                         accessAuditCache;
+    private final RangerConcurrentLRUCache<String, AuditInfo>                    accessAuditCache;
     private final String                                                         componentServiceName;
     private final RangerServiceDef                                               componentServiceDef;
     private final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> policyResourceTrie;
@@ -158,9 +162,7 @@ enum AuditModeEnum {
         }
 
         if (other.accessAuditCache != null) {
-            int auditResultCacheSize = other.accessAuditCache.size();
-
-            this.accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+            this.accessAuditCache = new RangerConcurrentLRUCache<>(other.accessAuditCache.getMaxSize());
         } else {
             this.accessAuditCache = null;
         }
@@ -187,10 +189,19 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
     }
 
     RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName) {
+        this(normalizeServiceDef(servicePolicies), pluginContext, zoneName, PolicyEngineBuildExecutor.SERIAL);
+    }
+
+    /*
+     * The service-def must already be normalized: repositories of a policy engine - for the service and each of its
+     * security-zones - are built in parallel, and share the service-def. Normalizing it again here would modify lists
+     * in the service-def while other repositories read them.
+     */
+    RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName, PolicyEngineBuildExecutor buildExecutor) {
         super();
 
         this.componentServiceName = this.serviceName = servicePolicies.getServiceName();
-        this.componentServiceDef  = this.serviceDef = ServiceDefUtil.normalize(servicePolicies.getServiceDef());
+        this.componentServiceDef  = this.serviceDef = servicePolicies.getServiceDef();
         this.zoneName             = zoneName;
         this.appId                = pluginContext.getConfig().getAppId();
         this.options              = new RangerPolicyEngineOptions(pluginContext.getConfig().getPolicyEngineOptions());
@@ -220,7 +231,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
                 final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
 
                 int auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+                accessAuditCache = auditResultCacheSize > 0 ? new RangerConcurrentLRUCache<>(auditResultCacheSize) : null;
             } else {
                 accessAuditCache = null;
             }
@@ -232,7 +243,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             LOG.debug("RangerPolicyRepository : building policy-repository for service[" + serviceName + "], and zone:[" + zoneName + "] with auditMode[" + auditModeEnum + "]");
         }
 
-        init(options);
+        init(options, buildExecutor);
 
         if (StringUtils.isEmpty(zoneName)) {
             this.contextEnrichers = buildContextEnrichers(options);
@@ -248,21 +259,29 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> resourceTries = createResourceTrieMaps(Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, auditPolicyEvaluators), buildExecutor);
+
+            policyResourceTrie      = resourceTries.get(0);
+            dataMaskResourceTrie    = resourceTries.get(1);
+            rowFilterResourceTrie   = resourceTries.get(2);
+            auditFilterResourceTrie = resourceTries.get(3);
         }
     }
 
     RangerPolicyRepository(ServicePolicies.TagPolicies tagPolicies, RangerPluginContext pluginContext,
                            RangerServiceDef componentServiceDef, String componentServiceName) {
+        this(normalizeTagServiceDef(tagPolicies, componentServiceDef), pluginContext, componentServiceDef, componentServiceName, PolicyEngineBuildExecutor.SERIAL);
+    }
+
+    // as with the service-def above, the tag service-def must already be normalized, with access-types of the component service-def
+    RangerPolicyRepository(ServicePolicies.TagPolicies tagPolicies, RangerPluginContext pluginContext,
+                           RangerServiceDef componentServiceDef, String componentServiceName, PolicyEngineBuildExecutor buildExecutor) {
         super();
 
         this.serviceName          = tagPolicies.getServiceName();
         this.componentServiceName = componentServiceName;
         this.zoneName             = null;
-        this.serviceDef           = ServiceDefUtil.normalizeAccessTypeDefs(ServiceDefUtil.normalize(tagPolicies.getServiceDef()), componentServiceDef.getName());
+        this.serviceDef           = tagPolicies.getServiceDef();
         this.componentServiceDef  = componentServiceDef;
         this.appId                = pluginContext.getConfig().getAppId();
         this.options              = new RangerPolicyEngineOptions(pluginContext.getConfig().getPolicyEngineOptions());
@@ -286,7 +305,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             LOG.debug("RangerPolicyRepository : building tag-policy-repository for tag service:[" + serviceName +"], with auditMode[" + auditModeEnum +"]");
         }
 
-        init(options);
+        init(options, buildExecutor);
 
         if (StringUtils.isEmpty(zoneName)) {
             this.contextEnrichers = buildContextEnrichers(options);
@@ -302,10 +321,12 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> resourceTries = createResourceTrieMaps(Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, auditPolicyEvaluators), buildExecutor);
+
+            policyResourceTrie      = resourceTries.get(0);
+            dataMaskResourceTrie    = resourceTries.get(1);
+            rowFilterResourceTrie   = resourceTries.get(2);
+            auditFilterResourceTrie = resourceTries.get(3);
         }
     }
 
@@ -711,6 +732,16 @@ List<RangerPolicyEvaluator> getLikelyMatchAuditPolicyEvaluators(RangerAccessRequ
     }
 
     private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request) {
+        RangerResourceLookupCache lookupCache = RangerAccessRequestUtil.getResourceLookupCacheFromContext(request.getContext());
+
+        if (lookupCache == null) {
+            return getLikelyMatchPolicyEvaluators(resourceTrie, request, null);
+        } else {
+            return lookupCache.getForResource(resourceTrie, request.getResource().getAsMap(), request.getResourceElementMatchingScopes(), () -> getLikelyMatchPolicyEvaluators(resourceTrie, request, lookupCache));
+        }
+    }
+
+    private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request, RangerResourceLookupCache lookupCache) {
         List<RangerPolicyEvaluator> ret          = Collections.EMPTY_LIST;
 
         RangerAccessResource              resource = request.getResource();
@@ -721,7 +752,7 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_OP_LOG, "RangerPolicyRepository.getLikelyMatchEvaluators(resource=" + resource.getAsString() + ")");
         }
 
-        Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
+        Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes(), lookupCache, lookupCache != null ? resource.getLeafName() : null);
 
         if (smallestList != null) {
             if (smallestList.size() == 0) {
@@ -905,7 +936,19 @@ private static boolean skipBuildingPolicyEvaluator(RangerPolicy policy, RangerPo
         return ret;
     }
 
-    private void init(RangerPolicyEngineOptions options) {
+    private static ServicePolicies normalizeServiceDef(ServicePolicies servicePolicies) {
+        ServiceDefUtil.normalize(servicePolicies.getServiceDef());
+
+        return servicePolicies;
+    }
+
+    private static ServicePolicies.TagPolicies normalizeTagServiceDef(ServicePolicies.TagPolicies tagPolicies, RangerServiceDef componentServiceDef) {
+        ServiceDefUtil.normalizeAccessTypeDefs(ServiceDefUtil.normalize(tagPolicies.getServiceDef()), componentServiceDef.getName());
+
+        return tagPolicies;
+    }
+
+    private void init(RangerPolicyEngineOptions options, PolicyEngineBuildExecutor buildExecutor) {
         RangerServiceDefHelper serviceDefHelper = new RangerServiceDefHelper(serviceDef, false);
         options.setServiceDefHelper(serviceDefHelper);
 
@@ -913,23 +956,17 @@ private void init(RangerPolicyEngineOptions options) {
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<>();
 
-        for (RangerPolicy policy : policies) {
-            if (skipBuildingPolicyEvaluator(policy, options)) {
-                continue;
-            }
+        for (RangerPolicyEvaluator evaluator : buildPolicyEvaluators(policies, options, buildExecutor)) {
+            RangerPolicy policy = evaluator.getPolicy();
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
-
-            if (evaluator != null) {
-                if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
-                    policyEvaluators.add(evaluator);
-                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
-                    dataMaskPolicyEvaluators.add(evaluator);
-                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
-                    rowFilterPolicyEvaluators.add(evaluator);
-                } else {
-                    LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
-                }
+            if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
+                policyEvaluators.add(evaluator);
+            } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
+                dataMaskPolicyEvaluators.add(evaluator);
+            } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+                rowFilterPolicyEvaluators.add(evaluator);
+            } else {
+                LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
             }
         }
         LOG.info("This policy engine contains " + (policyEvaluators.size()+dataMaskPolicyEvaluators.size()+rowFilterPolicyEvaluators.size()) + " policy evaluators");
@@ -1096,6 +1133,43 @@ private RangerContextEnricher buildContextEnricher(RangerServiceDef.RangerContex
         return ret;
     }
 
+    // returns evaluators in the order of the policies; policies are split into a few chunks per build thread, each chunk built by a task
+    private List<RangerPolicyEvaluator> buildPolicyEvaluators(List<RangerPolicy> policies, RangerPolicyEngineOptions options, PolicyEngineBuildExecutor buildExecutor) {
+        final int                                 chunkCount = Math.max(1, Math.min(policies.size() / 64, buildExecutor.getParallelism() * 4));
+        final int                                 chunkSize  = (policies.size() + chunkCount - 1) / chunkCount;
+        final List<Supplier<List<RangerPolicyEvaluator>>> tasks      = new ArrayList<>(chunkCount);
+
+        for (int i = 0; i < policies.size(); i += chunkSize) {
+            final List<RangerPolicy> chunk = policies.subList(i, Math.min(i + chunkSize, policies.size()));
+
+            tasks.add(() -> {
+                List<RangerPolicyEvaluator> ret = new ArrayList<>(chunk.size());
+
+                for (RangerPolicy policy : chunk) {
+                    if (skipBuildingPolicyEvaluator(policy, options)) {
+                        continue;
+                    }
+
+                    RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+
+                    if (evaluator != null) {
+                        ret.add(evaluator);
+                    }
+                }
+
+                return ret;
+            });
+        }
+
+        List<RangerPolicyEvaluator> ret = new ArrayList<>(policies.size());
+
+        for (List<RangerPolicyEvaluator> evaluators : buildExecutor.invokeAll(tasks)) {
+            ret.addAll(evaluators);
+        }
+
+        return ret;
+    }
+
     private RangerPolicyEvaluator buildPolicyEvaluator(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyRepository.buildPolicyEvaluator(" + policy + "," + serviceDef + ", " + options + ")");
@@ -1192,17 +1266,34 @@ private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPoli
         return ret;
     }
 
-    private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> createResourceTrieMap(List<? extends RangerPolicyEvaluator> evaluators, boolean optimizeTrieForRetrieval, boolean optimizeTrieForSpace) {
-        final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> ret;
+    // builds a trie for each resource-def for each list of evaluators - each trie by a task
+    private List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> createResourceTrieMaps(List<List<RangerPolicyEvaluator>> evaluatorLists, PolicyEngineBuildExecutor buildExecutor) {
+        final List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> ret = new ArrayList<>(evaluatorLists.size());
 
         if (serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
-            ret = new HashMap<>();
+            final List<Supplier<RangerResourceTrie<RangerPolicyResourceEvaluator>>> tasks = new ArrayList<>();
 
-            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+            for (List<RangerPolicyEvaluator> evaluators : evaluatorLists) {
+                for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+                    tasks.add(() -> new RangerResourceTrie(resourceDef, evaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, pluginContext));
+                }
+            }
+
+            Iterator<RangerResourceTrie<RangerPolicyResourceEvaluator>> tries = buildExecutor.invokeAll(tasks).iterator();
+
+            for (int i = 0; i < evaluatorLists.size(); i++) {
+                Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trieMap = new HashMap<>();
+
+                for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+                    trieMap.put(resourceDef.getName(), tries.next());
+                }
+
+                ret.add(trieMap);
             }
         } else {
-            ret = null;
+            for (int i = 0; i < evaluatorLists.size(); i++) {
+                ret.add(null);
+            }
         }
 
         return ret;
@@ -35,6 +35,8 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.text.ParseException;
@@ -186,9 +188,26 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
 	}
 
 	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx) {
+		this(accessRequest, scriptEngine, enableJsonCtx, scriptEngine.createBindings());
+
+		if (enableJsonCtx) {
+			try {
+				scriptEngine.eval(SCRIPT_PREEXEC, bindings);
+			} catch (ScriptException excp) {
+				LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
+			}
+		}
+	}
+
+	/**
+	 * Creates an evaluator for scripts compiled with compileConditionScript(), which includes the initialization of
+	 * JSON context variables in the compiled script. The given bindings are populated with values for this request; they
+	 * must not be reused for other requests, as globals set by the script remain in the bindings.
+	 */
+	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx, Bindings bindings) {
 		this.accessRequest = accessRequest.getReadOnlyCopy();
 		this.scriptEngine  = scriptEngine;
-		this.bindings      = scriptEngine.createBindings();
+		this.bindings      = bindings;
 
 		RangerTagForEval    currentTag = this.getCurrentTag();
 		Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
@@ -197,21 +216,36 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
 		bindings.put(SCRIPT_VAR_tag, currentTag);
 		bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
 
-		String preExecScript = "";
-
 		if (enableJsonCtx) {
 			bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
-
-			preExecScript += SCRIPT_PREEXEC;
 		}
+	}
 
-		if (StringUtils.isNotBlank(preExecScript)) {
-			try {
-				scriptEngine.eval(preExecScript, bindings);
-			} catch (ScriptException excp) {
-				LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
-			}
+	/**
+	 * Creates an evaluator for conditions parsed by RangerRequestScriptParser, which don't need a script engine.
+	 */
+	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest) {
+		this.accessRequest = accessRequest.getReadOnlyCopy();
+		this.scriptEngine  = null;
+		this.bindings      = null;
+	}
+
+	/**
+	 * Compiles the given condition script, after expanding macros, so that it can be evaluated for each request with
+	 * evaluateConditionScript(CompiledScript) without being parsed again.
+	 *
+	 * @return the compiled script, or null if the script engine doesn't support compilation
+	 */
+	public static CompiledScript compileConditionScript(ScriptEngine scriptEngine, String script, boolean enableJsonCtx) throws ScriptException {
+		CompiledScript ret = null;
+
+		if (scriptEngine instanceof Compilable) {
+			String preExec = enableJsonCtx ? SCRIPT_PREEXEC : "";
+
+			ret = ((Compilable) scriptEngine).compile(preExec + toExecutableScript(expandMacros(script)));
 		}
+
+		return ret;
 	}
 
 	public Object evaluateScript(String script) {
@@ -221,8 +255,31 @@ public Object evaluateScript(String script) {
 	}
 
 	public Object evaluateConditionScript(String script) {
-		Object ret = evaluateScript(script);
+		return toConditionResult(evaluateScript(script));
+	}
+
+	public Object evaluateConditionScript(CompiledScript script) {
+		Object           ret  = null;
+		RangerPerfTracer perf = null;
 
+		try {
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_CONDITION_SCRIPT_EVAL)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateConditionScript(requestHash=" + accessRequest.hashCode() + ")");
+			}
+
+			ret = script.eval(bindings);
+		} catch (ScriptException excp) {
+			LOG.error("RangerRequestScriptEvaluator.evaluateConditionScript(): failed to evaluate script", excp);
+		} catch (Throwable t) {
+			LOG.error("RangerRequestScriptEvaluator.evaluateConditionScript(): failed to evaluate script", t);
+		} finally {
+			RangerPerfTracer.log(perf);
+		}
+
+		return toConditionResult(ret);
+	}
+
+	private Object toConditionResult(Object ret) {
 		if (ret == null) {
 			ret = getResult();
 		}
@@ -243,21 +300,7 @@ private Object evaluateScriptImpl(String script) {
 				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
 			}
 
-			String preExec = SCRIPT_SAFE_PREEXEC;
-
-			if (script.contains(".includes(")) {
-				preExec += SCRIPT_POLYFILL_INCLUDES;
-			}
-
-			if (script.contains(".intersects(")) {
-				preExec += SCRIPT_POLYFILL_INTERSECTS;
-			}
-
-			if (JavaScriptEdits.hasDoubleBrackets(script)) {
-				script = JavaScriptEdits.replaceDoubleBrackets(script);
-			}
-
-			ret = scriptEngine.eval(preExec + script, bindings);
+			ret = scriptEngine.eval(toExecutableScript(script), bindings);
 		} catch (NullPointerException nullp) {
 			LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
 		} catch (ScriptException excp) {
@@ -271,6 +314,24 @@ private Object evaluateScriptImpl(String script) {
 		return ret;
 	}
 
+	private static String toExecutableScript(String script) {
+		String preExec = SCRIPT_SAFE_PREEXEC;
+
+		if (script.contains(".includes(")) {
+			preExec += SCRIPT_POLYFILL_INCLUDES;
+		}
+
+		if (script.contains(".intersects(")) {
+			preExec += SCRIPT_POLYFILL_INTERSECTS;
+		}
+
+		if (JavaScriptEdits.hasDoubleBrackets(script)) {
+			script = JavaScriptEdits.replaceDoubleBrackets(script);
+		}
+
+		return preExec + script;
+	}
+
 	private String toJson() {
 		RangerPerfTracer perf = null;
 
@@ -758,6 +819,12 @@ public String userAttr(String attrName, Object... args) {
 		return toCsv(Collections.singletonList(attrVal), args);
 	}
 
+	String getUserAttribute(String attrName) {
+		init();
+
+		return userAttrs.get(attrName);
+	}
+
 	public String userAttrQ(String attrName, Object... args) {
 		init();
 
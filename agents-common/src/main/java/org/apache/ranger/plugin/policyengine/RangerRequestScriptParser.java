@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_TAG;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_USER;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR__CTX;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_ctx;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_tagAttr;
+
+/**
+ * Parses condition scripts that can be evaluated without a script engine: boolean macros and ctx methods - like
+ * HAS_TAG('PII'), IS_IN_GROUP('analysts') or ctx.isAccessedBefore('expiry_date') - and comparisons of tag or user
+ * attributes with string literals - like tagAttr.dept == 'finance' or TAG['level'] != 'high' - combined with !, &amp;&amp;,
+ * || and parentheses. The returned predicate calls the same RangerRequestScriptEvaluator methods the script calls.
+ *
+ * Scripts that use anything else are not parsed, and must be evaluated by the script engine. A parsed condition throws
+ * ScriptEngineRequiredException for a request it can't evaluate as the script engine would: a comparison of a tag
+ * attribute without a current tag. A missing attribute is null, like undefined in the script, for == and != alike.
+ */
+public class RangerRequestScriptParser {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerRequestScriptParser.class);
+
+    private static final String CTX_TAG             = SCRIPT_VAR__CTX + ".tag";
+    private static final String CTX_USER_ATTRIBUTES = SCRIPT_VAR__CTX + ".request.userAttributes";
+
+    private static final ScriptEngineRequiredException SCRIPT_ENGINE_REQUIRED = new ScriptEngineRequiredException();
+
+    private final String script;
+    private       int    pos = 0;
+
+    private RangerRequestScriptParser(String script) {
+        this.script = script;
+    }
+
+    /**
+     * @return predicate equivalent to the given condition script, or null if the script uses anything not supported
+     */
+    public static Predicate<RangerRequestScriptEvaluator> parseCondition(String script) {
+        Predicate<RangerRequestScriptEvaluator> ret = null;
+
+        if (StringUtils.isNotBlank(script)) {
+            try {
+                ret = new RangerRequestScriptParser(RangerRequestScriptEvaluator.expandMacros(script)).parse();
+            } catch (IllegalArgumentException excp) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("RangerRequestScriptParser.parseCondition({}): not supported - {}", script, excp.getMessage());
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private Predicate<RangerRequestScriptEvaluator> parse() {
+        Predicate<RangerRequestScriptEvaluator> ret = parseOr();
+
+        consume(";");
+        skipSpaces();
+
+        if (pos != script.length()) {
+            throw new IllegalArgumentException("unexpected character at " + pos);
+        }
+
+        return ret;
+    }
+
+    private Predicate<RangerRequestScriptEvaluator> parseOr() {
+        Predicate<RangerRequestScriptEvaluator> ret = parseAnd();
+
+        while (consume("||")) {
+            ret = ret.or(parseAnd());
+        }
+
+        return ret;
+    }
+
+    private Predicate<RangerRequestScriptEvaluator> parseAnd() {
+        Predicate<RangerRequestScriptEvaluator> ret = parseUnary(true);
+
+        while (consume("&&")) {
+            ret = ret.and(parseUnary(true));
+        }
+
+        return ret;
+    }
+
+    private Predicate<RangerRequestScriptEvaluator> parseUnary(boolean allowComparison) {
+        final Predicate<RangerRequestScriptEvaluator> ret;
+
+        if (consume("!")) {
+            // ! binds tighter than == and != : !tagAttr.level == 'high' is (!tagAttr.level) == 'high', which is left to the script engine
+            ret = parseUnary(false).negate();
+        } else if (consume("(")) {
+            ret = parseOr();
+
+            expect(")");
+        } else {
+            String path = parseIdentifierPath();
+
+            if (path.startsWith(SCRIPT_VAR_ctx + ".") && consume("(")) {
+                ret = toMethodCall(path.substring(SCRIPT_VAR_ctx.length() + 1), parseArguments());
+            } else if (allowComparison) {
+                ret = parseComparison(path);
+            } else {
+                throw new IllegalArgumentException("unsupported negation of " + path);
+            }
+        }
+
+        return ret;
+    }
+
+    // <path>.<name> or <path>['<name>'], followed by one of ==, ===, != or !== and a string literal
+    private Predicate<RangerRequestScriptEvaluator> parseComparison(String path) {
+        final String varName;
+        final String attrName;
+
+        if (consume("[")) {
+            varName  = path;
+            attrName = parseString();
+
+            expect("]");
+        } else {
+            int idx = path.lastIndexOf('.');
+
+            if (idx == -1) {
+                throw new IllegalArgumentException("unsupported reference " + path);
+            }
+
+            varName  = path.substring(0, idx);
+            attrName = path.substring(idx + 1);
+        }
+
+        // names starting with '_', like _type and _name, are fields added to attributes in the JSON context
+        if (attrName.startsWith("_")) {
+            throw new IllegalArgumentException("unsupported attribute " + attrName);
+        }
+
+        final Function<RangerRequestScriptEvaluator, String> getter;
+
+        if (varName.equals(SCRIPT_VAR_tagAttr) || varName.equals(SCRIPT_VAR_TAG) || varName.equals(CTX_TAG)) {
+            getter = evaluator -> {
+                RangerTagForEval tag = evaluator.getCurrentTag();
+
+                if (tag == null || tag.getAttributes() == null) {
+                    throw SCRIPT_ENGINE_REQUIRED;
+                }
+
+                return tag.getAttributes().get(attrName);
+            };
+        } else if (varName.equals(SCRIPT_VAR_USER) || varName.equals(CTX_USER_ATTRIBUTES)) {
+            getter = evaluator -> evaluator.getUserAttribute(attrName);
+        } else {
+            throw new IllegalArgumentException("unsupported reference " + path);
+        }
+
+        final boolean isEquals;
+
+        if (consume("===") || consume("==")) {
+            isEquals = true;
+        } else if (consume("!==") || consume("!=")) {
+            isEquals = false;
+        } else {
+            throw new IllegalArgumentException("unsupported operator at " + pos);
+        }
+
+        final String value = parseString();
+
+        return evaluator -> Objects.equals(getter.apply(evaluator), value) == isEquals;
+    }
+
+    private Predicate<RangerRequestScriptEvaluator> toMethodCall(String methodName, List<String> args) {
+        final Predicate<RangerRequestScriptEvaluator> ret;
+
+        switch (methodName + "/" + args.size()) {
+            case "hasTag/1":
+                ret = evaluator -> evaluator.hasTag(args.get(0));
+            break;
+
+            case "hasAnyTag/0":
+                ret = RangerRequestScriptEvaluator::hasAnyTag;
+            break;
+
+            case "hasUserAttr/1":
+                ret = evaluator -> evaluator.hasUserAttr(args.get(0));
+            break;
+
+            case "hasUgAttr/1":
+                ret = evaluator -> evaluator.hasUgAttr(args.get(0));
+            break;
+
+            case "hasTagAttr/1":
+                ret = evaluator -> evaluator.hasTagAttr(args.get(0));
+            break;
+
+            case "isInGroup/1":
+                ret = evaluator -> evaluator.isInGroup(args.get(0));
+            break;
+
+            case "isInRole/1":
+                ret = evaluator -> evaluator.isInRole(args.get(0));
+            break;
+
+            case "isInAnyGroup/0":
+                ret = RangerRequestScriptEvaluator::isInAnyGroup;
+            break;
+
+            case "isInAnyRole/0":
+                ret = RangerRequestScriptEvaluator::isInAnyRole;
+            break;
+
+            case "isAccessedAfter/1":
+                ret = evaluator -> evaluator.isAccessedAfter(args.get(0));
+            break;
+
+            case "isAccessedAfter/2":
+                ret = evaluator -> evaluator.isAccessedAfter(args.get(0), args.get(1));
+            break;
+
+            case "isAccessedBefore/1":
+                ret = evaluator -> evaluator.isAccessedBefore(args.get(0));
+            break;
+
+            case "isAccessedBefore/2":
+                ret = evaluator -> evaluator.isAccessedBefore(args.get(0), args.get(1));
+            break;
+
+            case "isAccessTimeAfter/1":
+                ret = evaluator -> evaluator.isAccessTimeAfter(args.get(0));
+            break;
+
+            case "isAccessTimeAfter/2":
+                ret = evaluator -> evaluator.isAccessTimeAfter(args.get(0), args.get(1));
+            break;
+
+            case "isAccessTimeBefore/1":
+                ret = evaluator -> evaluator.isAccessTimeBefore(args.get(0));
+            break;
+
+            case "isAccessTimeBefore/2":
+                ret = evaluator -> evaluator.isAccessTimeBefore(args.get(0), args.get(1));
+            break;
+
+            case "isAccessTimeBetween/2":
+                ret = evaluator -> evaluator.isAccessTimeBetween(args.get(0), args.get(1));
+            break;
+
+            case "isAccessTimeBetween/3":
+                ret = evaluator -> evaluator.isAccessTimeBetween(args.get(0), args.get(1), args.get(2));
+            break;
+
+            default:
+                throw new IllegalArgumentException("unsupported method " + methodName + " with " + args.size() + " arguments");
+        }
+
+        return ret;
+    }
+
+    // called after the opening parenthesis
+    private List<String> parseArguments() {
+        List<String> ret = new ArrayList<>();
+
+        if (!consume(")")) {
+            do {
+                ret.add(parseString());
+            } while (consume(","));
+
+            expect(")");
+        }
+
+        return ret;
+    }
+
+    private String parseIdentifierPath() {
+        skipSpaces();
+
+        int start = pos;
+
+        while (true) {
+            if (pos == script.length() || !Character.isJavaIdentifierStart(script.charAt(pos))) {
+                throw new IllegalArgumentException("identifier expected at " + pos);
+            }
+
+            while (pos < script.length() && Character.isJavaIdentifierPart(script.charAt(pos))) {
+                pos++;
+            }
+
+            if (pos < script.length() && script.charAt(pos) == '.') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+
+        return script.substring(start, pos);
+    }
+
+    // only literals without escape sequences are supported
+    private String parseString() {
+        skipSpaces();
+
+        char quote = pos < script.length() ? script.charAt(pos) : 0;
+
+        if (quote != '\'' && quote != '"') {
+            throw new IllegalArgumentException("string literal expected at " + pos);
+        }
+
+        int end = script.indexOf(quote, pos + 1);
+
+        if (end == -1) {
+            throw new IllegalArgumentException("unterminated string literal at " + pos);
+        }
+
+        String ret = script.substring(pos + 1, end);
+
+        if (ret.indexOf('\\') != -1 || ret.indexOf('\n') != -1) {
+            throw new IllegalArgumentException("unsupported string literal at " + pos);
+        }
+
+        pos = end + 1;
+
+        return ret;
+    }
+
+    private boolean consume(String token) {
+        skipSpaces();
+
+        boolean ret = script.startsWith(token, pos);
+
+        if (ret) {
+            pos += token.length();
+        }
+
+        return ret;
+    }
+
+    private void expect(String token) {
+        if (!consume(token)) {
+            throw new IllegalArgumentException("'" + token + "' expected at " + pos);
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < script.length() && Character.isWhitespace(script.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * Thrown by a parsed condition for a request that the script engine must evaluate the script for.
+     */
+    public static final class ScriptEngineRequiredException extends RuntimeException {
+        private ScriptEngineRequiredException() {
+            super("script engine required", null, false, false); // without stack trace, as one instance is thrown for every such request
+        }
+    }
+}
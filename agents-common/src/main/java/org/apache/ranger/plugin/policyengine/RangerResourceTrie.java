@@ -36,16 +36,18 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -58,6 +60,8 @@
     private static final Logger PERF_TRIE_INIT_LOG = RangerPerfTracer.getPerfLogger("resourcetrie.init");
     private static final Logger PERF_TRIE_OP_LOG   = RangerPerfTracer.getPerfLogger("resourcetrie.op");
 
+    public static final String TRIE_COMPACT_NODES = "ranger.policyengine.trie.compact.nodes";
+
     private static final String DEFAULT_WILDCARD_CHARS    = "*?";
     private static final String TRIE_BUILDER_THREAD_COUNT = "ranger.policyengine.trie.builder.thread.count";
 
@@ -67,9 +71,11 @@
     private final String            wildcardChars;
     private final boolean           isOptimizedForRetrieval;
     private final boolean           isOptimizedForSpace;
-    private final Character         separatorChar;
+    private final boolean           isCompactNodes;
+    private final char              separatorChar;
     private       Set<T>            inheritedEvaluators;
-    private final TrieNode<T>       root;
+    private       TrieNode<T>       root;
+    private       Object            owner = new Object(); // identifies nodes created by this trie; only these are updated in place
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
         this(resourceDef, evaluators, true, null);
@@ -88,18 +94,13 @@ public RangerResourceTrie(RangerResourceTrie<T> other) {
         this.wildcardChars           = other.wildcardChars;
         this.isOptimizedForSpace     = other.isOptimizedForSpace;
         this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
+        this.isCompactNodes          = other.isCompactNodes;
         this.separatorChar           = other.separatorChar;
         this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
+        this.root                    = other.root;
 
-        wrapUpUpdate();
-
-        if (!isOptimizedForRetrieval) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Trie for " + this.resourceDef.getName() + " is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root");
-            }
-            root.undoSetup();
-        }
+        // nodes are now shared by both tries: subsequent updates in either trie must copy the nodes they change
+        other.owner = new Object();
 
         RangerPerfTracer.logAlways(perf);
 
@@ -163,6 +164,7 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         this.wildcardChars           = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
         this.isOptimizedForSpace     = isOptimizedForSpace;
         this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
+        this.isCompactNodes          = isOptimizedForSpace && (config == null || config.getBoolean(TRIE_COMPACT_NODES, true));
         this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
 
         final TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
@@ -186,7 +188,7 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + "): " + this);
+            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + ", isCompactNodes=" + this.isCompactNodes + "): " + this);
         }
     }
 
@@ -215,6 +217,36 @@ public Set<T> getEvaluatorsForResource(Object resource, ResourceElementMatchingS
         return null;
     }
 
+    /**
+     * Adds evaluators for the given resource to the collector, instead of returning them in a Set like
+     * getEvaluatorsForResource() does. With a collector that is reused across calls, like a cleared ArrayList,
+     * lookups don't allocate intermediate sets.
+     *
+     * The collector may receive an evaluator more than once - for example when it matches more than one value in
+     * a multi-valued resource, or more than one node in a trie optimized for space. Use a Set as the collector when
+     * duplicates are not acceptable.
+     *
+     * @param resource  resource value: a String or a Collection of Strings
+     * @param scope     matching scope
+     * @param collector collection to add the matched evaluators to
+     */
+    @SuppressWarnings("unchecked")
+    public void collectEvaluatorsForResource(Object resource, ResourceElementMatchingScope scope, Collection<? super T> collector) {
+        if (resource instanceof String) {
+            getEvaluatorsForResource((String) resource, scope, collector);
+        } else if (resource instanceof Collection) {
+            Collection<String> resources = (Collection<String>) resource;
+
+            if (CollectionUtils.isEmpty(resources)) {  // treat empty collection same as empty-string
+                getEvaluatorsForResource("", scope, collector);
+            } else {
+                for (String value : resources) {
+                    getEvaluatorsForResource(value, scope, collector);
+                }
+            }
+        }
+    }
+
     public void add(RangerPolicyResource resource, T evaluator) {
         RangerPerfTracer perf = null;
 
@@ -232,7 +264,7 @@ public void add(RangerPolicyResource resource, T evaluator) {
             } else {
                 if (CollectionUtils.isNotEmpty(resource.getValues())) {
                     for (String value : resource.getValues()) {
-                        insert(root, value, resource.getIsRecursive(), evaluator);
+                        addEvaluator(value, resource.getIsRecursive(), evaluator);
                     }
                 }
             }
@@ -260,10 +292,7 @@ public void delete(RangerPolicyResource resource, T evaluator) {
             removeInheritedEvaluator(evaluator);
         } else {
             for (String value : resource.getValues()) {
-                TrieNode<T> node = getNodeForResource(value);
-                if (node != null) {
-                    node.removeEvaluatorFromSubtree(evaluator);
-                }
+                removeEvaluator(value, evaluator);
             }
         }
 
@@ -276,7 +305,20 @@ public void delete(RangerPolicyResource resource, T evaluator) {
 
     public void wrapUpUpdate() {
         if (root != null) {
-            root.wrapUpUpdate();
+            if (isOptimizedForRetrieval) {
+                RangerPerfTracer postSetupPerf = null;
+
+                if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + resourceDef.getName() + "-postSetup)");
+                }
+
+                postSetup(root, null);
+
+                RangerPerfTracer.logAlways(postSetupPerf);
+            } else if (isCompactNodes) {
+                compact(root, new HashMap<>());
+            }
+
             if (TRACE_LOG.isTraceEnabled()) {
                 TRACE_LOG.trace("Trie Dump from RangerResourceTrie.wrapUpUpdate(name=" + resourceDef.getName() + "):\n[" + dumpTrie() + "]");
             }
@@ -312,65 +354,6 @@ private void removeInheritedEvaluator(T evaluator) {
         }
     }
 
-    private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T> parent) {
-        if (TRACE_LOG.isTraceEnabled()) {
-            StringBuilder sb = new StringBuilder();
-            source.toString(sb);
-            TRACE_LOG.trace("==> copyTrieSubtree(" + sb + ")");
-        }
-
-        TrieNode<T> dest = new TrieNode<>(source.str);
-
-        if (parent != null) {
-            parent.addChild(dest);
-        }
-
-        synchronized (source.children) {
-            dest.isSetup                           = source.isSetup;
-            dest.isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
-
-            if (source.isSharingParentWildcardEvaluators) {
-                if (dest.getParent() != null) {
-                    dest.wildcardEvaluators = dest.getParent().getWildcardEvaluators();
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            } else {
-                if (source.wildcardEvaluators != null) {
-                    dest.wildcardEvaluators = new HashSet<>(source.wildcardEvaluators);
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            }
-
-            if (source.evaluators != null) {
-                if (source.evaluators == source.wildcardEvaluators) {
-                    dest.evaluators = dest.wildcardEvaluators;
-                } else {
-                    dest.evaluators = new HashSet<>(source.evaluators);
-                }
-            } else {
-                dest.evaluators = null;
-            }
-        }
-
-        Map<Character, TrieNode<T>> children = source.getChildren();
-
-        for (Map.Entry<Character, TrieNode<T>> entry : children.entrySet()) {
-            copyTrieSubtree(entry.getValue(), dest);
-        }
-
-        if (TRACE_LOG.isTraceEnabled()) {
-            StringBuilder sourceAsString = new StringBuilder(), destAsString = new StringBuilder();
-            source.toString(sourceAsString);
-            dest.toString(destAsString);
-
-            TRACE_LOG.trace("<== copyTrieSubtree(" + sourceAsString + ") : " + destAsString);
-        }
-
-        return dest;
-    }
-
     private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluators, int builderThreadCount) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> buildTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isMultiThreaded=" + (builderThreadCount > 1) + ")");
@@ -382,7 +365,7 @@ private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluat
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(resourceDef=" + resourceDef.getName() + ")");
         }
 
-        TrieNode<T>                           ret             = new TrieNode<>(null);
+        TrieNode<T>                           ret             = newNode(null);
         final boolean                         isMultiThreaded = builderThreadCount > 1;
         final List<ResourceTrieBuilderThread> builderThreads;
         final Map<Character, Integer>         builderThreadMap;
@@ -530,11 +513,11 @@ private int getMaxDepth() {
         return root.getMaxDepth();
     }
 
-    private Character getLookupChar(char ch) {
+    private char getLookupChar(char ch) {
         return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private Character getLookupChar(String str, int index) {
+    private char getLookupChar(String str, int index) {
         return getLookupChar(str.charAt(index));
     }
 
@@ -565,7 +548,7 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
         final boolean isWildcard = prefix.length() != resource.length();
 
         if (StringUtils.isNotEmpty(prefix)) {
-            curr = curr.getOrCreateChild(prefix);
+            curr = getOrCreateChild(curr, prefix);
         }
 
         if(isWildcard || isRecursive) {
@@ -576,6 +559,203 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
 
     }
 
+    /*
+     * Adds an evaluator to a trie that is already built. Unlike insert(), this doesn't update nodes shared with other
+     * tries: such nodes, and their ancestors, are copied first. Nodes that are set up include wildcard evaluators of
+     * their ancestors, hence a wildcard evaluator is added to the node's descendants that are set up as well.
+     */
+    private void addEvaluator(String resource, boolean isRecursive, T evaluator) {
+        TrieNode<T>   curr       = getUpdatableNode(null, root);
+        final String  prefix     = getNonWildcardPrefix(resource);
+        final boolean isWildcard = prefix.length() != resource.length();
+
+        if (StringUtils.isNotEmpty(prefix)) {
+            curr = getOrCreateChild(curr, prefix);
+        }
+
+        if (isWildcard || isRecursive) {
+            curr.addWildcardEvaluatorOnUpdate(evaluator, null);
+
+            if (!isOptimizedForSpace) {
+                addWildcardEvaluatorToDescendants(curr, evaluator);
+            }
+        } else {
+            curr.addEvaluatorOnUpdate(evaluator);
+        }
+    }
+
+    private void addWildcardEvaluatorToDescendants(TrieNode<T> node, T evaluator) {
+        for (TrieNode<T> child : new ArrayList<>(node.getChildren().values())) {
+            TrieNode<T> updatableChild = getUpdatableNode(node, child);
+
+            if (updatableChild.isSetup()) {
+                updatableChild.addWildcardEvaluatorOnUpdate(evaluator, node);
+            }
+
+            addWildcardEvaluatorToDescendants(updatableChild, evaluator);
+        }
+    }
+
+    /*
+     * Removes an evaluator from the node for the given resource, copying nodes shared with other tries as in addEvaluator().
+     * The evaluator is expected to be removed for all its resources, hence it is removed from descendants that are set up.
+     */
+    private void removeEvaluator(String resource, T evaluator) {
+        if (getNodeForResource(resource) == null) {
+            return;
+        }
+
+        TrieNode<T> parent = null;
+        TrieNode<T> curr   = getUpdatableNode(null, root);
+        final int   len    = getNonWildcardPrefixLength(resource);
+        int         i      = 0;
+
+        while (i < len) {
+            final TrieNode<T> child = curr.getChild(getLookupChar(resource, i));
+
+            if (child == null) {
+                break;
+            }
+
+            final String childStr = child.getStr();
+
+            if (!resource.regionMatches(optIgnoreCase, i, childStr, 0, childStr.length())) {
+                break;
+            }
+
+            parent = curr;
+            curr   = getUpdatableNode(curr, child);
+            i      += childStr.length();
+        }
+
+        final boolean isWildcardEvaluator = curr.getWildcardEvaluators() != null && curr.getWildcardEvaluators().contains(evaluator);
+
+        curr.removeEvaluatorOnUpdate(evaluator, null);
+
+        if (isWildcardEvaluator && !isOptimizedForSpace) {
+            removeEvaluatorFromDescendants(curr, evaluator);
+        }
+
+        if (parent != null && curr.isEmpty()) {
+            parent.getChildren().remove(getLookupChar(curr.getStr(), 0));
+        }
+    }
+
+    private void removeEvaluatorFromDescendants(TrieNode<T> node, T evaluator) {
+        for (TrieNode<T> child : new ArrayList<>(node.getChildren().values())) {
+            TrieNode<T> updatableChild = getUpdatableNode(node, child);
+
+            if (updatableChild.isSetup()) {
+                updatableChild.removeEvaluatorOnUpdate(evaluator, node);
+            }
+
+            removeEvaluatorFromDescendants(updatableChild, evaluator);
+        }
+    }
+
+    private TrieNode<T> newNode(String str) {
+        return new TrieNode<>(str, isCompactNodes, owner);
+    }
+
+    // returns the node if it was created by this trie, otherwise replaces it with a copy in its parent (or as root)
+    private TrieNode<T> getUpdatableNode(TrieNode<T> parent, TrieNode<T> node) {
+        if (node.owner == owner) {
+            return node;
+        }
+
+        TrieNode<T> ret = new TrieNode<>(node, owner);
+
+        if (parent == null) {
+            root = ret;
+        } else {
+            parent.getChildren().put(getLookupChar(node.getStr(), 0), ret);
+        }
+
+        return ret;
+    }
+
+    private TrieNode<T> getOrCreateChild(TrieNode<T> node, String str) {
+        int         len   = str.length();
+        TrieNode<T> child = node.getChild(getLookupChar(str, 0));
+
+        if (child == null) {
+            child = newNode(str);
+
+            addChild(node, child);
+        } else {
+            child = getUpdatableNode(node, child);
+
+            final String  childStr     = child.getStr();
+            final int     childStrLen  = childStr.length();
+            final boolean isExactMatch = optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
+
+            if (!isExactMatch) {
+                final int numOfCharactersToMatch = Math.min(childStrLen, len);
+                int       index                  = 1;
+
+                for (; index < numOfCharactersToMatch; index++) {
+                    if (getLookupChar(childStr, index) != getLookupChar(str, index)) {
+                        break;
+                    }
+                }
+
+                if (index == numOfCharactersToMatch) {
+                    // Matched all
+                    if (childStrLen > len) {
+                        // Existing node has longer string, need to break up this node
+                        TrieNode<T> newChild = newNode(str);
+
+                        addChild(node, newChild);
+                        child.setStr(childStr.substring(index));
+                        addChild(newChild, child);
+
+                        child = newChild;
+                    } else {
+                        // This is a longer string, build a child with leftover string
+                        child = getOrCreateChild(child, str.substring(index));
+                    }
+                } else {
+                    // Partial match for both; both have leftovers
+                    String      matchedPart = str.substring(0, index);
+                    TrieNode<T> newChild    = newNode(matchedPart);
+
+                    addChild(node, newChild);
+                    child.setStr(childStr.substring(index));
+                    addChild(newChild, child);
+
+                    child = getOrCreateChild(newChild, str.substring(index));
+                }
+            }
+        }
+
+        return child;
+    }
+
+    private void addChild(TrieNode<T> node, TrieNode<T> child) {
+        node.getChildren().put(getLookupChar(child.getStr(), 0), child);
+    }
+
+    // sets up nodes created by this trie; other nodes are shared with the trie this was copied from, where these were set up
+    private void postSetup(TrieNode<T> node, Set<T> parentWildcardEvaluators) {
+        node.setup(parentWildcardEvaluators);
+
+        for (TrieNode<T> child : node.getChildren().values()) {
+            if (child.owner == owner) {
+                postSetup(child, node.getWildcardEvaluators());
+            }
+        }
+    }
+
+    private void compact(TrieNode<T> node, Map<Set<T>, Set<T>> sharedEvaluatorSets) {
+        node.compact(sharedEvaluatorSets);
+
+        for (TrieNode<T> child : node.getChildren().values()) {
+            if (child.owner == owner) {
+                compact(child, sharedEvaluatorSets);
+            }
+        }
+    }
+
     private int getNonWildcardPrefixLength(String str) {
         int minIndex = str.length();
 
@@ -596,9 +776,15 @@ private String getNonWildcardPrefix(String str) {
         return (prefixLen < str.length()) ? str.substring(0, prefixLen) : str;
     }
 
-
-
     private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatchingScope scope) {
+        return getEvaluatorsForResource(resource, scope, null);
+    }
+
+    /*
+     * When collector is not null, matched evaluators are added to it and null is returned; no intermediate sets are
+     * created in this case. Otherwise, returns the evaluators - either a set held in the trie or a new set.
+     */
+    private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatchingScope scope, Collection<? super T> collector) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerResourceTrie.getEvaluatorsForResource(" + resource + ", " + scope + ")");
         }
@@ -615,15 +801,15 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
         final int   len    = resource.length();
         int         i      = 0;
 
-        Set<T>      accumulatedEvaluators = new HashSet<>();
+        // when optimized for space, wildcard evaluators are not copied down the trie; these are accumulated during traversal
+        final Set<T>                accumulatedEvaluators = isOptimizedForSpace && collector == null ? new HashSet<>() : null;
+        final Collection<? super T> accumulator           = collector != null ? collector : accumulatedEvaluators;
 
         while (i < len) {
             if (!isOptimizedForSpace) {
                 curr.setupIfNeeded(parent);
             } else {
-                if (curr.getWildcardEvaluators() != null) {
-                    accumulatedEvaluators.addAll(curr.getWildcardEvaluators());
-                }
+                addAll(accumulator, curr.getWildcardEvaluators());
             }
 
             child = curr.getChild(getLookupChar(resource, i));
@@ -646,9 +832,7 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
         if (!isOptimizedForSpace) {
             curr.setupIfNeeded(parent);
         } else {
-            if (curr.getWildcardEvaluators() != null) {
-                accumulatedEvaluators.addAll(curr.getWildcardEvaluators());
-            }
+            addAll(accumulator, curr.getWildcardEvaluators());
         }
 
         boolean isSelfMatch = (i == len);
@@ -656,29 +840,36 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
 
         if (!isOptimizedForSpace) {
             ret = isSelfMatch ? curr.getEvaluators() : curr.getWildcardEvaluators();
+
+            if (collector != null) {
+                addAll(collector, ret);
+
+                ret = null;
+            }
         } else {
             if (isSelfMatch) {
-                if (curr.getEvaluators() != null) {
-                    accumulatedEvaluators.addAll(curr.getEvaluators());
-                }
+                addAll(accumulator, curr.getEvaluators());
             }
             ret = accumulatedEvaluators;
         }
 
-        final boolean includeChildEvaluators = scope == ResourceElementMatchingScope.SELF_OR_CHILD || scope == ResourceElementMatchingScope.SELF_OR_PREFIX;
-        final Set<T>  childEvaluators        = includeChildEvaluators ? new HashSet<>() : null;
+        final boolean               includeChildEvaluators = scope == ResourceElementMatchingScope.SELF_OR_CHILD || scope == ResourceElementMatchingScope.SELF_OR_PREFIX;
+        final Set<T>                childEvaluators        = includeChildEvaluators && collector == null ? new HashSet<>() : null;
+        final Collection<? super T> childAccumulator       = collector != null ? collector : childEvaluators;
 
         if (scope == ResourceElementMatchingScope.SELF_OR_CHILD) {
             final boolean resourceEndsWithSep = resource.charAt(resource.length() - 1) == separatorChar;
 
             if (isSelfMatch) { // resource == path(curr)
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().stream().forEach(c -> c.collectChildEvaluators(separatorChar, 0, childEvaluators));
+                    for (TrieNode<T> c : curr.getChildren().values()) {
+                        collectChildEvaluators(c, curr, separatorChar, 0, childAccumulator);
+                    }
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    TrieNode<T> sepChild = curr.getChild(separatorChar);
 
-                    if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, childEvaluators);
+                    if (sepChild != null) {
+                        collectChildEvaluators(sepChild, curr, separatorChar, 1, childAccumulator);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -687,14 +878,14 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, childEvaluators);
+                        collectChildEvaluators(child, curr, separatorChar, remainingLen, childAccumulator);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, childEvaluators);
+                        collectChildEvaluators(child, curr, separatorChar, remainingLen + 1, childAccumulator);
                     }
                 }
             }
         } else if (scope == ResourceElementMatchingScope.SELF_OR_PREFIX) {
-            curr.collectChildEvaluators(resource, i, childEvaluators);
+            collectChildEvaluators(curr, resource, i, childAccumulator);
         }
 
         if (CollectionUtils.isNotEmpty(childEvaluators)) {
@@ -708,12 +899,101 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
         RangerPerfTracer.logAlways(perf);
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie.getEvaluatorsForResource(" + resource + ", " + scope + "): evaluators=" + (ret == null ? null : Arrays.deepToString(ret.toArray())));
+            Collection<?> evaluators = collector != null ? collector : ret;
+
+            LOG.debug("<== RangerResourceTrie.getEvaluatorsForResource(" + resource + ", " + scope + "): evaluators=" + (evaluators == null ? null : Arrays.deepToString(evaluators.toArray())));
         }
 
         return ret;
     }
 
+    // element-wise add: unlike Collection.addAll(), doesn't create an array copy of evaluators
+    private static <E> void addAll(Collection<? super E> dest, Set<E> evaluators) {
+        if (evaluators == null) {
+            return;
+        }
+
+        if (evaluators instanceof ImmutableEvaluatorSet) {
+            ImmutableEvaluatorSet<E> immutableSet = (ImmutableEvaluatorSet<E>) evaluators;
+
+            for (int i = 0; i < immutableSet.size(); i++) {
+                dest.add(immutableSet.get(i));
+            }
+        } else {
+            for (E evaluator : evaluators) {
+                dest.add(evaluator);
+            }
+        }
+    }
+
+    private void collectChildEvaluators(TrieNode<T> node, TrieNode<T> parent, char sep, int startIdx, Collection<? super T> childEvaluators) {
+        if (!isOptimizedForSpace) {
+            node.setupIfNeeded(parent);
+        }
+
+        final String str    = node.getStr();
+        final int    sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
+
+        if (sepPos == -1) { // ex: startIdx=5, path(str)=/tmp/test, path(a child) could be: /tmp/test.txt, /tmp/test/, /tmp/test/a, /tmp/test/a/b
+            if (isOptimizedForSpace) {
+                addAll(childEvaluators, node.getWildcardEvaluators());
+            }
+            addAll(childEvaluators, node.getEvaluators());
+
+            for (TrieNode<T> c : node.getChildren().values()) {
+                collectChildEvaluators(c, node, sep, 0, childEvaluators);
+            }
+        } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
+            if (isOptimizedForSpace) {
+                addAll(childEvaluators, node.getWildcardEvaluators());
+            }
+            addAll(childEvaluators, node.getEvaluators());
+        }
+    }
+
+    private void collectChildEvaluators(TrieNode<T> node, String resource, int startIndex, Collection<? super T> childEvaluators) {
+        if (startIndex == resource.length()) {
+            collectChildEvaluators(node, childEvaluators);
+        } else if (startIndex < resource.length()) {
+            TrieNode<T> childNode = node.getChild(getLookupChar(resource, startIndex));
+
+            if (childNode != null) {
+                if (!isOptimizedForSpace) {
+                    childNode.setupIfNeeded(node);
+                }
+
+                String childStr   = childNode.getStr();
+                int    lenToMatch = Math.min(resource.length() - startIndex, childStr.length());
+
+                if (resource.regionMatches(optIgnoreCase, startIndex, childStr, 0, lenToMatch)) {
+                    addAll(childEvaluators, childNode.getWildcardEvaluators());
+                    addAll(childEvaluators, childNode.getEvaluators());
+
+                    if (resource.length() == (startIndex + lenToMatch)) {
+                        collectChildEvaluators(childNode, childEvaluators);
+                    } else {
+                        for (TrieNode<T> c : childNode.getChildren().values()) {
+                            collectChildEvaluators(c, resource, startIndex + childStr.length(), childEvaluators);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectChildEvaluators(TrieNode<T> node, Collection<? super T> childEvaluators) {
+        for (TrieNode<T> childNode : node.getChildren().values()) {
+            if (!isOptimizedForSpace) {
+                childNode.setupIfNeeded(node);
+            }
+
+            addAll(childEvaluators, childNode.getWildcardEvaluators());
+            addAll(childEvaluators, childNode.getEvaluators());
+
+            collectChildEvaluators(childNode, childEvaluators);
+        }
+    }
+
     private TrieNode<T> getNodeForResource(String resource) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerResourceTrie.getNodeForResource(" + resource + ")");
@@ -813,6 +1093,7 @@ public String toString() {
         sb.append("resourceName=").append(resourceDef.getName());
         sb.append("; optIgnoreCase=").append(optIgnoreCase);
         sb.append("; optWildcard=").append(optWildcard);
+        sb.append("; isCompactNodes=").append(isCompactNodes);
         sb.append("; wildcardChars=").append(wildcardChars);
         sb.append("; nodeCount=").append(trieData.nodeCount);
         sb.append("; leafNodeCount=").append(trieData.leafNodeCount);
@@ -848,7 +1129,7 @@ public String toString() {
             }
         }
 
-        private final TrieNode<T>             thisRoot  = new TrieNode<>(null);
+        private final TrieNode<T>             thisRoot  = newNode(null);
         private final BlockingQueue<WorkItem> workQueue = new LinkedBlockingQueue<>();
 
         ResourceTrieBuilderThread() {
@@ -905,17 +1186,92 @@ static class TrieData {
         int wildcardEvaluatorListRefCount;
     }
 
-    class TrieNode<U extends T> {
+    /**
+     * Read-only set backed by an array; used for evaluators in compact trie nodes. Evaluator sets in a trie
+     * are small and are only iterated during lookups, so a linear contains() is good enough.
+     */
+    static final class ImmutableEvaluatorSet<E> extends AbstractSet<E> {
+        private final Object[] elements;
+
+        ImmutableEvaluatorSet(Collection<E> elements) {
+            this.elements = elements.toArray();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < elements.length;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (next >= elements.length) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return (E) elements[next++];
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        E get(int index) {
+            return (E) elements[index];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (Object element : elements) {
+                if (element.equals(o)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
+
+    /*
+     * Nodes don't refer to their parent or to the trie, so that a copy of a trie can share the nodes it doesn't change
+     * with the original trie. Nodes created by the copy are identified by its owner.
+     */
+    static class TrieNode<U extends RangerResourceEvaluator> {
         private          String                      str;
-        private          TrieNode<U>                 parent;
-        private final    Map<Character, TrieNode<U>> children = new HashMap<>();
+        private final    Map<Character, TrieNode<U>> children;
         private volatile Set<U>                      evaluators;
         private volatile Set<U>                      wildcardEvaluators;
         private          boolean                     isSharingParentWildcardEvaluators;
         private volatile boolean                     isSetup = false;
+        private final    Object                      owner;
 
-        TrieNode(String str) {
-            this.str = str;
+        TrieNode(String str, boolean isCompactNodes, Object owner) {
+            this.str      = str;
+            this.children = isCompactNodes ? new CharArrayMap<>() : new HashMap<>();
+            this.owner    = owner;
+        }
+
+        // copies the node, sharing its children and evaluator sets; evaluator sets of copied nodes are replaced, not modified
+        TrieNode(TrieNode<U> other, Object owner) {
+            synchronized (other.children) {
+                this.str                               = other.str;
+                this.children                          = other.children instanceof CharArrayMap ? new CharArrayMap<>((CharArrayMap<TrieNode<U>>) other.children) : new HashMap<>(other.children);
+                this.evaluators                        = other.evaluators;
+                this.wildcardEvaluators                = other.wildcardEvaluators;
+                this.isSharingParentWildcardEvaluators = other.isSharingParentWildcardEvaluators;
+                this.isSetup                           = other.isSetup;
+            }
+
+            this.owner = owner;
         }
 
         String getStr() {
@@ -926,14 +1282,6 @@ void setStr(String str) {
             this.str = str;
         }
 
-        TrieNode<U> getParent() {
-            return parent;
-        }
-
-        void setParent(TrieNode<U> parent) {
-            this.parent = parent;
-        }
-
         Map<Character, TrieNode<U>> getChildren() {
             return children;
         }
@@ -946,8 +1294,16 @@ Set<U> getWildcardEvaluators() {
             return wildcardEvaluators;
         }
 
-        TrieNode<U> getChild(Character ch) {
-            return children.get(ch);
+        boolean isSetup() {
+            return isSetup;
+        }
+
+        boolean isEmpty() {
+            return evaluators == null && wildcardEvaluators == null && children.isEmpty();
+        }
+
+        TrieNode<U> getChild(char ch) {
+            return children instanceof CharArrayMap ? ((CharArrayMap<TrieNode<U>>) children).get(ch) : children.get(ch);
         }
 
         void populateTrieData(RangerResourceTrie.TrieData trieData) {
@@ -1000,69 +1356,11 @@ int getMaxDepth() {
             return ret + 1;
         }
 
-        TrieNode<U> getOrCreateChild(String str) {
-            int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
-
-            if (child == null) {
-                child = new TrieNode<>(str);
-
-                addChild(child);
-            } else {
-                final String  childStr     = child.getStr();
-                final int     childStrLen  = childStr.length();
-                final boolean isExactMatch = optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
-
-                if (!isExactMatch) {
-                    final int numOfCharactersToMatch = Math.min(childStrLen, len);
-                    int       index                  = 1;
-
-                    for (; index < numOfCharactersToMatch; index++) {
-                        if (getLookupChar(childStr, index) != getLookupChar(str, index)) {
-                            break;
-                        }
-                    }
-
-                    if (index == numOfCharactersToMatch) {
-                        // Matched all
-                        if (childStrLen > len) {
-                            // Existing node has longer string, need to break up this node
-                            TrieNode<U> newChild = new TrieNode<>(str);
-
-                            this.addChild(newChild);
-                            child.setStr(childStr.substring(index));
-                            newChild.addChild(child);
-
-                            child = newChild;
-                        } else {
-                            // This is a longer string, build a child with leftover string
-                            child = child.getOrCreateChild(str.substring(index));
-                        }
-                    } else {
-                        // Partial match for both; both have leftovers
-                        String      matchedPart = str.substring(0, index);
-                        TrieNode<U> newChild    = new TrieNode<>(matchedPart);
-
-                        this.addChild(newChild);
-                        child.setStr(childStr.substring(index));
-                        newChild.addChild(child);
-
-                        child = newChild.getOrCreateChild(str.substring(index));
-                    }
-                }
-            }
-
-            return child;
-        }
-
-        private void addChild(TrieNode<U> child) {
-            children.put(getLookupChar(child.getStr(), 0), child);
-            child.setParent(this);
-        }
-
         void addEvaluator(U evaluator) {
             if (evaluators == null) {
                 evaluators = new HashSet<>();
+            } else if (evaluators instanceof ImmutableEvaluatorSet) {
+                evaluators = new HashSet<>(evaluators);
             }
 
             evaluators.add(evaluator);
@@ -1071,113 +1369,78 @@ void addEvaluator(U evaluator) {
         void addWildcardEvaluator(U evaluator) {
             if (wildcardEvaluators == null) {
                 wildcardEvaluators = new HashSet<>();
+            } else if (wildcardEvaluators instanceof ImmutableEvaluatorSet) {
+                wildcardEvaluators = new HashSet<>(wildcardEvaluators);
             }
 
             wildcardEvaluators.add(evaluator);
         }
 
-        void removeEvaluator(U evaluator) {
-            if (CollectionUtils.isNotEmpty(evaluators)) {
-                evaluators.remove(evaluator);
-
-                if (CollectionUtils.isEmpty(evaluators)) {
-                    evaluators = null;
-                }
-            }
+        void addEvaluatorOnUpdate(U evaluator) {
+            evaluators = copyWith(evaluators, evaluator);
         }
 
-        void removeWildcardEvaluator(U evaluator) {
-            if (CollectionUtils.isNotEmpty(wildcardEvaluators)) {
-                wildcardEvaluators.remove(evaluator);
-
-                if (CollectionUtils.isEmpty(wildcardEvaluators)) {
-                    wildcardEvaluators = null;
-                }
-            }
-        }
+        /*
+         * parent: not null when the evaluator is added for an ancestor - in which case it has already been added to
+         * the parent's wildcard evaluators. If this node is set up, the evaluator is included in its evaluators as well.
+         */
+        void addWildcardEvaluatorOnUpdate(U evaluator, TrieNode<U> parent) {
+            final Set<U> oldWildcardEvaluators = wildcardEvaluators;
 
-        void undoSetup() {
-            for (TrieNode<U> child : children.values()) {
-                child.undoSetup();
+            if (isSetup && isSharingParentWildcardEvaluators && parent != null && parent.isSetup) {
+                wildcardEvaluators = parent.wildcardEvaluators;
+            } else {
+                wildcardEvaluators                = copyWith(oldWildcardEvaluators, evaluator);
+                isSharingParentWildcardEvaluators = false;
             }
 
             if (isSetup) {
-                if (evaluators != null) {
-                    if (evaluators == wildcardEvaluators) {
-                        evaluators = null;
-                    } else {
-                        if (wildcardEvaluators != null) {
-                            evaluators.removeAll(wildcardEvaluators);
-
-                            if (CollectionUtils.isEmpty(evaluators)) {
-                                evaluators = null;
-                            }
-                        }
-                    }
-                }
-
-                if (wildcardEvaluators != null) {
-                    if (isSharingParentWildcardEvaluators) {
-                        wildcardEvaluators = null;
-                    } else {
-                        Set<U> parentWildcardEvaluators = getParent() == null ? null : getParent().getWildcardEvaluators();
-
-                        if (parentWildcardEvaluators != null) {
-                            wildcardEvaluators.removeAll(parentWildcardEvaluators);
-
-                            if (CollectionUtils.isEmpty(wildcardEvaluators)) {
-                                wildcardEvaluators = null;
-                            }
-                        }
-                    }
-                }
-
-                isSharingParentWildcardEvaluators = false;
-                isSetup                           = false;
+                evaluators = evaluators == oldWildcardEvaluators ? wildcardEvaluators : copyWith(evaluators, evaluator);
             }
         }
 
-        void removeSelfFromTrie() {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> removeSelfFromTrie(" + this + ")");
-            }
-            if (evaluators == null && children.size() == 0) {
-                TrieNode<U> parent = getParent();
-                if (parent != null) {
-                    parent.children.remove(str.charAt(0));
-                }
-            } else {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("removeSelfFromTrie(" + this + ") could not remove self from Trie");
+        // parent: not null when the evaluator is removed for an ancestor, as in addWildcardEvaluatorOnUpdate()
+        void removeEvaluatorOnUpdate(U evaluator, TrieNode<U> parent) {
+            final Set<U> oldWildcardEvaluators = wildcardEvaluators;
+
+            if (oldWildcardEvaluators != null && oldWildcardEvaluators.contains(evaluator)) {
+                if (isSetup && isSharingParentWildcardEvaluators && parent != null && parent.isSetup) {
+                    wildcardEvaluators = parent.wildcardEvaluators;
+                } else {
+                    wildcardEvaluators                = copyWithout(oldWildcardEvaluators, evaluator);
+                    isSharingParentWildcardEvaluators = false;
                 }
             }
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== removeSelfFromTrie(" + this + ")");
+
+            if (evaluators == oldWildcardEvaluators) {
+                evaluators = wildcardEvaluators;
+            } else if (evaluators != null && evaluators.contains(evaluator)) {
+                evaluators = copyWithout(evaluators, evaluator);
             }
         }
 
-        void wrapUpUpdate() {
-            if (isOptimizedForRetrieval) {
-                RangerPerfTracer postSetupPerf = null;
-
-                if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
-                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + resourceDef.getName() + "-postSetup)");
-                }
-
-                postSetup(null);
+        // replace evaluator sets with immutable arrays, shared by nodes having the same evaluators
+        void compact(Map<Set<U>, Set<U>> sharedEvaluatorSets) {
+            evaluators         = getSharedEvaluatorSet(evaluators, sharedEvaluatorSets);
+            wildcardEvaluators = getSharedEvaluatorSet(wildcardEvaluators, sharedEvaluatorSets);
 
-                RangerPerfTracer.logAlways(postSetupPerf);
-            }
+            ((CharArrayMap<TrieNode<U>>) children).trimToSize();
         }
 
-        void postSetup(Set<U> parentWildcardEvaluators) {
-            setup(parentWildcardEvaluators);
+        private Set<U> getSharedEvaluatorSet(Set<U> evaluators, Map<Set<U>, Set<U>> sharedEvaluatorSets) {
+            Set<U> ret = evaluators;
 
-            for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
-                TrieNode<U> child = entry.getValue();
+            if (evaluators != null) {
+                ret = sharedEvaluatorSets.get(evaluators);
+
+                if (ret == null) {
+                    ret = evaluators instanceof ImmutableEvaluatorSet ? evaluators : new ImmutableEvaluatorSet<>(evaluators);
 
-                child.postSetup(wildcardEvaluators);
+                    sharedEvaluatorSets.put(ret, ret);
+                }
             }
+
+            return ret;
         }
 
         void setupIfNeeded(TrieNode<U> parent) {
@@ -1200,6 +1463,7 @@ void setupIfNeeded(TrieNode<U> parent) {
             }
         }
 
+        // evaluator sets are replaced instead of being updated, as these might be shared with a copy of this node
         void setup(Set<U> parentWildcardEvaluators) {
             if (!isSetup) {
                 // finalize wildcard-evaluators list by including parent's wildcard evaluators
@@ -1207,9 +1471,11 @@ void setup(Set<U> parentWildcardEvaluators) {
                     if (CollectionUtils.isEmpty(this.wildcardEvaluators)) {
                         this.wildcardEvaluators = parentWildcardEvaluators;
                     } else {
-                        for (U evaluator : parentWildcardEvaluators) {
-                            addWildcardEvaluator(evaluator);
-                        }
+                        Set<U> wildcardEvaluators = new HashSet<>(this.wildcardEvaluators);
+
+                        wildcardEvaluators.addAll(parentWildcardEvaluators);
+
+                        this.wildcardEvaluators = wildcardEvaluators;
                     }
                 }
 
@@ -1220,115 +1486,14 @@ void setup(Set<U> parentWildcardEvaluators) {
                     if (CollectionUtils.isEmpty(this.evaluators)) {
                         this.evaluators = wildcardEvaluators;
                     } else {
-                        for (U evaluator : wildcardEvaluators) {
-                            addEvaluator(evaluator);
-                        }
-                    }
-                }
-                isSetup = true;
-            }
-        }
-
-        void collectChildEvaluators(Character sep, int startIdx, Set<U> childEvaluators) {
-            if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
-            }
-
-            final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
+                        Set<U> evaluators = new HashSet<>(this.evaluators);
 
-            if (sepPos == -1) { // ex: startIdx=5, path(str)=/tmp/test, path(a child) could be: /tmp/test.txt, /tmp/test/, /tmp/test/a, /tmp/test/a/b
-                if (isOptimizedForSpace) {
-                    if (this.wildcardEvaluators != null) {
-                        childEvaluators.addAll(this.wildcardEvaluators);
-                    }
-                }
-                if (this.evaluators != null) {
-                    childEvaluators.addAll(this.evaluators);
-                }
-
-                children.values().stream().forEach(c -> c.collectChildEvaluators(sep, 0, childEvaluators));
-            } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
-                if (isOptimizedForSpace) {
-                    if (this.wildcardEvaluators != null) {
-                        childEvaluators.addAll(this.wildcardEvaluators);
-                    }
-                }
-                if (this.evaluators != null) {
-                    childEvaluators.addAll(this.evaluators);
-                }
-            }
-        }
-
-        void collectChildEvaluators(String resource, int startIndex, Set<U> childEvaluators) {
-            if (startIndex == resource.length()) {
-                collectChildEvaluators(childEvaluators);
-            } else if (startIndex < resource.length()) {
-                Character   startChar = getLookupChar(resource, startIndex);
-                TrieNode<U> childNode = children.get(startChar);
-
-                if (childNode != null) {
-                    if (!isOptimizedForSpace) {
-                        childNode.setupIfNeeded(childNode.getParent());
-                    }
+                        evaluators.addAll(wildcardEvaluators);
 
-                    String childStr = childNode.getStr();
-                    int lenToMatch = Math.min(resource.length() - startIndex, childStr.length());
-
-                    if (resource.regionMatches(optIgnoreCase, startIndex, childStr, 0, lenToMatch)) {
-                        if (childNode.wildcardEvaluators != null) {
-                            childEvaluators.addAll(childNode.wildcardEvaluators);
-                        }
-
-                        if (childNode.evaluators != null) {
-                            childEvaluators.addAll(childNode.evaluators);
-                        }
-
-                        if (resource.length() == (startIndex + lenToMatch)) {
-                            childNode.collectChildEvaluators(childEvaluators);
-                        } else {
-                            childNode.children.values().stream().forEach(c -> c.collectChildEvaluators(resource, startIndex + childStr.length(), childEvaluators));
-                        }
+                        this.evaluators = evaluators;
                     }
                 }
-            }
-        }
-
-        private void collectChildEvaluators(Set<U> childEvaluators) {
-            Stack<TrieNode<U>> nodes = new Stack<>();
-
-            nodes.addAll(children.values());
-
-            while (!nodes.isEmpty()) {
-                TrieNode<U> childNode = nodes.pop();
-
-                if (!isOptimizedForSpace) {
-                    childNode.setupIfNeeded(childNode.getParent());
-                }
-
-                if (childNode.wildcardEvaluators != null) {
-                    childEvaluators.addAll(childNode.wildcardEvaluators);
-                }
-
-                if (childNode.evaluators != null) {
-                    childEvaluators.addAll(childNode.evaluators);
-                }
-
-                nodes.addAll(childNode.children.values());
-            }
-        }
-
-        private void removeEvaluatorFromSubtree(U evaluator) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> removeEvaluatorFromSubtree(" + evaluator.getId() + ")");
-            }
-            if (CollectionUtils.isNotEmpty(wildcardEvaluators) && wildcardEvaluators.contains(evaluator)) {
-                removeWildcardEvaluator(evaluator);
-            } else {
-                removeEvaluator(evaluator);
-            }
-            removeSelfFromTrie();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== removeEvaluatorFromSubtree(" + evaluator.getId() + ")");
+                isSetup = true;
             }
         }
 
@@ -1380,5 +1545,21 @@ void toString(String prefix, StringBuilder sb) {
                 child.toString(nodeValue, sb);
             }
         }
+
+        private static <E> Set<E> copyWith(Set<E> evaluators, E evaluator) {
+            Set<E> ret = evaluators == null ? new HashSet<>() : new HashSet<>(evaluators);
+
+            ret.add(evaluator);
+
+            return ret;
+        }
+
+        private static <E> Set<E> copyWithout(Set<E> evaluators, E evaluator) {
+            Set<E> ret = new HashSet<>(evaluators);
+
+            ret.remove(evaluator);
+
+            return ret.isEmpty() ? null : ret;
+        }
     }
 }
@@ -29,11 +29,13 @@
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 public class RangerSecurityZoneMatcher {
     private static final Logger LOG = LoggerFactory.getLogger(RangerSecurityZoneMatcher.class);
@@ -43,11 +45,15 @@ public class RangerSecurityZoneMatcher {
     private final RangerServiceDef                                           serviceDef;
 
     public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
+        this(securityZones, serviceDef, pluginContext, PolicyEngineBuildExecutor.SERIAL);
+    }
+
+    RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext, PolicyEngineBuildExecutor buildExecutor) {
         this.resourceZoneTrie    = new HashMap<>();
         this.zonesWithTagService = new HashSet<>();
         this.serviceDef          = serviceDef;
 
-        buildZoneTrie(securityZones, serviceDef, pluginContext);
+        buildZoneTrie(securityZones, serviceDef, pluginContext, buildExecutor);
     }
 
     public boolean hasTagService(String zoneName) {
@@ -55,11 +61,19 @@ public boolean hasTagService(String zoneName) {
     }
 
     public Set<String> getZonesForResourceAndChildren(Map<String, ?> resource) {
-        return getZonesForResourceAndChildren(resource, convertToAccessResource(resource));
+        return getZonesForResourceAndChildren(resource, convertToAccessResource(resource), null);
     }
 
     public Set<String> getZonesForResourceAndChildren(RangerAccessResource resource) {
-        return getZonesForResourceAndChildren(resource.getAsMap(), resource);
+        return getZonesForResourceAndChildren(resource.getAsMap(), resource, null);
+    }
+
+    public Set<String> getZonesForResourceAndChildren(RangerAccessResource resource, RangerResourceLookupCache lookupCache) {
+        if (lookupCache == null || MapUtils.isEmpty(resourceZoneTrie)) {
+            return getZonesForResourceAndChildren(resource);
+        } else {
+            return lookupCache.getForResource(this, resource.getAsMap(), null, () -> getZonesForResourceAndChildren(resource.getAsMap(), resource, lookupCache));
+        }
     }
 
     @Override
@@ -81,7 +95,7 @@ public int hashCode() {
         return Objects.hash(resourceZoneTrie, zonesWithTagService);
     }
 
-    private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
+    private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource, RangerResourceLookupCache lookupCache) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerSecurityZoneMatcher.getZonesForResourceAndChildren({})", accessResource);
         }
@@ -89,7 +103,7 @@ private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, Rang
         Set<String> ret = null;
 
         if (MapUtils.isNotEmpty(this.resourceZoneTrie)) {
-            Collection<RangerZoneResourceMatcher> matchers = RangerResourceEvaluatorsRetriever.getEvaluators(resourceZoneTrie, resource);
+            Collection<RangerZoneResourceMatcher> matchers = RangerResourceEvaluatorsRetriever.getEvaluators(resourceZoneTrie, resource, null, lookupCache);
 
             if (CollectionUtils.isNotEmpty(matchers)) {
                 if (LOG.isDebugEnabled()) {
@@ -138,7 +152,7 @@ private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, Rang
         return ret;
     }
 
-    private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
+    private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext, PolicyEngineBuildExecutor buildExecutor) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerSecurityZoneMatcher.buildZoneTrie()");
         }
@@ -193,8 +207,16 @@ private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerSe
 
             RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
 
+            List<Supplier<RangerResourceTrie<RangerZoneResourceMatcher>>> trieBuilders = new ArrayList<>();
+
             for (RangerResourceDef resourceDef : serviceDef.getResources()) {
-                resourceZoneTrie.put(resourceDef.getName(), new RangerResourceTrie<>(resourceDef, matchers, options.optimizeTrieForSpace, options.optimizeTrieForRetrieval, pluginContext));
+                trieBuilders.add(() -> new RangerResourceTrie<>(resourceDef, matchers, options.optimizeTrieForSpace, options.optimizeTrieForRetrieval, pluginContext));
+            }
+
+            List<RangerResourceTrie<RangerZoneResourceMatcher>> tries = buildExecutor.invokeAll(trieBuilders);
+
+            for (int i = 0; i < tries.size(); i++) {
+                resourceZoneTrie.put(serviceDef.getResources().get(i).getName(), tries.get(i));
             }
         }
 
@@ -130,7 +130,7 @@ public void preProcess(RangerAccessRequest request) {
             RangerAccessRequestUtil.setCurrentUserRolesInContext(request.getContext(), roles);
         }
 
-        Set<String> zoneNames = policyEngine.getMatchedZonesForResourceAndChildren(request.getResource());
+        Set<String> zoneNames = policyEngine.getMatchedZonesForResourceAndChildren(request.getResource(), RangerAccessRequestUtil.getResourceLookupCacheFromContext(request.getContext()));
 
         RangerAccessRequestUtil.setResourceZoneNamesInContext(request, zoneNames);
 
@@ -23,6 +23,7 @@
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.jersey.api.client.ClientResponse;
 
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.Writer;
@@ -88,15 +89,20 @@ static public String nonSerializableObjToJson(Object obj) throws Exception {
         return getMapper().writeValueAsString(obj);
     }
 
+    /**
+     * Deserializes the response entity directly from the response stream, without first reading it into a String;
+     * this avoids holding the full response text in heap along with the deserialized object, which is significant
+     * for large downloads like policies, tags and user store. The response stream is closed on return.
+     */
     static public <T> T readResponse(ClientResponse response, Class<T> cls) throws Exception {
-        String jsonStr = response.getEntity(String.class);
-
-        return jsonToObj(jsonStr, cls);
+        try (InputStream in = response.getEntityInputStream()) {
+            return getMapper().readValue(in, cls);
+        }
     }
 
     static public <T> T readResponse(ClientResponse response, TypeReference<T> cls) throws Exception {
-        String jsonStr = response.getEntity(String.class);
-
-        return jsonToObj(jsonStr, cls);
+        try (InputStream in = response.getEntityInputStream()) {
+            return getMapper().readValue(in, cls);
+        }
     }
 }
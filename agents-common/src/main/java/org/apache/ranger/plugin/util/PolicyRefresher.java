@@ -21,10 +21,6 @@
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -32,12 +28,12 @@
 import java.util.Timer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.RangerAdminClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.slf4j.Logger;
@@ -54,14 +50,18 @@ public class PolicyRefresher extends Thread {
 	private final RangerAdminClient              rangerAdmin;
 	private final RangerRolesProvider            rolesProvider;
 	private final long                           pollingIntervalMs;
+	private final boolean                        isLongPollEnabled;
+	private final long                           longPollWaitTimeMs;
 	private final String                         cacheFileName;
 	private final String                         cacheDir;
+	private final String                         cacheFormat;
 	private final BlockingQueue<DownloadTrigger> policyDownloadQueue = new LinkedBlockingQueue<>();
 	private       Timer                          policyDownloadTimer;
 	private       long                           lastKnownVersion    = -1L;
 	private       long                           lastActivationTimeInMillis;
 	private       boolean                        policiesSetInPlugin;
 	private       boolean                        serviceDefSetInPlugin;
+	private       long                           nextLongPollDelayMs = 0;
 
 
 	public PolicyRefresher(RangerBasePlugin plugIn) {
@@ -76,6 +76,7 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
 		this.serviceType = plugIn.getServiceType();
 		this.serviceName = plugIn.getServiceName();
 		this.cacheDir    = pluginConfig.get(propertyPrefix + ".policy.cache.dir");
+		this.cacheFormat = pluginConfig.get(propertyPrefix + RangerSnapshotUtil.CACHE_FORMAT_CONFIG_NAME, RangerSnapshotUtil.CACHE_FORMAT_JSON);
 
 		String appId         = StringUtils.isEmpty(plugIn.getAppId()) ? serviceType : plugIn.getAppId();
 		String cacheFilename = String.format("%s_%s.json", appId, serviceName);
@@ -90,6 +91,8 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
 		this.rangerAdmin                   = (adminClient != null) ? adminClient : pluginContext.createAdminClient(pluginConfig);
 		this.rolesProvider                 = new RangerRolesProvider(getServiceType(), appId, getServiceName(), rangerAdmin,  cacheDir, pluginConfig);
 		this.pollingIntervalMs             = pluginConfig.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000L);
+		this.isLongPollEnabled             = pluginConfig.getBoolean(propertyPrefix + ".policy.longpoll.enabled", false);
+		this.longPollWaitTimeMs            = pluginConfig.getLong(propertyPrefix + ".policy.longpoll.wait.time.ms", 20 * 1000L);
 
 		setName("PolicyRefresher(serviceName=" + serviceName + ")-" + getId());
 
@@ -136,10 +139,16 @@ public void setLastActivationTimeInMillis(long lastActivationTimeInMillis) {
 
 	public void startRefresher() {
 		loadRoles();
-		loadPolicy();
+		loadPolicy(false);
 
 		super.start();
 
+		if (isLongPollEnabled) { // run() polls Ranger Admin continuously; a download timer is not needed
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): long-poll enabled. waitTimeMs=" + longPollWaitTimeMs);
+
+			return;
+		}
+
 		policyDownloadTimer = new Timer("policyDownloadTimer", true);
 
 		try {
@@ -198,9 +207,14 @@ public void run() {
 		while(true) {
 			DownloadTrigger trigger = null;
 			try {
-				trigger = policyDownloadQueue.take();
+				if (isLongPollEnabled) {
+					// wait for Ranger Admin to return on a policy change; a sync request in the queue is served with a regular download
+					trigger = policyDownloadQueue.poll(nextLongPollDelayMs, TimeUnit.MILLISECONDS);
+				} else {
+					trigger = policyDownloadQueue.take();
+				}
 				loadRoles();
-				loadPolicy();
+				loadPolicy(isLongPollEnabled && trigger == null);
 			} catch(InterruptedException excp) {
 				LOG.info("PolicyRefresher(serviceName=" + serviceName + ").run(): interrupted! Exiting thread", excp);
 				break;
@@ -221,7 +235,7 @@ public void syncPoliciesWithAdmin(DownloadTrigger token) throws InterruptedExcep
 		token.waitForCompletion();
 	}
 
-	private void loadPolicy() {
+	private void loadPolicy(boolean isLongPoll) {
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadPolicy()");
@@ -238,7 +252,7 @@ private void loadPolicy() {
 
 		try {
 			//load policy from PolicyAdmin
-			ServicePolicies svcPolicies = loadPolicyfromPolicyAdmin();
+			ServicePolicies svcPolicies = loadPolicyfromPolicyAdmin(isLongPoll && policiesSetInPlugin);
 
 			if (svcPolicies == null) {
 				//if Policy fetch from Policy Admin Fails, load from cache
@@ -284,7 +298,7 @@ private void loadPolicy() {
 		}
 	}
 
-	private ServicePolicies loadPolicyfromPolicyAdmin() throws RangerServiceNotFoundException {
+	private ServicePolicies loadPolicyfromPolicyAdmin(boolean isLongPoll) throws RangerServiceNotFoundException {
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadPolicyfromPolicyAdmin()");
@@ -298,8 +312,15 @@ private ServicePolicies loadPolicyfromPolicyAdmin() throws RangerServiceNotFound
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadPolicyFromPolicyAdmin(serviceName=" + serviceName + ")");
 		}
 
+		long    startTimeMs = System.currentTimeMillis();
+		boolean isFailed    = false;
+
 		try {
-			svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis);
+			if (isLongPoll) {
+				svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis, longPollWaitTimeMs);
+			} else {
+				svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis);
+			}
 
 			boolean isUpdated = svcPolicies != null;
 
@@ -321,10 +342,22 @@ private ServicePolicies loadPolicyfromPolicyAdmin() throws RangerServiceNotFound
 			}
 		} catch (RangerServiceNotFoundException snfe) {
 			LOG.error("PolicyRefresher(serviceName=" + serviceName + "): failed to find service. Will clean up local cache of policies (" + lastKnownVersion + ")", snfe);
+			nextLongPollDelayMs = pollingIntervalMs;
 			throw snfe;
 		} catch (Exception excp) {
 			LOG.error("PolicyRefresher(serviceName=" + serviceName + "): failed to refresh policies. Will continue to use last known version of policies (" + lastKnownVersion + ")", excp);
 			svcPolicies = null;
+			isFailed    = true;
+		}
+
+		if (isLongPollEnabled) {
+			long elapsedMs = System.currentTimeMillis() - startTimeMs;
+			// Ranger Admin held the request until the wait time ended without a change - it may cap the wait time below longPollWaitTimeMs
+			boolean isHeld = isLongPoll && !isFailed && elapsedMs >= longPollWaitTimeMs / 2;
+
+			// poll again right away after an update or a held request; a request that returned early without an update - like on
+			// an error, when too many requests are waiting or when Ranger Admin doesn't support long-poll - is repeated after pollIntervalMs
+			nextLongPollDelayMs = (svcPolicies != null || isHeld) ? 0 : Math.max(0, pollingIntervalMs - elapsedMs);
 		}
 
 		RangerPerfTracer.log(perf);
@@ -345,11 +378,9 @@ private ServicePolicies loadFromCache() {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadFromCache()");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile = cacheDir == null ? null : RangerSnapshotUtil.findCacheFile(new File(cacheDir + File.separator + cacheFileName));
 
     	if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-    		Reader reader = null;
-
     		RangerPerfTracer perf = null;
 
     		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
@@ -357,9 +388,7 @@ private ServicePolicies loadFromCache() {
     		}
 
     		try {
-	        	reader = new FileReader(cacheFile);
-
-				policies = JsonUtils.jsonToObject(reader, ServicePolicies.class);
+				policies = RangerSnapshotUtil.readCacheFile(cacheFile, ServicePolicies.class);
 
 		        if(policies != null) {
 		        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
@@ -374,14 +403,6 @@ private ServicePolicies loadFromCache() {
 	        	LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
 	        } finally {
 	        	RangerPerfTracer.log(perf);
-
-	        	if(reader != null) {
-	        		try {
-	        			reader.close();
-	        		} catch(Exception excp) {
-	        			LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
-	        		}
-	        	}
 	        }
 		} else {
 			LOG.warn("cache file does not exist or not readable '" + (cacheFile == null ? null : cacheFile.getAbsolutePath()) + "'");
@@ -433,22 +454,12 @@ public void saveToCache(ServicePolicies policies) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
 				}
 
-				Writer writer = null;
-	
 				try {
-					writer = new FileWriter(cacheFile);
-					JsonUtils.objectToWriter(writer, policies);
+					RangerSnapshotUtil.saveCacheFile(cacheFile, policies, cacheFormat);
+
+					deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
 		        } catch (Exception excp) {
 		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-		        } finally {
-					if (writer != null) {
-						try {
-							writer.close();
-							deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
-						} catch (Exception excp) {
-							LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-						}
-					}
 				}
 
 				RangerPerfTracer.log(perf);
@@ -464,8 +475,8 @@ public void saveToCache(ServicePolicies policies) {
 						perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
 					}
 
-					try (Writer writer = new FileWriter(backupCacheFile)) {
-						JsonUtils.objectToWriter(writer, policies);
+					try {
+						RangerSnapshotUtil.saveCacheFile(backupCacheFile, policies, cacheFormat);
 					} catch (Exception excp) {
 						LOG.error("failed to save policies to cache file '" + backupCacheFile.getAbsolutePath() + "'", excp);
 					}
@@ -485,7 +496,7 @@ public void saveToCache(ServicePolicies policies) {
 
 	private void deleteOldestVersionCacheFileInCacheDirectory(File cacheDirectory) {
 		int maxVersionsToPreserve = plugIn.getConfig().getInt(plugIn.getConfig().getPropertyPrefix() + "max.versions.to.preserve", 1);
-		FileFilter logFileFilter = (file) -> file.getName().matches(".+json_.+");
+		FileFilter logFileFilter = (file) -> file.getName().matches(".+(json|snap)_.+");
 
 		File[] filesInParent = cacheDirectory.listFiles(logFileFilter);
 		List<Long> policyVersions = new ArrayList<>();
@@ -493,14 +504,16 @@ private void deleteOldestVersionCacheFileInCacheDirectory(File cacheDirectory) {
 		if (filesInParent != null && filesInParent.length > 0) {
 			for (File f : filesInParent) {
 				String fileName = f.getName();
-				// Extract the part after json_
-				int policyVersionIdx = fileName.lastIndexOf("json_");
+				// Extract the part after json_ or snap_
+				int policyVersionIdx = Math.max(fileName.lastIndexOf("json_"), fileName.lastIndexOf("snap_"));
 				String policyVersionStr = fileName.substring(policyVersionIdx + 5);
 				Long policyVersion = Long.valueOf(policyVersionStr);
-				policyVersions.add(policyVersion);
+				if (!policyVersions.contains(policyVersion)) {
+					policyVersions.add(policyVersion);
+				}
 			}
 		} else {
-			LOG.info("No files matching '.+json_*' found");
+			LOG.info("No files matching '.+json_*' or '.+snap_*' found");
 		}
 
 		if (!policyVersions.isEmpty()) {
@@ -515,8 +528,8 @@ public int compare(Long o1, Long o2) {
 
 		if (policyVersions.size() > maxVersionsToPreserve) {
 			String fileName = this.cacheFileName + "_" + Long.toString(policyVersions.get(0));
-			String pathName = cacheDirectory.getAbsolutePath() + File.separator + fileName;
-			File toDelete = new File(pathName);
+			File toDelete = RangerSnapshotUtil.findCacheFile(new File(cacheDirectory.getAbsolutePath() + File.separator + fileName));
+			String pathName = toDelete.getAbsolutePath();
 			if (toDelete.exists()) {
 				boolean isDeleted = toDelete.delete();
 				if (LOG.isDebugEnabled()) {
@@ -533,7 +546,7 @@ private void disableCache() {
 			LOG.debug("==> PolicyRefresher.disableCache(serviceName=" + serviceName + ")");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile = cacheDir == null ? null : RangerSnapshotUtil.findCacheFile(new File(cacheDir + File.separator + cacheFileName));
 
 		if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 			LOG.warn("Cleaning up local cache");
@@ -54,6 +54,8 @@ public class RangerAccessRequestUtil {
 	public static final String KEY_CONTEXT_IS_REQUEST_PREPROCESSED 	= "ISREQUESTPREPROCESSED";
 	public static final String KEY_CONTEXT_RESOURCE_ZONE_NAMES 		= "RESOURCE_ZONE_NAMES";
 	public static final String KEY_CONTEXT_IS_SKIP_CHAINED_PLUGINS 	= "_IS_SKIP_CHAINED_PLUGINS";
+	public static final String KEY_CONTEXT_IS_DECISION_CONTEXT_SENSITIVE = "_IS_DECISION_CONTEXT_SENSITIVE";
+	public static final String KEY_CONTEXT_RESOURCE_LOOKUP_CACHE = "_RESOURCE_LOOKUP_CACHE";
 
 	public static void setRequestTagsInContext(Map<String, Object> context, Set<RangerTagForEval> tags) {
 		if(CollectionUtils.isEmpty(tags)) {
@@ -429,4 +431,31 @@ public static boolean getIsSkipChainedPlugins(Map<String, Object> context) {
 		Boolean value = (Boolean)context.get(KEY_CONTEXT_IS_SKIP_CHAINED_PLUGINS);
 		return value != null && value;
 	}
+
+	public static void setIsDecisionContextSensitive(Map<String, Object> context, Boolean value) {
+		if (value == null) {
+			context.remove(KEY_CONTEXT_IS_DECISION_CONTEXT_SENSITIVE);
+		} else {
+			context.put(KEY_CONTEXT_IS_DECISION_CONTEXT_SENSITIVE, value);
+		}
+	}
+
+	public static boolean getIsDecisionContextSensitive(Map<String, Object> context) {
+		Boolean value = (Boolean)context.get(KEY_CONTEXT_IS_DECISION_CONTEXT_SENSITIVE);
+		return value != null && value;
+	}
+
+	public static void setResourceLookupCacheInContext(Map<String, Object> context, RangerResourceLookupCache lookupCache) {
+		if (lookupCache == null) {
+			context.remove(KEY_CONTEXT_RESOURCE_LOOKUP_CACHE);
+		} else {
+			context.put(KEY_CONTEXT_RESOURCE_LOOKUP_CACHE, lookupCache);
+		}
+	}
+
+	public static RangerResourceLookupCache getResourceLookupCacheFromContext(Map<String, Object> context) {
+		Object val = context != null ? context.get(KEY_CONTEXT_RESOURCE_LOOKUP_CACHE) : null;
+
+		return val instanceof RangerResourceLookupCache ? (RangerResourceLookupCache) val : null;
+	}
 }
@@ -52,6 +52,7 @@ public enum RefreshMode { ON_ACCESS, ON_SCHEDULE } // when to refresh the value:
     private final long                valueInitLoadTimeoutMs;    // max time a caller would wait if cache doesn't have the value
     private final long                valueRefreshLoadTimeoutMs; // max time a caller would wait if cache already has the value, but needs refresh
     private final ExecutorService     loaderThreadPool;
+    private final RangerSingleFlight.Metrics loadMetrics = new RangerSingleFlight.Metrics();
 
     protected RangerCache(String name, ValueLoader<K, V> loader) {
         this(name, loader, DEFAULT_LOADER_THREADS_COUNT, DEFAULT_REFRESH_MODE, DEFAULT_VALUE_VALIDITY_PERIOD_MS, DEFAULT_VALUE_INIT_TIMEOUT_MS, DEFAULT_VALUE_REFRESH_TIMEOUT_MS);
@@ -92,6 +93,8 @@ protected RangerCache(String name, ValueLoader<K, V> loader, int loaderThreadsCo
 
     public long getValueRefreshLoadTimeoutMs() { return valueRefreshLoadTimeoutMs; }
 
+    public RangerSingleFlight.Metrics getLoadMetrics() { return loadMetrics; }
+
     public V get(K key) {
         return get(key, null);
     }
@@ -234,12 +237,16 @@ private void refreshIfNeeded(Object context) {
 
                             refreshValue(context);
                         } else { // wait for the refresher to complete
+                            long waitStartTime = System.currentTimeMillis();
+
                             try {
                                 future.get();
 
                                 this.refresher = null;
                             } catch (InterruptedException | ExecutionException excp) {
                                 LOG.warn("refreshIfNeeded(key={}) failed", key, excp);
+                            } finally {
+                                loadMetrics.recordWait(System.currentTimeMillis() - waitStartTime, false);
                             }
                         }
                     }
@@ -271,18 +278,29 @@ private void refreshIfNeeded(long timeoutMs, Object context) {
                             long timeLeftMs = timeoutMs - (System.currentTimeMillis() - startTime);
 
                             if (timeLeftMs > 0) {
+                                long    waitStartTime = System.currentTimeMillis();
+                                boolean isTimedOut    = false;
+
                                 try {
                                     future.get(timeLeftMs, TimeUnit.MILLISECONDS);
 
                                     this.refresher = null;
                                 } catch (TimeoutException | InterruptedException | ExecutionException excp) {
+                                    isTimedOut = excp instanceof TimeoutException;
+
                                     if (LOG.isDebugEnabled()) {
                                         LOG.debug("refreshIfNeeded(key={}, timeoutMs={}) failed", key, timeoutMs, excp);
                                     }
+                                } finally {
+                                    loadMetrics.recordWait(System.currentTimeMillis() - waitStartTime, isTimedOut);
                                 }
+                            } else {
+                                loadMetrics.recordStale();
                             }
                         }
                     } else {
+                        loadMetrics.recordStale(); // another caller is refreshing; the current value is returned
+
                         if (LOG.isDebugEnabled()) {
                             LOG.debug("refreshIfNeeded(key={}, timeoutMs={}) couldn't obtain lock", key, timeoutMs);
                         }
@@ -296,6 +314,8 @@ private Boolean refreshValue(Object context) {
             boolean             isSuccess = false;
             RefreshableValue<V> newValue  = null;
 
+            loadMetrics.recordLoad();
+
             try {
                 ValueLoader<K, V> loader = RangerCache.this.loader;
 
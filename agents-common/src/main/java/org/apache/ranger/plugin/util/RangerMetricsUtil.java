@@ -22,6 +22,7 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.model.RangerMetrics;
+import org.apache.ranger.plugin.policyengine.RangerAccessDecisionCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +71,7 @@ public Map<String, Object> getValues() {
         values.put("os.spec", StringUtils.join(Arrays.asList(addSystemInfo()), ", "));
         values.put("os.vcpus", String.valueOf(OS.getAvailableProcessors()));
         values.put("memory", addMemoryDetails());
+        values.put("policyengine", addPolicyEngineDetails());
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("<== RangerMetricsUtil.getValues()" + values);
@@ -128,6 +130,17 @@ protected Map<String, Object> addMemoryDetails() {
         return memory;
     }
 
+    /**
+     * Add policy-engine cache statistics
+     */
+    protected Map<String, Object> addPolicyEngineDetails() {
+        Map<String, Object> policyEngine = new LinkedHashMap<>();
+
+        policyEngine.put("decisionCache", RangerAccessDecisionCache.getMetrics());
+
+        return policyEngine;
+    }
+
     /**
      * Collect system information.
      */
@@ -61,6 +61,7 @@
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 import com.sun.jersey.client.urlconnection.HTTPSProperties;
 
@@ -106,6 +107,7 @@ public class RangerRESTClient {
 	private int    maxRetryAttempts;
 	private int    retryIntervalMs;
 	private int    lastKnownActiveUrlIndex;
+	private boolean mIsGzipEnabled;
 
 	private final List<String> configuredURLs;
 
@@ -162,6 +164,13 @@ public void setRestClientReadTimeOutMs(int mRestClientReadTimeOutMs) {
 
 	public void setRetryIntervalMs(int retryIntervalMs) { this.retryIntervalMs = retryIntervalMs; }
 
+	public boolean isGzipEnabled() { return mIsGzipEnabled; }
+
+	/**
+	 * Whether to accept gzip compressed responses; takes effect when the client is built, or rebuilt after resetClient()
+	 */
+	public void setGzipEnabled(boolean isGzipEnabled) { this.mIsGzipEnabled = isGzipEnabled; }
+
 	public void setBasicAuthInfo(String username, String password) {
 		mUsername = username;
 		mPassword = password;
@@ -230,6 +239,10 @@ public boolean verify(String urlHostName, SSLSession session) {
 			client.addFilter(new HTTPBasicAuthFilter(mUsername, mPassword));
 		}
 
+		if (mIsGzipEnabled) {
+			client.addFilter(new GZIPContentEncodingFilter(false)); // sends Accept-Encoding: gzip; doesn't compress requests
+		}
+
 		// Set Connection Timeout and ReadTime for the PolicyRefresh
 		client.setConnectTimeout(mRestClientConnTimeOutMs);
 		client.setReadTimeout(mRestClientReadTimeOutMs);
@@ -30,6 +30,7 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +44,10 @@ public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(M
     }
 
     public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(Map<String, RangerResourceTrie<T>> resourceTrie, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes) {
+        return getEvaluators(resourceTrie, resource, scopes, null);
+    }
+
+    public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(Map<String, RangerResourceTrie<T>> resourceTrie, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes, RangerResourceLookupCache lookupCache) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyResourceEvaluatorsRetriever.getEvaluators(" + resource + ")");
         }
@@ -67,7 +72,7 @@ public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(M
                 Object resourceValues = resource.get(resourceDefName);
 
                 Set<T> inheritedMatchers   = trie.getInheritedEvaluators();
-                Set<T> matchersForResource = trie.getEvaluatorsForResource(resourceValues, scopes.get(resourceDefName));
+                Set<T> matchersForResource = lookupCache != null ? lookupCache.getEvaluatorsForResource(trie, resourceValues, scopes.get(resourceDefName)) : trie.getEvaluatorsForResource(resourceValues, scopes.get(resourceDefName));
 
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("ResourceDefName:[" + resourceDefName + "], values:[" + resourceValues + "], resource-matchers:[" + matchersForResource + "], inherited-matchers:[" + inheritedMatchers + "]");
@@ -121,6 +126,62 @@ public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(M
         return ret;
     }
 
+    /**
+     * Returns the evaluators for the resource, sharing lookups with other requests in a batch through the given cache:
+     * evaluators of the resource without its leaf element - for example, the database and table of a column - are
+     * looked up and intersected once for all resources in the batch having the same such prefix.
+     */
+    public static <T  extends RangerResourceEvaluator> Collection<T> getEvaluators(Map<String, RangerResourceTrie<T>> resourceTrie, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes, RangerResourceLookupCache lookupCache, String leafName) {
+        RangerResourceTrie<T> leafTrie = lookupCache != null && leafName != null && resourceTrie != null && resource != null && resource.size() > 1 ? resourceTrie.get(leafName) : null;
+
+        if (leafTrie == null || !resource.containsKey(leafName)) {
+            return getEvaluators(resourceTrie, resource, scopes, lookupCache);
+        }
+
+        Map<String, Object> prefix = new HashMap<>(resource);
+
+        prefix.remove(leafName);
+
+        if (!CollectionUtils.containsAny(resourceTrie.keySet(), prefix.keySet())) {
+            return getEvaluators(resourceTrie, resource, scopes, lookupCache);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPolicyResourceEvaluatorsRetriever.getEvaluators(" + resource + ", leafName=" + leafName + ")");
+        }
+
+        Set<T>        ret              = null;
+        Collection<T> prefixEvaluators = lookupCache.getEvaluatorsForPrefix(resourceTrie, prefix, scopes, () -> getEvaluators(resourceTrie, prefix, scopes, lookupCache));
+
+        if (CollectionUtils.isNotEmpty(prefixEvaluators)) {
+            Set<T> inheritedMatchers   = leafTrie.getInheritedEvaluators();
+            Set<T> matchersForResource = lookupCache.getEvaluatorsForResource(leafTrie, resource.get(leafName), scopes != null ? scopes.get(leafName) : null);
+
+            if (CollectionUtils.isNotEmpty(inheritedMatchers) || CollectionUtils.isNotEmpty(matchersForResource)) {
+                Evaluators<T> leafEvaluators = new Evaluators<>(inheritedMatchers, matchersForResource);
+
+                ret = new HashSet<>();
+
+                if (prefixEvaluators.size() < leafEvaluators.size) {
+                    for (T evaluator : prefixEvaluators) {
+                        if (leafEvaluators.smaller.contains(evaluator) || leafEvaluators.bigger.contains(evaluator)) {
+                            ret.add(evaluator);
+                        }
+                    }
+                } else {
+                    leafEvaluators.smaller.stream().filter(prefixEvaluators::contains).forEach(ret::add);
+                    leafEvaluators.bigger.stream().filter(prefixEvaluators::contains).forEach(ret::add);
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerResourceEvaluatorsRetriever.getEvaluators(" + resource + ", leafName=" + leafName + ") : evaluator:[" + ret + "]");
+        }
+
+        return ret;
+    }
+
     static class Evaluators<T> implements Comparable<Evaluators<T>> {
         private final Set<T> inheritedMatchers;
         private final Set<T> resourceMatchers;
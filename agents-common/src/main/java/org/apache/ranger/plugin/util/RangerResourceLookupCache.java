@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
+import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Remembers resource lookups made while evaluating a batch of access requests, so that requests that share resource
+ * elements - like requests for different columns of a table - look up and intersect the evaluators of the shared
+ * elements only once, and requests for the same resource - like requests for different access types - share the
+ * matched zones and the list of candidate policies.
+ *
+ * Lookup results are shared between requests as-is, hence must not be modified by callers; resources are not copied
+ * either, hence must not be modified while the cache is in use. An instance must be used only by one thread, and only
+ * while the policies, zones and tags it was used with don't change - i.e. for the duration of a batch evaluation.
+ */
+public class RangerResourceLookupCache {
+    private final Map<ElementKey, Set<?>>         elementLookups  = new HashMap<>();
+    private final Map<ResourceKey, Collection<?>> prefixLookups   = new HashMap<>();
+    private final Map<ResourceKey, Object>        resourceLookups = new HashMap<>();
+    private       long                            lookupCount     = 0;
+    private       long                            hitCount        = 0;
+
+    public <T extends RangerResourceEvaluator> Set<T> getEvaluatorsForResource(RangerResourceTrie<T> trie, Object resourceValues, ResourceElementMatchingScope scope) {
+        ElementKey key = new ElementKey(trie, resourceValues, scope);
+        Set<?>     ret = elementLookups.get(key);
+
+        lookupCount++;
+
+        if (ret != null || elementLookups.containsKey(key)) {
+            hitCount++;
+        } else {
+            ret = trie.getEvaluatorsForResource(resourceValues, scope);
+
+            elementLookups.put(key, ret);
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<T> evaluators = (Set<T>) ret;
+
+        return evaluators;
+    }
+
+    /**
+     * Returns the result of an earlier lookup of the resource by the given owner - a trie or a zone matcher - or
+     * computes it with the given loader.
+     */
+    public <T> T getForResource(Object owner, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes, Supplier<T> loader) {
+        ResourceKey key = new ResourceKey(owner, resource, scopes);
+        Object      ret = resourceLookups.get(key);
+
+        lookupCount++;
+
+        if (ret != null || resourceLookups.containsKey(key)) {
+            hitCount++;
+        } else {
+            ret = loader.get();
+
+            resourceLookups.put(key, ret);
+        }
+
+        @SuppressWarnings("unchecked")
+        T value = (T) ret;
+
+        return value;
+    }
+
+    <T extends RangerResourceEvaluator> Collection<T> getEvaluatorsForPrefix(Map<String, RangerResourceTrie<T>> resourceTrie, Map<String, ?> prefix, Map<String, ResourceElementMatchingScope> scopes, Supplier<Collection<T>> loader) {
+        ResourceKey   key = new ResourceKey(resourceTrie, prefix, scopes);
+        Collection<?> ret = prefixLookups.get(key);
+
+        lookupCount++;
+
+        if (ret != null || prefixLookups.containsKey(key)) {
+            hitCount++;
+        } else {
+            ret = loader.get();
+
+            prefixLookups.put(key, ret);
+        }
+
+        @SuppressWarnings("unchecked")
+        Collection<T> evaluators = (Collection<T>) ret;
+
+        return evaluators;
+    }
+
+    public long getLookupCount() {
+        return lookupCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerResourceLookupCache={lookupCount=" + lookupCount + ", hitCount=" + hitCount + ", elementLookups=" + elementLookups.size() + ", prefixLookups=" + prefixLookups.size() + ", resourceLookups=" + resourceLookups.size() + "}";
+    }
+
+    private static final class ElementKey {
+        private final Object                       trie;
+        private final Object                       resourceValues;
+        private final ResourceElementMatchingScope scope;
+        private final int                          hashCode;
+
+        ElementKey(Object trie, Object resourceValues, ResourceElementMatchingScope scope) {
+            this.trie           = trie;
+            this.resourceValues = resourceValues;
+            this.scope          = scope;
+            this.hashCode       = 31 * (31 * System.identityHashCode(trie) + Objects.hashCode(resourceValues)) + Objects.hashCode(scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof ElementKey)) {
+                return false;
+            }
+
+            ElementKey other = (ElementKey) obj;
+
+            return trie == other.trie && scope == other.scope && Objects.equals(resourceValues, other.resourceValues);
+        }
+    }
+
+    private static final class ResourceKey {
+        private final Object                                    owner;
+        private final Map<String, ?>                            resource;
+        private final Map<String, ResourceElementMatchingScope> scopes;
+        private final int                                       hashCode;
+
+        ResourceKey(Object owner, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes) {
+            this.owner    = owner;
+            this.resource = resource == null ? Collections.emptyMap() : resource;
+            this.scopes   = scopes == null ? Collections.emptyMap() : scopes;
+            this.hashCode = 31 * (31 * System.identityHashCode(owner) + this.resource.hashCode()) + this.scopes.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof ResourceKey)) {
+                return false;
+            }
+
+            ResourceKey other = (ResourceKey) obj;
+
+            return owner == other.owner && resource.equals(other.resource) && scopes.equals(other.scopes);
+        }
+    }
+}
@@ -22,16 +22,11 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.RangerAdminClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.Date;
 import java.util.HashSet;
 
@@ -48,6 +43,7 @@ public class RangerRolesProvider {
 	private final String            cacheFileName;
 	private final String			cacheFileNamePrefix;
 	private final String            cacheDir;
+	private final String            cacheFormat;
 	private final boolean           disableCacheIfServiceNotFound;
 
 	private long	lastActivationTimeInMillis;
@@ -77,6 +73,7 @@ public RangerRolesProvider(String serviceType, String appId, String serviceName,
 		this.cacheFileName = cacheFilename;
 		this.cacheDir = cacheDir;
 		String propertyPrefix = config.getPropertyPrefix();
+		this.cacheFormat = config.get(propertyPrefix + RangerSnapshotUtil.CACHE_FORMAT_CONFIG_NAME, RangerSnapshotUtil.CACHE_FORMAT_JSON);
 		disableCacheIfServiceNotFound = config.getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
 
 		if (LOG.isDebugEnabled()) {
@@ -207,11 +204,9 @@ private RangerRoles loadUserGroupRolesFromCache() {
 			LOG.debug("==> RangerRolesProvider(serviceName=" + serviceName + ").loadUserGroupRolesFromCache()");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile = cacheDir == null ? null : RangerSnapshotUtil.findCacheFile(new File(cacheDir + File.separator + cacheFileName));
 
 		if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-			Reader reader = null;
-
 			RangerPerfTracer perf = null;
 
 			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
@@ -219,9 +214,7 @@ private RangerRoles loadUserGroupRolesFromCache() {
 			}
 
 			try {
-				reader = new FileReader(cacheFile);
-
-				roles = JsonUtils.jsonToObject(reader, RangerRoles.class);
+				roles = RangerSnapshotUtil.readCacheFile(cacheFile, RangerRoles.class);
 
 				if (roles != null) {
 					if (!StringUtils.equals(serviceName, roles.getServiceName())) {
@@ -236,14 +229,6 @@ private RangerRoles loadUserGroupRolesFromCache() {
 				LOG.error("failed to load userGroupRoles from cache file " + cacheFile.getAbsolutePath(), excp);
 			} finally {
 				RangerPerfTracer.log(perf);
-
-				if (reader != null) {
-					try {
-						reader.close();
-					} catch (Exception excp) {
-						LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
-					}
-				}
 			}
 		} else {
 			roles = new RangerRoles();
@@ -291,21 +276,10 @@ public void saveToCache(RangerRoles roles) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.saveToCache(serviceName=" + serviceName + ")");
 				}
 
-				Writer writer = null;
-
 				try {
-					writer = new FileWriter(cacheFile);
-					JsonUtils.objectToWriter(writer, roles);
+					RangerSnapshotUtil.saveCacheFile(cacheFile, roles, cacheFormat);
 		        } catch (Exception excp) {
 					LOG.error("failed to save roles to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-		        } finally {
-					if(writer != null) {
-						try {
-							writer.close();
-						} catch(Exception excp) {
-							LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
-						}
-					}
 				}
 
 				RangerPerfTracer.log(perf);
@@ -324,7 +298,7 @@ private void disableCache() {
 			LOG.debug("==> RangerRolesProvider.disableCache(serviceName=" + serviceName + ")");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile = cacheDir == null ? null : RangerSnapshotUtil.findCacheFile(new File(cacheDir + File.separator + cacheFileName));
 
 		if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 			LOG.warn("Cleaning up local RangerRoles cache");
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent loads of a cached value: the first caller runs the load, in its own thread; callers that arrive
+ * while the load is in progress don't start another one, but wait - up to maxWaitTimeMs - for the result of the load in
+ * progress. With serveStale, callers that already have a value to use don't wait at all (stale-while-revalidate).
+ */
+public class RangerSingleFlight<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerSingleFlight.class);
+
+    private final Metrics metrics;
+    private final long    maxWaitTimeMs;
+    private final boolean serveStale;
+
+    private CompletableFuture<T> inFlight = null;
+
+    public RangerSingleFlight(Metrics metrics, long maxWaitTimeMs, boolean serveStale) {
+        this.metrics       = metrics != null ? metrics : new Metrics();
+        this.maxWaitTimeMs = maxWaitTimeMs;
+        this.serveStale    = serveStale;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * @param loader        loads the value; called in the caller's thread, if no load is in progress
+     * @param hasStaleValue true if the caller has an earlier value it can use instead of waiting for the load in progress
+     * @return value returned by the loader, in this or in a concurrent call; null if the caller didn't wait for the
+     *         load in progress, or the wait timed out
+     */
+    public T load(Callable<T> loader, boolean hasStaleValue) throws Exception {
+        final CompletableFuture<T> future;
+        final boolean              isLoader;
+
+        synchronized (this) {
+            isLoader = inFlight == null;
+
+            if (isLoader) {
+                inFlight = new CompletableFuture<>();
+            }
+
+            future = inFlight;
+        }
+
+        final T ret;
+
+        if (isLoader) {
+            metrics.recordLoad();
+
+            try {
+                ret = loader.call();
+
+                future.complete(ret);
+            } catch (Throwable excp) {
+                future.completeExceptionally(excp);
+
+                throw excp;
+            } finally {
+                synchronized (this) {
+                    inFlight = null;
+                }
+            }
+        } else if (serveStale && hasStaleValue) {
+            metrics.recordStale();
+
+            ret = null;
+        } else {
+            long    startTimeMs = System.currentTimeMillis();
+            boolean isTimedOut  = false;
+            T       value       = null;
+
+            try {
+                value = future.get(maxWaitTimeMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException excp) {
+                LOG.debug("RangerSingleFlight.load(): load in progress didn't complete in {}ms", maxWaitTimeMs);
+
+                isTimedOut = true;
+            } catch (ExecutionException excp) {
+                Throwable cause = excp.getCause();
+
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw excp;
+            } finally {
+                metrics.recordWait(System.currentTimeMillis() - startTimeMs, isTimedOut);
+            }
+
+            ret = value;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Counts of loads and of callers that waited for, or skipped waiting for, a load in progress. One instance can be
+     * shared by many RangerSingleFlight instances - like the ones of each service in a cache.
+     */
+    public static class Metrics {
+        private final AtomicLong loadCount     = new AtomicLong();
+        private final AtomicLong waitCount     = new AtomicLong();
+        private final AtomicLong staleCount    = new AtomicLong();
+        private final AtomicLong timeoutCount  = new AtomicLong();
+        private final AtomicLong waitTimeMs    = new AtomicLong();
+        private final AtomicLong maxWaitTimeMs = new AtomicLong();
+
+        public void recordLoad() {
+            loadCount.incrementAndGet();
+        }
+
+        public void recordStale() {
+            staleCount.incrementAndGet();
+        }
+
+        public void recordWait(long timeMs, boolean isTimedOut) {
+            waitCount.incrementAndGet();
+            waitTimeMs.addAndGet(timeMs);
+            maxWaitTimeMs.accumulateAndGet(timeMs, Math::max);
+
+            if (isTimedOut) {
+                timeoutCount.incrementAndGet();
+            }
+        }
+
+        public long getLoadCount() { return loadCount.get(); }
+
+        public long getWaitCount() { return waitCount.get(); }
+
+        public long getStaleCount() { return staleCount.get(); }
+
+        public long getTimeoutCount() { return timeoutCount.get(); }
+
+        public long getWaitTimeMs() { return waitTimeMs.get(); }
+
+        public long getMaxWaitTimeMs() { return maxWaitTimeMs.get(); }
+
+        public Map<String, Long> getMetrics() {
+            Map<String, Long> ret = new LinkedHashMap<>();
+
+            ret.put("LoadCount", getLoadCount());
+            ret.put("WaitCount", getWaitCount());
+            ret.put("StaleCount", getStaleCount());
+            ret.put("TimeoutCount", getTimeoutCount());
+            ret.put("WaitTimeMs", getWaitTimeMs());
+            ret.put("MaxWaitTimeMs", getMaxWaitTimeMs());
+
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.ranger.plugin.util.RangerSnapshotUtil.*;
+
+/**
+ * Writes JSON tokens in the binary snapshot format described in RangerSnapshotUtil. Does not close the output stream.
+ */
+class RangerSnapshotGenerator extends GeneratorBase {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream         out;
+    private final byte[]               buffer        = new byte[BUFFER_SIZE];
+    private final Map<String, Integer> sharedStrings = new HashMap<>();
+    private       int                  bufferLen     = 0;
+
+    RangerSnapshotGenerator(OutputStream out, ObjectCodec codec) {
+        super(0, codec);
+
+        this.out = out;
+    }
+
+    void writeHeader(String typeName) throws IOException {
+        writeBytes(MAGIC, 0, MAGIC.length);
+        writeByte((byte) FORMAT_VERSION);
+        writeUtf8(typeName);
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+
+        _writeContext = _writeContext.createChildArrayContext();
+
+        writeByte(TOKEN_START_ARRAY);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+
+        _writeContext = _writeContext.clearAndGetParent();
+
+        writeByte(TOKEN_END_ARRAY);
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+
+        _writeContext = _writeContext.createChildObjectContext();
+
+        writeByte(TOKEN_START_OBJECT);
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+
+        _writeContext = _writeContext.clearAndGetParent();
+
+        writeByte(TOKEN_END_OBJECT);
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+
+        writeSharedString(name, TOKEN_FIELD_NEW, TOKEN_FIELD_REF);
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        writeFieldName(name.getValue());
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite(WRITE_STRING);
+
+            if (text.length() <= MAX_SHARED_STRING_LENGTH) {
+                writeSharedString(text, TOKEN_STRING_NEW, TOKEN_STRING_REF);
+            } else {
+                writeByte(TOKEN_STRING);
+                writeUtf8(text);
+            }
+        }
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
+        _verifyValueWrite(WRITE_BINARY);
+
+        writeByte(TOKEN_BINARY);
+        writeVarInt(len);
+        writeBytes(data, offset, len);
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        writeNumber((long) v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+
+        writeByte(TOKEN_LONG);
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (v == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite(WRITE_NUMBER);
+
+            writeByte(TOKEN_BIG_INTEGER);
+            writeUtf8(v.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+
+        writeByte(TOKEN_DOUBLE);
+        writeFixedLong(Double.doubleToRawLongBits(v));
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        writeNumber((double) v);
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (v == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite(WRITE_NUMBER);
+
+            writeByte(TOKEN_BIG_DECIMAL);
+            writeUtf8(v.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        if (encodedValue == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite(WRITE_NUMBER);
+
+            writeByte(TOKEN_BIG_DECIMAL);
+            writeUtf8(encodedValue);
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite(WRITE_BOOLEAN);
+
+        writeByte(state ? TOKEN_TRUE : TOKEN_FALSE);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite(WRITE_NULL);
+
+        writeByte(TOKEN_NULL);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isClosed()) {
+            super.close();
+
+            flush();
+        }
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+    }
+
+    private void writeSharedString(String str, byte tokenNew, byte tokenRef) throws IOException {
+        Integer idx = sharedStrings.get(str);
+
+        if (idx != null) {
+            writeByte(tokenRef);
+            writeVarInt(idx);
+        } else {
+            sharedStrings.put(str, sharedStrings.size());
+
+            writeByte(tokenNew);
+            writeUtf8(str);
+        }
+    }
+
+    private void writeUtf8(String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    private void writeVarInt(int v) throws IOException {
+        writeVarLong(v & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        if (bufferLen + 10 > buffer.length) {
+            flushBuffer();
+        }
+
+        while ((v & ~0x7FL) != 0) {
+            buffer[bufferLen++] = (byte) ((v & 0x7F) | 0x80);
+
+            v >>>= 7;
+        }
+
+        buffer[bufferLen++] = (byte) v;
+    }
+
+    private void writeFixedLong(long v) throws IOException {
+        if (bufferLen + 8 > buffer.length) {
+            flushBuffer();
+        }
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[bufferLen++] = (byte) (v >>> shift);
+        }
+    }
+
+    private void writeByte(byte b) throws IOException {
+        if (bufferLen == buffer.length) {
+            flushBuffer();
+        }
+
+        buffer[bufferLen++] = b;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int len) throws IOException {
+        if (len > buffer.length - bufferLen) {
+            flushBuffer();
+
+            if (len > buffer.length) {
+                out.write(bytes, offset, len);
+
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, offset, buffer, bufferLen, len);
+
+        bufferLen += len;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (bufferLen > 0) {
+            out.write(buffer, 0, bufferLen);
+
+            bufferLen = 0;
+        }
+    }
+}
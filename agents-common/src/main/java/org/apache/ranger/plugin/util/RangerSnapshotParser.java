@@ -0,0 +1,513 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.ranger.plugin.util.RangerSnapshotUtil.*;
+
+/**
+ * Reads JSON tokens from a buffer in the binary snapshot format described in RangerSnapshotUtil. Shared strings are
+ * decoded once, on their first occurrence; each later reference returns the same String instance.
+ */
+class RangerSnapshotParser extends ParserMinimalBase {
+    private final ByteBuffer      buffer;
+    private final List<String>    sharedStrings = new ArrayList<>();
+    private       ObjectCodec     codec;
+    private       JsonReadContext context       = JsonReadContext.createRootContext(null);
+    private       byte[]          scratch       = new byte[256];
+    private       boolean         isClosed      = false;
+    private       String          text;
+    private       NumberType      numberType;
+    private       long            longValue;
+    private       double          doubleValue;
+    private       BigInteger      bigIntegerValue;
+    private       BigDecimal      bigDecimalValue;
+    private       byte[]          binaryValue;
+
+    RangerSnapshotParser(ByteBuffer buffer, ObjectCodec codec) {
+        super(0);
+
+        this.buffer = buffer;
+        this.codec  = codec;
+    }
+
+    String readHeader() throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+
+        try {
+            buffer.get(magic);
+
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("not a binary snapshot");
+                }
+            }
+
+            int version = buffer.get();
+
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("unsupported binary snapshot version " + version + ", expected up to " + FORMAT_VERSION);
+            }
+
+            return readUtf8();
+        } catch (BufferUnderflowException excp) {
+            throw new IOException("truncated binary snapshot", excp);
+        }
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        if (isClosed || !buffer.hasRemaining()) {
+            close();
+
+            _currToken = null;
+
+            return null;
+        }
+
+        try {
+            byte tag = buffer.get();
+
+            switch (tag) {
+                case TOKEN_START_OBJECT:
+                    context    = context.createChildObjectContext(-1, -1);
+                    _currToken = JsonToken.START_OBJECT;
+                break;
+
+                case TOKEN_END_OBJECT:
+                    context    = context.getParent();
+                    _currToken = JsonToken.END_OBJECT;
+                break;
+
+                case TOKEN_START_ARRAY:
+                    context    = context.createChildArrayContext(-1, -1);
+                    _currToken = JsonToken.START_ARRAY;
+                break;
+
+                case TOKEN_END_ARRAY:
+                    context    = context.getParent();
+                    _currToken = JsonToken.END_ARRAY;
+                break;
+
+                case TOKEN_FIELD_NEW:
+                    text = readUtf8();
+
+                    sharedStrings.add(text);
+                    context.setCurrentName(text);
+
+                    _currToken = JsonToken.FIELD_NAME;
+                break;
+
+                case TOKEN_FIELD_REF:
+                    text = sharedStrings.get(readVarInt());
+
+                    context.setCurrentName(text);
+
+                    _currToken = JsonToken.FIELD_NAME;
+                break;
+
+                case TOKEN_STRING_NEW:
+                    text = readUtf8();
+
+                    sharedStrings.add(text);
+
+                    _currToken = JsonToken.VALUE_STRING;
+                break;
+
+                case TOKEN_STRING_REF:
+                    text       = sharedStrings.get(readVarInt());
+                    _currToken = JsonToken.VALUE_STRING;
+                break;
+
+                case TOKEN_STRING:
+                    text       = readUtf8();
+                    _currToken = JsonToken.VALUE_STRING;
+                break;
+
+                case TOKEN_LONG: {
+                    long v = readVarLong();
+
+                    longValue  = (v >>> 1) ^ -(v & 1);
+                    numberType = (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) ? NumberType.INT : NumberType.LONG;
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                }
+                break;
+
+                case TOKEN_DOUBLE:
+                    doubleValue = Double.longBitsToDouble(buffer.getLong());
+                    numberType  = NumberType.DOUBLE;
+                    _currToken  = JsonToken.VALUE_NUMBER_FLOAT;
+                break;
+
+                case TOKEN_BIG_INTEGER:
+                    bigIntegerValue = new BigInteger(readUtf8());
+                    numberType      = NumberType.BIG_INTEGER;
+                    _currToken      = JsonToken.VALUE_NUMBER_INT;
+                break;
+
+                case TOKEN_BIG_DECIMAL:
+                    bigDecimalValue = new BigDecimal(readUtf8());
+                    numberType      = NumberType.BIG_DECIMAL;
+                    _currToken      = JsonToken.VALUE_NUMBER_FLOAT;
+                break;
+
+                case TOKEN_TRUE:
+                    _currToken = JsonToken.VALUE_TRUE;
+                break;
+
+                case TOKEN_FALSE:
+                    _currToken = JsonToken.VALUE_FALSE;
+                break;
+
+                case TOKEN_NULL:
+                    _currToken = JsonToken.VALUE_NULL;
+                break;
+
+                case TOKEN_BINARY:
+                    binaryValue = new byte[readVarInt()];
+
+                    buffer.get(binaryValue);
+
+                    _currToken = JsonToken.VALUE_EMBEDDED_OBJECT;
+                break;
+
+                default:
+                    _reportError("invalid token " + tag + " at offset " + (buffer.position() - 1) + " in binary snapshot");
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException excp) {
+            _reportError("truncated or corrupt binary snapshot at offset " + buffer.position() + ": " + excp);
+        }
+
+        return _currToken;
+    }
+
+    @Override
+    public String getCurrentName() throws IOException {
+        final JsonStreamContext ctx;
+
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            ctx = context.getParent();
+        } else {
+            ctx = context;
+        }
+
+        return ctx == null ? null : ctx.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        try {
+            if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+                context.getParent().setCurrentName(name);
+            } else {
+                context.setCurrentName(name);
+            }
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return context;
+    }
+
+    @Override
+    public String getText() throws IOException {
+        final String ret;
+
+        if (_currToken == null) {
+            ret = null;
+        } else {
+            switch (_currToken) {
+                case FIELD_NAME:
+                case VALUE_STRING:
+                    ret = text;
+                break;
+
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    ret = getNumberValue().toString();
+                break;
+
+                default:
+                    ret = _currToken.asString();
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+        String str = getText();
+
+        return str == null ? null : str.toCharArray();
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+        String str = getText();
+
+        return str == null ? 0 : str.length();
+    }
+
+    @Override
+    public int getTextOffset() {
+        return 0;
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant b64variant) throws IOException {
+        final byte[] ret;
+
+        if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            ret = binaryValue;
+        } else if (_currToken == JsonToken.VALUE_STRING) {
+            ret = b64variant.decode(text);
+        } else {
+            _reportError("Current token (" + _currToken + ") not VALUE_STRING or VALUE_EMBEDDED_OBJECT, can not access as binary");
+
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public Object getEmbeddedObject() {
+        return _currToken == JsonToken.VALUE_EMBEDDED_OBJECT ? binaryValue : null;
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+        final Number ret;
+
+        switch (getNumberTypeOrFail()) {
+            case INT:
+                ret = (int) longValue;
+            break;
+
+            case LONG:
+                ret = longValue;
+            break;
+
+            case BIG_INTEGER:
+                ret = bigIntegerValue;
+            break;
+
+            case BIG_DECIMAL:
+                ret = bigDecimalValue;
+            break;
+
+            default:
+                ret = doubleValue;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public NumberType getNumberType() {
+        return (_currToken == JsonToken.VALUE_NUMBER_INT || _currToken == JsonToken.VALUE_NUMBER_FLOAT) ? numberType : null;
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+        NumberType type = getNumberTypeOrFail();
+
+        if (type == NumberType.INT) {
+            return (int) longValue;
+        }
+
+        long ret = getLongValue();
+
+        if (ret < Integer.MIN_VALUE || ret > Integer.MAX_VALUE) {
+            reportOverflowInt();
+        }
+
+        return (int) ret;
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+        NumberType type = getNumberTypeOrFail();
+
+        return (type == NumberType.INT || type == NumberType.LONG) ? longValue : getNumberValue().longValue();
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+        NumberType type = getNumberTypeOrFail();
+
+        if (type == NumberType.BIG_INTEGER) {
+            return bigIntegerValue;
+        } else if (type == NumberType.BIG_DECIMAL) {
+            return bigDecimalValue.toBigInteger();
+        } else if (type == NumberType.DOUBLE) {
+            return BigDecimal.valueOf(doubleValue).toBigInteger();
+        }
+
+        return BigInteger.valueOf(longValue);
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+        return getNumberValue().floatValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+        return getNumberValue().doubleValue();
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+        NumberType type = getNumberTypeOrFail();
+
+        if (type == NumberType.BIG_DECIMAL) {
+            return bigDecimalValue;
+        } else if (type == NumberType.BIG_INTEGER) {
+            return new BigDecimal(bigIntegerValue);
+        } else if (type == NumberType.DOUBLE) {
+            return BigDecimal.valueOf(doubleValue);
+        }
+
+        return BigDecimal.valueOf(longValue);
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    protected void _handleEOF() {
+    }
+
+    private NumberType getNumberTypeOrFail() throws IOException {
+        NumberType ret = getNumberType();
+
+        if (ret == null) {
+            _reportError("Current token (" + _currToken + ") not numeric, can not use numeric value accessors");
+        }
+
+        return ret;
+    }
+
+    private String readUtf8() {
+        int len = readVarInt();
+
+        if (len < 0 || len > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        if (buffer.hasArray()) {
+            String ret = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len, StandardCharsets.UTF_8);
+
+            buffer.position(buffer.position() + len);
+
+            return ret;
+        }
+
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+        }
+
+        buffer.get(scratch, 0, len);
+
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() {
+        return (int) readVarLong();
+    }
+
+    private long readVarLong() {
+        long ret   = 0;
+        int  shift = 0;
+
+        while (true) {
+            byte b = buffer.get();
+
+            ret |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                break;
+            }
+
+            shift += 7;
+        }
+
+        return ret;
+    }
+}
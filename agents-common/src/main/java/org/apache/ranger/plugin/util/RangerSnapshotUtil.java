@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the plugin cache files - ServicePolicies, ServiceTags, RangerRoles, RangerUserStore - either as JSON
+ * or as a binary snapshot.
+ *
+ * A binary snapshot is a header followed by the JSON token stream of the object, in a compact binary form:
+ * <pre>
+ *   header: magic "RNGRSNAP", format version (1 byte), type name (length-prefixed UTF-8)
+ *   token:  1 byte tag, followed by the token value, if any
+ * </pre>
+ * Integers are written as zig-zag varints. Field names and strings up to MAX_SHARED_STRING_LENGTH chars are written once;
+ * later occurrences refer to the first one by its index. Besides reducing the size, this makes the objects read from a
+ * snapshot share a single String instance for each of these values - like user/group names and access types, which
+ * repeat across policies. Snapshots are read from a memory-mapped file, without copying the file to the heap.
+ *
+ * Binary snapshots are saved with extension .snap in place of .json - for example hiveServer2_dev_hive.snap - so that
+ * a version that reads only JSON cache files never finds a binary snapshot under the name of a JSON cache file. Saving a
+ * cache file removes the file of the other format, and loading uses the file that exists - so that a cache saved in one
+ * format, including a JSON cache file saved before the upgrade, is read after the format is changed with configuration
+ * &lt;propertyPrefix&gt;.policy.cache.format. Reading a cache file detects the format from its content.
+ */
+public class RangerSnapshotUtil {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerSnapshotUtil.class);
+
+    public static final String CACHE_FORMAT_JSON        = "json";
+    public static final String CACHE_FORMAT_BINARY      = "binary";
+    public static final String CACHE_FORMAT_CONFIG_NAME = ".policy.cache.format";
+    public static final String JSON_FILE_EXTENSION      = ".json";
+    public static final String SNAPSHOT_FILE_EXTENSION  = ".snap";
+    public static final int    FORMAT_VERSION           = 1;
+
+    static final byte[] MAGIC                    = { 'R', 'N', 'G', 'R', 'S', 'N', 'A', 'P' };
+    static final int    MAX_SHARED_STRING_LENGTH = 256;
+
+    static final byte TOKEN_START_OBJECT = 1;
+    static final byte TOKEN_END_OBJECT   = 2;
+    static final byte TOKEN_START_ARRAY  = 3;
+    static final byte TOKEN_END_ARRAY    = 4;
+    static final byte TOKEN_FIELD_NEW    = 5;  // field name, added to the shared strings
+    static final byte TOKEN_FIELD_REF    = 6;  // index of the field name in the shared strings
+    static final byte TOKEN_STRING_NEW   = 7;  // string, added to the shared strings
+    static final byte TOKEN_STRING_REF   = 8;  // index of the string in the shared strings
+    static final byte TOKEN_STRING       = 9;  // string, not added to the shared strings
+    static final byte TOKEN_LONG         = 10;
+    static final byte TOKEN_DOUBLE       = 11;
+    static final byte TOKEN_BIG_INTEGER  = 12;
+    static final byte TOKEN_BIG_DECIMAL  = 13;
+    static final byte TOKEN_TRUE         = 14;
+    static final byte TOKEN_FALSE        = 15;
+    static final byte TOKEN_NULL         = 16;
+    static final byte TOKEN_BINARY       = 17;
+
+    private RangerSnapshotUtil() { }
+
+    public static boolean isBinaryFormat(String cacheFormat) {
+        return StringUtils.equalsIgnoreCase(cacheFormat, CACHE_FORMAT_BINARY);
+    }
+
+    public static boolean isSnapshot(File file) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        int    len    = 0;
+
+        try (InputStream in = new FileInputStream(file)) {
+            while (len < header.length) {
+                int count = in.read(header, len, header.length - len);
+
+                if (count < 0) {
+                    break;
+                }
+
+                len += count;
+            }
+        }
+
+        return len == header.length && Arrays.equals(header, MAGIC);
+    }
+
+    public static void writeSnapshot(Object object, OutputStream out) throws IOException {
+        try (RangerSnapshotGenerator generator = new RangerSnapshotGenerator(out, JsonUtils.getMapper())) {
+            generator.writeHeader(object.getClass().getSimpleName());
+
+            JsonUtils.getMapper().writeValue(generator, object);
+        }
+    }
+
+    public static void writeSnapshot(Object object, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeSnapshot(object, out);
+        }
+    }
+
+    public static <T> T readSnapshot(ByteBuffer buffer, Class<T> clz) throws IOException {
+        try (RangerSnapshotParser parser = new RangerSnapshotParser(buffer, JsonUtils.getMapper())) {
+            String typeName = parser.readHeader();
+
+            if (!StringUtils.equals(typeName, clz.getSimpleName())) {
+                throw new IOException("snapshot of " + typeName + " can't be read as " + clz.getSimpleName());
+            }
+
+            return JsonUtils.getMapper().readValue(parser, clz);
+        }
+    }
+
+    public static <T> T readSnapshot(File file, Class<T> clz) throws IOException {
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return readSnapshot(buffer, clz);
+        }
+    }
+
+    /*
+     * Reads the given cache file - written either as a binary snapshot or as JSON
+     */
+    public static <T> T readCacheFile(File file, Class<T> clz) throws IOException {
+        final T ret;
+
+        if (isSnapshot(file)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerSnapshotUtil.readCacheFile(): reading binary snapshot " + file.getAbsolutePath());
+            }
+
+            ret = readSnapshot(file, clz);
+        } else {
+            try (Reader reader = new FileReader(file)) {
+                ret = JsonUtils.getMapper().readValue(reader, clz);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns the name of the given cache file for the given format: the last .json in the name is replaced with .snap
+     * for the binary format, and the last .snap with .json for the JSON format - so that backup files, like
+     * hiveServer2_dev_hive.json_12, are mapped as well. The extension is appended when the name has neither.
+     */
+    public static File getCacheFile(File file, String cacheFormat) {
+        final String extension      = isBinaryFormat(cacheFormat) ? SNAPSHOT_FILE_EXTENSION : JSON_FILE_EXTENSION;
+        final String otherExtension = isBinaryFormat(cacheFormat) ? JSON_FILE_EXTENSION : SNAPSHOT_FILE_EXTENSION;
+        final String name           = file.getName();
+        final int    idx            = name.lastIndexOf(otherExtension);
+        final File   ret;
+
+        if (idx != -1) {
+            ret = new File(file.getParentFile(), name.substring(0, idx) + extension + name.substring(idx + otherExtension.length()));
+        } else if (name.contains(extension)) {
+            ret = file;
+        } else {
+            ret = new File(file.getParentFile(), name + extension);
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns the existing cache file for the given JSON cache file: either the binary snapshot or the JSON file. When
+     * both exist, the one saved last is returned. When neither exists, the JSON file is returned.
+     */
+    public static File findCacheFile(File jsonFile) {
+        File snapshotFile = getCacheFile(jsonFile, CACHE_FORMAT_BINARY);
+        File ret          = jsonFile;
+
+        if (snapshotFile.isFile() && (!jsonFile.isFile() || snapshotFile.lastModified() >= jsonFile.lastModified())) {
+            ret = snapshotFile;
+        }
+
+        return ret;
+    }
+
+    /*
+     * Saves the object in the cache file for the given format - see getCacheFile() - and removes the cache file of the
+     * other format, if any, so that an older copy is not loaded later. Returns the file saved.
+     */
+    public static File saveCacheFile(File jsonFile, Object object, String cacheFormat) throws IOException {
+        File ret       = getCacheFile(jsonFile, cacheFormat);
+        File otherFile = getCacheFile(jsonFile, isBinaryFormat(cacheFormat) ? CACHE_FORMAT_JSON : CACHE_FORMAT_BINARY);
+
+        writeCacheFile(ret, object, cacheFormat);
+
+        if (otherFile.exists() && !otherFile.delete()) {
+            LOG.warn("failed to delete cache file " + otherFile.getAbsolutePath() + ", saved in place of " + ret.getAbsolutePath());
+        }
+
+        return ret;
+    }
+
+    /*
+     * Writes the object to the given file, in the given format
+     */
+    public static void writeCacheFile(File file, Object object, String cacheFormat) throws IOException {
+        if (isBinaryFormat(cacheFormat)) {
+            writeSnapshot(object, file);
+        } else {
+            try (Writer writer = new FileWriter(file)) {
+                JsonUtils.getMapper().writeValue(writer, object);
+            }
+        }
+    }
+}
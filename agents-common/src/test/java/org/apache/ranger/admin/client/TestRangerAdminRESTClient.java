@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.admin.client;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerUserStore;
+import org.apache.ranger.plugin.util.ServiceGdsInfo;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Downloads policies, tags, roles, user store and GDS info with RangerAdminRESTClient from a stub admin server.
+ */
+public class TestRangerAdminRESTClient {
+	private static final String SERVICE_NAME    = "dev_hive";
+	private static final String PROPERTY_PREFIX = "ranger.plugin.hive";
+	private static final int    POLICY_COUNT    = 1000;
+
+	private final Map<String, byte[]> responses = new HashMap<>();
+
+	private HttpServer            server;
+	private RangerAdminRESTClient adminClient;
+	private String                adminUrl;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+		server.createContext("/service/", this::handleRequest);
+		server.start();
+
+		adminUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+		Configuration config = new Configuration(false);
+
+		config.set(PROPERTY_PREFIX + ".policy.rest.url", adminUrl);
+		config.setInt(PROPERTY_PREFIX + ".policy.rest.client.max.retry.attempts", 1);
+
+		adminClient = new RangerAdminRESTClient();
+
+		adminClient.init(SERVICE_NAME, "hiveServer2", PROPERTY_PREFIX, config);
+	}
+
+	@After
+	public void stopServer() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testDownloadPolicies() throws Exception {
+		ServicePolicies expected = createPolicies(100);
+
+		setResponse(RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED, expected);
+
+		ServicePolicies policies = adminClient.getServicePoliciesIfUpdated(-1, -1);
+
+		assertNotNull(policies);
+		assertEquals(JsonUtils.objectToJson(expected), JsonUtils.objectToJson(policies));
+	}
+
+	@Test
+	public void testDownloadTagsRolesUserStoreAndGdsInfo() throws Exception {
+		ServiceTags     tags      = createTags();
+		RangerRoles     roles     = createRoles();
+		RangerUserStore userStore = createUserStore();
+		ServiceGdsInfo  gdsInfo   = new ServiceGdsInfo();
+
+		gdsInfo.setServiceName(SERVICE_NAME);
+		gdsInfo.setGdsVersion(5L);
+
+		setResponse(RangerRESTUtils.REST_URL_GET_SERVICE_TAGS_IF_UPDATED, tags);
+		setResponse(RangerRESTUtils.REST_URL_SERVICE_GET_USER_GROUP_ROLES, roles);
+		setResponse(RangerRESTUtils.REST_URL_SERVICE_GET_USERSTORE, userStore);
+		setResponse(RangerRESTUtils.REST_URL_SERVICE_GET_GDSINFO, gdsInfo);
+
+		assertEquals(JsonUtils.objectToJson(tags), JsonUtils.objectToJson(adminClient.getServiceTagsIfUpdated(-1, -1)));
+		assertEquals(JsonUtils.objectToJson(roles), JsonUtils.objectToJson(adminClient.getRolesIfUpdated(-1, -1)));
+		assertEquals(JsonUtils.objectToJson(userStore), JsonUtils.objectToJson(adminClient.getUserStoreIfUpdated(-1, -1)));
+		assertEquals(JsonUtils.objectToJson(gdsInfo), JsonUtils.objectToJson(adminClient.getGdsInfoIfUpdated(-1, -1)));
+	}
+
+	/*
+	 * Policies deserialized from the response stream must be the same as those read into a String and deserialized
+	 * from it - as was done earlier. PolicyResponseParseBenchmark in ranger-tools compares the heap used by both.
+	 */
+	@Test
+	public void testPolicyDownloadStreamParse() throws Exception {
+		setResponse(RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED, createPolicies(POLICY_COUNT));
+
+		ServicePolicies viaString = readAsString();
+		ServicePolicies viaStream = adminClient.getServicePoliciesIfUpdated(-1, -1);
+
+		assertEquals(POLICY_COUNT, viaStream.getPolicies().size());
+		assertEquals(JsonUtils.objectToJson(viaString), JsonUtils.objectToJson(viaStream));
+	}
+
+	private ServicePolicies readAsString() throws Exception {
+		Client         client   = Client.create();
+		ClientResponse response = client.resource(adminUrl + RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED + SERVICE_NAME).get(ClientResponse.class);
+
+		try {
+			return JsonUtilsV2.jsonToObj(response.getEntity(String.class), ServicePolicies.class);
+		} finally {
+			client.destroy();
+		}
+	}
+
+	private void setResponse(String relativeUrl, Object obj) throws Exception {
+		responses.put(relativeUrl + SERVICE_NAME, JsonUtilsV2.nonSerializableObjToJson(obj).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void handleRequest(HttpExchange exchange) throws IOException {
+		byte[] response = responses.get(exchange.getRequestURI().getPath());
+
+		try {
+			if (response == null) {
+				exchange.sendResponseHeaders(404, -1);
+			} else {
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+				exchange.sendResponseHeaders(200, response.length);
+
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(response);
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static ServicePolicies createPolicies(int count) {
+		ServicePolicies    ret      = new ServicePolicies();
+		List<RangerPolicy> policies = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			RangerPolicy                      policy    = new RangerPolicy();
+			Map<String, RangerPolicyResource> resources = new HashMap<>();
+			RangerPolicyItem                  item      = new RangerPolicyItem();
+
+			resources.put("database", new RangerPolicyResource("db" + (i % 100)));
+			resources.put("table", new RangerPolicyResource("table" + i));
+			resources.put("column", new RangerPolicyResource("*"));
+
+			item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update")));
+			item.setUsers(Arrays.asList("user" + (i % 500), "user" + ((i + 1) % 500)));
+			item.setGroups(Collections.singletonList("group" + (i % 50)));
+
+			policy.setId((long) i);
+			policy.setGuid("guid-" + i);
+			policy.setService(SERVICE_NAME);
+			policy.setName("policy-" + i);
+			policy.setDescription("policy for table" + i + " in database db" + (i % 100));
+			policy.setResources(resources);
+			policy.setPolicyItems(new ArrayList<>(Collections.singletonList(item)));
+
+			policies.add(policy);
+		}
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setPolicyVersion(10L);
+		ret.setPolicies(policies);
+
+		return ret;
+	}
+
+	private static ServiceTags createTags() {
+		ServiceTags           ret      = new ServiceTags();
+		RangerTag             tag      = new RangerTag("PII", Collections.singletonMap("level", "high"));
+		RangerServiceResource resource = new RangerServiceResource(SERVICE_NAME, Collections.singletonMap("database", new RangerPolicyResource("finance")));
+
+		tag.setId(1L);
+		resource.setId(2L);
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setTagVersion(3L);
+		ret.setTags(Collections.singletonMap(tag.getId(), tag));
+		ret.setServiceResources(Collections.singletonList(resource));
+		ret.setResourceToTagIds(Collections.singletonMap(resource.getId(), Collections.singletonList(tag.getId())));
+
+		return ret;
+	}
+
+	private static RangerRoles createRoles() {
+		RangerRoles ret  = new RangerRoles();
+		RangerRole  role = new RangerRole("finance", "finance role", null, null, null);
+
+		role.setId(1L);
+		role.setUsers(Collections.singletonList(new RangerRole.RoleMember("user1", false)));
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setRoleVersion(4L);
+		ret.setRangerRoles(new HashSet<>(Collections.singletonList(role)));
+
+		return ret;
+	}
+
+	private static RangerUserStore createUserStore() {
+		RangerUserStore          ret        = new RangerUserStore();
+		Map<String, Set<String>> userGroups = new HashMap<>();
+
+		userGroups.put("user1", new HashSet<>(Arrays.asList("group1", "group2")));
+
+		ret.setUserStoreVersion(6L);
+		ret.setUserGroupMapping(userGroups);
+
+		return ret;
+	}
+}
@@ -189,6 +189,24 @@ public void testRangerTagsNotPresentConditionEvaluator() {
 		Assert.assertTrue(tagsNotPresentConditionEvaluator.isMatched(createRequest(resourceTags)));
 	}
 
+	@Test
+	public void testScriptGlobalsNotSharedAcrossRequests() {
+		// 'var allowed;' doesn't clear a value set earlier: the value set for an admin must not be seen in the next request
+		RangerScriptConditionEvaluator evaluator = createScriptConditionEvaluator("var allowed; if (IS_IN_GROUP('admins')) allowed = true; allowed");
+		RangerAccessRequestImpl        admin     = (RangerAccessRequestImpl) createRequest(null);
+		RangerAccessRequestImpl        nonAdmin  = (RangerAccessRequestImpl) createRequest(null);
+
+		admin.setUser("admin-user");
+		admin.setUserGroups(Collections.singleton("admins"));
+		nonAdmin.setUser("test-user");
+		nonAdmin.setUserGroups(Collections.singleton("test-group1"));
+
+		for (int i = 0; i < 2; i++) {
+			Assert.assertTrue("admin, iteration " + i, evaluator.isMatched(admin));
+			Assert.assertFalse("non-admin, iteration " + i, evaluator.isMatched(nonAdmin));
+		}
+	}
+
 	RangerAnyOfExpectedTagsPresentConditionEvaluator createRangerAnyOfExpectedTagsPresentConditionEvaluator(List<String> policyConditionTags) {
 		RangerAnyOfExpectedTagsPresentConditionEvaluator matcher = new RangerAnyOfExpectedTagsPresentConditionEvaluator();
 
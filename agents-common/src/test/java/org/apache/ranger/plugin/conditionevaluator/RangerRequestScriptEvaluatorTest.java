@@ -20,11 +20,15 @@
 package org.apache.ranger.plugin.conditionevaluator;
 
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptParser;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerUserStore;
@@ -32,6 +36,7 @@
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import java.util.Arrays;
 import java.util.Collections;
@@ -40,7 +45,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_JSON_CTX;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -463,6 +470,118 @@ public void testIsTimeMacros() {
         Assert.assertTrue("test: IS_ACCESS_TIME_BETWEEN('2010/01/01 15:00:42', '2100/01/01 15:00:42', 'GMT')", (Boolean) evaluator.evaluateScript("IS_ACCESS_TIME_BETWEEN('2010/01/01 15:00:42', '2100/01/01 15:00:42', 'GMT')"));
     }
 
+    @Test
+    public void testParsedConditionScripts() {
+        RangerTag           tagPII   = new RangerTag("PII", new HashMap<String, String>() {{ put("level", "high"); put("expiry", "2020/01/01"); }});
+        RangerTag           tagPCI   = new RangerTag("PCI", Collections.singletonMap("attr1", "PCI_value"));
+        RangerAccessRequest request1 = createRequest("test-user", new HashSet<>(Arrays.asList("test-group1", "test-group2")), Collections.singleton("test-role1"), Arrays.asList(tagPII, tagPCI));
+        RangerAccessRequest request2 = createRequest("test-user2", Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+        List<String>        scripts  = Arrays.asList("HAS_TAG('PII')", "HAS_ANY_TAG", "HAS_NO_TAG", "IS_IN_GROUP('test-group1') && IS_IN_ROLE('test-role1')",
+                                                     "IS_IN_ANY_GROUP || IS_IN_ANY_ROLE", "IS_NOT_IN_ANY_GROUP", "HAS_USER_ATTR('state')", "HAS_UG_ATTR('site')",
+                                                     "HAS_TAG_ATTR('level')", "tagAttr.level == 'high'", "tagAttr['level'] != 'high'", "TAG.level === \"high\"",
+                                                     "_ctx.tag.level !== 'low'", "USER.state == 'CA'", "USER['dept'] == 'ENGG'", "!(HAS_TAG('PII') && tagAttr.level == 'low') ;",
+                                                     "ctx.isAccessedAfter('expiry')", "ctx.isAccessedBefore('PII', 'expiry')", "IS_ACCESS_TIME_BETWEEN('2010/01/01', '2100/01/01', 'GMT')");
+
+        for (String script : scripts) {
+            Predicate<RangerRequestScriptEvaluator> predicate = RangerRequestScriptParser.parseCondition(script);
+
+            Assert.assertNotNull("script not parsed: " + script, predicate);
+
+            for (RangerAccessRequest request : Arrays.asList(request1, request2)) {
+                RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine);
+
+                evaluator.evaluateConditionScript(script);
+
+                try {
+                    Assert.assertEquals("script: " + script + ", user: " + request.getUser(), evaluator.getResult(), predicate.test(new RangerRequestScriptEvaluator(request)));
+                } catch (RangerRequestScriptParser.ScriptEngineRequiredException excp) {
+                    // tag attributes without a current tag: see testParsedConditionScriptsWithoutTag()
+                    Assert.assertNull("script: " + script + ", user: " + request.getUser(), RangerAccessRequestUtil.getCurrentTagFromContext(request.getContext()));
+                }
+            }
+        }
+
+        List<String> unsupportedScripts = Arrays.asList("TAG._type == 'PII'", "USER.state == 'C\\A'", "tagAttr.level > 'high'", "ctx.hasTag(tagAttr.level)",
+                                                        "HAS_TAG('PII') & HAS_TAG('PCI')", "tagAttr.level == 'high'; true", "IS_IN_GROUP('g1'", "ctx.getUser() == 'test-user'",
+                                                        "!tagAttr.level == 'high'", "!!USER.state != 'CA'", "!HAS_TAG('PII') == false");
+
+        for (String script : unsupportedScripts) {
+            Assert.assertNull("script parsed: " + script, RangerRequestScriptParser.parseCondition(script));
+        }
+    }
+
+    @Test
+    public void testParsedConditionScriptsWithoutTag() {
+        RangerAccessRequest request = createRequest("test-user2", Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+        List<String>        scripts = Arrays.asList("tagAttr.level == 'high'", "tagAttr['level'] != 'high'", "TAG.level === \"high\"", "_ctx.tag.level !== 'low'",
+                                                    "!(HAS_ANY_TAG || tagAttr.level == 'low')", "USER['dept'] == 'ENGG' && TAG.level != 'low'");
+
+        for (String script : scripts) {
+            RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine);
+
+            evaluator.evaluateConditionScript(script);
+
+            try {
+                RangerRequestScriptParser.parseCondition(script).test(new RangerRequestScriptEvaluator(request));
+
+                Assert.fail("parsed script evaluated without a current tag: " + script);
+            } catch (RangerRequestScriptParser.ScriptEngineRequiredException excp) {
+                // expected: the condition evaluator uses the script engine instead
+            }
+
+            Assert.assertEquals("script: " + script, evaluator.getResult(), createConditionEvaluator(script).isMatched(request));
+        }
+    }
+
+    @Test
+    public void testCompiledConditionScript() throws Exception {
+        RangerTag           tagPII   = new RangerTag("PII", Collections.singletonMap("level", "high"));
+        RangerAccessRequest request1 = createRequest("test-user", Collections.singleton("test-group1"), Collections.emptySet(), Collections.singletonList(tagPII));
+        RangerAccessRequest request2 = createRequest("test-user2", Collections.singleton("test-group2"), Collections.emptySet(), Collections.emptyList());
+        String              script   = "TAGS.PII != null && TAGS.PII.level == 'high' && UG_NAMES_CSV.length > 0 && REQ.accessType == 'select'";
+        CompiledScript      compiled = RangerRequestScriptEvaluator.compileConditionScript(scriptEngine, script, true);
+
+        Assert.assertNotNull(compiled);
+
+        // the compiled script is reused across requests, each with its own bindings
+        RangerRequestScriptEvaluator evaluator1 = new RangerRequestScriptEvaluator(request1, scriptEngine, true, scriptEngine.createBindings());
+
+        evaluator1.evaluateConditionScript(compiled);
+
+        Assert.assertTrue(evaluator1.getResult());
+
+        RangerRequestScriptEvaluator evaluator2 = new RangerRequestScriptEvaluator(request2, scriptEngine, true, scriptEngine.createBindings());
+
+        evaluator2.evaluateConditionScript(compiled);
+
+        Assert.assertFalse(evaluator2.getResult());
+
+        evaluator1 = new RangerRequestScriptEvaluator(request1, scriptEngine, true, scriptEngine.createBindings());
+
+        evaluator1.evaluateConditionScript(compiled);
+
+        Assert.assertTrue(evaluator1.getResult());
+    }
+
+    RangerScriptConditionEvaluator createConditionEvaluator(String script) {
+        RangerScriptConditionEvaluator ret          = new RangerScriptConditionEvaluator();
+        RangerServiceDef               serviceDef   = mock(RangerServiceDef.class);
+        RangerPolicyConditionDef       conditionDef = mock(RangerPolicyConditionDef.class);
+        RangerPolicyItemCondition      condition    = mock(RangerPolicyItemCondition.class);
+
+        when(serviceDef.getName()).thenReturn("test");
+        when(conditionDef.getEvaluatorOptions()).thenReturn(Collections.singletonMap(SCRIPT_OPTION_ENABLE_JSON_CTX, "true"));
+        when(condition.getValues()).thenReturn(Collections.singletonList(script));
+
+        ret.setServiceDef(serviceDef);
+        ret.setConditionDef(conditionDef);
+        ret.setPolicyItemCondition(condition);
+
+        ret.init();
+
+        return ret;
+    }
+
     RangerAccessRequest createRequest(String userName, Set<String> userGroups, Set<String> userRoles, List<RangerTag> resourceTags) {
         RangerAccessResource resource = mock(RangerAccessResource.class);
 
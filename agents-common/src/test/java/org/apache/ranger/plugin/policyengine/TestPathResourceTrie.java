@@ -28,6 +28,7 @@
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,6 +38,8 @@
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 
 public class TestPathResourceTrie {
@@ -68,7 +71,8 @@ public class TestPathResourceTrie {
 																						EVAL_TMPA_B
 																						);
 
-	private final RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> trie         = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> trieForSpace = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, true, null);
 
 	@Test
 	public void testChildrenScope() {
@@ -115,11 +119,94 @@ public void testSelfScope() {
 		verifyEvaluators("invalid: does-not-begin-with-sep", scope);
 	}
 
+	@Test
+	public void testIncrementalUpdates() {
+		final RangerResourceEvaluator       evalHomeX = getEvaluator("/home/x", false, false);
+		final List<RangerResourceEvaluator> toDelete  = Arrays.asList(EVAL_, EVAL_TMPFILE, EVAL_TMP_A_B);
+		final List<RangerResourceEvaluator> toAdd     = Arrays.asList(EVAL_HOME, EVAL_TMP_AB, evalHomeX);
+		final List<RangerResourceEvaluator> before    = new ArrayList<>(EVALUATORS);
+		final List<RangerResourceEvaluator> after     = new ArrayList<>(EVALUATORS);
+
+		before.removeAll(toAdd);
+		after.removeAll(toDelete);
+		after.add(evalHomeX);
+
+		// optimized for retrieval, for space, and neither - i.e. nodes set up lazily
+		for (boolean[] options : new boolean[][] { { true, false }, { false, true }, { false, false } }) {
+			RangerResourceTrie<RangerResourceEvaluator> original = new RangerResourceTrie<>(PATH_RESOURCE_DEF, before, options[0], options[1], null);
+			RangerResourceTrie<RangerResourceEvaluator> expected = new RangerResourceTrie<>(PATH_RESOURCE_DEF, after, options[0], options[1], null);
+
+			Map<String, Set<RangerResourceEvaluator>> originalResults = getEvaluators(original); // sets up nodes in lazy mode as well
+
+			RangerResourceTrie<RangerResourceEvaluator> updated = new RangerResourceTrie<>(original);
+
+			for (RangerResourceEvaluator evaluator : toDelete) {
+				updated.delete(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+			}
+
+			for (RangerResourceEvaluator evaluator : toAdd) {
+				updated.add(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+			}
+
+			updated.wrapUpUpdate();
+
+			String mode = "optimizedForRetrieval=" + options[0] + ", optimizedForSpace=" + options[1];
+
+			assertEquals("incorrect evaluators after update: " + mode, getEvaluators(expected), getEvaluators(updated));
+			assertEquals("original trie changed by update: " + mode, originalResults, getEvaluators(original));
+		}
+	}
+
+	@Test
+	public void testIncrementalUpdateSharesUnchangedNodes() {
+		final RangerResourceEvaluator evalHomeX = getEvaluator("/home/x", false, false);
+
+		for (boolean[] options : new boolean[][] { { true, false }, { false, true }, { false, false } }) {
+			RangerResourceTrie<RangerResourceEvaluator> original = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, options[0], options[1], null);
+			RangerResourceTrie<RangerResourceEvaluator> updated  = new RangerResourceTrie<>(original);
+
+			updated.add(evalHomeX.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalHomeX);
+			updated.wrapUpUpdate();
+
+			RangerResourceTrie.TrieNode<RangerResourceEvaluator> originalSlash = original.getRoot().getChild('/');
+			RangerResourceTrie.TrieNode<RangerResourceEvaluator> updatedSlash  = updated.getRoot().getChild('/');
+
+			assertNotSame(originalSlash, updatedSlash);
+			assertNotSame(originalSlash.getChild('h'), updatedSlash.getChild('h'));
+			assertSame(originalSlash.getChild('t'), updatedSlash.getChild('t'));
+			assertEquals(new HashSet<>(Arrays.asList(EVAL_, EVAL_HOME, EVAL_HOME_, evalHomeX)), updated.getEvaluatorsForResource("/home/x", ResourceElementMatchingScope.SELF));
+			assertEquals(new HashSet<>(Arrays.asList(EVAL_, EVAL_HOME, EVAL_HOME_)), original.getEvaluatorsForResource("/home/x", ResourceElementMatchingScope.SELF));
+		}
+	}
+
+	private Map<String, Set<RangerResourceEvaluator>> getEvaluators(RangerResourceTrie<RangerResourceEvaluator> trie) {
+		Map<String, Set<RangerResourceEvaluator>> ret = new HashMap<>();
+
+		for (String resource : Arrays.asList("/", "/home", "/home/", "/home/x", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/a/b", "/tmp/ac/d/e", "/tmp/ac/d/e/f", "/tmpfile", "/tmp.txt", "/tmpa/b", "/unmatched")) {
+			for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+				Set<RangerResourceEvaluator> evaluators = trie.getEvaluatorsForResource(resource, scope);
+
+				ret.put(resource + ":" + scope, evaluators == null ? Collections.emptySet() : new HashSet<>(evaluators));
+			}
+		}
+
+		return ret;
+	}
+
 	private void verifyEvaluators(String resource, ResourceElementMatchingScope scope, RangerResourceEvaluator... evaluators) {
 		Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
 		Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
 
 		assertEquals("incorrect evaluators for resource "  + resource, expected, result);
+
+		// collector API must return the same evaluators, for tries optimized for retrieval and for space
+		for (RangerResourceTrie<RangerResourceEvaluator> t : Arrays.asList(trie, trieForSpace)) {
+			List<RangerResourceEvaluator> collector = new ArrayList<>();
+
+			t.collectEvaluatorsForResource(resource, scope, collector);
+
+			assertEquals("incorrect evaluators collected for resource "  + resource, expected, collector.isEmpty() ? null : new HashSet<>(collector));
+		}
 	}
 
 	private static RangerResourceDef getPathResourceDef() {
@@ -187,6 +187,77 @@ public void testPolicyEngine_hdfs() {
 		runTestsFromResourceFiles(hdfsTestResourceFiles);
 	}
 
+	@Test
+	public void testPolicyEngine_withDecisionCache() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_conditions.json", "/policyengine/test_policyengine_tag_hdfs.json",
+		                           "/policyengine/test_policyengine_hive_mask_filter.json" };
+
+		RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+		options.enableDecisionCache = true;
+
+		try {
+			runTestsFromResourceFiles(resourceFiles);
+		} finally {
+			options.enableDecisionCache = false;
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_optimizedForSpace() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_tag_hdfs.json", "/policyengine/test_policyengine_hive_mask_filter.json",
+		                           "/policyengine/test_policyengine_aws.json", "/policyengine/test_policyengine_descendant_tags.json" };
+
+		RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+		options.optimizeTrieForSpace    = true;
+		options.optimizeTagTrieForSpace = true;
+
+		try {
+			runTestsFromResourceFiles(resourceFiles);
+		} finally {
+			options.optimizeTrieForSpace    = false;
+			options.optimizeTagTrieForSpace = false;
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_parallelBuild() {
+		String[] resourceFiles = { "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_hive.json",
+		                           "/policyengine/test_policyengine_tag_hdfs.json", "/policyengine/test_policyengine_hive_mask_filter.json",
+		                           "/policyengine/test_policyengine_hdfs_zones.json", "/policyengine/test_policyengine_conditions.json" };
+
+		RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+		options.buildParallelism = 4;
+
+		try {
+			runTestsFromResourceFiles(resourceFiles);
+		} finally {
+			options.buildParallelism = 1;
+		}
+	}
+
+	@Test
+	public void testPolicyEngine_parallelBuildWithZonesAndDataMask() {
+		// repositories of all zones are built at the same time, sharing the service-def with its data-mask def
+		String[] resourceFiles = { "/policyengine/test_policyengine_hive_zones_mask.json" };
+
+		RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+		options.buildParallelism = 8;
+
+		try {
+			for (int i = 0; i < 20; i++) {
+				runTestsFromResourceFiles(resourceFiles);
+			}
+		} finally {
+			options.buildParallelism = 1;
+		}
+	}
+
 	@Test
 	public void testPolicyEngine_hdfs_allaudit() {
 		String[] hdfsTestResourceFiles = { "/policyengine/test_policyengine_hdfs_allaudit.json" };
@@ -631,7 +702,9 @@ private void runTests(InputStreamReader reader, String testName) {
 	}
 
     private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef serviceDef, String testName, List<TestData> tests) {
-        RangerAccessRequest request = null;
+        RangerAccessRequest       request       = null;
+        List<RangerAccessRequest> batchRequests = new ArrayList<>();
+        List<TestData>            batchTests    = new ArrayList<>();
 
         for(TestData test : tests) {
 			request = test.request;
@@ -724,6 +797,19 @@ private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef
 				assertNotNull("result was null! - " + test.name, result);
 				assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
 				assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+
+				if (policyEngine instanceof RangerPolicyEngineImpl && ((RangerPolicyEngineImpl) policyEngine).getDecisionCache() != null) {
+					// evaluate again, to verify that the result from decision-cache is the same
+					result = policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, auditHandler);
+
+					policyEngine.evaluateAuditPolicies(result);
+
+					assertEquals("isAllowed mismatched with decision-cache! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+					assertEquals("isAudited mismatched with decision-cache! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+				}
+
+				batchRequests.add(request);
+				batchTests.add(test);
 			}
 
 			if(test.dataMaskResult != null) {
@@ -767,6 +853,22 @@ private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef
 			}
 		}
 
+		if (batchRequests.size() > 1) {
+			// evaluate all requests again in one batch, in which resource lookups are shared across requests
+			Collection<RangerAccessResult> results = policyEngine.evaluatePolicies(batchRequests, RangerPolicy.POLICY_TYPE_ACCESS, new RangerDefaultAuditHandler());
+			Iterator<RangerAccessResult>   iter    = results.iterator();
+
+			assertEquals("result count mismatched in batch! - " + testName, batchRequests.size(), results.size());
+
+			for (TestData test : batchTests) {
+				RangerAccessResult result = iter.next();
+
+				policyEngine.evaluateAuditPolicies(result);
+
+				assertEquals("isAllowed mismatched in batch! - " + test.name, test.result.getIsAllowed(), result.getIsAllowed());
+				assertEquals("isAudited mismatched in batch! - " + test.name, test.result.getIsAudited(), result.getIsAudited());
+			}
+		}
 	}
 
 	private void setPluginConfig(RangerPluginConfig conf, String suffix, Set<String> value) {
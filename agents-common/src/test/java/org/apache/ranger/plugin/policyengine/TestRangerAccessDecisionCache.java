@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessDecisionCache.DecisionKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TestRangerAccessDecisionCache {
+	@Test
+	public void testKeyNotChangedByRequest() {
+		Set<String>      userGroups       = new HashSet<>(Arrays.asList("analysts", "public"));
+		Set<String>      userRoles        = new HashSet<>(Collections.singletonList("auditor"));
+		Set<String>      accessTypes      = new HashSet<>(Arrays.asList("select", "update"));
+		Set<Set<String>> accessTypeGroups = new HashSet<>(Collections.singletonList(accessTypes));
+		DecisionKey      key              = createKey(userGroups, userRoles, accessTypes, accessTypeGroups);
+		DecisionKey      sameKey          = createKey(new HashSet<>(userGroups), new HashSet<>(userRoles), new HashSet<>(accessTypes), Collections.singleton(new HashSet<>(accessTypes)));
+		int              hashCode         = key.hashCode();
+
+		assertEquals(sameKey, key);
+
+		// the request is changed after the key is added to the cache
+		userGroups.add("admins");
+		userRoles.clear();
+		accessTypes.add("drop");
+
+		assertEquals(hashCode, key.hashCode());
+		assertEquals(sameKey, key);
+		assertEquals(key, sameKey);
+		assertNotEquals(key, createKey(userGroups, userRoles, accessTypes, Collections.singleton(accessTypes)));
+	}
+
+	private static DecisionKey createKey(Set<String> userGroups, Set<String> userRoles, Set<String> accessTypes, Set<Set<String>> accessTypeGroups) {
+		return new DecisionKey("user1", userGroups, userRoles, "db1/tbl1", null, "select", accessTypes, accessTypeGroups,
+		                       false, false, false, RangerAccessRequest.ResourceMatchingScope.SELF, null, null, null, RangerPolicy.POLICY_TYPE_ACCESS);
+	}
+}
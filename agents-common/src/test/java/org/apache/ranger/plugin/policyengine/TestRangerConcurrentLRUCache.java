@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerConcurrentLRUCache {
+	private static final int MAX_SIZE = 16;
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		RangerConcurrentLRUCache<String, String> cache = new RangerConcurrentLRUCache<>(MAX_SIZE);
+
+		for (int i = 0; i < MAX_SIZE; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertEquals(MAX_SIZE, cache.size());
+
+		// make the first half most-recently-used
+		for (int i = MAX_SIZE / 2 - 1; i >= 0; i--) {
+			assertEquals(String.valueOf(i), cache.get(String.valueOf(i)));
+		}
+
+		for (int i = MAX_SIZE; i < MAX_SIZE + 4; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertTrue("size " + cache.size() + " exceeds " + MAX_SIZE, cache.size() <= MAX_SIZE);
+		assertEquals(6, cache.getEvictionCount());
+
+		for (int i = 0; i < MAX_SIZE / 2; i++) {
+			assertNotNull("recently used key " + i + " was evicted", cache.get(String.valueOf(i)));
+		}
+
+		for (int i = MAX_SIZE / 2; i < MAX_SIZE / 2 + 6; i++) {
+			assertNull("least recently used key " + i + " was not evicted", cache.get(String.valueOf(i)));
+		}
+
+		for (int i = MAX_SIZE; i < MAX_SIZE + 4; i++) {
+			assertNotNull("newly inserted key " + i + " was evicted", cache.get(String.valueOf(i)));
+		}
+	}
+
+	@Test
+	public void testReplaceAndRemove() {
+		RangerConcurrentLRUCache<String, Integer> cache = new RangerConcurrentLRUCache<>(1);
+
+		assertNull(cache.put("a", 1));
+		assertEquals(Integer.valueOf(1), cache.put("a", 2));
+		assertEquals(Integer.valueOf(2), cache.get("a"));
+
+		cache.put("b", 3);
+
+		assertEquals(1, cache.size());
+		assertNull(cache.get("a"));
+		assertEquals(Integer.valueOf(3), cache.remove("b"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final int                                        maxSize    = 1024;
+		final int                                        keyRange   = maxSize * 4;
+		final RangerConcurrentLRUCache<Integer, Integer> cache      = new RangerConcurrentLRUCache<>(maxSize);
+		final AtomicBoolean                              isMismatch = new AtomicBoolean();
+		final List<Thread>                               threads    = new ArrayList<>();
+
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+
+				for (int i = 0; i < 50000; i++) {
+					Integer key   = random.nextInt(keyRange);
+					Integer value = cache.get(key);
+
+					if (value == null) {
+						cache.put(key, key);
+					} else if (!value.equals(key)) {
+						isMismatch.set(true);
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertFalse("cache returned a value for a different key", isMismatch.get());
+		assertTrue("size " + cache.size() + " is well over " + maxSize, cache.size() <= maxSize + maxSize / 8 + threads.size());
+		assertTrue(cache.getEvictionCount() > 0);
+	}
+}
@@ -23,6 +23,7 @@
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.util.RangerResourceLookupCache;
 import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
 import org.junit.Test;
 
@@ -75,6 +76,26 @@ public void testZoneMatcher() {
         assertEquals(createSet("", "z3", "z4"), zones);
     }
 
+    @Test
+    public void testZoneMatcherWithLookupCache() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+        RangerResourceLookupCache lookupCache = new RangerResourceLookupCache();
+
+        // columns of the same table: lookups of database and table are shared
+        for (int i = 0; i < 10; i++) {
+            RangerAccessResource res = createResource("database", "db3", "table", "test_1", "column", "col" + i);
+
+            assertEquals(zoneMatcher.getZonesForResourceAndChildren(res), zoneMatcher.getZonesForResourceAndChildren(res, lookupCache));
+        }
+
+        assertEquals(createSet("z3"), zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db3", "table", "test_1", "column", "col0"), lookupCache));
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db3", "table", "orders"), lookupCache));
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db3", "table", "orders"), lookupCache));
+        assertEquals(createSet("", "z3", "z4"), zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db3"), lookupCache));
+
+        assertTrue("lookups were not shared: " + lookupCache, lookupCache.getHitCount() >= 20);
+    }
+
     private Map<String, SecurityZoneInfo> createSecurityZones() {
         HashMap<String, List<String>> db1     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db1")); }};
         HashMap<String, List<String>> db2     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db2")); }};
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangerSingleFlightTest {
+    private static final int CALLER_COUNT = 10;
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        RangerSingleFlight.Metrics  metrics     = new RangerSingleFlight.Metrics();
+        RangerSingleFlight<Integer> loader      = new RangerSingleFlight<>(metrics, TimeUnit.SECONDS.toMillis(30), false);
+        AtomicInteger               loadCount   = new AtomicInteger();
+        CountDownLatch              loadStarted = new CountDownLatch(1);
+        CountDownLatch              allowLoad   = new CountDownLatch(1);
+        ExecutorService             executor    = Executors.newFixedThreadPool(CALLER_COUNT);
+
+        try {
+            Future<Integer> first = executor.submit(() -> loader.load(() -> {
+                loadStarted.countDown();
+                allowLoad.await();
+
+                return loadCount.incrementAndGet();
+            }, false));
+
+            loadStarted.await();
+
+            List<Future<Integer>> others = new ArrayList<>();
+
+            for (int i = 1; i < CALLER_COUNT; i++) {
+                others.add(executor.submit(() -> loader.load(loadCount::incrementAndGet, false)));
+            }
+
+            waitForWaitingCallers(CALLER_COUNT - 1);
+
+            allowLoad.countDown();
+
+            assertEquals(Integer.valueOf(1), first.get());
+
+            for (Future<Integer> other : others) {
+                assertEquals(Integer.valueOf(1), other.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loadCount.get());
+        assertEquals(1, metrics.getLoadCount());
+        assertEquals(CALLER_COUNT - 1, metrics.getWaitCount());
+        assertEquals(0, metrics.getTimeoutCount());
+
+        // once the load completes, the next caller loads again
+        assertEquals(Integer.valueOf(2), loader.load(loadCount::incrementAndGet, true));
+        assertEquals(2, metrics.getLoadCount());
+    }
+
+    @Test
+    public void testServeStaleAndTimeout() throws Exception {
+        RangerSingleFlight.Metrics  metrics     = new RangerSingleFlight.Metrics();
+        RangerSingleFlight<Integer> loader      = new RangerSingleFlight<>(metrics, 50, true);
+        CountDownLatch              loadStarted = new CountDownLatch(1);
+        CountDownLatch              allowLoad   = new CountDownLatch(1);
+        ExecutorService             executor    = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Integer> first = executor.submit(() -> loader.load(() -> {
+                loadStarted.countDown();
+                allowLoad.await();
+
+                return 1;
+            }, false));
+
+            loadStarted.await();
+
+            // caller with a value doesn't wait
+            assertNull(loader.load(() -> 2, true));
+            assertEquals(1, metrics.getStaleCount());
+            assertEquals(0, metrics.getWaitCount());
+
+            // caller without a value waits, up to maxWaitTimeMs
+            assertNull(loader.load(() -> 2, false));
+            assertEquals(1, metrics.getWaitCount());
+            assertEquals(1, metrics.getTimeoutCount());
+            assertTrue(metrics.getMaxWaitTimeMs() >= 50);
+
+            allowLoad.countDown();
+
+            assertEquals(Integer.valueOf(1), first.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadFailureIsSeenByWaitingCallers() throws Exception {
+        RangerSingleFlight<Integer> loader      = new RangerSingleFlight<>(null, TimeUnit.SECONDS.toMillis(30), false);
+        CountDownLatch              loadStarted = new CountDownLatch(1);
+        CountDownLatch              allowLoad   = new CountDownLatch(1);
+        ExecutorService             executor    = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Integer> first = executor.submit(() -> loader.load(() -> {
+                loadStarted.countDown();
+                allowLoad.await();
+
+                throw new IllegalStateException("load failed");
+            }, false));
+
+            loadStarted.await();
+
+            Future<Integer> second = executor.submit(() -> loader.load(() -> 2, false));
+
+            waitForWaitingCallers(1);
+
+            allowLoad.countDown();
+
+            assertLoadFailed(first);
+            assertLoadFailed(second);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // failed load is not remembered
+        assertEquals(Integer.valueOf(3), loader.load(() -> 3, false));
+    }
+
+    private static void assertLoadFailed(Future<Integer> future) throws InterruptedException {
+        try {
+            future.get();
+
+            fail("load should have failed");
+        } catch (ExecutionException excp) {
+            assertTrue(excp.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    // waits for the given number of callers to block on the load in progress, so that none of them starts a load of its own
+    private static void waitForWaitingCallers(int count) throws InterruptedException {
+        long endTimeMs = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+        while (System.currentTimeMillis() < endTimeMs && getWaitingThreadCount() < count) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static int getWaitingThreadCount() {
+        int ret = 0;
+
+        for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+            for (StackTraceElement frame : stack) {
+                if (frame.getClassName().equals(RangerSingleFlight.class.getName()) && frame.getMethodName().equals("load")) {
+                    boolean isWaiting = false;
+
+                    for (StackTraceElement f : stack) {
+                        if (f.getClassName().startsWith("java.util.concurrent.CompletableFuture") && f.getMethodName().contains("get")) {
+                            isWaiting = true;
+                            break;
+                        }
+                    }
+
+                    if (isWaiting) {
+                        ret++;
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+}
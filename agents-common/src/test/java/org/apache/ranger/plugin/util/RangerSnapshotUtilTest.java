@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RangerSnapshotUtilTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testServicePoliciesRoundTrip() throws Exception {
+		ServicePolicies policies = readJsonResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+
+		assertNotNull(policies);
+
+		File            file     = writeSnapshot(policies);
+		ServicePolicies restored = RangerSnapshotUtil.readSnapshot(file, ServicePolicies.class);
+
+		assertEquals(JsonUtils.objectToJson(policies), JsonUtils.objectToJson(restored));
+		assertTrue("snapshot is not smaller than JSON", file.length() < JsonUtils.objectToJson(policies).getBytes(StandardCharsets.UTF_8).length);
+
+		// repeated values are read as the same String instance
+		RangerPolicyItem item1 = restored.getPolicies().get(0).getPolicyItems().get(0);
+		RangerPolicyItem item2 = restored.getPolicies().get(1).getPolicyItems().get(0);
+
+		assertEquals(item1.getAccesses().get(0).getType(), item2.getAccesses().get(0).getType());
+		assertSame(item1.getAccesses().get(0).getType(), item2.getAccesses().get(0).getType());
+	}
+
+	@Test
+	public void testServiceTagsRoundTrip() throws Exception {
+		ServiceTags tags = readJsonResource("/policyengine/resourceTags.json", ServiceTags.class);
+
+		assertNotNull(tags);
+
+		ServiceTags restored = RangerSnapshotUtil.readSnapshot(writeSnapshot(tags), ServiceTags.class);
+
+		assertEquals(JsonUtils.objectToJson(tags), JsonUtils.objectToJson(restored));
+	}
+
+	@Test
+	public void testRolesAndUserStoreRoundTrip() throws Exception {
+		RangerRoles roles = new RangerRoles();
+		RangerRole  role  = new RangerRole("finance", "finance role", Collections.<String, Object>singletonMap("key", "value"), null, null);
+
+		role.setId(1L);
+		role.setUsers(Arrays.asList(new RangerRole.RoleMember("user1", false), new RangerRole.RoleMember("user2", true)));
+
+		roles.setServiceName("dev_hive");
+		roles.setRoleVersion(Long.MAX_VALUE);
+		roles.setRangerRoles(new HashSet<>(Collections.singletonList(role)));
+
+		RangerRoles restoredRoles = RangerSnapshotUtil.readSnapshot(writeSnapshot(roles), RangerRoles.class);
+
+		assertEquals(JsonUtils.objectToJson(roles), JsonUtils.objectToJson(restoredRoles));
+
+		RangerUserStore                  userStore  = new RangerUserStore();
+		Map<String, Set<String>>         userGroups = new HashMap<>();
+		Map<String, Map<String, String>> userAttrs  = new HashMap<>();
+
+		userGroups.put("user1", new HashSet<>(Arrays.asList("group1", "group2")));
+		userGroups.put("user2", new HashSet<>(Collections.singletonList("group1")));
+		userAttrs.put("user1", Collections.singletonMap("dept", "finance é中"));
+
+		userStore.setUserStoreVersion(-1L);
+		userStore.setUserGroupMapping(userGroups);
+		userStore.setUserAttrMapping(userAttrs);
+
+		RangerUserStore restoredUserStore = RangerSnapshotUtil.readSnapshot(writeSnapshot(userStore), RangerUserStore.class);
+
+		assertEquals(JsonUtils.objectToJson(userStore), JsonUtils.objectToJson(restoredUserStore));
+	}
+
+	@Test
+	public void testReadCacheFileDetectsFormat() throws Exception {
+		ServicePolicies policies   = readJsonResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+		File            jsonFile   = tempFolder.newFile("policies.json");
+		File            binaryFile = tempFolder.newFile("policies_binary.json");
+
+		RangerSnapshotUtil.writeCacheFile(jsonFile, policies, RangerSnapshotUtil.CACHE_FORMAT_JSON);
+		RangerSnapshotUtil.writeCacheFile(binaryFile, policies, RangerSnapshotUtil.CACHE_FORMAT_BINARY);
+
+		assertFalse(RangerSnapshotUtil.isSnapshot(jsonFile));
+		assertTrue(RangerSnapshotUtil.isSnapshot(binaryFile));
+
+		String expected = JsonUtils.objectToJson(policies);
+
+		assertEquals(expected, JsonUtils.objectToJson(RangerSnapshotUtil.readCacheFile(jsonFile, ServicePolicies.class)));
+		assertEquals(expected, JsonUtils.objectToJson(RangerSnapshotUtil.readCacheFile(binaryFile, ServicePolicies.class)));
+	}
+
+	@Test
+	public void testCacheFileNames() {
+		File dir = new File("/etc/ranger/dev_hive/policycache");
+
+		assertEquals(new File(dir, "hiveServer2_dev_hive.snap"), RangerSnapshotUtil.getCacheFile(new File(dir, "hiveServer2_dev_hive.json"), RangerSnapshotUtil.CACHE_FORMAT_BINARY));
+		assertEquals(new File(dir, "hiveServer2_dev_hive.snap_12"), RangerSnapshotUtil.getCacheFile(new File(dir, "hiveServer2_dev_hive.json_12"), RangerSnapshotUtil.CACHE_FORMAT_BINARY));
+		assertEquals(new File(dir, "hiveServer2_dev_hive_tag.json"), RangerSnapshotUtil.getCacheFile(new File(dir, "hiveServer2_dev_hive_tag.snap"), RangerSnapshotUtil.CACHE_FORMAT_JSON));
+		assertEquals(new File(dir, "hiveServer2_dev_hive.json"), RangerSnapshotUtil.getCacheFile(new File(dir, "hiveServer2_dev_hive.json"), RangerSnapshotUtil.CACHE_FORMAT_JSON));
+		assertEquals(new File(dir, "policies.snap"), RangerSnapshotUtil.getCacheFile(new File(dir, "policies"), RangerSnapshotUtil.CACHE_FORMAT_BINARY));
+	}
+
+	@Test
+	public void testSaveAndFindCacheFile() throws Exception {
+		ServicePolicies policies = readJsonResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+		String          expected = JsonUtils.objectToJson(policies);
+		File            jsonFile = new File(tempFolder.getRoot(), "hiveServer2_dev_hive.json");
+		File            snapFile = new File(tempFolder.getRoot(), "hiveServer2_dev_hive.snap");
+
+		assertEquals(jsonFile, RangerSnapshotUtil.findCacheFile(jsonFile));
+
+		// JSON cache file saved before the format is changed to binary
+		RangerSnapshotUtil.writeCacheFile(jsonFile, policies, RangerSnapshotUtil.CACHE_FORMAT_JSON);
+
+		assertEquals(jsonFile, RangerSnapshotUtil.findCacheFile(jsonFile));
+		assertEquals(expected, JsonUtils.objectToJson(RangerSnapshotUtil.readCacheFile(RangerSnapshotUtil.findCacheFile(jsonFile), ServicePolicies.class)));
+
+		assertEquals(snapFile, RangerSnapshotUtil.saveCacheFile(jsonFile, policies, RangerSnapshotUtil.CACHE_FORMAT_BINARY));
+		assertTrue(RangerSnapshotUtil.isSnapshot(snapFile));
+		assertFalse("JSON cache file not removed", jsonFile.exists());
+		assertEquals(snapFile, RangerSnapshotUtil.findCacheFile(jsonFile));
+		assertEquals(expected, JsonUtils.objectToJson(RangerSnapshotUtil.readCacheFile(RangerSnapshotUtil.findCacheFile(jsonFile), ServicePolicies.class)));
+
+		// format changed back to JSON
+		assertEquals(jsonFile, RangerSnapshotUtil.saveCacheFile(jsonFile, policies, RangerSnapshotUtil.CACHE_FORMAT_JSON));
+		assertFalse(RangerSnapshotUtil.isSnapshot(jsonFile));
+		assertFalse("binary snapshot not removed", snapFile.exists());
+		assertEquals(jsonFile, RangerSnapshotUtil.findCacheFile(jsonFile));
+	}
+
+	@Test(expected = IOException.class)
+	public void testSnapshotOfDifferentType() throws Exception {
+		RangerSnapshotUtil.readSnapshot(ByteBuffer.wrap(getPoliciesSnapshot()), ServiceTags.class);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedSnapshot() throws Exception {
+		byte[] snapshot = getPoliciesSnapshot();
+
+		RangerSnapshotUtil.readSnapshot(ByteBuffer.wrap(snapshot, 0, snapshot.length / 2), ServicePolicies.class);
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsupportedSnapshotVersion() throws Exception {
+		byte[] snapshot = getPoliciesSnapshot();
+
+		snapshot[RangerSnapshotUtil.MAGIC.length] = (byte) (RangerSnapshotUtil.FORMAT_VERSION + 1);
+
+		RangerSnapshotUtil.readSnapshot(ByteBuffer.wrap(snapshot), ServicePolicies.class);
+	}
+
+	@Test
+	public void testSharedStringLimit() throws Exception {
+		RangerPolicy policy = new RangerPolicy();
+		char[]       chars  = new char[RangerSnapshotUtil.MAX_SHARED_STRING_LENGTH + 1];
+
+		Arrays.fill(chars, 'd');
+
+		String description = new String(chars);
+
+		policy.setName("policy-1");
+		policy.setDescription(description);
+		policy.setPolicyLabels(Arrays.asList(description, description, "policy-1"));
+
+		RangerPolicy restored = RangerSnapshotUtil.readSnapshot(writeSnapshot(policy), RangerPolicy.class);
+
+		assertEquals(JsonUtils.objectToJson(policy), JsonUtils.objectToJson(restored));
+		assertSame(restored.getName(), restored.getPolicyLabels().get(2));
+	}
+
+	private byte[] getPoliciesSnapshot() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		RangerSnapshotUtil.writeSnapshot(readJsonResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class), out);
+
+		return out.toByteArray();
+	}
+
+	private File writeSnapshot(Object object) throws IOException {
+		File file = tempFolder.newFile();
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			RangerSnapshotUtil.writeSnapshot(object, out);
+		}
+
+		return file;
+	}
+
+	private <T> T readJsonResource(String name, Class<T> clz) throws IOException {
+		try (InputStream in = getClass().getResourceAsStream(name)) {
+			return JsonUtils.jsonToObject(new InputStreamReader(in, StandardCharsets.UTF_8), clz);
+		}
+	}
+}
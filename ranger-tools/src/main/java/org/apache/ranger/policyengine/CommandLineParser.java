@@ -59,6 +59,8 @@
     private String configurationFileName;
     private URL configurationFileURL;
 
+    private int[] buildParallelismValues;
+
 
     private Options options = new Options();
 
@@ -68,7 +70,7 @@ final PerfTestOptions parse(final String[] args) {
         PerfTestOptions ret = null;
         if (parseArguments(args) && validateInputFiles()) {
             // Instantiate a data-object and return
-            ret = new PerfTestOptions(servicePoliciesFileURL, requestFileURLs, statCollectionFileURL, concurrentClientCount, iterationsCount, isTrieLookupPrefixDisabled, isLazyTriePostSetupDisabled, configurationFileURL);
+            ret = new PerfTestOptions(servicePoliciesFileURL, requestFileURLs, statCollectionFileURL, concurrentClientCount, iterationsCount, isTrieLookupPrefixDisabled, isLazyTriePostSetupDisabled, configurationFileURL, buildParallelismValues);
         } else {
             showUsage();
         }
@@ -86,10 +88,14 @@ final PerfTestOptions parse(final String[] args) {
             -f configuration-file-name
             -t
             -d
+            -b build-parallelism-list
 
             If the concurrent-client-count is more than the number of files in the request-file-name-list,
             then reuse the request-file-names in a round-robin way
 
+            With -b, the time to build the policy engine is measured for each of the given build-parallelism values,
+            number-of-iterations times each. request-file-name-list is optional in this case.
+
     */
 
     final boolean parseArguments(final String[] args) {
@@ -108,6 +114,7 @@ final boolean parseArguments(final String[] args) {
         options.addOption("f", "configurations", true, "Configuration File Name");
         options.addOption("t", "trie-prefilter", false, "Enable trie-prefilter");
         options.addOption("d", "trie-lazy-setup", false, "Enable lazy trie-setup");
+        options.addOption("b", "build-parallelism", true, "Comma-separated build-parallelism values to measure policy engine build time with");
 
 
         org.apache.commons.cli.CommandLineParser commandLineParser = new DefaultParser();
@@ -145,12 +152,24 @@ final boolean parseArguments(final String[] args) {
 
             configurationFileName = commandLine.getOptionValue("f");
 
+            String buildParallelismOptionValue = commandLine.getOptionValue("b");
+            if (buildParallelismOptionValue != null) {
+                String[] values = buildParallelismOptionValue.split(",");
+
+                buildParallelismValues = new int[values.length];
+
+                for (int i = 0; i < values.length; i++) {
+                    buildParallelismValues[i] = Integer.parseInt(values[i].trim());
+                }
+            }
+
             if (LOG.isDebugEnabled()) {
                 LOG.debug("servicePoliciesFileName=" + servicePoliciesFileName + ", requestFileName=" + Arrays.toString(requestFileNames));
                 LOG.debug("concurrentClientCount=" + concurrentClientCount + ", iterationsCount=" + iterationsCount);
                 LOG.debug("isTrieLookupPrefixDisabled=" + isTrieLookupPrefixDisabled);
                 LOG.debug("isLazyTriePostSetupDisabled=" + isLazyTriePostSetupDisabled);
                 LOG.debug("configurationFileName=" + configurationFileName);
+                LOG.debug("buildParallelismValues=" + Arrays.toString(buildParallelismValues));
 
             }
 
@@ -176,8 +195,8 @@ final boolean validateInputFiles() {
         if (servicePoliciesFileName != null) {
             this.servicePoliciesFileURL = getInputFileURL(servicePoliciesFileName);
             if (servicePoliciesFileURL != null) {
-                if (requestFileNames != null) {
-                    if (validateRequestFiles()) {
+                if (requestFileNames != null || buildParallelismValues != null) {
+                    if (requestFileNames == null || validateRequestFiles()) {
                     	ret = true;
                         if (statCollectionFileName != null) {
                             statCollectionFileURL = getInputFileURL(statCollectionFileName);
@@ -34,6 +34,7 @@
 import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
 
 public class PerfTestEngine {
 	static final Logger LOG      = LoggerFactory.getLogger(PerfTestEngine.class);
@@ -98,6 +99,44 @@ public boolean init() {
 		return ret;
 
 	}
+
+	/*
+	 * Builds a policy engine from the service-policies file, with the given build-parallelism, iterations times.
+	 * Returns the time taken for each build, in milliseconds; time to read the service-policies file is not included.
+	 */
+	public long[] measureBuildTime(int buildParallelism, int iterations) throws Exception {
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions(policyEngineOptions);
+
+		options.evaluatorType    = policyEngineOptions.evaluatorType;
+		options.buildParallelism = buildParallelism;
+
+		Gson   gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+		long[] ret  = new long[iterations];
+
+		for (int i = 0; i < iterations; i++) {
+			ServicePolicies servicePolicies;
+
+			try (Reader reader = new InputStreamReader(servicePoliciesFileURL.openStream(), Charset.forName("UTF-8"))) {
+				servicePolicies = gson.fromJson(reader, ServicePolicies.class);
+			}
+
+			String              serviceType   = servicePolicies.getServiceDef() != null ? servicePolicies.getServiceDef().getName() : "";
+			RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig(serviceType, null, "perf-test", null, null, options));
+
+			pluginContext.getConfig().addResource(configFileURL);
+
+			long startTimeNanos = System.nanoTime();
+
+			RangerPolicyEngineImpl policyEngine = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+
+			ret[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+
+			policyEngine.releaseResources(true);
+		}
+
+		return ret;
+	}
+
 	public RangerAccessResult execute(final RangerAccessRequest request) {
 
 		if (LOG.isDebugEnabled()) {
@@ -36,8 +36,9 @@ public class PerfTestOptions {
 	private final URL perfConfigurationFileURL;
 	private final boolean isPolicyTrieOptimizedForSpace;
 	private final boolean isTagTrieOptimizedForSpace;
+	private final int[] buildParallelismValues;
 
-	PerfTestOptions(URL servicePoliciesFileURL, URL[] requestFileURLs, URL statCollectionFileURL, int concurrentClientCount, int iterationsCount, boolean isTrieLookupPrefixDisabled, boolean isOnDemandTriePostSetupDisabled, URL perfConfigurationFileURL) {
+	PerfTestOptions(URL servicePoliciesFileURL, URL[] requestFileURLs, URL statCollectionFileURL, int concurrentClientCount, int iterationsCount, boolean isTrieLookupPrefixDisabled, boolean isOnDemandTriePostSetupDisabled, URL perfConfigurationFileURL, int[] buildParallelismValues) {
 		this.servicePoliciesFileURL = servicePoliciesFileURL;
 		this.requestFileURLs = requestFileURLs;
 		this.statCollectionFileURL = statCollectionFileURL;
@@ -46,6 +47,7 @@ public class PerfTestOptions {
 		this.isTrieLookupPrefixDisabled = isTrieLookupPrefixDisabled;
 		this.isOnDemandTriePostSetupDisabled = isOnDemandTriePostSetupDisabled;
 		this.perfConfigurationFileURL = perfConfigurationFileURL;
+		this.buildParallelismValues = buildParallelismValues;
 
 		RangerConfiguration configuration = new PerfTestConfiguration(perfConfigurationFileURL);
 		this.isPolicyTrieOptimizedForSpace = configuration.getBoolean("ranger.policyengine.option.optimize.policy.trie.for.space", false);
@@ -83,4 +85,6 @@ public URL getPerfConfigurationFileURL() {
 	public boolean getIsPolicyTrieOptimizedForSpace() { return isPolicyTrieOptimizedForSpace; }
 	public boolean getIsTagTrieOptimizedForSpace() { return isTagTrieOptimizedForSpace; }
 
+	public int[] getBuildParallelismValues() { return buildParallelismValues; }
+
 }
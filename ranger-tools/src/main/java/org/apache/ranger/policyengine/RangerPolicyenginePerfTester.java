@@ -79,6 +79,18 @@ public static void main(String[] args) {
                 System.exit(1);
             }
 
+            if (perfTestOptions.getBuildParallelismValues() != null) {
+                runBuildBenchmark(perfTestEngine, perfTestOptions.getBuildParallelismValues(), perfTestOptions.getIterationsCount());
+
+                if (perfTestOptions.getRequestFileURLs() == null) {
+                    perfTestEngine.cleanUp();
+
+                    LOG.info("Exiting...");
+
+                    return;
+                }
+            }
+
             URL[] requestFileURLs = perfTestOptions.getRequestFileURLs();
             int requestFilesCount = requestFileURLs.length;
 
@@ -173,6 +185,45 @@ public static void main(String[] args) {
 
     }
 
+    /*
+     * Measures the wall-clock time to build the policy engine with each of the given build-parallelism values, after
+     * a warm-up round with the first value. Speedup is relative to the first parallelism value.
+     */
+    private static void runBuildBenchmark(PerfTestEngine perfTestEngine, int[] buildParallelismValues, int iterations) {
+        LOG.info("Policy engine build benchmark: availableProcessors=" + Runtime.getRuntime().availableProcessors() + ", iterations=" + iterations);
+
+        try {
+            perfTestEngine.measureBuildTime(buildParallelismValues[0], iterations);
+        } catch (Exception excp) {
+            LOG.error("Error building policy engine during warm-up", excp);
+        }
+
+        long baselineMinTime = -1;
+
+        for (int buildParallelism : buildParallelismValues) {
+            try {
+                long[] buildTimes = perfTestEngine.measureBuildTime(buildParallelism, iterations);
+                long   minTime    = Long.MAX_VALUE;
+                long   totalTime  = 0;
+
+                for (long buildTime : buildTimes) {
+                    minTime    = Math.min(minTime, buildTime);
+                    totalTime += buildTime;
+                }
+
+                if (baselineMinTime < 0) {
+                    baselineMinTime = minTime;
+                }
+
+                String speedup = minTime > 0 ? String.format("%.2f", (double) baselineMinTime / minTime) : "n/a";
+
+                LOG.info("[PolicyEngine.build] buildParallelism:" + buildParallelism + ", minTimeTaken:" + minTime + ", avgTimeTaken:" + (totalTime / buildTimes.length) + ", speedup:" + speedup);
+            } catch (Exception excp) {
+                LOG.error("Error building policy engine with buildParallelism=" + buildParallelism, excp);
+            }
+        }
+    }
+
     private static List<String> buildPerfModuleNames(URL statCollectionFileURL) {
         List<String> perfModuleNames = new ArrayList<String>();
 
@@ -29,8 +29,10 @@
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
 import org.apache.ranger.plugin.util.ServicePolicies;
@@ -41,6 +43,8 @@
 public class RangerMemSizing {
   private static final String OPT_MODE_SPACE      = "space";
   private static final String OPT_MODEL_RETRIEVAL = "retrieval";
+  private static final String TRIE_LAYOUT_COMPACT = "compact";
+  private static final String TRIE_LAYOUT_MAP     = "map";
 
   private final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.S");
 
@@ -52,7 +56,9 @@ public class RangerMemSizing {
   private final boolean     deDup;
   private final boolean     deDupStrings;
   private final String      optimizationMode;
+  private final String      trieLayout;
   private final PrintStream out;
+  private       long        pluginHeapSize;
 
   public RangerMemSizing(CommandLine cmdLine) {
     this.out              = System.out;
@@ -64,6 +70,7 @@ public RangerMemSizing(CommandLine cmdLine) {
     this.deDup            = Boolean.parseBoolean(cmdLine.getOptionValue("d", "true"));
     this.deDupStrings     = this.deDup;
     this.optimizationMode = StringUtils.startsWithIgnoreCase(cmdLine.getOptionValue('o', "space"), "s") ? OPT_MODE_SPACE : OPT_MODEL_RETRIEVAL;
+    this.trieLayout       = StringUtils.startsWithIgnoreCase(cmdLine.getOptionValue('l', TRIE_LAYOUT_COMPACT), "m") ? TRIE_LAYOUT_MAP : TRIE_LAYOUT_COMPACT;
   }
 
   public void run() {
@@ -98,12 +105,19 @@ public void run() {
 
     out.println("  DeDup:     " + deDup);
     out.println("  OptMode:   " + optimizationMode);
+    out.println("  TrieNodes: " + (optimizationMode.equals(OPT_MODE_SPACE) ? trieLayout : TRIE_LAYOUT_MAP));
     out.println();
 
     out.println("Results:");
     out.println("*****************************");
     tracker.print(out, true);
     out.println("*****************************");
+
+    if (plugin != null) {
+      int policyCount = getPolicyCount(policies);
+
+      out.println("Plugin heap: " + pluginHeapSize + " bytes; per policy: " + (policyCount > 0 ? (pluginHeapSize / policyCount) : 0) + " bytes");
+    }
   }
 
   public static void main(String[] args) {
@@ -132,9 +146,7 @@ private ServicePolicies loadPolicies(String fileName, PerfMemTimeTracker parent)
       {
         PerfMemTimeTracker tracker = new PerfMemTimeTracker("Read policies");
 
-        try (FileReader reader = new FileReader(file)) {
-          ret = JsonUtils.jsonToObject(reader, ServicePolicies.class);
-        }
+        ret = RangerSnapshotUtil.readCacheFile(file, ServicePolicies.class);
 
         tracker.stop();
         loadTracker.addChild(tracker);
@@ -178,9 +190,7 @@ private ServiceTags loadTags(String fileName, PerfMemTimeTracker parent) {
       {
         PerfMemTimeTracker tracker = new PerfMemTimeTracker("Read tags");
 
-        try (FileReader reader = new FileReader(file)) {
-          ret = JsonUtils.jsonToObject(reader, ServiceTags.class);
-        }
+        ret = RangerSnapshotUtil.readCacheFile(file, ServiceTags.class);
 
         tracker.stop();
 
@@ -233,9 +243,7 @@ private RangerRoles loadRoles(String fileName, PerfMemTimeTracker parent) {
 
       log("loading roles(file=" + fileName + ")");
 
-      try (FileReader reader = new FileReader(file)) {
-        ret = JsonUtils.jsonToObject(reader, RangerRoles.class);
-      }
+      ret = RangerSnapshotUtil.readCacheFile(file, RangerRoles.class);
 
       loadTracker.stop();
       parent.addChild(loadTracker);
@@ -266,9 +274,7 @@ private RangerUserStore loadUserStore(String fileName, PerfMemTimeTracker parent
       {
         PerfMemTimeTracker tracker = new PerfMemTimeTracker("Read userStore");
 
-        try (FileReader reader = new FileReader(file)) {
-          ret = JsonUtils.jsonToObject(reader, RangerUserStore.class);
-        }
+        ret = RangerSnapshotUtil.readCacheFile(file, RangerUserStore.class);
 
         tracker.stop();
         loadTracker.addChild(tracker);
@@ -350,6 +356,8 @@ private RangerBasePlugin createRangerPlugin(ServicePolicies policies, ServiceTag
       String             serviceName  = policies.getServiceName();
       RangerPluginConfig pluginConfig = new RangerPluginConfig(serviceType, serviceName, serviceType, null, null, getPolicyEngineOptions());
 
+      pluginConfig.setBoolean(RangerResourceTrie.TRIE_COMPACT_NODES, trieLayout.equals(TRIE_LAYOUT_COMPACT));
+
       PerfMemTimeTracker tracker = new PerfMemTimeTracker("RangerBasePlugin initialization");
 
       log("Initializing RangerBasePlugin...");
@@ -357,6 +365,8 @@ private RangerBasePlugin createRangerPlugin(ServicePolicies policies, ServiceTag
       ret = new RangerBasePlugin(pluginConfig, policies, tags, roles, userStore, gdsInfo);
 
       tracker.stop();
+
+      pluginHeapSize = tracker.getMemoryDelta();
       parent.addChild(tracker);
       log("Initialized RangerBasePlugin.");
     }
@@ -372,6 +382,7 @@ private static CommandLine parseArgs(String[] args) {
     Option roles        = new Option("r", "roles", true, "roles file");
     Option userStore    = new Option("u", "userStore", true, "userStore file");
     Option optimizeMode = new Option("o", "optMode", true, "optimization mode: space|retrieval");
+    Option trieLayout   = new Option("l", "trieLayout", true, "trie node layout, used in optimization mode space: compact|map");
 
     Options options = new Options();
 
@@ -382,6 +393,7 @@ private static CommandLine parseArgs(String[] args) {
     options.addOption(userStore);
     options.addOption(deDup);
     options.addOption(optimizeMode);
+    options.addOption(trieLayout);
 
     try {
       CommandLine cmdLine = new DefaultParser().parse(options, args);
@@ -424,6 +436,10 @@ private RangerPolicyEngineOptions getPolicyEngineOptions() {
   }
 
   private static String toSummaryStr(ServicePolicies policies) {
+    return "policyCount=" + getPolicyCount(policies);
+  }
+
+  private static int getPolicyCount(ServicePolicies policies) {
     int policyCount = 0;
 
     if (policies != null) {
@@ -444,7 +460,7 @@ private static String toSummaryStr(ServicePolicies policies) {
       }
     }
 
-    return "policyCount=" + policyCount;
+    return policyCount;
   }
 
   private static String toSummaryStr(ServiceTags tags) {
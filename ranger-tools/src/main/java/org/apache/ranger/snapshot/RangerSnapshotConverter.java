@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.snapshot;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
+import org.apache.ranger.plugin.util.RangerUserStore;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Converts a plugin cache file - policies, tags, roles or userStore - between JSON and the binary snapshot format, for
+ * example to pre-populate the policy cache directory of a plugin configured with ranger.plugin.&lt;service-type&gt;.policy.cache.format=binary,
+ * or to inspect a binary snapshot as JSON. The format of the input file is detected from its content.
+ *
+ * Plugins save binary snapshots in files named with extension .snap, and JSON in files named with extension .json. When
+ * the output file is not given, it is named after the input file with the extension of the output format - for example
+ * converting hiveServer2_dev_hive.snap to JSON writes hiveServer2_dev_hive.json, which can be used to downgrade a plugin
+ * to a version that doesn't read binary snapshots.
+ */
+public class RangerSnapshotConverter {
+    private static final String TYPE_POLICIES  = "policies";
+    private static final String TYPE_TAGS      = "tags";
+    private static final String TYPE_ROLES     = "roles";
+    private static final String TYPE_USERSTORE = "userStore";
+
+    private final String      inputFile;
+    private final String      outputFile;
+    private final String      type;
+    private final String      format;
+    private final PrintStream out;
+
+    public RangerSnapshotConverter(CommandLine cmdLine) {
+        this.out        = System.out;
+        this.inputFile  = cmdLine.getOptionValue('i');
+        this.type       = cmdLine.getOptionValue('t', TYPE_POLICIES);
+        this.format     = cmdLine.getOptionValue('f', RangerSnapshotUtil.CACHE_FORMAT_BINARY);
+        this.outputFile = cmdLine.hasOption('o') ? cmdLine.getOptionValue('o') : RangerSnapshotUtil.getCacheFile(new File(inputFile), format).getPath();
+    }
+
+    public boolean run() {
+        boolean ret = false;
+
+        try {
+            File     input  = new File(inputFile);
+            File     output = new File(outputFile);
+            Class<?> clz    = getTypeClass(type);
+
+            if (clz == null) {
+                out.println("unknown type '" + type + "'; expected one of: " + TYPE_POLICIES + ", " + TYPE_TAGS + ", " + TYPE_ROLES + ", " + TYPE_USERSTORE);
+            } else if (output.getAbsoluteFile().equals(input.getAbsoluteFile())) {
+                out.println(outputFile + ": output file is same as the input file; specify the output file with -o");
+            } else {
+                long   startTimeMs = System.currentTimeMillis();
+                Object object      = RangerSnapshotUtil.readCacheFile(input, clz);
+                long   readTimeMs  = System.currentTimeMillis() - startTimeMs;
+
+                if (object == null) {
+                    out.println(inputFile + ": no " + type + " found");
+                } else {
+                    startTimeMs = System.currentTimeMillis();
+
+                    RangerSnapshotUtil.writeCacheFile(output, object, format);
+
+                    long writeTimeMs = System.currentTimeMillis() - startTimeMs;
+
+                    out.println("converted " + type + ": " + inputFile + " (" + (RangerSnapshotUtil.isSnapshot(input) ? RangerSnapshotUtil.CACHE_FORMAT_BINARY : RangerSnapshotUtil.CACHE_FORMAT_JSON) + ", " + input.length() + " bytes, read in " + readTimeMs + "ms)"
+                                + " => " + outputFile + " (" + format + ", " + output.length() + " bytes, written in " + writeTimeMs + "ms)");
+
+                    if (!RangerSnapshotUtil.getCacheFile(output, format).equals(output)) {
+                        out.println("note: plugins load " + format + " cache files only with extension " + (RangerSnapshotUtil.isBinaryFormat(format) ? RangerSnapshotUtil.SNAPSHOT_FILE_EXTENSION : RangerSnapshotUtil.JSON_FILE_EXTENSION) + ", like " + RangerSnapshotUtil.getCacheFile(output, format).getName());
+                    }
+
+                    ret = true;
+                }
+            }
+        } catch (IOException excp) {
+            out.println("failed to convert " + inputFile + " to " + outputFile);
+
+            excp.printStackTrace(out);
+        }
+
+        return ret;
+    }
+
+    public static void main(String[] args) {
+        CommandLine cmdLine = parseArgs(args);
+        boolean     isOk    = false;
+
+        if (cmdLine != null) {
+            isOk = new RangerSnapshotConverter(cmdLine).run();
+        }
+
+        System.exit(isOk ? 0 : 1);
+    }
+
+    private static Class<?> getTypeClass(String type) {
+        final Class<?> ret;
+
+        if (TYPE_POLICIES.equalsIgnoreCase(type)) {
+            ret = ServicePolicies.class;
+        } else if (TYPE_TAGS.equalsIgnoreCase(type)) {
+            ret = ServiceTags.class;
+        } else if (TYPE_ROLES.equalsIgnoreCase(type)) {
+            ret = RangerRoles.class;
+        } else if (TYPE_USERSTORE.equalsIgnoreCase(type)) {
+            ret = RangerUserStore.class;
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    private static CommandLine parseArgs(String[] args) {
+        Option help   = new Option("h", "help", false, "show help");
+        Option input  = new Option("i", "input", true, "input file, JSON or binary snapshot");
+        Option output = new Option("o", "output", true, "output file; default: input file with extension " + RangerSnapshotUtil.SNAPSHOT_FILE_EXTENSION + " for " + RangerSnapshotUtil.CACHE_FORMAT_BINARY + " or " + RangerSnapshotUtil.JSON_FILE_EXTENSION + " for " + RangerSnapshotUtil.CACHE_FORMAT_JSON);
+        Option type   = new Option("t", "type", true, "type of contents: " + TYPE_POLICIES + "|" + TYPE_TAGS + "|" + TYPE_ROLES + "|" + TYPE_USERSTORE + "; default: " + TYPE_POLICIES);
+        Option format = new Option("f", "format", true, "output format: " + RangerSnapshotUtil.CACHE_FORMAT_BINARY + "|" + RangerSnapshotUtil.CACHE_FORMAT_JSON + "; default: " + RangerSnapshotUtil.CACHE_FORMAT_BINARY);
+
+        input.setRequired(true);
+
+        Options options = new Options();
+
+        options.addOption(help);
+        options.addOption(input);
+        options.addOption(output);
+        options.addOption(type);
+        options.addOption(format);
+
+        try {
+            CommandLine cmdLine = new DefaultParser().parse(options, args);
+
+            if (!cmdLine.hasOption("h")) {
+                return cmdLine;
+            }
+        } catch (ParseException excp) {
+            System.out.println("Failed to parse arguments: " + excp.getMessage());
+        }
+
+        new HelpFormatter().printHelp("RangerSnapshotConverter", options);
+
+        return null;
+    }
+}
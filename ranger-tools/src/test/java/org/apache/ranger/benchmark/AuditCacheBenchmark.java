@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.policyengine.CacheMap;
+import org.apache.ranger.plugin.policyengine.RangerConcurrentLRUCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the audit-result cache used by RangerPolicyRepository before (synchronized CacheMap) and after
+ * (RangerConcurrentLRUCache) under contention. Each operation looks up a resource path and inserts it on a miss,
+ * as RangerPolicyRepository.setAuditEnabledFromCache()/storeAuditEnabledInCache() do. Use -t to vary the
+ * number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class AuditCacheBenchmark {
+    @Param({"CacheMap", "RangerConcurrentLRUCache"})
+    public String impl;
+
+    @Param({"65536"})
+    public int cacheSize;
+
+    // ratio of distinct resources to cache size; above 1 forces evictions
+    @Param({"0.5", "2"})
+    public double workingSetRatio;
+
+    private String[]   resources;
+    private AuditCache cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int count = (int) (cacheSize * workingSetRatio);
+
+        resources = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            resources[i] = "/data/warehouse/db" + (i % 100) + "/table" + i + "/part-" + (i % 7);
+        }
+
+        if ("CacheMap".equals(impl)) {
+            final Map<String, Boolean> map = Collections.synchronizedMap(new CacheMap<>(cacheSize));
+
+            cache = new AuditCache() {
+                @Override
+                public Boolean get(String key) {
+                    return map.get(key);
+                }
+
+                @Override
+                public void put(String key, Boolean value) {
+                    map.put(key, value);
+                }
+            };
+        } else {
+            final RangerConcurrentLRUCache<String, Boolean> lruCache = new RangerConcurrentLRUCache<>(cacheSize);
+
+            cache = new AuditCache() {
+                @Override
+                public Boolean get(String key) {
+                    return lruCache.get(key);
+                }
+
+                @Override
+                public void put(String key, Boolean value) {
+                    lruCache.put(key, value);
+                }
+            };
+        }
+
+        for (String resource : resources) {
+            cache.put(resource, Boolean.TRUE);
+        }
+    }
+
+    @Benchmark
+    public Boolean lookupOrInsert() {
+        // skew towards lower indexes, so that some resources are hot
+        ThreadLocalRandom random   = ThreadLocalRandom.current();
+        int               idx      = (int) (resources.length * Math.pow(random.nextDouble(), 3));
+        String            resource = resources[idx];
+        Boolean           ret      = cache.get(resource);
+
+        if (ret == null) {
+            ret = Boolean.TRUE;
+
+            cache.put(resource, ret);
+        }
+
+        return ret;
+    }
+
+    interface AuditCache {
+        Boolean get(String key);
+
+        void put(String key, Boolean value);
+    }
+}
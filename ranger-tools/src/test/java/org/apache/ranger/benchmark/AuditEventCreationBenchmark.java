@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.ranger.audit.provider.AuditProviderFactory;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerDefaultAuditHandler.processResult() for allowed accesses whose audit events are all dropped by
+ * AuditSamplingQueue (sampling rate 0), with and without pooling the events (xasecure.audit.event.pool.size) and
+ * with both kinds of event ids (xasecure.audit.auditid.strict.uuid). Use -prof gc to see the bytes allocated per
+ * event (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AuditEventCreationBenchmark {
+    private static final int    RESULT_COUNT = 1000;
+    private static final String SERVICE_NAME = "dev_hive";
+
+    @Param({"0", "1024"})
+    public int poolSize;
+
+    @Param({"false", "true"})
+    public boolean strictUuid;
+
+    private RangerDefaultAuditHandler auditHandler;
+    private RangerAccessResult[]      results;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties props = new Properties();
+
+        props.setProperty(AuditProviderFactory.AUDIT_IS_ENABLED_PROP, "true");
+        props.setProperty(AuditProviderFactory.AUDIT_DEST_BASE + ".bench", "true");
+        props.setProperty(AuditProviderFactory.AUDIT_DEST_BASE + ".bench.classname", DummyAuditProvider.class.getName());
+        props.setProperty(AuditProviderFactory.AUDIT_SAMPLING_PROP_PREFIX + ".enabled", "true");
+        props.setProperty(AuditProviderFactory.AUDIT_SAMPLING_PROP_PREFIX + ".rate", "0");
+
+        AuditProviderFactory.getInstance().init(props, "bench");
+
+        Configuration config = new Configuration(false);
+
+        config.setInt("xasecure.audit.event.pool.size", poolSize);
+        config.setBoolean("xasecure.audit.auditid.strict.uuid", strictUuid);
+
+        auditHandler = new RangerDefaultAuditHandler(config);
+        results      = new RangerAccessResult[RESULT_COUNT];
+
+        RangerServiceDef serviceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setServiceDef(serviceDef);
+            resource.setValue("database", "sales");
+            resource.setValue("table", "orders" + (i % 100));
+            resource.setValue("column", "col_" + i);
+
+            RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, "select", "user" + (i % 10), Collections.singleton("analysts"), null);
+
+            request.setAccessTime(new Date());
+            request.setClientIPAddress("10.0.0." + (i % 200));
+
+            RangerAccessResult result = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, SERVICE_NAME, serviceDef, request);
+
+            result.setIsAllowed(true);
+            result.setIsAudited(true);
+            result.setPolicyId(i % 20);
+
+            results[i] = result;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULT_COUNT)
+    public void processResult() {
+        for (RangerAccessResult result : results) {
+            auditHandler.processResult(result);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing an audit event to a spool or log file as MiscUtil.stringify() followed by println(), as the spool
+ * and HDFS destinations did, with streaming the JSON through AuditEventCodec and with the binary spool format; and
+ * reading an event back from JSON and from binary. Use -prof gc to see the bytes allocated per event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditEventSerializationBenchmark {
+    private AuthzAuditEvent       event;
+    private String                json;
+    private byte[]                binary;
+    private ByteArrayOutputStream bytes;
+    private PrintWriter           writer;
+    private DataOutputStream      dataOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        event = new AuthzAuditEvent();
+
+        event.setRepositoryType(1);
+        event.setRepositoryName("dev_hive");
+        event.setUser("user1");
+        event.setEventTime(new Date());
+        event.setAccessType("select");
+        event.setResourcePath("sales/orders/customer_id,order_date,amount");
+        event.setResourceType("@column");
+        event.setAction("select");
+        event.setAccessResult((short) 1);
+        event.setAgentId("hiveServer2");
+        event.setPolicyId(42);
+        event.setAclEnforcer("ranger-acl");
+        event.setClientIP("10.0.0.1");
+        event.setRequestData("select customer_id, order_date, amount from sales.orders where amount > 100");
+        event.setAgentHostname("hs2-host1.example.com");
+        event.setLogType("RangerAudit");
+        event.setEventId("2c1e4b5d-9a7f-4c1e-8f3a-0b6d2e4f1a2c-0");
+        event.setSeqNum(0);
+        event.setEventCount(1);
+        event.setTags(new HashSet<>(Arrays.asList("PII")));
+        event.setClusterName("cl1");
+        event.setPolicyVersion(3L);
+
+        json = MiscUtil.stringify(event);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        AuditEventCodec.writeBinary(event, new DataOutputStream(out));
+
+        binary = out.toByteArray();
+
+        bytes   = new ByteArrayOutputStream(64 * 1024);
+        writer  = new PrintWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+        dataOut = new DataOutputStream(bytes);
+    }
+
+    @Benchmark
+    public int writeJsonStringify() {
+        bytes.reset();
+        writer.println(MiscUtil.stringify(event));
+        writer.flush();
+
+        return bytes.size();
+    }
+
+    @Benchmark
+    public int writeJsonStreaming() throws IOException {
+        bytes.reset();
+        AuditEventCodec.writeJson(event, writer);
+        writer.println();
+        writer.flush();
+
+        return bytes.size();
+    }
+
+    @Benchmark
+    public int writeBinary() throws IOException {
+        bytes.reset();
+        AuditEventCodec.writeBinary(event, dataOut);
+
+        return bytes.size();
+    }
+
+    @Benchmark
+    public AuthzAuditEvent readJson() {
+        return MiscUtil.fromJson(json, AuthzAuditEvent.class);
+    }
+
+    @Benchmark
+    public AuthzAuditEvent readBinary() throws IOException {
+        return AuditEventCodec.readBinary(new DataInputStream(new ByteArrayInputStream(binary)));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.RangerAuditEventWriter;
+import org.apache.ranger.audit.utils.RangerAuditWriter;
+import org.apache.ranger.audit.utils.RangerJSONAuditWriter;
+import org.apache.ranger.audit.utils.RangerORCAuditWriter;
+import org.apache.ranger.audit.utils.RangerParquetAuditWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares writing batches of audit events to local files, as HDFSAuditDestination does, with each writer:
+ * json - RangerJSONAuditWriter, events converted to JSON;
+ * orc-json - RangerORCAuditWriter, events converted to JSON and parsed back, as HDFSAuditDestination used to;
+ * orc, parquet - RangerORCAuditWriter and RangerParquetAuditWriter, events written to the column vectors as they are.
+ * The score is in events/s; the bytes written per event are printed at the end of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AuditFileWriterBenchmark {
+    private static final int    BATCH_SIZE  = 10000;
+    private static final String PROP_PREFIX = "xasecure.audit.destination.hdfs";
+
+    @Param({"json", "orc-json", "orc", "parquet"})
+    public String writerType;
+
+    private Path                  dir;
+    private RangerAuditWriter     writer;
+    private List<AuthzAuditEvent> events;
+    private long                  eventsWritten;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dir    = Files.createTempDirectory("ranger-audit-writer-bench");
+        events = new ArrayList<>(BATCH_SIZE);
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setRepositoryType(3);
+            event.setRepositoryName("dev_hive");
+            event.setUser("user" + (i % 50));
+            event.setEventTime(new Date(1700000000000L + i));
+            event.setAccessType("select");
+            event.setResourcePath("sales/orders" + (i % 1000) + "/customer_id");
+            event.setResourceType("@column");
+            event.setAction("select");
+            event.setAccessResult((short) (i % 10 == 0 ? 0 : 1));
+            event.setAgentId("hiveServer2");
+            event.setPolicyId(i % 20);
+            event.setAclEnforcer("ranger-acl");
+            event.setSessionId("7f3c9a1e-5b2d-4e8f-9c6a-" + (i % 100));
+            event.setClientIP("10.0.0." + (i % 200));
+            event.setRequestData("SELECT customer_id FROM sales.orders" + (i % 1000) + " WHERE order_id = " + i);
+            event.setAgentHostname("hs2-1.example.com");
+            event.setLogType("RangerAudit");
+            event.setEventId("c4f2b1a0-9d8e-4f7a-b6c5-" + i);
+            event.setSeqNum(i);
+            event.setClusterName("cl1");
+
+            events.add(event);
+        }
+
+        Properties          props        = new Properties();
+        Map<String, String> auditConfigs = new HashMap<>();
+
+        props.setProperty(PROP_PREFIX + ".dir", dir.toUri().toString());
+        auditConfigs.put(FileSystem.FS_DEFAULT_NAME_KEY, FileSystem.DEFAULT_FS);
+
+        switch (writerType) {
+            case "json":
+                writer = new RangerJSONAuditWriter();
+                break;
+            case "orc-json":
+            case "orc":
+                writer = new RangerORCAuditWriter();
+                break;
+            case "parquet":
+                writer = new RangerParquetAuditWriter();
+                break;
+            default:
+                throw new IllegalArgumentException(writerType);
+        }
+
+        writer.init(props, PROP_PREFIX, "hdfs", auditConfigs);
+        writer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.stop();
+
+        long fileCount = 0;
+        long fileBytes = 0;
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                // skip the checksum files the local file system writes next to each file
+                if (Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".")) {
+                    fileCount++;
+                    fileBytes += Files.size(file);
+                }
+            }
+        }
+
+        System.out.printf("%n%s: %d events in %d files, %d bytes, %.1f bytes/event%n", writerType, eventsWritten, fileCount, fileBytes, eventsWritten > 0 ? (double) fileBytes / eventsWritten : 0);
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean writeBatch() throws Exception {
+        boolean ret;
+
+        if (writer instanceof RangerAuditEventWriter && !writerType.endsWith("-json")) {
+            ret = ((RangerAuditEventWriter) writer).logEvents(events);
+        } else {
+            List<String> jsonList = new ArrayList<>(events.size());
+
+            for (AuthzAuditEvent event : events) {
+                jsonList.add(MiscUtil.stringify(event));
+            }
+
+            ret = writer.log(jsonList);
+        }
+
+        writer.flush();
+
+        eventsWritten += events.size();
+
+        return ret;
+    }
+}
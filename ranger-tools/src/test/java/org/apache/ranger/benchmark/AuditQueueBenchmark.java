@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditRingBuffer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the queue behind AuditBatchQueue (ArrayBlockingQueue), AuditAsyncQueue (LinkedBlockingQueue) and
+ * AuditRingBufferQueue (AuditRingBuffer) with many producer threads - as authorizer threads logging audit events -
+ * and one consumer thread draining batches, as the queues' consumer thread does. The producer counters show the
+ * events accepted and rejected because the queue was full; use -prof gc to see allocations per event.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditQueueBenchmark {
+    private static final int MAX_DRAIN = 1000;
+
+    @Param({"ArrayBlockingQueue", "LinkedBlockingQueue", "AuditRingBuffer"})
+    public String impl;
+
+    @Param({"65536"})
+    public int queueSize;
+
+    private EventQueue     queue;
+    private AuditEventBase event;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        if ("ArrayBlockingQueue".equals(impl)) {
+            queue = new BlockingEventQueue(new ArrayBlockingQueue<>(queueSize));
+        } else if ("LinkedBlockingQueue".equals(impl)) {
+            queue = new BlockingEventQueue(new LinkedBlockingQueue<>(queueSize));
+        } else {
+            final AuditRingBuffer<AuditEventBase> ringBuffer = new AuditRingBuffer<>(queueSize);
+
+            queue = new EventQueue() {
+                @Override
+                public boolean offer(AuditEventBase event) {
+                    return ringBuffer.offer(event);
+                }
+
+                @Override
+                public int drainTo(Collection<AuditEventBase> events, int maxEvents) {
+                    return ringBuffer.drainTo(events, maxEvents);
+                }
+            };
+        }
+
+        event = new AuthzAuditEvent();
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(8)
+    public void produce(ProducerCounters counters) {
+        if (queue.offer(event)) {
+            counters.accepted++;
+        } else {
+            counters.rejected++;
+
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public int consume(ConsumerBatch batch) {
+        int ret = queue.drainTo(batch.events, MAX_DRAIN);
+
+        batch.events.clear();
+
+        return ret;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ProducerCounters {
+        public long accepted;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            accepted = 0;
+            rejected = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ConsumerBatch {
+        final List<AuditEventBase> events = new ArrayList<>(MAX_DRAIN);
+    }
+
+    interface EventQueue {
+        boolean offer(AuditEventBase event);
+
+        int drainTo(Collection<AuditEventBase> events, int maxEvents);
+    }
+
+    static class BlockingEventQueue implements EventQueue {
+        private final BlockingQueue<AuditEventBase> queue;
+
+        BlockingEventQueue(BlockingQueue<AuditEventBase> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean offer(AuditEventBase event) {
+            return queue.offer(event);
+        }
+
+        @Override
+        public int drainTo(Collection<AuditEventBase> events, int maxEvents) {
+            return queue.drainTo(events, maxEvents);
+        }
+    }
+}
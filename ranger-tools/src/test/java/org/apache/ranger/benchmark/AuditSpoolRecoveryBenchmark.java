@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditSegmentSpool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time a restarted plugin takes to send the events left in the spool - after a destination outage -
+ * with AuditFileSpool (JSON lines and index files) and AuditSegmentSpool (memory-mapped segments and a checkpoint).
+ * sentPercent of the events were sent before the restart; the rest are sent to a destination that only counts them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuditSpoolRecoveryBenchmark {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.bench.batch";
+
+    @Param({"AuditFileSpool", "AuditSegmentSpool"})
+    public String impl;
+
+    @Param({"500000"})
+    public int eventCount;
+
+    @Param({"0", "90"})
+    public int sentPercent;
+
+    private File             spoolDir;
+    private CountingConsumer consumer;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        spoolDir = Files.createTempDirectory("audit-spool").toFile();
+
+        // spool the events while the destination is down, and send sentPercent of them before "restarting"
+        CountingConsumer     prevConsumer = new CountingConsumer((long) eventCount * sentPercent / 100);
+        AuditFileSpool       spool        = createSpool(prevConsumer);
+        List<AuditEventBase> events       = new ArrayList<>();
+
+        for (int i = 0; i < eventCount; i++) {
+            events.add(createEvent(i));
+
+            if (events.size() == 1000) {
+                spool.stashLogs(events);
+                events.clear();
+            }
+        }
+
+        spool.stashLogs(events);
+        spool.start();
+
+        while (!prevConsumer.isFull) {
+            Thread.sleep(10);
+        }
+
+        spool.stop();
+
+        Thread.sleep(500); // let the destination thread exit
+
+        consumer = new CountingConsumer(Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() {
+        deleteRecursively(spoolDir);
+    }
+
+    @Benchmark
+    public long recover() throws Exception {
+        AuditFileSpool spool = createSpool(consumer);
+
+        spool.start();
+
+        while (spool.isPending()) {
+            Thread.sleep(1);
+        }
+
+        spool.stop();
+
+        return consumer.count;
+    }
+
+    private AuditFileSpool createSpool(CountingConsumer consumer) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getAbsolutePath());
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "10");
+
+        AuditBatchQueue queue = new AuditBatchQueue(consumer);
+        AuditFileSpool  ret   = "AuditSegmentSpool".equals(impl) ? new AuditSegmentSpool(queue, consumer) : new AuditFileSpool(queue, consumer);
+
+        ret.init(props, PROP_PREFIX);
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(int i) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setRepositoryType(1);
+        ret.setRepositoryName("dev_hive");
+        ret.setUser("user" + (i % 100));
+        ret.setEventTime(new Date());
+        ret.setAccessType("select");
+        ret.setResourcePath("sales/orders/customer_id");
+        ret.setResourceType("@column");
+        ret.setAction("select");
+        ret.setAccessResult((short) 1);
+        ret.setAgentId("hiveServer2");
+        ret.setPolicyId(42);
+        ret.setClientIP("10.0.0.1");
+        ret.setAgentHostname("hs2-host1.example.com");
+        ret.setLogType("RangerAudit");
+        ret.setEventId("2c1e4b5d-9a7f-4c1e-8f3a-" + i);
+        ret.setClusterName("cl1");
+
+        return ret;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    // accepts events up to the limit, then fails like a destination that is down
+    static class CountingConsumer extends DummyAuditProvider {
+        final    long    limit;
+        volatile long    count;
+        volatile boolean isFull;
+
+        CountingConsumer(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            if (count + events.size() > limit) {
+                isFull = true;
+
+                return false;
+            }
+
+            count += events.size();
+
+            return true;
+        }
+
+        @Override
+        public boolean logJSON(Collection<String> events) {
+            List<AuditEventBase> eventObjs = new ArrayList<>(events.size());
+
+            for (String event : events) {
+                eventObjs.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+            }
+
+            return log(eventObjs);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditSummaryAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares summarizing a batch of audit events as AuditSummaryQueue did - a HashMap keyed by getEventKey(), a String
+ * built per event - with AuditSummaryAggregator, which fingerprints the key fields into a long. distinctKeys sets
+ * how many events share a key. Use -prof gc to see the bytes allocated per event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditSummaryBenchmark {
+    private static final int BATCH_SIZE = 10000;
+
+    @Param({"10", "1000"})
+    public int distinctKeys;
+
+    private AuthzAuditEvent[]      events;
+    private AuditSummaryAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        events     = new AuthzAuditEvent[BATCH_SIZE];
+        aggregator = new AuditSummaryAggregator(AuditSummaryAggregator.DEFAULT_KEY_FIELDS, 0);
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int             key   = i % distinctKeys;
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setUser("user" + (key % 50));
+            event.setAccessType("select");
+            event.setResourcePath("sales/orders" + key + "/customer_id");
+            event.setResourceType("@column");
+            event.setAction("select");
+            event.setAccessResult((short) 1);
+            event.setSessionId("7f3c9a1e-5b2d-4e8f-9c6a-0d1b2e3f4a5b");
+            event.setClientIP("10.0.0." + (key % 200));
+            event.setEventTime(new Date(1700000000000L + i));
+
+            events[i] = event;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int stringKeyHashMap() {
+        Map<String, Summary> summaries = new HashMap<>();
+
+        for (AuthzAuditEvent event : events) {
+            String  key     = event.getEventKey();
+            Summary summary = summaries.get(key);
+
+            if (summary == null) {
+                summaries.put(key, new Summary(event));
+            } else {
+                summary.endTime = event.getEventTime();
+                summary.count++;
+            }
+        }
+
+        return summaries.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int fingerprintAggregator() {
+        for (AuthzAuditEvent event : events) {
+            aggregator.add(event);
+        }
+
+        int ret = aggregator.size();
+
+        aggregator.clear();
+
+        return ret;
+    }
+
+    static class Summary {
+        final AuditEventBase event;
+        final Date           startTime;
+        Date                 endTime;
+        int                  count = 1;
+
+        Summary(AuditEventBase event) {
+            this.event     = event;
+            this.startTime = event.getEventTime();
+            this.endTime   = startTime;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares authorizing every column of a wide Hive table - for select and update - one request at a time, with
+ * authorizing all of them in one batch, in which resource lookups are shared across requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchAuthorizationBenchmark {
+    private static final String       SERVICE_NAME = "dev_hive";
+    private static final String       DATABASE     = "sales";
+    private static final String       WIDE_TABLE   = "wide_table";
+    private static final List<String> ACCESS_TYPES = Arrays.asList("select", "update");
+    private static final Set<String>  USER_GROUPS  = Collections.singleton("analysts");
+
+    @Param({"1000", "5000"})
+    public int columnCount;
+
+    @Param({"1000"})
+    public int tableCount;
+
+    private RangerPolicyEngineImpl policyEngine;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ServicePolicies           servicePolicies = createPolicies();
+        RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+        RangerPluginContext       pluginContext   = new RangerPluginContext(new RangerPluginConfig("hive", SERVICE_NAME, "hiveServer2", null, null, options));
+
+        policyEngine = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+    }
+
+    @Benchmark
+    public void evaluateOneAtATime(Blackhole blackhole) {
+        for (RangerAccessRequest request : createRequests()) {
+            blackhole.consume(policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null));
+        }
+    }
+
+    @Benchmark
+    public void evaluateBatch(Blackhole blackhole) {
+        for (RangerAccessResult result : policyEngine.evaluatePolicies(createRequests(), RangerPolicy.POLICY_TYPE_ACCESS, null)) {
+            blackhole.consume(result);
+        }
+    }
+
+    // requests are created for each invocation, since preprocessing - which includes zone lookup - is done once per request
+    private List<RangerAccessRequest> createRequests() {
+        List<RangerAccessRequest> ret = new ArrayList<>(columnCount * ACCESS_TYPES.size());
+
+        for (int i = 0; i < columnCount; i++) {
+            for (String accessType : ACCESS_TYPES) {
+                RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+                resource.setValue("database", DATABASE);
+                resource.setValue("table", WIDE_TABLE);
+                resource.setValue("column", "col_" + i);
+
+                ret.add(new RangerAccessRequestImpl(resource, accessType, "user" + (i % 10), USER_GROUPS, null));
+            }
+        }
+
+        return ret;
+    }
+
+    private ServicePolicies createPolicies() throws Exception {
+        ServicePolicies    ret      = new ServicePolicies();
+        List<RangerPolicy> policies = new ArrayList<>();
+        long               policyId = 1;
+
+        // table-level policies, on other tables of the database
+        for (int i = 0; i < tableCount; i++) {
+            policies.add(createPolicy(policyId++, "table_" + i, Collections.singletonList("*"), "select", null, "analysts"));
+        }
+
+        // select on all columns of the wide table, update on groups of 50 columns to one user each
+        policies.add(createPolicy(policyId++, WIDE_TABLE, Collections.singletonList("*"), "select", null, "analysts"));
+
+        for (int i = 0; i < columnCount; i += 50) {
+            List<String> columns = new ArrayList<>(50);
+
+            for (int j = i; j < i + 50; j++) {
+                columns.add("col_" + j);
+            }
+
+            policies.add(createPolicy(policyId++, WIDE_TABLE, columns, "update", "user" + ((i / 50) % 10), null));
+        }
+
+        // a security zone on other databases, so that zone lookup is not skipped
+        SecurityZoneInfo              zone          = new SecurityZoneInfo();
+        HashMap<String, List<String>> zoneResources = new HashMap<>();
+
+        zoneResources.put("database", Collections.singletonList("finance_*"));
+
+        zone.setZoneName("finance");
+        zone.setResources(Collections.singletonList(zoneResources));
+        zone.setPolicies(Collections.emptyList());
+
+        ret.setServiceName(SERVICE_NAME);
+        ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME));
+        ret.setPolicyVersion(1L);
+        ret.setPolicies(policies);
+        ret.setSecurityZones(Collections.singletonMap(zone.getZoneName(), zone));
+
+        return ret;
+    }
+
+    private static RangerPolicy createPolicy(long id, String table, List<String> columns, String accessType, String user, String group) {
+        RangerPolicy                      policy    = new RangerPolicy();
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+        RangerPolicyItem                  item      = new RangerPolicyItem();
+
+        resources.put("database", new RangerPolicyResource(DATABASE));
+        resources.put("table", new RangerPolicyResource(table));
+        resources.put("column", new RangerPolicyResource(columns, false, false));
+
+        item.setAccesses(Collections.singletonList(new RangerPolicyItemAccess(accessType)));
+
+        if (user != null) {
+            item.setUsers(Collections.singletonList(user));
+        }
+
+        if (group != null) {
+            item.setGroups(Collections.singletonList(group));
+        }
+
+        policy.setId(id);
+        policy.setGuid("guid-" + id);
+        policy.setService(SERVICE_NAME);
+        policy.setName("policy-" + id);
+        policy.setResources(resources);
+        policy.setPolicyItems(new ArrayList<>(Collections.singletonList(item)));
+
+        return policy;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a plugin policy cache file written as JSON with loading one written as a binary snapshot, for
+ * generated Hive-like policies. Run with "-prof gc" to see the bytes allocated per load (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CacheSnapshotLoadBenchmark {
+    @Param({"json", "binary"})
+    public String format;
+
+    @Param({"1000", "20000"})
+    public int policyCount;
+
+    private File cacheFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheFile = File.createTempFile("ranger-policies-", "." + format);
+
+        RangerSnapshotUtil.writeCacheFile(cacheFile, createPolicies(policyCount), format);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCacheFile() {
+        if (cacheFile != null && !cacheFile.delete()) {
+            cacheFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public ServicePolicies loadFromCache() throws IOException {
+        return RangerSnapshotUtil.readCacheFile(cacheFile, ServicePolicies.class);
+    }
+
+    private static ServicePolicies createPolicies(int count) {
+        ServicePolicies    ret      = new ServicePolicies();
+        List<RangerPolicy> policies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            RangerPolicy                      policy    = new RangerPolicy();
+            Map<String, RangerPolicyResource> resources = new HashMap<>();
+            RangerPolicyItem                  item      = new RangerPolicyItem();
+
+            resources.put("database", new RangerPolicyResource("db" + (i % 100)));
+            resources.put("table", new RangerPolicyResource("table" + i));
+            resources.put("column", new RangerPolicyResource("*"));
+
+            item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update"), new RangerPolicyItemAccess("create")));
+            item.setUsers(Arrays.asList("user" + (i % 500), "user" + ((i + 1) % 500)));
+            item.setGroups(Arrays.asList("group" + (i % 50), "analysts"));
+
+            policy.setId((long) i);
+            policy.setGuid("guid-" + i);
+            policy.setService("dev_hive");
+            policy.setName("policy-" + i);
+            policy.setDescription("policy for table" + i + " in database db" + (i % 100));
+            policy.setResources(resources);
+            policy.setPolicyItems(new ArrayList<>(Arrays.asList(item)));
+
+            policies.add(policy);
+        }
+
+        ret.setServiceName("dev_hive");
+        ret.setPolicyVersion(1L);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the CPU time Ranger Admin spends on the body of one policy download: serializing the ServicePolicies for
+ * every download - with and without gzip - as it did before, and writing the body cached by
+ * RangerDownloadResponseCache. Use -prof gc to see the bytes allocated per download (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PolicyDownloadBenchmark {
+    @Param({"1000", "10000"})
+    public int policyCount;
+
+    private ServicePolicies policies;
+    private byte[]          cachedJson;
+    private byte[]          cachedGzip;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        policies   = createPolicies(policyCount);
+        cachedJson = JsonUtilsV2.getMapper().writeValueAsBytes(policies);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(cachedJson);
+        }
+
+        cachedGzip = out.toByteArray();
+
+        System.out.println();
+        System.out.println("policyCount=" + policyCount + ": json=" + cachedJson.length + " bytes, gzip=" + cachedGzip.length + " bytes");
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+
+        JsonUtilsV2.getMapper().writeValue(out, policies);
+
+        return out.count;
+    }
+
+    @Benchmark
+    public long serializeGzip() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            JsonUtilsV2.getMapper().writeValue(gzipOut, policies);
+        }
+
+        return out.count;
+    }
+
+    @Benchmark
+    public long cached() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+
+        out.write(cachedJson);
+
+        return out.count;
+    }
+
+    @Benchmark
+    public long cachedGzip() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+
+        out.write(cachedGzip);
+
+        return out.count;
+    }
+
+    private static ServicePolicies createPolicies(int count) {
+        ServicePolicies    ret      = new ServicePolicies();
+        List<RangerPolicy> policies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            RangerPolicy                      policy    = new RangerPolicy();
+            Map<String, RangerPolicyResource> resources = new HashMap<>();
+            RangerPolicyItem                  item      = new RangerPolicyItem();
+
+            resources.put("database", new RangerPolicyResource("db" + (i % 100)));
+            resources.put("table", new RangerPolicyResource("table" + i));
+            resources.put("column", new RangerPolicyResource("*"));
+
+            item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update"), new RangerPolicyItemAccess("create")));
+            item.setUsers(Arrays.asList("user" + (i % 500), "user" + ((i + 1) % 500)));
+            item.setGroups(Arrays.asList("group" + (i % 50), "analysts"));
+
+            policy.setId((long) i);
+            policy.setGuid("guid-" + i);
+            policy.setService("dev_hive");
+            policy.setName("policy-" + i);
+            policy.setDescription("policy for table" + i + " in database db" + (i % 100));
+            policy.setResources(resources);
+            policy.setPolicyItems(new ArrayList<>(Arrays.asList(item)));
+
+            policies.add(policy);
+        }
+
+        ret.setServiceName("dev_hive");
+        ret.setPolicyVersion(1L);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+
+    // stands for the response stream: only counts the bytes written to it
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
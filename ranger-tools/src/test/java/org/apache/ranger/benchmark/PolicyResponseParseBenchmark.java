@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap a plugin uses to deserialize a policy download in RangerAdminRESTClient: reading the response into
+ * a String and deserializing the String, as before, and deserializing directly from the response stream, as
+ * JsonUtilsV2.readResponse() does. Run with -prof gc; gc.alloc.rate.norm is the bytes allocated per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PolicyResponseParseBenchmark {
+    @Param({"1000", "20000"})
+    public int policyCount;
+
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        response = JsonUtilsV2.getMapper().writeValueAsBytes(createPolicies(policyCount));
+    }
+
+    @Benchmark
+    public ServicePolicies viaString() throws Exception {
+        StringBuilder sb  = new StringBuilder();
+        char[]        buf = new char[8192];
+
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8)) {
+            for (int len = reader.read(buf); len != -1; len = reader.read(buf)) {
+                sb.append(buf, 0, len);
+            }
+        }
+
+        return JsonUtilsV2.jsonToObj(sb.toString(), ServicePolicies.class);
+    }
+
+    @Benchmark
+    public ServicePolicies viaStream() throws Exception {
+        try (InputStream in = new ByteArrayInputStream(response)) {
+            return JsonUtilsV2.getMapper().readValue(in, ServicePolicies.class);
+        }
+    }
+
+    private static ServicePolicies createPolicies(int count) {
+        ServicePolicies    ret      = new ServicePolicies();
+        List<RangerPolicy> policies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            RangerPolicy                      policy    = new RangerPolicy();
+            Map<String, RangerPolicyResource> resources = new HashMap<>();
+            RangerPolicyItem                  item      = new RangerPolicyItem();
+
+            resources.put("database", new RangerPolicyResource("db" + (i % 100)));
+            resources.put("table", new RangerPolicyResource("table" + i));
+            resources.put("column", new RangerPolicyResource("*"));
+
+            item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update")));
+            item.setUsers(Arrays.asList("user" + (i % 500), "user" + ((i + 1) % 500)));
+            item.setGroups(Arrays.asList("group" + (i % 50)));
+
+            policy.setId((long) i);
+            policy.setGuid("guid-" + i);
+            policy.setService("dev_hive");
+            policy.setName("policy-" + i);
+            policy.setDescription("policy for table" + i + " in database db" + (i % 100));
+            policy.setResources(resources);
+            policy.setPolicyItems(new ArrayList<>(Arrays.asList(item)));
+
+            policies.add(policy);
+        }
+
+        ret.setServiceName("dev_hive");
+        ret.setPolicyVersion(10L);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+}
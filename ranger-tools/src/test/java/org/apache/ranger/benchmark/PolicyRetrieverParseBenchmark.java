@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time RangerPolicyRetriever spends turning the policy_text of a service's policies into RangerPolicy
+ * objects: parsed one after the other in the loading thread, as before, and - with
+ * ranger.admin.policy.retriever.page.size set - parsed in batches of 100 on a pool of parserThreads threads, one page
+ * at a time. DB reads are not part of the measurement; the policy_text values are generated in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PolicyRetrieverParseBenchmark {
+    private static final int PARSE_BATCH_SIZE = 100;
+
+    @Param({"10000", "150000"})
+    public int policyCount;
+
+    @Param({"1000"})
+    public int pageSize;
+
+    @Param({"4", "8"})
+    public int parserThreads;
+
+    private List<String>    policyTexts;
+    private ExecutorService parserExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        policyTexts    = createPolicyTexts(policyCount);
+        parserExecutor = Executors.newFixedThreadPool(parserThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parserExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<RangerPolicy> serial() {
+        List<RangerPolicy> ret = new ArrayList<>(policyTexts.size());
+
+        for (String policyText : policyTexts) {
+            ret.add(JsonUtils.jsonToObject(policyText, RangerPolicy.class));
+        }
+
+        return ret;
+    }
+
+    @Benchmark
+    public List<RangerPolicy> pagedParallel() throws Exception {
+        List<RangerPolicy> ret = new ArrayList<>(policyTexts.size());
+
+        for (int pageStart = 0; pageStart < policyTexts.size(); pageStart += pageSize) {
+            List<String>                     page    = policyTexts.subList(pageStart, Math.min(pageStart + pageSize, policyTexts.size()));
+            List<Future<List<RangerPolicy>>> batches = new ArrayList<>();
+
+            for (int i = 0; i < page.size(); i += PARSE_BATCH_SIZE) {
+                final List<String> batch = page.subList(i, Math.min(i + PARSE_BATCH_SIZE, page.size()));
+
+                batches.add(parserExecutor.submit(() -> {
+                    List<RangerPolicy> policies = new ArrayList<>(batch.size());
+
+                    for (String policyText : batch) {
+                        policies.add(JsonUtils.jsonToObject(policyText, RangerPolicy.class));
+                    }
+
+                    return policies;
+                }));
+            }
+
+            for (Future<List<RangerPolicy>> batch : batches) {
+                ret.addAll(batch.get());
+            }
+        }
+
+        return ret;
+    }
+
+    private static List<String> createPolicyTexts(int count) {
+        List<String> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            RangerPolicy                      policy    = new RangerPolicy();
+            Map<String, RangerPolicyResource> resources = new HashMap<>();
+            RangerPolicyItem                  item      = new RangerPolicyItem();
+
+            resources.put("database", new RangerPolicyResource("db" + (i % 100)));
+            resources.put("table", new RangerPolicyResource("table" + i));
+            resources.put("column", new RangerPolicyResource("*"));
+
+            item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update"), new RangerPolicyItemAccess("create")));
+            item.setUsers(Arrays.asList("user" + (i % 500), "user" + ((i + 1) % 500)));
+            item.setGroups(Arrays.asList("group" + (i % 50), "analysts"));
+
+            policy.setName("policy-" + i);
+            policy.setDescription("policy for table" + i + " in database db" + (i % 100));
+            policy.setResources(resources);
+            policy.setPolicyItems(new ArrayList<>(Arrays.asList(item)));
+
+            ret.add(JsonUtils.objectToJson(policy));
+        }
+
+        return ret;
+    }
+}
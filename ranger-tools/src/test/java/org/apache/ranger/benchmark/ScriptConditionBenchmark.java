@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.conditionevaluator.RangerScriptConditionEvaluator;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ScriptEngineUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.script.ScriptEngine;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating a policy condition script the way RangerScriptConditionEvaluator does - parsed into a predicate
+ * when the script has only macros and attribute comparisons, compiled once otherwise - with evaluating the script text
+ * with new bindings for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ScriptConditionBenchmark {
+    @Param({"tagAttr.dept == 'finance' && IS_IN_GROUP('analysts')", "TAG.dept.toLowerCase() == 'finance' && REQ.accessType == 'select'"})
+    public String script;
+
+    private RangerScriptConditionEvaluator conditionEvaluator;
+    private ScriptEngine                   scriptEngine;
+    private boolean                        enableJsonCtx;
+    private RangerAccessRequest            request;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RangerServiceDef serviceDef = new RangerServiceDef();
+
+        serviceDef.setName("hive");
+
+        conditionEvaluator = new RangerScriptConditionEvaluator();
+
+        conditionEvaluator.setServiceDef(serviceDef);
+        conditionEvaluator.setConditionDef(new RangerPolicyConditionDef(1L, "expression", RangerScriptConditionEvaluator.class.getName(), new HashMap<>()));
+        conditionEvaluator.setPolicyItemCondition(new RangerPolicyItemCondition("expression", Collections.singletonList(script)));
+        conditionEvaluator.init();
+
+        scriptEngine  = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
+        enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+        request       = createRequest();
+    }
+
+    @Benchmark
+    public boolean isMatched() {
+        return conditionEvaluator.isMatched(request);
+    }
+
+    @Benchmark
+    public boolean evaluateScriptText() {
+        RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+
+        evaluator.evaluateConditionScript(script);
+
+        return evaluator.getResult();
+    }
+
+    private static RangerAccessRequest createRequest() {
+        RangerAccessResourceImpl resource   = new RangerAccessResourceImpl();
+        Map<String, String>      attributes = new HashMap<>();
+
+        resource.setValue("database", "sales");
+        resource.setValue("table", "orders");
+        resource.setValue("column", "amount");
+
+        attributes.put("dept", "finance");
+        attributes.put("level", "high");
+
+        RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, "select", "user1", Collections.singleton("analysts"), null);
+        RangerTagForEval        tag     = new RangerTagForEval(new RangerTag("PII", attributes), RangerPolicyResourceMatcher.MatchType.SELF);
+
+        RangerAccessRequestUtil.setRequestTagsInContext(request.getContext(), Collections.singleton(tag));
+        RangerAccessRequestUtil.setCurrentTagInContext(request.getContext(), tag);
+
+        return request;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXPolicyChangeLogDao;
+import org.apache.ranger.db.XXTagChangeLogDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Decides whether deltas or a full snapshot of policies - or tags - is used to bring a plugin - or the cache - up to
+ * date, and keeps x_policy_change_log and x_tag_change_log within their retention periods.
+ *
+ * Every change-log record read for deltas costs a policy - or tag and resource - lookup, just like an entry in a full
+ * snapshot. Deltas are therefore read only when the number of change-log records since the given version is at most
+ * ranger.admin.policy.delta.max.changes.percent of the number of policies in the service - or of its tagged resources;
+ * otherwise the full snapshot - usually already in the cache - is used. The number of records is counted once per
+ * service, version and latest version; the number of policies - or tagged resources - once per service and latest
+ * version. Policy-deltas that are read are compacted, per policy, into their net effect by
+ * ServiceDBStore.compressDeltas().
+ *
+ * Records older than ranger.admin.delta.retention.time.in.days (ranger.admin.tag.delta.retention.time.in.days for tags)
+ * are deleted every ranger.admin.delta.purge.interval.minutes, and not only at startup, except the latest record of each
+ * service. The purge deletes nothing when repeated, so every Ranger Admin instance runs it. The oldest version left in
+ * the change-log of each service is then noted: plugins with an older version get a full snapshot, without change-log reads.
+ */
+@Component
+public class RangerChangeLogManager {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerChangeLogManager.class);
+
+	private static final int  DEFAULT_MAX_CHANGES_PERCENT    = 100;
+	private static final long DEFAULT_PURGE_INTERVAL_MINUTES = 60;
+
+	@Autowired
+	RangerDaoManager daoMgr;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private final int                      maxChangesPercent;
+	private final long                     purgeIntervalMinutes;
+	private final AtomicLong               deltasChosenCount      = new AtomicLong();
+	private final AtomicLong               snapshotChosenCount    = new AtomicLong();
+	private final AtomicLong               deltasUnavailableCount = new AtomicLong();
+	private final AtomicLong               changeLogReadCount     = new AtomicLong();
+	private final AtomicLong               compactedDeltaCount    = new AtomicLong();
+	private final AtomicLong               policyLogPurgedCount   = new AtomicLong();
+	private final AtomicLong               tagLogPurgedCount      = new AtomicLong();
+	private final ChangeLogCounts          policyChangeLogCounts  = new ChangeLogCounts();
+	private final ChangeLogCounts          tagChangeLogCounts     = new ChangeLogCounts();
+	private volatile Map<Long, Long>       oldestPolicyVersions   = Collections.emptyMap(); // service id => oldest version in x_policy_change_log, as of the last purge
+	private volatile Map<Long, Long>       oldestTagVersions      = Collections.emptyMap(); // service id => oldest version in x_tag_change_log, as of the last purge
+	private       ScheduledExecutorService purger;
+
+	public RangerChangeLogManager() {
+		this(RangerAdminConfig.getInstance().getInt("ranger.admin.policy.delta.max.changes.percent", DEFAULT_MAX_CHANGES_PERCENT),
+			 RangerAdminConfig.getInstance().getLong("ranger.admin.delta.purge.interval.minutes", DEFAULT_PURGE_INTERVAL_MINUTES));
+	}
+
+	RangerChangeLogManager(int maxChangesPercent, long purgeIntervalMinutes) {
+		this.maxChangesPercent    = maxChangesPercent;
+		this.purgeIntervalMinutes = purgeIntervalMinutes;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (purgeIntervalMinutes > 0) {
+			purger = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("change-log-purger-%d").build());
+
+			// the first run, right away, notes the oldest versions left by the purge at startup
+			purger.scheduleWithFixedDelay(this::purgeChangeLogs, 0, purgeIntervalMinutes, TimeUnit.MINUTES);
+		}
+
+		LOG.info("RangerChangeLogManager: maxChangesPercent=" + maxChangesPercent + ", purgeIntervalMinutes=" + purgeIntervalMinutes);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (purger != null) {
+			purger.shutdownNow();
+
+			purger = null;
+		}
+	}
+
+	/*
+	 * Returns true if reading changeLogCount change-log records costs no more than the configured share of a full
+	 * snapshot of policyCount policies. A negative ranger.admin.policy.delta.max.changes.percent disables the check.
+	 */
+	public boolean isDeltasCheaper(long changeLogCount, long policyCount) {
+		boolean ret = maxChangesPercent < 0 || changeLogCount * 100 <= policyCount * maxChangesPercent;
+
+		if (!ret) {
+			snapshotChosenCount.incrementAndGet();
+
+			LOG.debug("RangerChangeLogManager.isDeltasCheaper(changeLogCount={}, policyCount={}): full snapshot is cheaper", changeLogCount, policyCount);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns the number of x_policy_change_log records of the service after version, up to maxVersion
+	 */
+	public long getPolicyChangeLogCount(Long serviceId, Long version, Long maxVersion) {
+		return policyChangeLogCounts.getCount(serviceId, version, maxVersion, () -> daoMgr.getXXPolicyChangeLog().getCountLaterThan(version, maxVersion, serviceId));
+	}
+
+	/*
+	 * Returns the number of x_tag_change_log records of the service after version, up to maxVersion
+	 */
+	public long getTagChangeLogCount(Long serviceId, Long version, Long maxVersion) {
+		return tagChangeLogCounts.getCount(serviceId, version, maxVersion, () -> daoMgr.getXXTagChangeLog().getCountLaterThan(version, maxVersion, serviceId));
+	}
+
+	/*
+	 * Returns the number of policies of the service as of maxVersion; counter is called only for a new latest version
+	 */
+	public long getPolicyCount(Long serviceId, Long maxVersion, LongSupplier counter) {
+		return policyChangeLogCounts.getSize(serviceId, maxVersion, counter);
+	}
+
+	/*
+	 * Returns the number of tagged resources of the service as of maxVersion; counter is called only for a new latest version
+	 */
+	public long getTaggedResourceCount(Long serviceId, Long maxVersion, LongSupplier counter) {
+		return tagChangeLogCounts.getSize(serviceId, maxVersion, counter);
+	}
+
+	/*
+	 * Returns false if the policy-deltas of the service since version were purged
+	 */
+	public boolean isPolicyDeltasRetained(Long serviceId, Long version) {
+		return isRetained(oldestPolicyVersions, serviceId, version);
+	}
+
+	/*
+	 * Returns false if the tag-deltas of the service since version were purged
+	 */
+	public boolean isTagDeltasRetained(Long serviceId, Long version) {
+		return isRetained(oldestTagVersions, serviceId, version);
+	}
+
+	public void recordDeltasChosen(int changeLogCount, int compactedCount) {
+		deltasChosenCount.incrementAndGet();
+		changeLogReadCount.addAndGet(changeLogCount);
+		compactedDeltaCount.addAndGet(compactedCount);
+	}
+
+	public void recordDeltasUnavailable() {
+		deltasUnavailableCount.incrementAndGet();
+	}
+
+	public Map<String, Long> getMetrics() {
+		Map<String, Long> ret = new LinkedHashMap<>();
+
+		ret.put("DeltasChosenCount", deltasChosenCount.get());
+		ret.put("SnapshotChosenCount", snapshotChosenCount.get());
+		ret.put("DeltasUnavailableCount", deltasUnavailableCount.get());
+		ret.put("ChangeLogReadCount", changeLogReadCount.get());
+		ret.put("CompactedDeltaCount", compactedDeltaCount.get());
+		ret.put("PolicyChangeLogPurgedCount", policyLogPurgedCount.get());
+		ret.put("TagChangeLogPurgedCount", tagLogPurgedCount.get());
+
+		return ret;
+	}
+
+	void purgeChangeLogs() {
+		try {
+			TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+			txTemplate.execute(status -> {
+				XXPolicyChangeLogDao policyLogDao      = daoMgr.getXXPolicyChangeLog();
+				XXTagChangeLogDao    tagLogDao         = daoMgr.getXXTagChangeLog();
+				long                 policyLogsDeleted = 0;
+				long                 tagLogsDeleted    = 0;
+
+				// the latest record of each service is kept, as findLaterThan() needs the record of the version of a plugin
+				for (Long serviceId : policyLogDao.getServiceIdsOlderThan(ServiceDBStore.RETENTION_PERIOD_IN_DAYS)) {
+					policyLogsDeleted += policyLogDao.deleteOlderThan(serviceId, ServiceDBStore.RETENTION_PERIOD_IN_DAYS, policyLogDao.getLatestVersion(serviceId));
+				}
+
+				for (Long serviceId : tagLogDao.getServiceIdsOlderThan(ServiceDBStore.TAG_RETENTION_PERIOD_IN_DAYS)) {
+					tagLogsDeleted += tagLogDao.deleteOlderThan(serviceId, ServiceDBStore.TAG_RETENTION_PERIOD_IN_DAYS, tagLogDao.getLatestVersion(serviceId));
+				}
+
+				setOldestVersions(policyLogDao.getOldestVersions(), tagLogDao.getOldestVersions());
+
+				policyLogPurgedCount.addAndGet(policyLogsDeleted);
+				tagLogPurgedCount.addAndGet(tagLogsDeleted);
+
+				LOG.info("RangerChangeLogManager: deleted " + policyLogsDeleted + " x_policy_change_log records older than " + ServiceDBStore.RETENTION_PERIOD_IN_DAYS + " days, "
+						+ tagLogsDeleted + " x_tag_change_log records older than " + ServiceDBStore.TAG_RETENTION_PERIOD_IN_DAYS + " days");
+
+				return null;
+			});
+		} catch (Throwable excp) {
+			LOG.error("RangerChangeLogManager: failed to purge change-log records", excp);
+		}
+	}
+
+	void setOldestVersions(Map<Long, Long> oldestPolicyVersions, Map<Long, Long> oldestTagVersions) {
+		this.oldestPolicyVersions = oldestPolicyVersions;
+		this.oldestTagVersions    = oldestTagVersions;
+
+		// counts after versions of purged records are no longer needed
+		policyChangeLogCounts.clear();
+		tagChangeLogCounts.clear();
+	}
+
+	// a service not in oldestVersions had no records at the last purge, or was created since; findLaterThan() checks its versions
+	private static boolean isRetained(Map<Long, Long> oldestVersions, Long serviceId, Long version) {
+		Long oldestVersion = oldestVersions.get(serviceId);
+
+		return oldestVersion == null || version == null || version >= oldestVersion;
+	}
+
+	/*
+	 * Counts of change-log records after a version, and the number of policies - or tagged resources -, as of the latest
+	 * version of each service seen; counts as of an earlier latest version are dropped once a later one is seen, as
+	 * plugins will then ask for deltas up to the later one
+	 */
+	static class ChangeLogCounts {
+		private final Map<Long, VersionCounts> serviceCounts = new ConcurrentHashMap<>();
+
+		long getCount(Long serviceId, Long version, Long maxVersion, LongSupplier counter) {
+			VersionCounts counts = version != null ? getCounts(serviceId, maxVersion) : null;
+			final long    ret;
+
+			if (counts != null) {
+				Long count = counts.counts.get(version);
+
+				if (count == null) {
+					count = counter.getAsLong();
+
+					counts.counts.put(version, count);
+				}
+
+				ret = count;
+			} else {
+				ret = counter.getAsLong();
+			}
+
+			return ret;
+		}
+
+		long getSize(Long serviceId, Long maxVersion, LongSupplier counter) {
+			VersionCounts counts = getCounts(serviceId, maxVersion);
+			final long    ret;
+
+			if (counts != null) {
+				Long size = counts.size;
+
+				if (size == null) {
+					size = counter.getAsLong();
+
+					counts.size = size;
+				}
+
+				ret = size;
+			} else {
+				ret = counter.getAsLong();
+			}
+
+			return ret;
+		}
+
+		void clear() {
+			serviceCounts.clear();
+		}
+
+		// returns null for an earlier latest version, from a request that started before the version changed, or for no
+		// latest version, like Long.MAX_VALUE when the cache is updated: the counts then change with every change
+		private VersionCounts getCounts(Long serviceId, Long maxVersion) {
+			VersionCounts ret = null;
+
+			if (serviceId != null && maxVersion != null && maxVersion != Long.MAX_VALUE) {
+				VersionCounts counts = serviceCounts.compute(serviceId, (k, v) -> (v == null || v.maxVersion < maxVersion) ? new VersionCounts(maxVersion) : v);
+
+				if (counts.maxVersion == maxVersion) {
+					ret = counts;
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	private static class VersionCounts {
+		final long            maxVersion;
+		final Map<Long, Long> counts = new ConcurrentHashMap<>(); // version => count of records after it, up to maxVersion
+		volatile Long         size;                               // number of policies - or tagged resources - as of maxVersion
+
+		VersionCounts(long maxVersion) {
+			this.maxVersion = maxVersion;
+		}
+	}
+}
@@ -20,10 +20,16 @@
 package org.apache.ranger.biz;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -31,6 +37,7 @@
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXPolicyDao;
 import org.apache.ranger.entity.XXPolicy;
 import org.apache.ranger.entity.XXPolicyLabel;
 import org.apache.ranger.entity.XXPolicyLabelMap;
@@ -58,15 +65,29 @@ public class RangerPolicyRetriever {
 	static final Logger LOG      = LoggerFactory.getLogger(RangerPolicyRetriever.class);
 	static final Logger PERF_LOG = RangerPerfTracer.getPerfLogger("db.RangerPolicyRetriever");
 
+	static final int POLICY_PARSE_BATCH_SIZE = 100;
+
 	private final RangerDaoManager  daoMgr;
 	private final LookupCache       lookupCache = new LookupCache();
 
 	private final PlatformTransactionManager  txManager;
 	private final TransactionTemplate         txTemplate;
+	private final int                         pageSize;
+	private final ExecutorService             parserExecutor;
 
 	public RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager txManager) {
-		this.daoMgr     = daoMgr;
-		this.txManager  = txManager;
+		this(daoMgr, txManager, 0, null);
+	}
+
+	/**
+	 * @param pageSize       when greater than 0, policies of a service are read from the DB in pages of this size, ordered by id
+	 * @param parserExecutor when not null, policy JSON of each page is parsed on this executor while the next page is read
+	 */
+	public RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager txManager, int pageSize, ExecutorService parserExecutor) {
+		this.daoMgr         = daoMgr;
+		this.txManager      = txManager;
+		this.pageSize       = pageSize;
+		this.parserExecutor = parserExecutor;
 		if (this.txManager != null) {
 			this.txTemplate = new TransactionTemplate(this.txManager);
 			this.txTemplate.setReadOnly(true);
@@ -76,9 +97,11 @@ public RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager
 	}
 
 	public RangerPolicyRetriever(RangerDaoManager daoMgr) {
-		this.daoMgr      = daoMgr;
-		this.txManager   = null;
-		this.txTemplate  = null;
+		this.daoMgr         = daoMgr;
+		this.txManager      = null;
+		this.txTemplate     = null;
+		this.pageSize       = 0;
+		this.parserExecutor = null;
 	}
 
 	public List<RangerPolicy> getServicePolicies(Long serviceId) {
@@ -489,7 +512,7 @@ class RetrieverContext {
 
 				this.service    = xService;
 				this.serviceDef = daoMgr.getXXServiceDef().getById(xService.getType());
-				this.iterPolicy = daoMgr.getXXPolicy().findByServiceId(serviceId).listIterator();
+				this.iterPolicy = pageSize > 0 ? null : daoMgr.getXXPolicy().findByServiceId(serviceId).listIterator();
 				this.iterPolicyLabels = daoMgr.getXXPolicyLabelMap().findByServiceId(serviceId).listIterator();
 			} else {
 				this.service    = null;
@@ -526,31 +549,33 @@ RangerPolicy getNextPolicy() {
 				iterPolicy.remove();
 
 				if (xPolicy != null) {
-					String policyText = xPolicy.getPolicyText();
-
-					ret = JsonUtils.jsonToObject(policyText, RangerPolicy.class);
-
-					if (ret != null) {
-						ret.setId(xPolicy.getId());
-						ret.setGuid(xPolicy.getGuid());
-						ret.setCreatedBy(lookupCache.getUserScreenName(xPolicy.getAddedByUserId()));
-						ret.setUpdatedBy(lookupCache.getUserScreenName(xPolicy.getUpdatedByUserId()));
-						ret.setCreateTime(xPolicy.getCreateTime());
-						ret.setUpdateTime(xPolicy.getUpdateTime());
-						ret.setVersion(xPolicy.getVersion());
-						ret.setPolicyType(xPolicy.getPolicyType() == null ? RangerPolicy.POLICY_TYPE_ACCESS : xPolicy.getPolicyType());
-						ret.setService(service.getName());
-						ret.setServiceType(serviceDef.getName());
-						ret.setZoneName(lookupCache.getSecurityZoneName(xPolicy.getZoneId()));
-						updatePolicyReferenceFields(ret);
-						getPolicyLabels(ret);
-					}
+					ret = toRangerPolicy(xPolicy, JsonUtils.jsonToObject(xPolicy.getPolicyText(), RangerPolicy.class));
 				}
 			}
 
 			return ret;
 		}
 
+		private RangerPolicy toRangerPolicy(XXPolicy xPolicy, RangerPolicy ret) {
+			if (ret != null) {
+				ret.setId(xPolicy.getId());
+				ret.setGuid(xPolicy.getGuid());
+				ret.setCreatedBy(lookupCache.getUserScreenName(xPolicy.getAddedByUserId()));
+				ret.setUpdatedBy(lookupCache.getUserScreenName(xPolicy.getUpdatedByUserId()));
+				ret.setCreateTime(xPolicy.getCreateTime());
+				ret.setUpdateTime(xPolicy.getUpdateTime());
+				ret.setVersion(xPolicy.getVersion());
+				ret.setPolicyType(xPolicy.getPolicyType() == null ? RangerPolicy.POLICY_TYPE_ACCESS : xPolicy.getPolicyType());
+				ret.setService(service.getName());
+				ret.setServiceType(serviceDef.getName());
+				ret.setZoneName(lookupCache.getSecurityZoneName(xPolicy.getZoneId()));
+				updatePolicyReferenceFields(ret);
+				getPolicyLabels(ret);
+			}
+
+			return ret;
+		}
+
 		private void getPolicyLabels(RangerPolicy ret) {
 			List<String> xPolicyLabels = new ArrayList<String>();
 			if (iterPolicyLabels != null) {
@@ -681,7 +706,9 @@ List<String> getUpdatedNames(final Map<Long, Map<String, String>> nameMappingCon
 		List<RangerPolicy> getAllPolicies() {
 			List<RangerPolicy> ret = new ArrayList<>();
 
-			if (iterPolicy != null) {
+			if (pageSize > 0 && service != null) {
+				getAllPoliciesPaged(ret);
+			} else if (iterPolicy != null) {
 				while (iterPolicy.hasNext()) {
 					RangerPolicy policy = getNextPolicy();
 
@@ -693,6 +720,96 @@ List<RangerPolicy> getAllPolicies() {
 
 			return ret;
 		}
+
+		// keyset pagination: each page holds the next pageSize policies, by id, after the last policy of the previous page.
+		// Policies are added in id order, as getPolicyLabels() expects
+		private void getAllPoliciesPaged(List<RangerPolicy> policies) {
+			XXPolicyDao    policyDao = daoMgr.getXXPolicy();
+			Long           serviceId = service.getId();
+			List<XXPolicy> page      = policyDao.findByServiceIdAfterId(serviceId, Long.MIN_VALUE, pageSize);
+			int            pageCount = 0;
+
+			while (!page.isEmpty()) {
+				List<Future<List<RangerPolicy>>> parsedBatches = parsePolicyTexts(page);
+
+				// read the next page while the parser threads work on this one
+				List<XXPolicy> nextPage = page.size() < pageSize ? Collections.<XXPolicy>emptyList() : policyDao.findByServiceIdAfterId(serviceId, page.get(page.size() - 1).getId(), pageSize);
+				int            idx      = 0;
+
+				for (Future<List<RangerPolicy>> parsedBatch : parsedBatches) {
+					for (RangerPolicy parsedPolicy : getParsedBatch(parsedBatch)) {
+						XXPolicy     xPolicy = page.get(idx++);
+						RangerPolicy policy  = toRangerPolicy(xPolicy, parsedPolicy);
+
+						if (policy != null) {
+							policies.add(policy);
+						}
+
+						if (txTemplate != null) { // entities aren't needed after this point; release them from the read-only transaction
+							policyDao.getEntityManager().detach(xPolicy);
+						}
+					}
+				}
+
+				pageCount++;
+
+				page = nextPage;
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerPolicyRetriever.getAllPoliciesPaged(serviceName=" + service.getName() + "): policyCount=" + policies.size() + ", pageCount=" + pageCount);
+			}
+		}
+
+		// policy text is read from the entities here, in the thread that owns the transaction; only parsing is done in parserExecutor
+		private List<Future<List<RangerPolicy>>> parsePolicyTexts(List<XXPolicy> xPolicies) {
+			List<Future<List<RangerPolicy>>> ret = new ArrayList<>();
+
+			for (int i = 0; i < xPolicies.size(); i += POLICY_PARSE_BATCH_SIZE) {
+				final List<String> policyTexts = new ArrayList<>(POLICY_PARSE_BATCH_SIZE);
+
+				for (XXPolicy xPolicy : xPolicies.subList(i, Math.min(i + POLICY_PARSE_BATCH_SIZE, xPolicies.size()))) {
+					policyTexts.add(xPolicy.getPolicyText());
+				}
+
+				PolicyTextParser parser = new PolicyTextParser(policyTexts);
+
+				ret.add(parserExecutor != null ? parserExecutor.submit(parser) : CompletableFuture.completedFuture(parser.call()));
+			}
+
+			return ret;
+		}
+
+		private List<RangerPolicy> getParsedBatch(Future<List<RangerPolicy>> parsedBatch) {
+			try {
+				return parsedBatch.get();
+			} catch (InterruptedException excp) {
+				Thread.currentThread().interrupt();
+
+				throw new RuntimeException("RangerPolicyRetriever: interrupted while parsing policies of service " + service.getName(), excp);
+			} catch (ExecutionException excp) {
+				throw new RuntimeException("RangerPolicyRetriever: failed to parse policies of service " + service.getName(), excp.getCause());
+			}
+		}
+	}
+
+	static class PolicyTextParser implements Callable<List<RangerPolicy>> {
+		private final List<String> policyTexts;
+
+		PolicyTextParser(List<String> policyTexts) {
+			this.policyTexts = policyTexts;
+		}
+
+		@Override
+		public List<RangerPolicy> call() {
+			List<RangerPolicy> ret = new ArrayList<>(policyTexts.size());
+
+			for (String policyText : policyTexts) {
+				ret.add(JsonUtils.jsonToObject(policyText, RangerPolicy.class)); // null for invalid policyText; skipped by toRangerPolicy()
+			}
+
+			return ret;
+		}
 	}
 
 }
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Holds long-poll policy download requests until the policy version of the service in x_service_version_info is
+ * different from the plugin's lastKnownVersion, or the wait time expires. The version of the service is read from the
+ * database when a request starts to wait - requests for services that don't exist are not held - and then, while
+ * requests are waiting, versions of services with waiting requests are read - all in one query - every
+ * ranger.admin.policy.download.wait.check.interval.ms, so that changes made through any Ranger Admin instance are seen.
+ * No query is made while there are no waiting requests, and a service is no longer tracked once no request waits for it.
+ *
+ * Each waiting request holds a web server thread, but not a database connection. Requests are not held once
+ * ranger.admin.policy.download.wait.max.waiters requests are waiting; such requests are served right away, as a
+ * regular download.
+ */
+@Component
+public class RangerPolicyVersionWatcher {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerPolicyVersionWatcher.class);
+
+	private static final long DEFAULT_CHECK_INTERVAL_MS = 500;
+	private static final long DEFAULT_MAX_WAIT_TIME_MS  = 60 * 1000L;
+	private static final int  DEFAULT_MAX_WAITERS       = 100;
+
+	@Autowired
+	RangerDaoManager daoMgr;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private final long                        checkIntervalMs;
+	private final long                        maxWaitTimeMs;
+	private final Semaphore                   waitPermits;
+	private final AtomicInteger               waiterCount = new AtomicInteger();
+	private final Map<String, ServiceVersion> versions    = new ConcurrentHashMap<>();
+	private       ScheduledExecutorService    checker;
+
+	public RangerPolicyVersionWatcher() {
+		this(RangerAdminConfig.getInstance().getLong("ranger.admin.policy.download.wait.check.interval.ms", DEFAULT_CHECK_INTERVAL_MS),
+			 RangerAdminConfig.getInstance().getLong("ranger.admin.policy.download.wait.max.time.ms", DEFAULT_MAX_WAIT_TIME_MS),
+			 RangerAdminConfig.getInstance().getInt("ranger.admin.policy.download.wait.max.waiters", DEFAULT_MAX_WAITERS));
+	}
+
+	RangerPolicyVersionWatcher(long checkIntervalMs, long maxWaitTimeMs, int maxWaiters) {
+		this.checkIntervalMs = checkIntervalMs;
+		this.maxWaitTimeMs   = maxWaitTimeMs;
+		this.waitPermits     = new Semaphore(Math.max(maxWaiters, 0));
+	}
+
+	@PostConstruct
+	public void init() {
+		checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("policy-version-watcher-%d").build());
+
+		checker.scheduleWithFixedDelay(this::checkVersionsIfWaiting, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+
+		LOG.info("RangerPolicyVersionWatcher: checkIntervalMs=" + checkIntervalMs + ", maxWaitTimeMs=" + maxWaitTimeMs + ", maxWaiters=" + waitPermits.availablePermits());
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (checker != null) {
+			checker.shutdownNow();
+
+			checker = null;
+		}
+	}
+
+	/*
+	 * Returns when the policy version of the service is different from lastKnownVersion, or after waitTimeMs (capped at
+	 * ranger.admin.policy.download.wait.max.time.ms). Returns right away for plugins that don't have policies yet, and
+	 * when too many requests are waiting. Returns true if the version was found to be changed.
+	 */
+	public boolean waitForChange(String serviceName, Long lastKnownVersion, long waitTimeMs) throws InterruptedException {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyVersionWatcher.waitForChange(" + serviceName + ", " + lastKnownVersion + ", " + waitTimeMs + ")");
+		}
+
+		boolean ret = true;
+
+		if (serviceName != null && lastKnownVersion != null && lastKnownVersion >= 0 && waitTimeMs > 0) {
+			if (waitPermits.tryAcquire()) {
+				try {
+					Long versionInDB = getPolicyVersion(serviceName);
+
+					if (versionInDB != null) {
+						ServiceVersion version = versions.compute(serviceName, (k, v) -> (v != null ? v : new ServiceVersion()).addWaiter());
+
+						waiterCount.incrementAndGet();
+
+						try {
+							// the version of an entry that had waiters is kept current by the checker; a new entry's isn't read yet
+							version.setVersionIfNotChecked(versionInDB);
+
+							ret = version.awaitChange(lastKnownVersion, Math.min(waitTimeMs, maxWaitTimeMs));
+						} finally {
+							waiterCount.decrementAndGet();
+
+							versions.computeIfPresent(serviceName, (k, v) -> v.removeWaiter() ? v : null);
+						}
+					} else {
+						LOG.debug("RangerPolicyVersionWatcher.waitForChange({}): no policy version found. Not waiting", serviceName);
+					}
+				} finally {
+					waitPermits.release();
+				}
+			} else {
+				LOG.debug("RangerPolicyVersionWatcher.waitForChange({}): too many waiting requests. Not waiting", serviceName);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyVersionWatcher.waitForChange(" + serviceName + ", " + lastKnownVersion + ", " + waitTimeMs + "): ret=" + ret);
+		}
+
+		return ret;
+	}
+
+	int getWaiterCount() {
+		return waiterCount.get();
+	}
+
+	int getWatchedServiceCount() {
+		return versions.size();
+	}
+
+	/*
+	 * Returns the policy version of the service in x_service_version_info, or null if the service doesn't exist or the version can't be read
+	 */
+	Long getPolicyVersion(String serviceName) {
+		Long ret = null;
+
+		try {
+			TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+			txTemplate.setReadOnly(true);
+
+			ret = txTemplate.execute(status -> {
+				XXServiceVersionInfo versionInfo = daoMgr.getXXServiceVersionInfo().findByServiceName(serviceName);
+
+				return versionInfo != null ? versionInfo.getPolicyVersion() : null;
+			});
+		} catch (Throwable excp) {
+			LOG.error("RangerPolicyVersionWatcher: failed to read policy version of service " + serviceName, excp);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Updates versions of services that requests have waited for; a service not in versionsInDB has no version anymore
+	 */
+	void updateVersions(Map<String, Long> versionsInDB) {
+		for (Map.Entry<String, ServiceVersion> entry : versions.entrySet()) {
+			entry.getValue().setVersion(versionsInDB.get(entry.getKey()));
+		}
+	}
+
+	private void checkVersionsIfWaiting() {
+		if (waiterCount.get() > 0) {
+			try {
+				TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+				txTemplate.setReadOnly(true);
+
+				Map<String, Long> versionsInDB = txTemplate.execute(status -> {
+					List<Object[]>    rows = daoMgr.getXXServiceVersionInfo().getAllWithServiceNames();
+					Map<String, Long> ret  = new HashMap<>();
+
+					for (Object[] row : rows) {
+						if (row.length == 2 && row[0] instanceof XXServiceVersionInfo && row[1] instanceof String) {
+							ret.put((String) row[1], ((XXServiceVersionInfo) row[0]).getPolicyVersion());
+						}
+					}
+
+					return ret;
+				});
+
+				if (versionsInDB != null) {
+					updateVersions(versionsInDB);
+				}
+			} catch (Throwable excp) {
+				LOG.error("RangerPolicyVersionWatcher: failed to read policy versions", excp);
+			}
+		}
+	}
+
+	static class ServiceVersion {
+		private Long    version   = null;
+		private boolean isChecked = false;
+		private int     waiters   = 0; // updated only in versions.compute(), under the map's lock for the service
+
+		ServiceVersion addWaiter() {
+			waiters++;
+
+			return this;
+		}
+
+		// returns false when no request waits anymore
+		boolean removeWaiter() {
+			return --waiters > 0;
+		}
+
+		synchronized boolean awaitChange(Long lastKnownVersion, long waitTimeMs) throws InterruptedException {
+			long endTimeMs = System.currentTimeMillis() + waitTimeMs;
+
+			while (!isChecked || Objects.equals(version, lastKnownVersion)) {
+				long remainingMs = endTimeMs - System.currentTimeMillis();
+
+				if (remainingMs <= 0) {
+					break;
+				}
+
+				wait(remainingMs);
+			}
+
+			return isChecked && !Objects.equals(version, lastKnownVersion);
+		}
+
+		synchronized void setVersionIfNotChecked(Long version) {
+			if (!isChecked) {
+				setVersion(version);
+			}
+		}
+
+		synchronized void setVersion(Long version) {
+			boolean isChanged = !isChecked || !Objects.equals(this.version, version);
+
+			this.version   = version;
+			this.isChecked = true;
+
+			if (isChanged) {
+				notifyAll();
+			}
+		}
+	}
+}
@@ -42,6 +42,8 @@
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -57,6 +59,7 @@
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.thirdparty.com.google.common.base.Joiner;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -283,6 +286,10 @@ public class ServiceDBStore extends AbstractServiceStore {
 	public static Integer TRANSACTION_RECORDS_RETENTION_PERIOD_IN_DAYS = 0;
 	public static boolean SUPPORTS_PURGE_POLICY_EXPORT_LOGS            = false;
 	public static Integer POLICY_EXPORT_LOGS_RETENTION_PERIOD_IN_DAYS  = 0;
+	public static Integer POLICY_RETRIEVER_PAGE_SIZE                   = 0;
+	public static Integer POLICY_RETRIEVER_PARSER_THREADS              = 0;
+
+	private static ExecutorService policyParserExecutor = null;
 
 	private static final String RANGER_PLUGIN_CONFIG_PREFIX = "ranger.plugin.";
 	public static final String RANGER_PLUGIN_AUDIT_FILTERS  = "ranger.plugin.audit.filters";
@@ -380,6 +387,9 @@ public class ServiceDBStore extends AbstractServiceStore {
 	@Autowired
 	GUIDUtil guidUtil;
 
+	@Autowired
+	RangerChangeLogManager changeLogManager;
+
 	private static volatile boolean legacyServiceDefsInitDone = false;
 	private Boolean populateExistingBaseFields = false;
 
@@ -435,6 +445,12 @@ public void initStore() {
 
 					isRolesDownloadedByService   = config.getBoolean("ranger.support.for.service.specific.role.download", false);
 					SUPPORTS_IN_PLACE_POLICY_UPDATES    = SUPPORTS_POLICY_DELTAS && config.getBoolean("ranger.admin" + RangerCommonConstants.RANGER_ADMIN_SUFFIX_IN_PLACE_POLICY_UPDATES, RangerCommonConstants.RANGER_ADMIN_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT);
+					POLICY_RETRIEVER_PAGE_SIZE          = config.getInt("ranger.admin.policy.retriever.page.size", 0);
+					POLICY_RETRIEVER_PARSER_THREADS     = config.getInt("ranger.admin.policy.retriever.parser.threads", 4);
+
+					if (POLICY_RETRIEVER_PAGE_SIZE > 0 && POLICY_RETRIEVER_PARSER_THREADS > 0) {
+						policyParserExecutor = Executors.newFixedThreadPool(POLICY_RETRIEVER_PARSER_THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("policy-parser-%d").build());
+					}
 
 					LOG.info("SUPPORTS_POLICY_DELTAS=" + SUPPORTS_POLICY_DELTAS);
 					LOG.info("RETENTION_PERIOD_IN_DAYS=" + RETENTION_PERIOD_IN_DAYS);
@@ -447,6 +463,8 @@ public void initStore() {
 					LOG.info("POLICY_EXPORT_LOGS_RETENTION_PERIOD_IN_DAYS=" + POLICY_EXPORT_LOGS_RETENTION_PERIOD_IN_DAYS);
 					LOG.info("isRolesDownloadedByService=" + isRolesDownloadedByService);
 					LOG.info("SUPPORTS_IN_PLACE_POLICY_UPDATES=" + SUPPORTS_IN_PLACE_POLICY_UPDATES);
+					LOG.info("POLICY_RETRIEVER_PAGE_SIZE=" + POLICY_RETRIEVER_PAGE_SIZE);
+					LOG.info("POLICY_RETRIEVER_PARSER_THREADS=" + POLICY_RETRIEVER_PARSER_THREADS);
 
 					TransactionTemplate txTemplate = new TransactionTemplate(txManager);
 
@@ -2983,7 +3001,7 @@ private List<RangerPolicy> getServicePoliciesFromDb(XXService service) throws Ex
 			LOG.debug("==> ServiceDBStore.getServicePoliciesFromDb(" + service.getName() + ")");
 		}
 
-		RangerPolicyRetriever policyRetriever = new RangerPolicyRetriever(daoMgr, txManager);
+		RangerPolicyRetriever policyRetriever = new RangerPolicyRetriever(daoMgr, txManager, POLICY_RETRIEVER_PAGE_SIZE, policyParserExecutor);
 
 		List<RangerPolicy> ret = policyRetriever.getServicePolicies(service);
 
@@ -3425,7 +3443,29 @@ ServicePolicies getServicePoliciesWithDeltas(RangerServiceDef serviceDef, XXServ
 
 			boolean isValid;
 
-			resourcePolicyDeltas = daoMgr.getXXPolicyChangeLog().findLaterThan(lastKnownVersion, maxNeededVersion, service.getId());
+			// Reading each change-log record costs about as much as reading a policy; skip deltas when the full snapshot is cheaper
+			boolean isDeltasRetained = changeLogManager.isPolicyDeltasRetained(service.getId(), lastKnownVersion);
+			boolean isDeltasCheaper  = false;
+
+			if (isDeltasRetained) {
+				long changeLogCount = changeLogManager.getPolicyChangeLogCount(service.getId(), lastKnownVersion, maxNeededVersion);
+				long policyCount    = changeLogManager.getPolicyCount(service.getId(), maxNeededVersion, () -> daoMgr.getXXPolicy().getPoliciesCount(service.getName()) + (tagService != null ? daoMgr.getXXPolicy().getPoliciesCount(tagService.getName()) : 0L));
+
+				isDeltasCheaper = changeLogManager.isDeltasCheaper(changeLogCount, policyCount);
+
+				if (!isDeltasCheaper) {
+					LOG.info("Not reading " + changeLogCount + " policy-deltas for serviceId=" + service.getId() + ", lastKnownVersion=" + lastKnownVersion + ": full snapshot of " + policyCount + " policies is cheaper");
+				}
+			} else {
+				LOG.info("Policy-deltas for serviceId=" + service.getId() + ", lastKnownVersion=" + lastKnownVersion + " were purged. Full snapshot is needed");
+			}
+
+			if (isDeltasCheaper) {
+				resourcePolicyDeltas = daoMgr.getXXPolicyChangeLog().findLaterThan(lastKnownVersion, maxNeededVersion, service.getId());
+			} else {
+				resourcePolicyDeltas = null;
+			}
+
 			if (CollectionUtils.isNotEmpty(resourcePolicyDeltas)) {
 				isValid = RangerPolicyDeltaUtil.isValidDeltas(resourcePolicyDeltas, componentServiceType);
 
@@ -3460,9 +3500,12 @@ ServicePolicies getServicePoliciesWithDeltas(RangerServiceDef serviceDef, XXServ
 						resourcePolicyDeltas.addAll(tagPolicyDeltas);
 					}
 
-					List<RangerPolicyDelta> compressedDeltas = compressDeltas(resourcePolicyDeltas);
+					int                     changeLogReadCount = resourcePolicyDeltas.size();
+					List<RangerPolicyDelta> compressedDeltas   = compressDeltas(resourcePolicyDeltas);
 
 					if (compressedDeltas != null) {
+						changeLogManager.recordDeltasChosen(changeLogReadCount, compressedDeltas.size());
+
 						ret = new ServicePolicies();
 						ret.setServiceId(service.getId());
 						ret.setServiceName(service.getName());
@@ -3484,9 +3527,13 @@ ServicePolicies getServicePoliciesWithDeltas(RangerServiceDef serviceDef, XXServ
 						LOG.warn("Deltas :[" + resourcePolicyDeltas + "] from version :[" + lastKnownVersion + "] after compressing are null!");
 					}
 				}
-			} else {
+			} else if (isDeltasCheaper) {
 				LOG.warn("No policy-deltas found for serviceId=" + service.getId() + ", tagServiceId=" + (tagService != null ? tagService.getId() : null) + ", lastKnownVersion=" + lastKnownVersion + ")");
 			}
+
+			if (ret == null && (isDeltasCheaper || !isDeltasRetained)) {
+				changeLogManager.recordDeltasUnavailable();
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -113,6 +113,9 @@ public class TagDBStore extends AbstractTagStore {
 	@Autowired
 	RESTErrorUtil restErrorUtil;
 
+	@Autowired
+	RangerChangeLogManager changeLogManager;
+
 	RangerAdminConfig config;
 
 	@PostConstruct
@@ -1011,7 +1014,7 @@ public ServiceTags getServiceTags(String serviceName, Long lastKnownVersion) thr
 			throw new Exception("service-def does not exist. id=" + xxService.getType());
 		}
 
-		ServiceTags delta = getServiceTagsDelta(xxService.getId(), serviceName, lastKnownVersion);
+		ServiceTags delta = getServiceTagsDelta(xxService.getId(), serviceName, lastKnownVersion, serviceVersionInfoDbObj == null ? null : serviceVersionInfoDbObj.getTagVersion());
 
 		if (delta != null) {
 			ret = delta;
@@ -1070,7 +1073,7 @@ public ServiceTags getServiceTagsDelta(String serviceName, Long lastKnownVersion
 				throw new Exception("service does not exist. name=" + serviceName);
 			}
 
-			ret = getServiceTagsDelta(serviceId, serviceName, lastKnownVersion);
+			ret = getServiceTagsDelta(serviceId, serviceName, lastKnownVersion, null);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -1169,7 +1172,7 @@ private RangerTag validateTag(RangerTag tag) throws Exception {
 		return tag;
 	}
 
-	private ServiceTags getServiceTagsDelta(Long serviceId, String serviceName, Long lastKnownVersion) {
+	private ServiceTags getServiceTagsDelta(Long serviceId, String serviceName, Long lastKnownVersion, Long maxNeededVersion) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> TagDBStore.getServiceTagsDelta(lastKnownVersion=" + lastKnownVersion + ")");
 		}
@@ -1186,7 +1189,21 @@ private ServiceTags getServiceTagsDelta(Long serviceId, String serviceName, Long
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "TagDBStore.getServiceTagsDelta(serviceName=" + serviceName + ", lastKnownVersion=" + lastKnownVersion + ")");
 			}
 
-			List<XXTagChangeLog> changeLogRecords = daoManager.getXXTagChangeLog().findLaterThan(lastKnownVersion, serviceId);
+			// Reading each change-log record costs about as much as reading a tagged resource; skip deltas when the full snapshot is cheaper
+			List<XXTagChangeLog> changeLogRecords = null;
+
+			if (changeLogManager.isTagDeltasRetained(serviceId, lastKnownVersion)) {
+				long changeLogCount = changeLogManager.getTagChangeLogCount(serviceId, lastKnownVersion, maxNeededVersion == null ? Long.MAX_VALUE : maxNeededVersion);
+				long resourceCount  = changeLogManager.getTaggedResourceCount(serviceId, maxNeededVersion, () -> daoManager.getXXServiceResource().countTaggedResourcesInServiceId(serviceId));
+
+				if (changeLogManager.isDeltasCheaper(changeLogCount, resourceCount)) {
+					changeLogRecords = daoManager.getXXTagChangeLog().findLaterThan(lastKnownVersion, serviceId);
+				} else {
+					LOG.info("Not reading " + changeLogCount + " tag-deltas for serviceId=" + serviceId + ", lastKnownVersion=" + lastKnownVersion + ": full snapshot of " + resourceCount + " tagged resources is cheaper");
+				}
+			} else {
+				LOG.info("Tag-deltas for serviceId=" + serviceId + ", lastKnownVersion=" + lastKnownVersion + " were purged. Full snapshot is needed");
+			}
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Number of tag-change-log records found since " + lastKnownVersion + " :[" + (changeLogRecords == null ? 0 : changeLogRecords.size()) + "] for serviceId:[" + serviceId + "]");
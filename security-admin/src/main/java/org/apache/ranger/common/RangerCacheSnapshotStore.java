@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.plugin.util.RangerSnapshotUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the latest ServicePolicies, ServiceTags, RangerRoles and RangerUserStore served by Ranger Admin caches as
+ * binary snapshots (see RangerSnapshotUtil) in a local directory, so that the caches can be filled from disk after a
+ * restart instead of from the database. A snapshot is only used after the cache finds its version to be the same as
+ * the one in the database (x_service_version_info, x_ranger_global_state); otherwise the cache loads from the database,
+ * as it would without a snapshot - starting with the deltas after the snapshot's version, when deltas are enabled.
+ *
+ * Snapshots are enabled with ranger.admin.cache.snapshot.enabled=true and ranger.admin.cache.snapshot.dir set to a local
+ * directory. Per-service snapshots are named after the service name and id, so a service recreated with the same name
+ * never gets the snapshot of the deleted one.
+ *
+ * Snapshots are written by a background thread, so that caches don't write them while holding their lock: save() only
+ * records the object to write. When saves come faster than they are written, only the latest object saved for a
+ * snapshot is written. Objects given to save() must not be updated afterwards.
+ */
+public class RangerCacheSnapshotStore {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerCacheSnapshotStore.class);
+
+	public static final String TYPE_POLICIES  = "policies";
+	public static final String TYPE_TAGS      = "tags";
+	public static final String TYPE_ROLES     = "roles";
+	public static final String TYPE_USERSTORE = "userstore";
+
+	private static final String FILE_SUFFIX = ".snapshot";
+
+	private static volatile RangerCacheSnapshotStore sInstance = null;
+
+	private final File                          snapshotDir; // null when snapshots are disabled
+	private final ExecutorService               writer;      // null when snapshots are disabled
+	private final ConcurrentMap<String, Object> pendingSaves = new ConcurrentHashMap<>(); // file name => latest object to save
+
+	public static RangerCacheSnapshotStore getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerCacheSnapshotStore.class) {
+				if (sInstance == null) {
+					sInstance = new RangerCacheSnapshotStore();
+				}
+			}
+		}
+		return sInstance;
+	}
+
+	private RangerCacheSnapshotStore() {
+		RangerAdminConfig config  = RangerAdminConfig.getInstance();
+		boolean           enabled = config.getBoolean("ranger.admin.cache.snapshot.enabled", false);
+		String            dirName = config.get("ranger.admin.cache.snapshot.dir");
+
+		if (enabled && StringUtils.isBlank(dirName)) {
+			LOG.warn("ranger.admin.cache.snapshot.enabled=true, but ranger.admin.cache.snapshot.dir is not set. Cache snapshots will not be saved");
+		}
+
+		this.snapshotDir = enabled && StringUtils.isNotBlank(dirName) ? initDir(new File(dirName)) : null;
+		this.writer      = createWriter(snapshotDir);
+
+		LOG.info("RangerCacheSnapshotStore: snapshotDir=" + snapshotDir);
+	}
+
+	RangerCacheSnapshotStore(File snapshotDir) {
+		this.snapshotDir = initDir(snapshotDir);
+		this.writer      = createWriter(this.snapshotDir);
+	}
+
+	public boolean isEnabled() {
+		return snapshotDir != null;
+	}
+
+	/*
+	 * Returns the saved snapshot of given type/name/id, or null if there is none or it can't be read
+	 */
+	public <T> T load(String type, String name, Long id, Class<T> clz) {
+		T ret = null;
+
+		if (snapshotDir != null) {
+			File file = new File(snapshotDir, getFileName(type, name, id));
+
+			if (file.isFile()) {
+				long startTimeMs = System.currentTimeMillis();
+
+				try {
+					ret = RangerSnapshotUtil.readSnapshot(file, clz);
+
+					LOG.info("RangerCacheSnapshotStore.load(): loaded " + file.getName() + " in " + (System.currentTimeMillis() - startTimeMs) + "ms");
+				} catch (Exception excp) {
+					LOG.warn("RangerCacheSnapshotStore.load(): failed to read " + file.getAbsolutePath() + ". Deleting it", excp);
+
+					deleteFile(file);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Saves the given object as the snapshot of given type/name/id, replacing the earlier one, in the background. Failures are logged, not thrown
+	 */
+	public void save(String type, String name, Long id, Object object) {
+		if (snapshotDir != null && object != null) {
+			final String fileName = getFileName(type, name, id);
+
+			// a write is already queued for this file if there was an object pending: it will write this one instead
+			if (pendingSaves.put(fileName, object) == null) {
+				writer.execute(() -> writePending(fileName));
+			}
+		}
+	}
+
+	/*
+	 * Waits for the snapshots saved so far to be written
+	 */
+	void waitForPendingSaves() throws InterruptedException, ExecutionException {
+		if (writer != null) {
+			writer.submit(() -> { }).get();
+		}
+	}
+
+	// runs on the writer thread; delete() holds the same lock, so that a snapshot it deleted is not written afterwards
+	private synchronized void writePending(String fileName) {
+		Object object = pendingSaves.remove(fileName);
+
+		if (object != null) {
+			File file    = new File(snapshotDir, fileName);
+			File tmpFile = null;
+
+			try {
+				tmpFile = File.createTempFile(file.getName(), ".tmp", snapshotDir);
+
+				RangerSnapshotUtil.writeSnapshot(object, tmpFile);
+
+				// readers that have the earlier snapshot open continue to read it
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+				tmpFile = null;
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerCacheSnapshotStore.save(): saved " + file.getName());
+				}
+			} catch (Exception excp) {
+				LOG.warn("RangerCacheSnapshotStore.save(): failed to save " + file.getAbsolutePath(), excp);
+			} finally {
+				if (tmpFile != null) {
+					deleteFile(tmpFile);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Deletes snapshots of the given type for the given name, for all ids. When name is blank, deletes all snapshots of the type
+	 */
+	public synchronized void delete(String type, String name) {
+		if (snapshotDir != null) {
+			final Pattern pattern = Pattern.compile(Pattern.quote(type) + (StringUtils.isBlank(name) ? "(_.*)?" : ("_" + Pattern.quote(toFileNamePart(name.trim())) + "(_[0-9]+)?")) + Pattern.quote(FILE_SUFFIX));
+
+			pendingSaves.keySet().removeIf(fileName -> pattern.matcher(fileName).matches());
+
+			final File[]  files   = snapshotDir.listFiles((dir, fileName) -> pattern.matcher(fileName).matches());
+
+			if (files != null) {
+				for (File file : files) {
+					LOG.info("RangerCacheSnapshotStore.delete(type=" + type + ", name=" + name + "): deleting " + file.getName());
+
+					deleteFile(file);
+				}
+			}
+		}
+	}
+
+	static String getFileName(String type, String name, Long id) {
+		StringBuilder sb = new StringBuilder(type);
+
+		if (name != null) {
+			sb.append('_').append(toFileNamePart(name));
+		}
+
+		if (id != null) {
+			sb.append('_').append(id);
+		}
+
+		return sb.append(FILE_SUFFIX).toString();
+	}
+
+	private static String toFileNamePart(String name) {
+		return name.replaceAll("[^A-Za-z0-9.\\-]", "_");
+	}
+
+	private static ExecutorService createWriter(File snapshotDir) {
+		return snapshotDir != null ? Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cache-snapshot-writer-%d").build()) : null;
+	}
+
+	private static File initDir(File dir) {
+		File ret = dir;
+
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			LOG.error("RangerCacheSnapshotStore: failed to create directory " + dir.getAbsolutePath() + ". Cache snapshots will not be saved");
+
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	private static void deleteFile(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException excp) {
+			LOG.warn("RangerCacheSnapshotStore: failed to delete " + file.getAbsolutePath(), excp);
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the JSON bodies of policy, tag, role and user-store download responses, so that a version downloaded by
+ * many plugins is serialized - and compressed - once instead of once per download.
+ *
+ * The download REST APIs mark a response as cacheable with setResponseKey(); RangerDownloadResponseFilter then writes
+ * the body from this cache. A key is the type and name (e.g. the service) of the download, its version and a variant
+ * for everything else the body depends on - full or deltas from a given version, etc. Only the latest version of each
+ * type and name is kept; bodies for older versions, requested while a newer one is cached, are not kept.
+ */
+public class RangerDownloadResponseCache {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerDownloadResponseCache.class);
+
+	public static final String TYPE_POLICIES  = "policies";
+	public static final String TYPE_TAGS      = "tags";
+	public static final String TYPE_ROLES     = "roles";
+	public static final String TYPE_USERSTORE = "userstore";
+
+	public static final String ATTR_RESPONSE_KEY = "ranger.admin.download.response.key";
+
+	private static final int DEFAULT_MAX_VARIANTS = 16;
+
+	private static volatile RangerDownloadResponseCache sInstance = null;
+
+	private final boolean                         enabled;
+	private final int                             maxVariants;
+	private final Map<String, VersionedResponses> responses = new ConcurrentHashMap<>();
+
+	public static RangerDownloadResponseCache getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerDownloadResponseCache.class) {
+				if (sInstance == null) {
+					RangerAdminConfig config = RangerAdminConfig.getInstance();
+
+					sInstance = new RangerDownloadResponseCache(config.getBoolean("ranger.admin.download.response.cache.enabled", true),
+					                                            config.getInt("ranger.admin.download.response.cache.max.variants", DEFAULT_MAX_VARIANTS));
+				}
+			}
+		}
+
+		return sInstance;
+	}
+
+	RangerDownloadResponseCache(boolean enabled, int maxVariants) {
+		this.enabled     = enabled;
+		this.maxVariants = Math.max(1, maxVariants);
+
+		LOG.info("RangerDownloadResponseCache: enabled=" + enabled + ", maxVariants=" + this.maxVariants);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Marks the given response entity, to be returned for the request, as cacheable with the given key
+	 */
+	public void setResponseKey(HttpServletRequest request, Object entity, String type, String name, Long version, String variant) {
+		if (enabled && request != null && entity != null && version != null) {
+			request.setAttribute(ATTR_RESPONSE_KEY, new ResponseKey(type, name, version, variant, entity));
+		}
+	}
+
+	/**
+	 * @return the cached body for the key; rendered from the entity if not cached yet
+	 */
+	public CachedResponse getResponse(ResponseKey key, Object entity) throws IOException {
+		String             typeAndName = key.type + ":" + key.name;
+		VersionedResponses current     = responses.get(typeAndName);
+
+		if (current == null || current.version < key.version) {
+			VersionedResponses latest = new VersionedResponses(key.version);
+
+			current = responses.merge(typeAndName, latest, (existing, added) -> existing.version < added.version ? added : existing);
+		}
+
+		if (current.version != key.version) { // a newer version is cached already
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerDownloadResponseCache.getResponse(" + key + "): cached version=" + current.version + ", not caching the response");
+			}
+
+			return CachedResponse.render(key, entity);
+		}
+
+		try {
+			return current.getResponse(key, entity);
+		} catch (UncheckedIOException excp) {
+			throw excp.getCause();
+		}
+	}
+
+	/**
+	 * Removes the cached responses of the given type and name; of all names, if name is blank.
+	 */
+	public void reset(String type, String name) {
+		if (StringUtils.isBlank(name)) {
+			responses.keySet().removeIf(typeAndName -> typeAndName.startsWith(type + ":"));
+		} else {
+			responses.remove(type + ":" + name.trim());
+		}
+	}
+
+	int size() {
+		int ret = 0;
+
+		for (VersionedResponses versionedResponses : responses.values()) {
+			ret += versionedResponses.variants.size();
+		}
+
+		return ret;
+	}
+
+	private class VersionedResponses {
+		final long                        version;
+		final Map<String, CachedResponse> variants = new ConcurrentHashMap<>();
+
+		VersionedResponses(long version) {
+			this.version = version;
+		}
+
+		CachedResponse getResponse(ResponseKey key, Object entity) {
+			CachedResponse ret = variants.get(key.variant);
+
+			if (ret == null) {
+				if (variants.size() >= maxVariants) { // e.g. deltas from many old versions
+					variants.clear();
+				}
+
+				ret = variants.computeIfAbsent(key.variant, variant -> {
+					try {
+						return CachedResponse.render(key, entity);
+					} catch (IOException excp) {
+						throw new UncheckedIOException(excp);
+					}
+				});
+			}
+
+			return ret;
+		}
+	}
+
+	public static class ResponseKey {
+		private final String type;
+		private final String name;
+		private final long   version;
+		private final String variant;
+		private final Object entity;
+
+		public ResponseKey(String type, String name, long version, String variant) {
+			this(type, name, version, variant, null);
+		}
+
+		ResponseKey(String type, String name, long version, String variant, Object entity) {
+			this.type    = type;
+			this.name    = name != null ? name : "";
+			this.version = version;
+			this.variant = variant != null ? variant : "";
+			this.entity  = entity;
+		}
+
+		/**
+		 * @return true if the key was set for this entity; false for an entity built from it, e.g. by another REST API
+		 */
+		public boolean isKeyOf(Object entity) {
+			return entity != null && entity == this.entity;
+		}
+
+		public String getETag() {
+			return "\"" + type + "-" + version + (variant.isEmpty() ? "" : ("-" + variant)) + "\"";
+		}
+
+		@Override
+		public String toString() {
+			return "ResponseKey={type=" + type + ", name=" + name + ", version=" + version + ", variant=" + variant + "}";
+		}
+	}
+
+	public static class CachedResponse {
+		private final byte[]    json;
+		private final String    eTag;
+		private volatile byte[] gzip;
+
+		CachedResponse(byte[] json, String eTag) {
+			this.json = json;
+			this.eTag = eTag;
+		}
+
+		static CachedResponse render(ResponseKey key, Object entity) throws IOException {
+			return new CachedResponse(JsonUtilsV2.getMapper().writeValueAsBytes(entity), key.getETag());
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		// compressed on first use: older plugins do not accept gzip
+		public byte[] getGzip() throws IOException {
+			byte[] ret = gzip;
+
+			if (ret == null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 8));
+
+				try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+					gzipOut.write(json);
+				}
+
+				gzip = ret = out.toByteArray();
+			}
+
+			return ret;
+		}
+	}
+}
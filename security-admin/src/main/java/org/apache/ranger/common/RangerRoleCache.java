@@ -21,15 +21,18 @@
 
 import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
 import org.apache.ranger.biz.RoleDBStore;
+import org.apache.ranger.biz.ServiceDBStore;
 import org.apache.ranger.plugin.model.RangerRole;
 
 import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerSingleFlight;
 import org.apache.ranger.plugin.util.SearchFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -41,11 +44,17 @@ public class RangerRoleCache {
 
 	private static volatile RangerRoleCache sInstance = null;
 
-	private final int           waitTimeInSeconds;
-	private final ReentrantLock lock = new ReentrantLock();
+	private final int                             waitTimeInSeconds;
+	private final ReentrantLock                   lock        = new ReentrantLock();
+	private final RangerSingleFlight.Metrics      loadMetrics = new RangerSingleFlight.Metrics();
+	private final RangerSingleFlight<RangerRoles> loader;
 
 	RangerRoleCacheWrapper roleCacheWrapper = null;
 
+	// latest roles loaded, reused while the global role version doesn't change. Not used when roles are versioned per service
+	private volatile RangerRoles latestRoles        = null;
+	private          boolean     isSnapshotLoadDone = false;
+
 	public static RangerRoleCache getInstance() {
 		if (sInstance == null) {
 			synchronized (RangerRoleCache.class) {
@@ -61,21 +70,41 @@ private RangerRoleCache() {
 		RangerAdminConfig config = RangerAdminConfig.getInstance();
 
 		waitTimeInSeconds = config.getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		loader            = new RangerSingleFlight<>(loadMetrics, TimeUnit.SECONDS.toMillis(waitTimeInSeconds), config.getBoolean("ranger.admin.role.download.cache.serve.stale", false));
+	}
+
+	public RangerSingleFlight.Metrics getLoadMetrics() {
+		return loadMetrics;
 	}
 
 	public RangerRoles getLatestRangerRoleOrCached(String serviceName, RoleDBStore roleDBStore, Long lastKnownRoleVersion, Long rangerRoleVersionInDB) throws Exception {
-		final RangerRoles ret;
+		RangerRoles ret = null;
 
 		if (lastKnownRoleVersion == null || !lastKnownRoleVersion.equals(rangerRoleVersionInDB)) {
-			roleCacheWrapper = new RangerRoleCacheWrapper();
-			ret              = roleCacheWrapper.getLatestRangerRoles(serviceName, roleDBStore, lastKnownRoleVersion, rangerRoleVersionInDB);
-		} else {
-			ret = null;
+			ret = loader.load(() -> loadRoles(serviceName, roleDBStore, lastKnownRoleVersion, rangerRoleVersionInDB), latestRoles != null);
+
+			if (ret != null && !Objects.equals(rangerRoleVersionInDB, ret.getRoleVersion())) { // loaded by a concurrent caller for another version, like for another service
+				ret = loadRoles(serviceName, roleDBStore, lastKnownRoleVersion, rangerRoleVersionInDB);
+			} else if (ret == null) { // load in progress by a concurrent caller
+				RangerRoles staleRoles = latestRoles;
+
+				if (staleRoles != null && !Objects.equals(staleRoles.getRoleVersion(), lastKnownRoleVersion)) {
+					ret = staleRoles;
+				}
+			}
 		}
 
 		return ret;
 	}
 
+	private RangerRoles loadRoles(String serviceName, RoleDBStore roleDBStore, Long lastKnownRoleVersion, Long rangerRoleVersionInDB) throws Exception {
+		RangerRoleCacheWrapper wrapper = new RangerRoleCacheWrapper();
+
+		roleCacheWrapper = wrapper;
+
+		return wrapper.getLatestRangerRoles(serviceName, roleDBStore, lastKnownRoleVersion, rangerRoleVersionInDB);
+	}
+
 	private class RangerRoleCacheWrapper {
 		RangerRoles roles;
 		Long        rolesVersion;
@@ -105,6 +134,17 @@ public RangerRoles getLatestRangerRoles(String serviceName, RoleDBStore roleDBSt
 				lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
 
 				if (lockResult) {
+					ret = getLatestRoles(rolesVersionInDB);
+				}
+
+				if (ret != null) {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("RangerRoles version:[" + rolesVersionInDB + "] found in cache");
+					}
+
+					rolesVersion = rolesVersionInDB;
+					roles        = ret;
+				} else if (lockResult) {
 					// We are getting all the Roles to be downloaded for now. Should do downloades for each service based on what roles are there in the policies.
 					final long            startTimeMs  = System.currentTimeMillis();
 					SearchFilter          searchFilter = null;
@@ -124,6 +164,8 @@ public RangerRoles getLatestRangerRoles(String serviceName, RoleDBStore roleDBSt
 
 						rolesVersion = rolesVersionInDB;
 						roles = ret;
+
+						setLatestRoles(ret);
 					} else {
 						LOG.error("Could not get Ranger Roles from database ...");
 					}
@@ -148,5 +190,39 @@ public RangerRoles getLatestRangerRoles(String serviceName, RoleDBStore roleDBSt
 			return ret;
 		}
 	}
+
+	// called with the lock held
+	private RangerRoles getLatestRoles(Long rolesVersionInDB) {
+		RangerRoles ret = null;
+
+		if (!ServiceDBStore.isSupportsRolesDownloadByService()) {
+			if (latestRoles == null && !isSnapshotLoadDone) {
+				RangerRoles snapshot = RangerCacheSnapshotStore.getInstance().load(RangerCacheSnapshotStore.TYPE_ROLES, null, null, RangerRoles.class);
+
+				isSnapshotLoadDone = true;
+
+				if (snapshot != null && snapshot.getRoleVersion() != null) {
+					LOG.info("RangerRoles cache initialized from snapshot, version:[" + snapshot.getRoleVersion() + "]");
+
+					latestRoles = snapshot;
+				}
+			}
+
+			if (latestRoles != null && Objects.equals(latestRoles.getRoleVersion(), rolesVersionInDB)) {
+				ret = latestRoles;
+			}
+		}
+
+		return ret;
+	}
+
+	// called with the lock held
+	private void setLatestRoles(RangerRoles roles) {
+		if (!ServiceDBStore.isSupportsRolesDownloadByService()) {
+			latestRoles = roles;
+
+			RangerCacheSnapshotStore.getInstance().save(RangerCacheSnapshotStore.TYPE_ROLES, null, null, roles);
+		}
+	}
 }
 
@@ -27,6 +27,7 @@
 import org.apache.ranger.plugin.store.ServiceStore;
 
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
+import org.apache.ranger.plugin.util.RangerSingleFlight;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,7 +56,9 @@ public class RangerServicePoliciesCache {
 
 	private final int     waitTimeInSeconds;
 	private final boolean dedupStrings;
+	private final boolean serveStale;
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<>();
+	private final RangerSingleFlight.Metrics          loadMetrics        = new RangerSingleFlight.Metrics();
 
 	public static RangerServicePoliciesCache getInstance() {
 		if (sInstance == null) {
@@ -73,6 +76,11 @@ private RangerServicePoliciesCache() {
 
 		waitTimeInSeconds = config.getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
 		dedupStrings      = config.getBoolean("ranger.admin.policy.dedup.strings", Boolean.TRUE);
+		serveStale        = config.getBoolean("ranger.admin.policy.download.cache.serve.stale", false);
+	}
+
+	public RangerSingleFlight.Metrics getLoadMetrics() {
+		return loadMetrics;
 	}
 
 	public void dump() {
@@ -157,6 +165,9 @@ public boolean resetCache(final String serviceName) {
             LOG.debug("==> RangerServicePoliciesCache.resetCache({})", serviceName);
         }
 
+        RangerDownloadResponseCache.getInstance().reset(RangerDownloadResponseCache.TYPE_POLICIES, serviceName);
+        RangerCacheSnapshotStore.getInstance().delete(RangerCacheSnapshotStore.TYPE_POLICIES, serviceName);
+
         boolean ret = false;
         synchronized (this) {
             if (!servicePoliciesMap.isEmpty()) {
@@ -290,6 +301,7 @@ private class ServicePoliciesWrapper {
 		Date                updateTime            = null;
 		long                longestDbLoadTimeInMs = -1;
 		final ReentrantLock lock = new ReentrantLock();
+		final RangerSingleFlight<Boolean> loader = new RangerSingleFlight<>(loadMetrics, TimeUnit.SECONDS.toMillis(waitTimeInSeconds), serveStale);
 
 		ServicePolicyDeltasCache deltaCache;
 
@@ -330,13 +342,12 @@ ServicePolicies getLatestOrCached(String serviceName, ServiceStore serviceStore,
 			boolean         doSaveToCache = false;
 
 			try {
-				final boolean isCacheReloadedByDQEvent;
+				// only one of the concurrent callers reads the database; others wait for it, or use the cached version
+				final Boolean isCacheReloadedByDQEvent = loader.load(() -> getLatestWithLock(serviceName, serviceStore, lastKnownVersion), this.servicePolicies != null);
 
-				lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
+				lockResult = isCacheReloadedByDQEvent != null && lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
 
 				if (lockResult) {
-					isCacheReloadedByDQEvent = getLatest(serviceName, serviceStore, lastKnownVersion);
-
 					if (this.servicePolicies != null) {
 						if (isCacheReloadedByDQEvent) {
 							if (LOG.isDebugEnabled()) {
@@ -380,6 +391,11 @@ ServicePolicies getLatestOrCached(String serviceName, ServiceStore serviceStore,
 					} else {
 						LOG.error("ServicePolicies object is null!");
 					}
+				} else if (isCacheReloadedByDQEvent == null) {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Load of service [" + serviceName + "] in progress, returning cached ServicePolicies version:[" + (servicePolicies != null ? servicePolicies.getPolicyVersion() : -1L) + "]");
+					}
+					ret = this.servicePolicies;
 				} else {
 					LOG.error("Could not get lock in [" + waitTimeInSeconds + "] seconds, returning cached ServicePolicies and wait Queue Length:[" +lock.getQueueLength() + "], servicePolicies version:[" + (servicePolicies != null ? servicePolicies.getPolicyVersion() : -1L) + "]");
 					ret = this.servicePolicies;
@@ -406,11 +422,29 @@ ServicePolicies getLatestOrCached(String serviceName, ServiceStore serviceStore,
 			return ret;
 		}
 
+		Boolean getLatestWithLock(String serviceName, ServiceStore serviceStore, Long lastKnownVersion) throws Exception {
+			if (!lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS)) {
+				LOG.error("Could not get lock in [" + waitTimeInSeconds + "] seconds to load policies of service [" + serviceName + "]");
+
+				return null;
+			}
+
+			try {
+				return getLatest(serviceName, serviceStore, lastKnownVersion);
+			} finally {
+				lock.unlock();
+			}
+		}
+
 		boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownVersion) throws Exception {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> ServicePoliciesWrapper.getLatest(serviceName=" + serviceName + ", lastKnownVersion=" + lastKnownVersion + ")");
 			}
 
+			if (servicePolicies == null) {
+				loadFromSnapshot(serviceName);
+			}
+
 			final Long servicePolicyVersionInDb     = serviceStore.getServicePolicyVersion(serviceName);
 			final Long cachedServicePoliciesVersion = servicePolicies != null ? servicePolicies.getPolicyVersion() : -1L;
 
@@ -468,6 +502,9 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 							LOG.debug("Retrieved policy-deltas from database. These will be applied on top of ServicePolicy version:[" + cachedServicePoliciesVersion +"], policy-deltas:[" + servicePoliciesFromDb.getPolicyDeltas() + "]");
 						}
 
+						// deltas are applied to a copy: the earlier version may still be read outside the lock, like by the snapshot writer
+						servicePolicies = copyOf(servicePolicies);
+
 						final List<RangerPolicy> policies = servicePolicies.getPolicies() == null ? new ArrayList<>() : servicePolicies.getPolicies();
 						final List<RangerPolicy> newPolicies = RangerPolicyDeltaUtil.applyDeltas(policies, servicePoliciesFromDb.getPolicyDeltas(), servicePolicies.getServiceDef().getName());
 
@@ -498,6 +535,8 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 						}
 					}
 					this.deltaCache = null;
+
+					RangerCacheSnapshotStore.getInstance().save(RangerCacheSnapshotStore.TYPE_POLICIES, serviceName, serviceId, servicePolicies);
 				} else {
 					LOG.error("Could not get policies from database, from-version:[" + cachedServicePoliciesVersion + ")");
 				}
@@ -520,6 +559,51 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 			return isCacheReloadedByDQEvent;
 		}
 
+		// the snapshot is used only if its version is the same as in the database - checked by the caller
+		private void loadFromSnapshot(String serviceName) {
+			ServicePolicies snapshot = RangerCacheSnapshotStore.getInstance().load(RangerCacheSnapshotStore.TYPE_POLICIES, serviceName, serviceId, ServicePolicies.class);
+
+			if (snapshot != null && serviceId.equals(snapshot.getServiceId()) && serviceName.equals(snapshot.getServiceName()) && snapshot.getPolicyVersion() != null) {
+				LOG.info("ServicePolicies cache for service [" + serviceName + "] initialized from snapshot, version:[" + snapshot.getPolicyVersion() + "]");
+
+				servicePolicies = snapshot;
+			}
+		}
+
+		// copies the fields, not the policies: applying deltas replaces the policy lists and policies, never updates them
+		private ServicePolicies copyOf(ServicePolicies source) {
+			ServicePolicies ret = new ServicePolicies();
+
+			ret.setServiceName(source.getServiceName());
+			ret.setServiceId(source.getServiceId());
+			ret.setPolicyVersion(source.getPolicyVersion());
+			ret.setPolicyUpdateTime(source.getPolicyUpdateTime());
+			ret.setServiceConfig(source.getServiceConfig());
+			ret.setPolicies(source.getPolicies());
+			ret.setServiceDef(source.getServiceDef());
+			ret.setAuditMode(source.getAuditMode());
+			ret.setSecurityZones(source.getSecurityZones());
+			ret.setPolicyDeltas(source.getPolicyDeltas());
+
+			if (source.getTagPolicies() != null) {
+				ServicePolicies.TagPolicies sourceTagPolicies = source.getTagPolicies();
+				ServicePolicies.TagPolicies tagPolicies       = new ServicePolicies.TagPolicies();
+
+				tagPolicies.setServiceName(sourceTagPolicies.getServiceName());
+				tagPolicies.setServiceId(sourceTagPolicies.getServiceId());
+				tagPolicies.setPolicyVersion(sourceTagPolicies.getPolicyVersion());
+				tagPolicies.setPolicyUpdateTime(sourceTagPolicies.getPolicyUpdateTime());
+				tagPolicies.setPolicies(sourceTagPolicies.getPolicies());
+				tagPolicies.setServiceDef(sourceTagPolicies.getServiceDef());
+				tagPolicies.setAuditMode(sourceTagPolicies.getAuditMode());
+				tagPolicies.setServiceConfig(sourceTagPolicies.getServiceConfig());
+
+				ret.setTagPolicies(tagPolicies);
+			}
+
+			return ret;
+		}
+
 		private void checkCacheSanity(String serviceName, ServiceStore serviceStore, boolean isTagService) {
 			final boolean result;
 			Long dbPolicyVersion = serviceStore.getServicePolicyVersion(serviceName);
@@ -26,6 +26,7 @@
 import org.apache.ranger.plugin.store.TagStore;
 
 import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
+import org.apache.ranger.plugin.util.RangerSingleFlight;
 import org.apache.ranger.plugin.util.ServiceTags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,8 +48,10 @@ public class RangerServiceTagsCache {
 	private final boolean useServiceTagsCache;
 	private final int     waitTimeInSeconds;
 	private final boolean dedupStrings;
+	private final boolean serveStale;
 
 	private final Map<String, ServiceTagsWrapper> serviceTagsMap = new HashMap<>();
+	private final RangerSingleFlight.Metrics      loadMetrics    = new RangerSingleFlight.Metrics();
 
 	public static RangerServiceTagsCache getInstance() {
 		if (sInstance == null) {
@@ -67,6 +70,11 @@ private RangerServiceTagsCache() {
 		useServiceTagsCache = config.getBoolean("ranger.admin.tag.download.usecache", true);
 		waitTimeInSeconds   = config.getInt("ranger.admin.tag.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
 		dedupStrings        = config.getBoolean("ranger.admin.tag.dedup.strings", Boolean.TRUE);
+		serveStale          = config.getBoolean("ranger.admin.tag.download.cache.serve.stale", false);
+	}
+
+	public RangerSingleFlight.Metrics getLoadMetrics() {
+		return loadMetrics;
 	}
 
 	public void dump() {
@@ -172,6 +180,9 @@ public boolean resetCache(final String serviceName) {
             LOG.debug("==> RangerServiceTagsCache.resetCache({})", serviceName);
         }
 
+        RangerDownloadResponseCache.getInstance().reset(RangerDownloadResponseCache.TYPE_TAGS, serviceName);
+        RangerCacheSnapshotStore.getInstance().delete(RangerCacheSnapshotStore.TYPE_TAGS, serviceName);
+
         boolean ret = false;
         synchronized (this) {
             if (!serviceTagsMap.isEmpty()) {
@@ -226,6 +237,7 @@ ServiceTags getServiceTagsDeltaFromVersion(long fromVersion) {
 			}
 		}
 		ReentrantLock lock = new ReentrantLock();
+		final RangerSingleFlight<Boolean> loader = new RangerSingleFlight<>(loadMetrics, TimeUnit.SECONDS.toMillis(waitTimeInSeconds), serveStale);
 
 		ServiceTagsWrapper(Long serviceId) {
 			this.serviceId = serviceId;
@@ -250,13 +262,12 @@ ServiceTags getLatestOrCached(String serviceName, TagStore tagStore, Long lastKn
 			boolean		lockResult = false;
 
 			try {
-				final boolean isCacheCompletelyLoaded;
+				// concurrent callers share one load from the database
+				final Boolean isCacheCompletelyLoaded = loader.load(() -> getLatestWithLock(serviceName, tagStore), this.serviceTags != null);
 
-				lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
+				lockResult = isCacheCompletelyLoaded != null && lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
 				if (lockResult) {
 
-					isCacheCompletelyLoaded = getLatest(serviceName, tagStore);
-
 					if (isCacheCompletelyLoaded) {
 						if (LOG.isDebugEnabled()) {
 							LOG.debug("ServiceTags cache was completely loaded from database ");
@@ -294,7 +305,7 @@ ServiceTags getLatestOrCached(String serviceName, TagStore tagStore, Long lastKn
 					}
 				} else {
 					if (LOG.isDebugEnabled()) {
-						LOG.debug("Could not get lock in [" + waitTimeInSeconds + "] seconds, returning cached ServiceTags");
+						LOG.debug("Could not get lock in [" + waitTimeInSeconds + "] seconds, or load in progress: returning cached ServiceTags");
 					}
 					ret = this.serviceTags;
 				}
@@ -312,6 +323,18 @@ ServiceTags getLatestOrCached(String serviceName, TagStore tagStore, Long lastKn
 			return ret;
 		}
 
+		Boolean getLatestWithLock(String serviceName, TagStore tagStore) throws Exception {
+			if (!lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS)) {
+				return null;
+			}
+
+			try {
+				return getLatest(serviceName, tagStore);
+			} finally {
+				lock.unlock();
+			}
+		}
+
 		boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> ServiceTagsWrapper.getLatest(" + serviceName + ")");
@@ -319,6 +342,10 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 
 			boolean isCacheCompletelyLoaded = false;
 
+			if (serviceTags == null) {
+				loadFromSnapshot(serviceName);
+			}
+
 			final Long cachedServiceTagsVersion = serviceTags != null ? serviceTags.getTagVersion() : -1L;
 
 			if (LOG.isDebugEnabled()) {
@@ -381,6 +408,8 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 						this.serviceTags = RangerServiceTagsDeltaUtil.applyDelta(serviceTags, serviceTagsFromDb, supportsTagsDedeup);
 						this.deltaCache  = new ServiceTagsDeltasCache(cachedServiceTagsVersion, serviceTagsFromDb);
 					}
+
+					RangerCacheSnapshotStore.getInstance().save(RangerCacheSnapshotStore.TYPE_TAGS, serviceName, serviceId, serviceTags);
 				} else {
 					LOG.error("Could not get tags from database, from-version:[" + cachedServiceTagsVersion + ")");
 				}
@@ -400,6 +429,17 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 			return isCacheCompletelyLoaded;
 		}
 
+		// getLatest() reloads from the database when the snapshot's tag version is not the latest
+		private void loadFromSnapshot(String serviceName) {
+			ServiceTags snapshot = RangerCacheSnapshotStore.getInstance().load(RangerCacheSnapshotStore.TYPE_TAGS, serviceName, serviceId, ServiceTags.class);
+
+			if (snapshot != null && serviceName.equals(snapshot.getServiceName()) && snapshot.getTagVersion() != null) {
+				LOG.info("ServiceTags cache for service [" + serviceName + "] initialized from snapshot, version:[" + snapshot.getTagVersion() + "]");
+
+				serviceTags = snapshot;
+			}
+		}
+
 		private void pruneUnusedAttributes() {
 			RangerServiceTagsDeltaUtil.pruneUnusedAttributes(this.serviceTags);
 		}
@@ -23,6 +23,7 @@
 import org.apache.ranger.biz.XUserMgr;
 import org.apache.ranger.plugin.model.GroupInfo;
 import org.apache.ranger.plugin.model.UserInfo;
+import org.apache.ranger.plugin.util.RangerSingleFlight;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +42,11 @@ public class RangerUserStoreCache {
 	private final int             waitTimeInSeconds;
 	private final boolean         dedupStrings;
 	private final ReentrantLock   lock = new ReentrantLock();
-	private       RangerUserStore rangerUserStore;
+	private volatile RangerUserStore rangerUserStore;
+	private       boolean         isSnapshotLoadDone = false;
+
+	private final RangerSingleFlight.Metrics          loadMetrics = new RangerSingleFlight.Metrics();
+	private final RangerSingleFlight<RangerUserStore> loader;
 
 	public static RangerUserStoreCache getInstance() {
 		if (sInstance == null) {
@@ -60,6 +65,11 @@ private RangerUserStoreCache() {
 		this.waitTimeInSeconds = config.getInt("ranger.admin.userstore.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
 		this.dedupStrings      = config.getBoolean("ranger.admin.userstore.dedup.strings", Boolean.TRUE);
 		this.rangerUserStore   = new RangerUserStore();
+		this.loader            = new RangerSingleFlight<>(loadMetrics, TimeUnit.SECONDS.toMillis(waitTimeInSeconds), config.getBoolean("ranger.admin.userstore.download.cache.serve.stale", false));
+	}
+
+	public RangerSingleFlight.Metrics getLoadMetrics() {
+		return loadMetrics;
 	}
 
 	public RangerUserStore getRangerUserStore() {
@@ -71,6 +81,20 @@ public RangerUserStore getLatestRangerUserStoreOrCached(XUserMgr xUserMgr) throw
 			LOG.debug("==> RangerUserStoreCache.getLatestRangerUserStoreOrCached()");
 		}
 
+		RangerUserStore ret = loader.load(() -> refresh(xUserMgr), rangerUserStore.getUserStoreVersion() != null);
+
+		if (ret == null) { // refresh in progress by a concurrent caller
+			ret = rangerUserStore;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerUserStoreCache.getLatestRangerUserStoreOrCached(): ret=" + ret);
+		}
+
+		return ret;
+	}
+
+	private RangerUserStore refresh(XUserMgr xUserMgr) throws Exception {
 		RangerUserStore ret        = null;
 		boolean         lockResult = false;
 
@@ -78,6 +102,10 @@ public RangerUserStore getLatestRangerUserStoreOrCached(XUserMgr xUserMgr) throw
 			lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
 
 			if (lockResult) {
+				if (!isSnapshotLoadDone) {
+					loadFromSnapshot();
+				}
+
 				Long cachedUserStoreVersion = rangerUserStore.getUserStoreVersion();
 				Long dbUserStoreVersion     = xUserMgr.getUserStoreVersion();
 
@@ -103,6 +131,8 @@ public RangerUserStore getLatestRangerUserStoreOrCached(XUserMgr xUserMgr) throw
 
 					this.rangerUserStore = rangerUserStore;
 
+					RangerCacheSnapshotStore.getInstance().save(RangerCacheSnapshotStore.TYPE_USERSTORE, null, null, rangerUserStore);
+
 					LOG.info("RangerUserStoreCache refreshed from version " + cachedUserStoreVersion + " to " + dbUserStoreVersion + ": users=" + rangerUsersInDB.size() + ", groups=" + rangerGroupsInDB.size() + ", userGroupMappings=" + userGroups.size());
 				}
 			} else {
@@ -120,11 +150,20 @@ public RangerUserStore getLatestRangerUserStoreOrCached(XUserMgr xUserMgr) throw
 			}
 		}
 
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerUserStoreCache.getLatestRangerUserStoreOrCached(): ret=" + ret);
-		}
-
 		return ret;
 	}
+
+	// called with the lock held
+	private void loadFromSnapshot() {
+		RangerUserStore snapshot = RangerCacheSnapshotStore.getInstance().load(RangerCacheSnapshotStore.TYPE_USERSTORE, null, null, RangerUserStore.class);
+
+		isSnapshotLoadDone = true;
+
+		if (snapshot != null && snapshot.getUserStoreVersion() != null && rangerUserStore.getUserStoreVersion() == null) {
+			LOG.info("RangerUserStoreCache initialized from snapshot, version:[" + snapshot.getUserStoreVersion() + "]");
+
+			rangerUserStore = snapshot;
+		}
+	}
 }
 
@@ -101,6 +101,21 @@ public List<XXPolicy> findByServiceId(Long serviceId) {
 		}
 	}
 
+	public List<XXPolicy> findByServiceIdAfterId(Long serviceId, Long lastPolicyId, int maxResults) {
+		if (serviceId == null || lastPolicyId == null) {
+			return new ArrayList<XXPolicy>();
+		}
+		try {
+			return getEntityManager()
+					.createNamedQuery("XXPolicy.findByServiceIdAfterId", tClass)
+					.setParameter("serviceId", serviceId)
+					.setParameter("lastPolicyId", lastPolicyId)
+					.setMaxResults(maxResults).getResultList();
+		} catch (NoResultException e) {
+			return new ArrayList<XXPolicy>();
+		}
+	}
+
 	public List<Long> findPolicyIdsByServiceId(Long serviceId) {
 		List<Long> ret = new ArrayList<Long>();
 		try {
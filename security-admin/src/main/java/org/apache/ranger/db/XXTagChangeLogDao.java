@@ -19,8 +19,10 @@
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -88,7 +90,22 @@ public List<XXTagChangeLog> findLaterThan(Long version, Long serviceId) {
         return ret;
     }
 
-    public void deleteOlderThan(int olderThanInDays) {
+    public long getCountLaterThan(Long version, Long maxVersion, Long serviceId) {
+        long ret = 0L;
+
+        if (version != null) {
+            ret = getEntityManager()
+                    .createNamedQuery("XXTagChangeLog.countLaterThanVersion", Long.class)
+                    .setParameter("version", version)
+                    .setParameter("maxVersion", maxVersion)
+                    .setParameter("serviceId", serviceId)
+                    .getSingleResult();
+        }
+
+        return ret;
+    }
+
+    public long deleteOlderThan(int olderThanInDays) {
 
         Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(olderThanInDays));
 
@@ -96,7 +113,57 @@ public void deleteOlderThan(int olderThanInDays) {
             LOG.debug("Deleting records from x_tag_change_log that are older than " + olderThanInDays + " days, that is,  older than " + since);
         }
 
-        getEntityManager().createNamedQuery("XXTagChangeLog.deleteOlderThan").setParameter("olderThan", since).executeUpdate();
+        return getEntityManager().createNamedQuery("XXTagChangeLog.deleteOlderThan").setParameter("olderThan", since).executeUpdate();
+    }
+
+    /*
+     * Returns ids of the services having records older than the given number of days
+     */
+    public List<Long> getServiceIdsOlderThan(int olderThanInDays) {
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(olderThanInDays));
+
+        return getEntityManager().createNamedQuery("XXTagChangeLog.findServiceIdsOlderThan", Long.class).setParameter("olderThan", since).getResultList();
+    }
+
+    /*
+     * Returns the latest tags version in the change-log of the service
+     */
+    public Long getLatestVersion(Long serviceId) {
+        return getEntityManager().createNamedQuery("XXTagChangeLog.findLatestVersion", Long.class).setParameter("serviceId", serviceId).getSingleResult();
+    }
+
+    /*
+     * Deletes records of the service older than the given number of days, except of versions from exceptVersion on.
+     * Deleting the same records again deletes nothing, hence it is safe for Ranger Admin instances to purge concurrently
+     */
+    public long deleteOlderThan(Long serviceId, int olderThanInDays, Long exceptVersion) {
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(olderThanInDays));
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Deleting records of service " + serviceId + " from x_tag_change_log that are older than " + since + ", except of versions from " + exceptVersion);
+        }
+
+        return getEntityManager().createNamedQuery("XXTagChangeLog.deleteOlderThanByServiceId")
+                .setParameter("serviceId", serviceId)
+                .setParameter("olderThan", since)
+                .setParameter("exceptVersion", exceptVersion)
+                .executeUpdate();
+    }
+
+    /*
+     * Returns the oldest tags version in the change-log, by service id
+     */
+    public Map<Long, Long> getOldestVersions() {
+        List<Object[]>  rows = getEntityManager().createNamedQuery("XXTagChangeLog.findOldestVersions", Object[].class).getResultList();
+        Map<Long, Long> ret  = new HashMap<>();
+
+        for (Object[] row : rows) {
+            if (row.length == 2 && row[0] instanceof Long && row[1] instanceof Long) {
+                ret.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        return ret;
     }
 
     private List<XXTagChangeLog> convert(List<Object[]> queryResult) {
@@ -26,6 +26,8 @@
 
 import javax.annotation.PostConstruct;
 
+import org.apache.ranger.metrics.source.RangerAdminMetricsSourceCacheLoad;
+import org.apache.ranger.metrics.source.RangerAdminMetricsSourceChangeLog;
 import org.apache.ranger.metrics.source.RangerAdminMetricsSourceContextEnricher;
 import org.apache.ranger.metrics.source.RangerAdminMetricsSourceDenyConditions;
 import org.apache.ranger.metrics.source.RangerAdminMetricsSourcePolicyMasking;
@@ -67,6 +69,12 @@ public class RangerAdminMetricsWrapper {
     @Autowired
     private RangerAdminMetricsSourceDenyConditions denyConditionSource;
 
+    @Autowired
+    private RangerAdminMetricsSourceCacheLoad cacheLoadSource;
+
+    @Autowired
+    private RangerAdminMetricsSourceChangeLog changeLogSource;
+
     @PostConstruct
     public void init() {
         LOG.info("===>> RangerAdminMetricsWrapper.init()");
@@ -91,6 +99,12 @@ public void init() {
             //Source: DenyConditionService
             sourceWrappers.add(new RangerMetricsSourceWrapper("RangerAdminMetricsSourceDenyConditionService", "Deny Condition in Ranger Admin", context, denyConditionSource));
 
+            //Source: CacheLoad
+            sourceWrappers.add(new RangerMetricsSourceWrapper("RangerAdminMetricsSourceCacheLoad", "Policy, tag, role, userstore and GDS cache load metrics in Ranger Admin", context, cacheLoadSource));
+
+            //Source: ChangeLog
+            sourceWrappers.add(new RangerMetricsSourceWrapper("RangerAdminMetricsSourceChangeLog", "Policy-delta vs snapshot choices and change-log purge metrics in Ranger Admin", context, changeLogSource));
+
             rangerMetricsSystemWrapper.init(context, sourceWrappers, Collections.emptyList());
         } catch (Exception e) {
             LOG.error("RangerAdminMetricsWrapper: Exception occured while initializing Metric Starter:", e);
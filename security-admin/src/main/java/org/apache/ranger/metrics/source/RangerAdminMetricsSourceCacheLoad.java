@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.metrics.source;
+
+import org.apache.ranger.common.RangerRoleCache;
+import org.apache.ranger.common.RangerServicePoliciesCache;
+import org.apache.ranger.common.RangerServiceTagsCache;
+import org.apache.ranger.common.RangerUserStoreCache;
+import org.apache.ranger.common.ServiceGdsInfoCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads of the download caches, and the callers that waited for - or, with serve.stale, didn't wait for - a load in progress
+ */
+@Component
+public class RangerAdminMetricsSourceCacheLoad extends RangerAdminMetricsSourceBase {
+
+    @Autowired
+    private ServiceGdsInfoCache gdsInfoCache;
+
+    public RangerAdminMetricsSourceCacheLoad() {
+        super("admin", "CacheLoad");
+    }
+
+    @Override
+    protected void refresh() {
+        addMetricEntries("PolicyCache", RangerServicePoliciesCache.getInstance().getLoadMetrics().getMetrics());
+        addMetricEntries("TagCache", RangerServiceTagsCache.getInstance().getLoadMetrics().getMetrics());
+        addMetricEntries("RoleCache", RangerRoleCache.getInstance().getLoadMetrics().getMetrics());
+        addMetricEntries("UserStoreCache", RangerUserStoreCache.getInstance().getLoadMetrics().getMetrics());
+        addMetricEntries("GdsInfoCache", gdsInfoCache.getLoadMetrics().getMetrics());
+    }
+}
@@ -46,6 +46,7 @@
 import org.apache.ranger.biz.ServiceDBStore.JSON_FILE_NAME_TYPE;
 import org.apache.ranger.biz.XUserMgr;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.common.RangerValidatorFactory;
 import org.apache.ranger.common.ServiceUtil;
@@ -979,10 +980,11 @@ public RangerRoles getRangerRolesIfUpdated(
                     logMsg = "No change since last update";
                 } else {
                     downloadedVersion = roles.getRoleVersion();
-                    roles.setServiceName(serviceName);
-                    ret = roles;
+                    ret = getRolesForService(roles, serviceName);
                     httpCode = HttpServletResponse.SC_OK;
                     logMsg = "Returning RangerRoles =>" + (ret.toString());
+
+                    RangerDownloadResponseCache.getInstance().setResponseKey(request, ret, RangerDownloadResponseCache.TYPE_ROLES, serviceName, ret.getRoleVersion(), null);
                 }
 
             } catch (Throwable excp) {
@@ -1073,10 +1075,11 @@ public RangerRoles getSecureRangerRolesIfUpdated(
                         logMsg = "No change since last update";
                     } else {
                         downloadedVersion = roles.getRoleVersion();
-                        roles.setServiceName(serviceName);
-                        ret = roles;
+                        ret = getRolesForService(roles, serviceName);
                         httpCode = HttpServletResponse.SC_OK;
                         logMsg = "Returning RangerRoles =>" + (ret.toString());
+
+                        RangerDownloadResponseCache.getInstance().setResponseKey(request, ret, RangerDownloadResponseCache.TYPE_ROLES, serviceName, ret.getRoleVersion(), null);
                     }
                 } else {
                     LOG.error("getSecureRangerRolesIfUpdated(" + serviceName + ", " + lastKnownRoleVersion + ") failed as User doesn't have permission to UserGroupRoles");
@@ -1104,6 +1107,18 @@ public RangerRoles getSecureRangerRolesIfUpdated(
         return ret;
     }
 
+    // the cached RangerRoles are shared by all services: set the service name in a copy
+    private static RangerRoles getRolesForService(RangerRoles roles, String serviceName) {
+        RangerRoles ret = new RangerRoles();
+
+        ret.setServiceName(serviceName);
+        ret.setRoleVersion(roles.getRoleVersion());
+        ret.setRoleUpdateTime(roles.getRoleUpdateTime());
+        ret.setRangerRoles(roles.getRangerRoles());
+
+        return ret;
+    }
+
     private void ensureAdminAccess(String serviceName, String userName) throws Exception {
 
         /* If userName (execUser) is not same as logged in user then check
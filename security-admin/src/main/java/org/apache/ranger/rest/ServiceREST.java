@@ -24,6 +24,7 @@
 import java.security.SecureRandom;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.stream.IntStream;
 
 import javax.annotation.Nonnull;
@@ -58,6 +59,7 @@
 import org.apache.ranger.biz.RangerPolicyAdmin;
 import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.biz.RangerPolicyAdminCacheForEngineOptions;
+import org.apache.ranger.biz.RangerPolicyVersionWatcher;
 import org.apache.ranger.biz.RoleDBStore;
 import org.apache.ranger.biz.SecurityZoneDBStore;
 import org.apache.ranger.biz.ServiceDBStore;
@@ -72,6 +74,7 @@
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.common.RangerValidatorFactory;
 import org.apache.ranger.common.ServiceUtil;
@@ -133,13 +136,17 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.gson.JsonSyntaxException;
 import com.sun.jersey.core.header.FormDataContentDisposition;
@@ -243,6 +250,13 @@ public class ServiceREST {
 	@Autowired
 	RangerTransactionSynchronizationAdapter rangerTransactionSynchronizationAdapter;
 
+	@Autowired
+	RangerPolicyVersionWatcher policyVersionWatcher;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
 	private RangerPolicyEngineOptions delegateAdminOptions;
 	private RangerPolicyEngineOptions policySearchAdminOptions;
 	private RangerPolicyEngineOptions defaultAdminOptions;
@@ -3182,6 +3196,8 @@ public ServicePolicies getServicePoliciesIfUpdated(
 					downloadedVersion = ret.getPolicyVersion();
 					httpCode = HttpServletResponse.SC_OK;
 					logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : (ret.getPolicyDeltas() != null ? ret.getPolicyDeltas().size() : 0)) + " policies. Policy version=" + ret.getPolicyVersion();
+
+					setDownloadResponseKey(request, serviceName, ret, lastKnownVersion, supportsPolicyDeltas);
 				}
 			} catch (Throwable excp) {
 				LOG.error("getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed", excp);
@@ -3251,35 +3267,8 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(
 				if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getSecureServicePoliciesIfUpdated(serviceName=" + serviceName + ",lastKnownVersion=" + lastKnownVersion + ",lastActivationTime=" + lastActivationTime + ")");
 				}
-				XXService xService = daoManager.getXXService().findByName(serviceName);
-				XXServiceDef xServiceDef = daoManager.getXXServiceDef().getById(xService.getType());
-				RangerService rangerService = null;
+				isAllowed = isSecurePolicyDownloadAllowed(serviceName, isAdmin, isKeyAdmin);
 
-				if (StringUtils.equals(xServiceDef.getImplclassname(), EmbeddedServiceDefsUtil.KMS_IMPL_CLASS_NAME)) {
-					rangerService = svcStore.getServiceByNameForDP(serviceName);
-					if (isKeyAdmin) {
-						isAllowed = true;
-					} else {
-						if (rangerService != null) {
-							isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download);
-							if (!isAllowed) {
-								isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke);
-							}
-						}
-					}
-				} else {
-					rangerService = svcStore.getServiceByName(serviceName);
-					if (isAdmin) {
-						isAllowed = true;
-					} else {
-						if (rangerService != null) {
-							isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download);
-							if (!isAllowed) {
-								isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke);
-							}
-						}
-					}
-				}
 				if (isAllowed) {
 					ret  = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, !supportsPolicyDeltas);
 					if (ret == null) {
@@ -3291,6 +3280,8 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(
 
 						httpCode = HttpServletResponse.SC_OK;
 						logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : (ret.getPolicyDeltas() != null ? ret.getPolicyDeltas().size() : 0)) + " policies. Policy version=" + ret.getPolicyVersion();
+
+						setDownloadResponseKey(request, serviceName, ret, lastKnownVersion, supportsPolicyDeltas);
 					}
 
 				} else {
@@ -3319,6 +3310,158 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(
 		return ret;
 	}
 
+	private boolean isSecurePolicyDownloadAllowed(String serviceName, boolean isAdmin, boolean isKeyAdmin) throws Exception {
+		boolean isAllowed = false;
+		XXService xService = daoManager.getXXService().findByName(serviceName);
+		XXServiceDef xServiceDef = daoManager.getXXServiceDef().getById(xService.getType());
+		RangerService rangerService = null;
+
+		if (StringUtils.equals(xServiceDef.getImplclassname(), EmbeddedServiceDefsUtil.KMS_IMPL_CLASS_NAME)) {
+			rangerService = svcStore.getServiceByNameForDP(serviceName);
+			if (isKeyAdmin) {
+				isAllowed = true;
+			} else {
+				if (rangerService != null) {
+					isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download);
+					if (!isAllowed) {
+						isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke);
+					}
+				}
+			}
+		} else {
+			rangerService = svcStore.getServiceByName(serviceName);
+			if (isAdmin) {
+				isAllowed = true;
+			} else {
+				if (rangerService != null) {
+					isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download);
+					if (!isAllowed) {
+						isAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke);
+					}
+				}
+			}
+		}
+		return isAllowed;
+	}
+
+	/*
+	 * Long-poll variant of getServicePoliciesIfUpdated(): the request is held until the policy version of the service is
+	 * different from lastKnownVersion, or for waitTimeMs. The wait is outside of a transaction, so that waiting requests
+	 * don't hold database connections; the download then runs in a transaction, as in getServicePoliciesIfUpdated().
+	 */
+	@GET
+	@Path("/policies/download/wait/{serviceName}")
+	@Produces({ "application/json" })
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public ServicePolicies waitForServicePoliciesUpdate(
+			@PathParam("serviceName") String serviceName,
+			@DefaultValue("-1") @QueryParam("lastKnownVersion") Long lastKnownVersion,
+			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
+			@QueryParam("pluginId") String pluginId,
+			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("") @QueryParam("zoneName") String zoneName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
+			@DefaultValue("") @QueryParam("pluginCapabilities") String pluginCapabilities,
+			@DefaultValue("0") @QueryParam("waitTimeMs") Long waitTimeMs,
+			@Context HttpServletRequest request) throws Exception {
+		executeInTransaction(() -> checkPolicyDownloadAllowed(serviceName, false, request));
+
+		waitForPolicyVersionChange(serviceName, lastKnownVersion, waitTimeMs);
+
+		return executeInTransaction(() -> getServicePoliciesIfUpdated(serviceName, lastKnownVersion, lastActivationTime, pluginId, clusterName, zoneName, supportsPolicyDeltas, pluginCapabilities, request));
+	}
+
+	@GET
+	@Path("/secure/policies/download/wait/{serviceName}")
+	@Produces({ "application/json" })
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public ServicePolicies waitForSecureServicePoliciesUpdate(
+			@PathParam("serviceName") String serviceName,
+			@DefaultValue("-1") @QueryParam("lastKnownVersion") Long lastKnownVersion,
+			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
+			@QueryParam("pluginId") String pluginId,
+			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("") @QueryParam("zoneName") String zoneName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
+			@DefaultValue("") @QueryParam("pluginCapabilities") String pluginCapabilities,
+			@DefaultValue("0") @QueryParam("waitTimeMs") Long waitTimeMs,
+			@Context HttpServletRequest request) throws Exception {
+		executeInTransaction(() -> checkPolicyDownloadAllowed(serviceName, true, request));
+
+		waitForPolicyVersionChange(serviceName, lastKnownVersion, waitTimeMs);
+
+		return executeInTransaction(() -> getSecureServicePoliciesIfUpdated(serviceName, lastKnownVersion, lastActivationTime, pluginId, clusterName, zoneName, supportsPolicyDeltas, pluginCapabilities, request));
+	}
+
+	/*
+	 * Runs the authentication and authorization checks of the download before the request waits, so that a request the
+	 * download would reject doesn't hold a thread or a waiter permit
+	 */
+	private Void checkPolicyDownloadAllowed(String serviceName, boolean isSecure, HttpServletRequest request) throws Exception {
+		if (isSecure) {
+			request.setAttribute("downloadPolicy", "secure");
+
+			serviceUtil.isValidService(serviceName, request);
+
+			if (!isSecurePolicyDownloadAllowed(serviceName, bizUtil.isAdmin(), bizUtil.isKeyAdmin())) {
+				LOG.error("waitForSecureServicePoliciesUpdate(" + serviceName + ") failed as User doesn't have permission to download Policy");
+
+				throw restErrorUtil.createRESTException(HttpServletResponse.SC_FORBIDDEN, "User doesn't have permission to download policy", true);
+			}
+		} else {
+			try {
+				bizUtil.failUnauthenticatedDownloadIfNotAllowed();
+			} catch (Exception excp) {
+				throw restErrorUtil.createRESTException(HttpServletResponse.SC_UNAUTHORIZED, excp.getMessage(), true);
+			}
+
+			if (!serviceUtil.isValidateHttpsAuthentication(serviceName, request)) {
+				throw restErrorUtil.createRESTException(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized access", true);
+			}
+		}
+
+		return null;
+	}
+
+	private void waitForPolicyVersionChange(String serviceName, Long lastKnownVersion, Long waitTimeMs) {
+		if (waitTimeMs != null && waitTimeMs > 0) {
+			try {
+				policyVersionWatcher.waitForChange(serviceName, lastKnownVersion, waitTimeMs);
+			} catch (InterruptedException excp) {
+				LOG.warn("waitForPolicyVersionChange(" + serviceName + ", " + lastKnownVersion + ", " + waitTimeMs + "): interrupted", excp);
+
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private <T> T executeInTransaction(Callable<T> callable) throws Exception {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+		Exception[]         excp       = new Exception[1];
+
+		txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		T ret = txTemplate.execute(status -> {
+			try {
+				return callable.call();
+			} catch (RuntimeException e) { // like WebApplicationException thrown for 304
+				throw e;
+			} catch (Exception e) {
+				excp[0] = e;
+
+				status.setRollbackOnly();
+			}
+
+			return null;
+		});
+
+		if (excp[0] != null) {
+			throw excp[0];
+		}
+
+		return ret;
+	}
+
 	@DELETE
 	@Path("/server/policydeltas")
 	@PreAuthorize("hasRole('ROLE_SYS_ADMIN')")
@@ -3403,6 +3546,24 @@ private void createPolicyDownloadAudit(String serviceName, Long lastKnownVersion
 		}
 	}
 
+	// the body depends on the policy and tag-policy versions; on lastKnownVersion for deltas; and for all policies,
+	// on whether they are filtered for plugins that don't support deltas (see ServiceDBStore.getServicePoliciesIfUpdated())
+	private void setDownloadResponseKey(HttpServletRequest request, String serviceName, ServicePolicies policies, Long lastKnownVersion, Boolean supportsPolicyDeltas) {
+		final String variant;
+
+		if (policies.getPolicyDeltas() != null) {
+			variant = "delta-" + lastKnownVersion;
+		} else if (lastKnownVersion == null || lastKnownVersion == -1L || !Boolean.TRUE.equals(supportsPolicyDeltas)) {
+			variant = "full";
+		} else {
+			variant = "full-unfiltered";
+		}
+
+		String tagVersion = policies.getTagPolicies() != null ? ("-tags-" + policies.getTagPolicies().getPolicyVersion()) : "";
+
+		RangerDownloadResponseCache.getInstance().setResponseKey(request, policies, RangerDownloadResponseCache.TYPE_POLICIES, serviceName, policies.getPolicyVersion(), variant + tagVersion);
+	}
+
 	private RangerPolicy getExactMatchPolicyForResource(String serviceName, RangerAccessResource resource, String zoneName, String user) throws Exception {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getExactMatchPolicyForResource(" + resource + ", " + zoneName + ", " + user + ")");
@@ -28,6 +28,7 @@
 import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.db.RangerDaoManager;
 import org.apache.ranger.entity.XXService;
@@ -1410,6 +1411,8 @@ public ServiceTags getServiceTagsIfUpdated(@PathParam("serviceName") String serv
                 downloadedVersion = ret.getTagVersion();
                 httpCode = HttpServletResponse.SC_OK;
                 logMsg = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
+
+                setDownloadResponseKey(request, serviceName, ret, lastKnownVersion);
             }
         } catch (WebApplicationException webException) {
             httpCode = webException.getResponse().getStatus();
@@ -1501,6 +1504,8 @@ public ServiceTags getSecureServiceTagsIfUpdated(@PathParam("serviceName") Strin
                     downloadedVersion = ret.getTagVersion();
 					httpCode = HttpServletResponse.SC_OK;
 					logMsg   = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
+
+					setDownloadResponseKey(request, serviceName, ret, lastKnownVersion);
 				}
 			}else{
 				LOG.error("getSecureServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed as User doesn't have permission to download tags");
@@ -1546,4 +1551,10 @@ public void deleteTagDeltas(@DefaultValue("3") @QueryParam("days") Integer older
         }
     }
 
+    private void setDownloadResponseKey(HttpServletRequest request, String serviceName, ServiceTags tags, Long lastKnownVersion) {
+        String variant = tags.getIsDelta() ? ("delta-" + lastKnownVersion) : "full";
+
+        RangerDownloadResponseCache.getInstance().setResponseKey(request, tags, RangerDownloadResponseCache.TYPE_TAGS, serviceName, tags.getTagVersion(), variant);
+    }
+
 }
@@ -53,6 +53,7 @@
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.SearchCriteria;
 import org.apache.ranger.common.SearchUtil;
 import org.apache.ranger.common.StringUtil;
@@ -1472,6 +1473,8 @@ public RangerUserStore getRangerUserStoreIfUpdated(@PathParam("serviceName") Str
                         ret               = rangerUserStore;
                         httpCode          = HttpServletResponse.SC_OK;
                         logMsg            = "Returning RangerUserStore version " + downloadedVersion;
+
+                        RangerDownloadResponseCache.getInstance().setResponseKey(request, ret, RangerDownloadResponseCache.TYPE_USERSTORE, null, downloadedVersion, null);
                     }
                 }
             } catch (Throwable excp) {
@@ -1554,6 +1557,8 @@ public RangerUserStore getSecureRangerUserStoreIfUpdated(@PathParam("serviceName
 						ret = rangerUserStore;
 						httpCode = HttpServletResponse.SC_OK;
 						logMsg = "Returning RangerUserStore =>" + (ret.toString());
+
+						RangerDownloadResponseCache.getInstance().setResponseKey(request, ret, RangerDownloadResponseCache.TYPE_USERSTORE, null, downloadedVersion, null);
 					}
 				} else {
 					logger.error("getSecureRangerUserStoreIfUpdated(" + serviceName + ", " + lastKnownUserStoreVersion + ") failed as User doesn't have permission to download UsersAndGroups");
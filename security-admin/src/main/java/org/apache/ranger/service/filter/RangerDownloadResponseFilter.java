@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.common.RangerDownloadResponseCache;
+import org.apache.ranger.common.RangerDownloadResponseCache.CachedResponse;
+import org.apache.ranger.common.RangerDownloadResponseCache.ResponseKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * Writes the body of download responses marked cacheable by the REST APIs (see RangerDownloadResponseCache) from the
+ * cached JSON - gzip compressed, if the client accepts it - instead of serializing the returned object again. Adds an
+ * ETag to such responses, and returns 304 (not modified) when it matches the request's If-None-Match.
+ */
+public class RangerDownloadResponseFilter implements ContainerResponseFilter {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerDownloadResponseFilter.class);
+
+	private static final String CONTENT_ENCODING_GZIP = "gzip";
+
+	@Override
+	public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+		ResponseKey key = response.getStatus() == HttpServletResponse.SC_OK && response.getEntity() != null ? getResponseKey() : null;
+
+		if (key != null && key.isKeyOf(response.getEntity())) {
+			try {
+				CachedResponse                 cached  = RangerDownloadResponseCache.getInstance().getResponse(key, response.getEntity());
+				MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+
+				headers.putSingle(HttpHeaders.ETAG, cached.getETag());
+				headers.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+				if (StringUtils.contains(request.getHeaderValue(HttpHeaders.IF_NONE_MATCH), cached.getETag())) {
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					response.setEntity(null);
+				} else if (acceptsGzip(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING))) {
+					headers.putSingle(HttpHeaders.CONTENT_ENCODING, CONTENT_ENCODING_GZIP);
+
+					response.setEntity(cached.getGzip());
+				} else {
+					response.setEntity(cached.getJson());
+				}
+			} catch (Exception excp) { // the entity is serialized as usual
+				LOG.warn("RangerDownloadResponseFilter.filter(" + key + "): failed to get cached response", excp);
+			}
+		}
+
+		return response;
+	}
+
+	private static ResponseKey getResponseKey() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		Object            ret        = attributes != null ? attributes.getAttribute(RangerDownloadResponseCache.ATTR_RESPONSE_KEY, RequestAttributes.SCOPE_REQUEST) : null;
+
+		return ret instanceof ResponseKey ? (ResponseKey) ret : null;
+	}
+
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding != null) {
+			for (String encoding : acceptEncoding.split(",")) {
+				String[] nameAndParams = encoding.trim().split(";");
+
+				if (CONTENT_ENCODING_GZIP.equalsIgnoreCase(nameAndParams[0].trim())) {
+					return nameAndParams.length == 1 || !nameAndParams[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+				}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.biz;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXPolicyChangeLogDao;
+import org.apache.ranger.db.XXTagChangeLogDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class TestRangerChangeLogManager {
+	@Test
+	public void testDeltasOrSnapshot() {
+		RangerChangeLogManager manager = new RangerChangeLogManager(50, 0);
+
+		Assert.assertTrue(manager.isDeltasCheaper(0, 0));
+		Assert.assertTrue(manager.isDeltasCheaper(10, 100));
+		Assert.assertTrue(manager.isDeltasCheaper(50, 100));
+		Assert.assertFalse(manager.isDeltasCheaper(51, 100));
+		Assert.assertFalse(manager.isDeltasCheaper(1, 0));
+
+		Map<String, Long> metrics = manager.getMetrics();
+
+		Assert.assertEquals(Long.valueOf(2), metrics.get("SnapshotChosenCount"));
+		Assert.assertEquals(Long.valueOf(0), metrics.get("DeltasChosenCount"));
+	}
+
+	@Test
+	public void testCheckDisabled() {
+		RangerChangeLogManager manager = new RangerChangeLogManager(-1, 0);
+
+		Assert.assertTrue(manager.isDeltasCheaper(1000, 10));
+		Assert.assertEquals(Long.valueOf(0), manager.getMetrics().get("SnapshotChosenCount"));
+	}
+
+	@Test
+	public void testCompactionMetrics() {
+		RangerChangeLogManager manager = new RangerChangeLogManager(100, 0);
+
+		manager.recordDeltasChosen(10, 3);
+		manager.recordDeltasChosen(5, 5);
+		manager.recordDeltasUnavailable();
+
+		Map<String, Long> metrics = manager.getMetrics();
+
+		Assert.assertEquals(Long.valueOf(2), metrics.get("DeltasChosenCount"));
+		Assert.assertEquals(Long.valueOf(15), metrics.get("ChangeLogReadCount"));
+		Assert.assertEquals(Long.valueOf(8), metrics.get("CompactedDeltaCount"));
+		Assert.assertEquals(Long.valueOf(1), metrics.get("DeltasUnavailableCount"));
+		Assert.assertEquals(Long.valueOf(0), metrics.get("PolicyChangeLogPurgedCount"));
+	}
+
+	@Test
+	public void testPurgedDeltas() {
+		RangerChangeLogManager manager = new RangerChangeLogManager(100, 0);
+
+		Assert.assertTrue(manager.isPolicyDeltasRetained(1L, 5L));
+
+		manager.setOldestVersions(Collections.singletonMap(1L, 10L), Collections.singletonMap(2L, 20L));
+
+		Assert.assertFalse(manager.isPolicyDeltasRetained(1L, 5L));
+		Assert.assertTrue(manager.isPolicyDeltasRetained(1L, 10L));
+		Assert.assertTrue(manager.isPolicyDeltasRetained(1L, 15L));
+		Assert.assertTrue(manager.isPolicyDeltasRetained(2L, 5L)); // no policy change-log records at the purge
+		Assert.assertFalse(manager.isTagDeltasRetained(2L, 19L));
+		Assert.assertTrue(manager.isTagDeltasRetained(2L, 20L));
+	}
+
+	@Test
+	public void testChangeLogCounts() {
+		RangerChangeLogManager.ChangeLogCounts counts  = new RangerChangeLogManager.ChangeLogCounts();
+		AtomicInteger                          queries = new AtomicInteger();
+
+		Assert.assertEquals(3L, counts.getCount(1L, 5L, 8L, () -> { queries.incrementAndGet(); return 3L; }));
+		Assert.assertEquals(3L, counts.getCount(1L, 5L, 8L, () -> { queries.incrementAndGet(); return 3L; }));
+		Assert.assertEquals(1, queries.get());
+
+		// later latest version: earlier counts are dropped
+		Assert.assertEquals(4L, counts.getCount(1L, 5L, 9L, () -> { queries.incrementAndGet(); return 4L; }));
+		Assert.assertEquals(4L, counts.getCount(1L, 5L, 9L, () -> { queries.incrementAndGet(); return 4L; }));
+		Assert.assertEquals(2, queries.get());
+
+		// earlier latest version, or none: not cached
+		Assert.assertEquals(3L, counts.getCount(1L, 5L, 8L, () -> { queries.incrementAndGet(); return 3L; }));
+		Assert.assertEquals(4L, counts.getCount(1L, 5L, Long.MAX_VALUE, () -> { queries.incrementAndGet(); return 4L; }));
+		Assert.assertEquals(4L, counts.getCount(1L, 5L, 9L, () -> { queries.incrementAndGet(); return 4L; }));
+		Assert.assertEquals(4, queries.get());
+
+		counts.clear();
+
+		Assert.assertEquals(2L, counts.getCount(1L, 5L, 9L, () -> { queries.incrementAndGet(); return 2L; }));
+		Assert.assertEquals(5, queries.get());
+	}
+
+	@Test
+	public void testPolicyCount() {
+		RangerChangeLogManager manager = new RangerChangeLogManager(100, 0);
+		AtomicInteger          queries = new AtomicInteger();
+
+		Assert.assertEquals(10L, manager.getPolicyCount(1L, 8L, () -> { queries.incrementAndGet(); return 10L; }));
+		Assert.assertEquals(10L, manager.getPolicyCount(1L, 8L, () -> { queries.incrementAndGet(); return 10L; }));
+		Assert.assertEquals(1, queries.get());
+
+		// the count is refreshed only when the version changes
+		Assert.assertEquals(11L, manager.getPolicyCount(1L, 9L, () -> { queries.incrementAndGet(); return 11L; }));
+		Assert.assertEquals(11L, manager.getPolicyCount(1L, 9L, () -> { queries.incrementAndGet(); return 11L; }));
+		Assert.assertEquals(2, queries.get());
+
+		// earlier latest version, or none: not cached
+		Assert.assertEquals(10L, manager.getPolicyCount(1L, 8L, () -> { queries.incrementAndGet(); return 10L; }));
+		Assert.assertEquals(12L, manager.getPolicyCount(1L, Long.MAX_VALUE, () -> { queries.incrementAndGet(); return 12L; }));
+		Assert.assertEquals(4, queries.get());
+
+		Assert.assertEquals(5L, manager.getTaggedResourceCount(1L, 9L, () -> { queries.incrementAndGet(); return 5L; }));
+		Assert.assertEquals(5L, manager.getTaggedResourceCount(1L, 9L, () -> { queries.incrementAndGet(); return 5L; }));
+		Assert.assertEquals(5, queries.get());
+	}
+
+	@Test
+	public void testPurgeKeepsLatestRecord() {
+		// service id => version => true if older than the retention period
+		Map<Long, TreeMap<Long, Boolean>> policyLog = new HashMap<>();
+
+		policyLog.put(1L, new TreeMap<>()); // quiet service: no change within the retention period
+		policyLog.put(2L, new TreeMap<>());
+
+		for (long version = 1; version <= 5; version++) {
+			policyLog.get(1L).put(version, true);
+			policyLog.get(2L).put(version, version <= 3);
+		}
+
+		XXPolicyChangeLogDao policyLogDao = Mockito.mock(XXPolicyChangeLogDao.class);
+		RangerDaoManager     daoMgr       = Mockito.mock(RangerDaoManager.class);
+
+		Mockito.when(daoMgr.getXXPolicyChangeLog()).thenReturn(policyLogDao);
+		Mockito.when(daoMgr.getXXTagChangeLog()).thenReturn(Mockito.mock(XXTagChangeLogDao.class));
+		Mockito.when(policyLogDao.getServiceIdsOlderThan(Mockito.anyInt())).thenAnswer(invocation -> policyLog.keySet().stream().filter(serviceId -> policyLog.get(serviceId).containsValue(true)).collect(Collectors.toList()));
+		Mockito.when(policyLogDao.getLatestVersion(Mockito.anyLong())).thenAnswer(invocation -> policyLog.get(invocation.<Long>getArgument(0)).lastKey());
+		Mockito.when(policyLogDao.deleteOlderThan(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyLong())).thenAnswer(invocation -> {
+			TreeMap<Long, Boolean> versions = policyLog.get(invocation.<Long>getArgument(0));
+			int                    count    = versions.size();
+
+			versions.headMap(invocation.getArgument(2)).values().removeIf(isOld -> isOld);
+
+			return (long) (count - versions.size());
+		});
+		Mockito.when(policyLogDao.getOldestVersions()).thenAnswer(invocation -> policyLog.keySet().stream().collect(Collectors.toMap(serviceId -> serviceId, serviceId -> policyLog.get(serviceId).firstKey())));
+
+		RangerChangeLogManager manager = new RangerChangeLogManager(100, 0);
+
+		manager.daoMgr    = daoMgr;
+		manager.txManager = Mockito.mock(PlatformTransactionManager.class);
+
+		manager.purgeChangeLogs();
+
+		// plugins of the quiet service are at its latest version, and still get deltas after its next change
+		Assert.assertEquals(Collections.singleton(5L), policyLog.get(1L).keySet());
+		Assert.assertTrue(manager.isPolicyDeltasRetained(1L, 5L));
+		Assert.assertFalse(manager.isPolicyDeltasRetained(1L, 4L));
+		Assert.assertEquals(Long.valueOf(4), policyLog.get(2L).firstKey());
+		Assert.assertFalse(manager.isPolicyDeltasRetained(2L, 3L));
+		Assert.assertEquals(Long.valueOf(7), manager.getMetrics().get("PolicyChangeLogPurgedCount"));
+
+		// purging again, as another Ranger Admin instance would, deletes nothing
+		manager.purgeChangeLogs();
+
+		Assert.assertEquals(Collections.singleton(5L), policyLog.get(1L).keySet());
+		Assert.assertEquals(Long.valueOf(7), manager.getMetrics().get("PolicyChangeLogPurgedCount"));
+	}
+}
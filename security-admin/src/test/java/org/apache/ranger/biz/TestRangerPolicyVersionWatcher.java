@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.biz;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerPolicyVersionWatcher {
+	private ExecutorService   executor;
+	private Map<String, Long> versionsInDB;
+
+	@Before
+	public void setup() {
+		executor     = Executors.newSingleThreadExecutor();
+		versionsInDB = new ConcurrentHashMap<>();
+
+		versionsInDB.put("dev_hive", 5L);
+	}
+
+	@After
+	public void cleanup() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWaitEndsOnVersionChange() throws Exception {
+		RangerPolicyVersionWatcher watcher = createWatcher(100, 30 * 1000L, 10);
+		Future<Boolean>            result  = executor.submit(() -> watcher.waitForChange("dev_hive", 5L, 30 * 1000L));
+
+		waitForWaiters(watcher, 1);
+
+		watcher.updateVersions(Collections.singletonMap("dev_hive", 5L)); // no change yet
+
+		Thread.sleep(100);
+
+		Assert.assertFalse(result.isDone());
+
+		watcher.updateVersions(Collections.singletonMap("dev_hive", 6L));
+
+		Assert.assertTrue(result.get(10, TimeUnit.SECONDS));
+		Assert.assertEquals(0, watcher.getWaiterCount());
+		Assert.assertEquals(0, watcher.getWatchedServiceCount());
+
+		// the version is read when a request starts to wait, even with no version checks since
+		versionsInDB.put("dev_hive", 7L);
+
+		Assert.assertTrue(watcher.waitForChange("dev_hive", 6L, 30 * 1000L));
+	}
+
+	@Test
+	public void testWaitTimesOut() throws Exception {
+		RangerPolicyVersionWatcher watcher   = createWatcher(100, 200, 10);
+		long                       startTime = System.currentTimeMillis();
+
+		// wait time is capped at maxWaitTimeMs
+		Assert.assertFalse(watcher.waitForChange("dev_hive", 5L, 30 * 1000L));
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 10 * 1000L);
+		Assert.assertEquals(0, watcher.getWatchedServiceCount());
+	}
+
+	@Test
+	public void testNoWait() throws Exception {
+		RangerPolicyVersionWatcher watcher   = createWatcher(100, 30 * 1000L, 10);
+		RangerPolicyVersionWatcher noWaiters = createWatcher(100, 30 * 1000L, 0);
+
+		// plugin without policies
+		Assert.assertTrue(watcher.waitForChange("dev_hive", -1L, 30 * 1000L));
+		// no wait time requested
+		Assert.assertTrue(watcher.waitForChange("dev_hive", 5L, 0));
+		// too many waiting requests
+		Assert.assertTrue(noWaiters.waitForChange("dev_hive", 5L, 30 * 1000L));
+		// service that doesn't exist: not tracked
+		Assert.assertTrue(watcher.waitForChange("no_such_service", 5L, 30 * 1000L));
+		Assert.assertEquals(0, watcher.getWatchedServiceCount());
+	}
+
+	@Test
+	public void testDeletedService() throws Exception {
+		RangerPolicyVersionWatcher watcher = createWatcher(100, 30 * 1000L, 10);
+		Future<Boolean>            result  = executor.submit(() -> watcher.waitForChange("dev_hive", 5L, 30 * 1000L));
+
+		waitForWaiters(watcher, 1);
+
+		watcher.updateVersions(Collections.emptyMap());
+
+		Assert.assertTrue(result.get(10, TimeUnit.SECONDS));
+	}
+
+	private RangerPolicyVersionWatcher createWatcher(long checkIntervalMs, long maxWaitTimeMs, int maxWaiters) {
+		return new RangerPolicyVersionWatcher(checkIntervalMs, maxWaitTimeMs, maxWaiters) {
+			@Override
+			Long getPolicyVersion(String serviceName) {
+				return versionsInDB.get(serviceName);
+			}
+		};
+	}
+
+	private static void waitForWaiters(RangerPolicyVersionWatcher watcher, int count) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + 10 * 1000L;
+
+		while (watcher.getWaiterCount() < count && System.currentTimeMillis() < endTime) {
+			Thread.sleep(10);
+		}
+
+		Assert.assertEquals(count, watcher.getWaiterCount());
+	}
+}
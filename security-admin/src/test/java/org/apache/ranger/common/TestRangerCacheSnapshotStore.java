@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerCacheSnapshotStore {
+	private File snapshotDir;
+
+	@Before
+	public void setup() throws IOException {
+		snapshotDir = Files.createTempDirectory("ranger-cache-snapshots-").toFile();
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		FileUtils.deleteDirectory(snapshotDir);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		RangerCacheSnapshotStore store    = new RangerCacheSnapshotStore(snapshotDir);
+		ServicePolicies          policies = createPolicies("dev_hive", 3L, 12L);
+
+		Assert.assertTrue(store.isEnabled());
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class));
+
+		store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, policies);
+		store.waitForPendingSaves();
+
+		ServicePolicies loaded = store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class);
+
+		Assert.assertNotNull(loaded);
+		Assert.assertEquals(Long.valueOf(12L), loaded.getPolicyVersion());
+		Assert.assertEquals(policies.getPolicies().get(0).getName(), loaded.getPolicies().get(0).getName());
+
+		// a service recreated with the same name has a different id
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 4L, ServicePolicies.class));
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_TAGS, "dev_hive", 3L, ServicePolicies.class));
+
+		// a newer version replaces the earlier snapshot
+		store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, createPolicies("dev_hive", 3L, 13L));
+		store.waitForPendingSaves();
+
+		Assert.assertEquals(Long.valueOf(13L), store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class).getPolicyVersion());
+		Assert.assertEquals(1, snapshotDir.list().length);
+	}
+
+	@Test
+	public void testUnreadableSnapshotIsDeleted() throws IOException {
+		RangerCacheSnapshotStore store = new RangerCacheSnapshotStore(snapshotDir);
+		File                     file  = new File(snapshotDir, RangerCacheSnapshotStore.getFileName(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L));
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("{ not a snapshot".getBytes("UTF-8"));
+		}
+
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class));
+		Assert.assertFalse(file.exists());
+	}
+
+	@Test
+	public void testDelete() throws Exception {
+		RangerCacheSnapshotStore store = new RangerCacheSnapshotStore(snapshotDir);
+
+		store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, createPolicies("dev_hive", 3L, 1L));
+		store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive_2", 4L, createPolicies("dev_hive_2", 4L, 1L));
+		store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hdfs", 5L, createPolicies("dev_hdfs", 5L, 1L));
+		store.save(RangerCacheSnapshotStore.TYPE_ROLES, null, null, createPolicies("roles", null, 1L));
+		store.waitForPendingSaves();
+
+		store.delete(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive");
+
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class));
+		Assert.assertNotNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive_2", 4L, ServicePolicies.class));
+
+		store.delete(RangerCacheSnapshotStore.TYPE_POLICIES, null);
+
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive_2", 4L, ServicePolicies.class));
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hdfs", 5L, ServicePolicies.class));
+		Assert.assertNotNull(store.load(RangerCacheSnapshotStore.TYPE_ROLES, null, null, ServicePolicies.class));
+	}
+
+	@Test
+	public void testOnlyLatestVersionIsWritten() throws Exception {
+		RangerCacheSnapshotStore store = new RangerCacheSnapshotStore(snapshotDir);
+
+		// holding the store keeps the writer from writing, like a slow disk would
+		synchronized (store) {
+			for (long version = 1; version <= 5; version++) {
+				store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, createPolicies("dev_hive", 3L, version));
+			}
+		}
+
+		store.waitForPendingSaves();
+
+		Assert.assertEquals(Long.valueOf(5L), store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class).getPolicyVersion());
+		Assert.assertEquals(1, snapshotDir.list().length);
+	}
+
+	@Test
+	public void testDeleteDropsPendingSaves() throws Exception {
+		RangerCacheSnapshotStore store = new RangerCacheSnapshotStore(snapshotDir);
+
+		synchronized (store) {
+			store.save(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, createPolicies("dev_hive", 3L, 1L));
+			store.delete(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive");
+		}
+
+		store.waitForPendingSaves();
+
+		Assert.assertNull(store.load(RangerCacheSnapshotStore.TYPE_POLICIES, "dev_hive", 3L, ServicePolicies.class));
+	}
+
+	private static ServicePolicies createPolicies(String serviceName, Long serviceId, Long version) {
+		ServicePolicies    ret      = new ServicePolicies();
+		List<RangerPolicy> policies = new ArrayList<>();
+		RangerPolicy       policy   = new RangerPolicy();
+
+		policy.setId(1L);
+		policy.setName("policy-1");
+		policy.setService(serviceName);
+		policy.setPolicyLabels(Collections.singletonList("label-1"));
+
+		policies.add(policy);
+
+		ret.setServiceName(serviceName);
+		ret.setServiceId(serviceId);
+		ret.setPolicyVersion(version);
+		ret.setPolicies(policies);
+
+		return ret;
+	}
+}
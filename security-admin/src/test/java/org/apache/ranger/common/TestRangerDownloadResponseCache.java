@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.ranger.common.RangerDownloadResponseCache.CachedResponse;
+import org.apache.ranger.common.RangerDownloadResponseCache.ResponseKey;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRangerDownloadResponseCache {
+
+	@Test
+	public void testResponseIsRenderedOncePerVersionAndVariant() throws Exception {
+		RangerDownloadResponseCache cache     = new RangerDownloadResponseCache(true, 4);
+		ServicePolicies             policies  = createPolicies(5L);
+		ResponseKey                 key       = new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hive", 5L, "full");
+		CachedResponse              response  = cache.getResponse(key, policies);
+
+		Assert.assertSame(response, cache.getResponse(key, createPolicies(5L)));
+		Assert.assertEquals(JsonUtilsV2.objToJson(policies), new String(response.getJson(), "UTF-8"));
+		Assert.assertEquals("\"policies-5-full\"", response.getETag());
+
+		// same content when decompressed
+		byte[] json = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getGzip())));
+
+		Assert.assertArrayEquals(response.getJson(), json);
+		Assert.assertSame(response.getGzip(), response.getGzip());
+
+		// other variants and services are cached separately
+		CachedResponse deltas = cache.getResponse(new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hive", 5L, "delta-4"), policies);
+
+		Assert.assertNotSame(response, deltas);
+		Assert.assertNotEquals(response.getETag(), deltas.getETag());
+
+		cache.getResponse(new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hdfs", 5L, "full"), policies);
+
+		Assert.assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void testOnlyLatestVersionIsCached() throws Exception {
+		RangerDownloadResponseCache cache = new RangerDownloadResponseCache(true, 4);
+		ResponseKey                 key5  = new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hive", 5L, "full");
+		ResponseKey                 key6  = new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hive", 6L, "full");
+
+		CachedResponse response5 = cache.getResponse(key5, createPolicies(5L));
+		CachedResponse response6 = cache.getResponse(key6, createPolicies(6L));
+
+		Assert.assertEquals(1, cache.size());
+		Assert.assertSame(response6, cache.getResponse(key6, createPolicies(6L)));
+
+		// an older version, requested after a newer one is cached, is rendered but not cached
+		CachedResponse older = cache.getResponse(key5, createPolicies(5L));
+
+		Assert.assertNotSame(response5, older);
+		Assert.assertArrayEquals(response5.getJson(), older.getJson());
+		Assert.assertEquals(1, cache.size());
+
+		cache.reset(RangerDownloadResponseCache.TYPE_TAGS, "dev_hive");
+
+		Assert.assertEquals(1, cache.size());
+
+		cache.reset(RangerDownloadResponseCache.TYPE_POLICIES, null);
+
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testVariantsAreBounded() throws Exception {
+		RangerDownloadResponseCache cache    = new RangerDownloadResponseCache(true, 4);
+		ServicePolicies             policies = createPolicies(10L);
+
+		for (int i = 0; i < 10; i++) {
+			cache.getResponse(new ResponseKey(RangerDownloadResponseCache.TYPE_POLICIES, "dev_hive", 10L, "delta-" + i), policies);
+
+			Assert.assertTrue(cache.size() <= 4);
+		}
+	}
+
+	private static ServicePolicies createPolicies(long version) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName("dev_hive");
+		ret.setPolicyVersion(version);
+
+		return ret;
+	}
+}
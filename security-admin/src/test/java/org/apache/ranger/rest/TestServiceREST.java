@@ -33,6 +33,7 @@
 import org.apache.ranger.admin.client.datatype.RESTResponse;
 import org.apache.ranger.biz.AssetMgr;
 import org.apache.ranger.biz.RangerPolicyAdmin;
+import org.apache.ranger.biz.RangerPolicyVersionWatcher;
 import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.biz.SecurityZoneDBStore;
 import org.apache.ranger.biz.ServiceDBStore;
@@ -110,6 +111,7 @@
 import com.sun.jersey.core.header.FormDataContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.mockito.ArgumentMatchers.eq;
 
@@ -178,6 +180,12 @@ public class TestServiceREST {
 	@Mock
 	RESTErrorUtil restErrorUtil;
 
+	@Mock
+	PlatformTransactionManager txManager;
+
+	@Mock
+	RangerPolicyVersionWatcher policyVersionWatcher;
+
 	@Mock
 	RangerServiceDefValidator serviceDefValidator;
 
@@ -2803,4 +2811,27 @@ public void test81GetPolicyByNameAndServiceNameWithZoneNameIsNull() throws Excep
 		Assert.assertEquals(dbRangerPolicy.getId(), rangerPolicy.getId());
 		Assert.assertEquals(dbRangerPolicy.getName(), rangerPolicy.getName());
 	}
+
+	@Test
+	public void test82WaitForServicePoliciesUpdateUnauthenticated() throws Exception {
+		HttpServletRequest request   = Mockito.mock(HttpServletRequest.class);
+		long               startTime = System.currentTimeMillis();
+
+		Mockito.doThrow(new Exception("Unauthenticated access not allowed")).when(bizUtil).failUnauthenticatedDownloadIfNotAllowed();
+		Mockito.when(restErrorUtil.createRESTException(Mockito.eq(HttpServletResponse.SC_UNAUTHORIZED), Mockito.anyString(), Mockito.anyBoolean()))
+				.thenReturn(new WebApplicationException(HttpServletResponse.SC_UNAUTHORIZED));
+
+		try {
+			serviceREST.waitForServicePoliciesUpdate("HDFS_1", 1L, 0L, "1", "", "", false, capabilityVector, 30 * 1000L, request);
+
+			Assert.fail("expected WebApplicationException");
+		} catch (WebApplicationException excp) {
+			Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, excp.getResponse().getStatus());
+		}
+
+		// rejected without waiting
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 10 * 1000L);
+		Mockito.verifyZeroInteractions(policyVersionWatcher);
+		Mockito.verify(svcStore, Mockito.never()).getServicePoliciesIfUpdated(Mockito.anyString(), Mockito.anyLong(), Mockito.anyBoolean());
+	}
 }